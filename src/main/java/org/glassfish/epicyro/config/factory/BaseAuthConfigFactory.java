@@ -319,12 +319,10 @@ public abstract class BaseAuthConfigFactory extends AuthConfigFactory {
 
     @Override
     public void removeServerAuthModule(Object context) {
-        if (!(context instanceof ServletContext)) {
+        if (!(context instanceof ServletContext servletContext)) {
             return;
         }
 
-        ServletContext servletContext = (ServletContext) context;
-
         String registrationId = (String) servletContext.getAttribute(CONTEXT_REGISTRATION_ID);
         if (!isEmpty(registrationId)) {
             removeRegistration(registrationId);
@@ -28,13 +28,15 @@ import jakarta.security.auth.message.config.ServerAuthConfig;
 import jakarta.security.auth.message.config.ServerAuthContext;
 import jakarta.security.auth.message.module.ServerAuthModule;
 
+import org.glassfish.epicyro.config.helper.AuthConfigVersionCapability;
+
 /**
  * This class functions as a kind of factory for {@link ServerAuthContext} instances, which are delegates for the actual
  * {@link ServerAuthModule} (SAM) that we're after.
  *
  * @author Arjan Tijms
  */
-public class DefaultServerAuthConfig implements ServerAuthConfig {
+public class DefaultServerAuthConfig implements ServerAuthConfig, AuthConfigVersionCapability {
 
     private String layer;
     private String appContext;
@@ -85,6 +87,14 @@ public class DefaultServerAuthConfig implements ServerAuthConfig {
     public void refresh() {
     }
 
+    /**
+     * The single module never changes.
+     */
+    @Override
+    public long getConfigVersion() {
+        return 0;
+    }
+
     @Override
     public boolean isProtected() {
         return false;
@@ -18,10 +18,15 @@
 package org.glassfish.epicyro.config.factory.singlemodule;
 
 import java.util.Collections;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import javax.security.auth.Subject;
 import javax.security.auth.callback.CallbackHandler;
 
+import org.glassfish.epicyro.config.helper.AnonymousRequestCapability;
+import org.glassfish.epicyro.config.helper.AsyncValidationCapability;
+
 import jakarta.security.auth.message.AuthException;
 import jakarta.security.auth.message.AuthStatus;
 import jakarta.security.auth.message.MessageInfo;
@@ -39,7 +44,7 @@ import jakarta.security.auth.message.module.ServerAuthModule;
  *
  * @author Arjan Tijms
  */
-public class DefaultServerAuthContext implements ServerAuthContext {
+public class DefaultServerAuthContext implements ServerAuthContext, AnonymousRequestCapability, AsyncValidationCapability {
 
     private final ServerAuthModule serverAuthModule;
 
@@ -54,6 +59,16 @@ public class DefaultServerAuthContext implements ServerAuthContext {
         return serverAuthModule.validateRequest(messageInfo, clientSubject, serviceSubject);
     }
 
+    @Override
+    public CompletionStage<AuthStatus> validateRequestAsync(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, Executor executor) {
+        return AsyncValidationCapability.validateRequestAsync(serverAuthModule, messageInfo, clientSubject, serviceSubject, executor);
+    }
+
+    @Override
+    public boolean isAnonymousRequest(MessageInfo messageInfo) {
+        return AnonymousRequestCapability.isAnonymousRequest(serverAuthModule, messageInfo);
+    }
+
     @Override
     public AuthStatus secureResponse(MessageInfo messageInfo, Subject serviceSubject) throws AuthException {
         return serverAuthModule.secureResponse(messageInfo, serviceSubject);
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import jakarta.security.auth.message.MessageInfo;
+
+/**
+ * Optional capability of a server auth module, or of a server auth context that wraps such modules, to tell
+ * up front that validating a request would have an anonymous outcome.
+ *
+ * <p>
+ * When {@link #isAnonymousRequest(MessageInfo)} returns <code>true</code>, the runtime may skip
+ * <code>validateRequest</code> altogether and continue with the anonymous caller. Implementations must therefore
+ * only return <code>true</code> when <code>validateRequest</code> would return <code>SUCCESS</code> with no caller
+ * principal other than the unauthenticated one, no groups, and without any other side effect on the message,
+ * the request, the response or the session.
+ */
+public interface AnonymousRequestCapability {
+
+    /**
+     * Returns whether validating the given message would have an anonymous outcome without side effects.
+     *
+     * @param messageInfo the message that is about to be validated
+     * @return <code>true</code> if <code>validateRequest</code> may be skipped for the given message
+     */
+    boolean isAnonymousRequest(MessageInfo messageInfo);
+
+    /**
+     * Returns whether the given server auth context or module declares the capability and permits the
+     * anonymous outcome for the given message.
+     */
+    static boolean isAnonymousRequest(Object serverAuth, MessageInfo messageInfo) {
+        return serverAuth instanceof AnonymousRequestCapability anonymousRequestCapability &&
+               anonymousRequestCapability.isAnonymousRequest(messageInfo);
+    }
+}
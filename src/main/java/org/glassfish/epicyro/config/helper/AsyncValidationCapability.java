@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import javax.security.auth.Subject;
+
+import jakarta.security.auth.message.AuthException;
+import jakarta.security.auth.message.AuthStatus;
+import jakarta.security.auth.message.MessageInfo;
+import jakarta.security.auth.message.ServerAuth;
+
+/**
+ * Optional capability of a server auth module, or of a server auth context that wraps such modules, to validate
+ * a request without blocking the calling thread.
+ *
+ * <p>
+ * Modules that wait on I/O, such as a remote identity store, can implement this to complete the returned stage
+ * from whatever thread that I/O completes on. Modules without the capability are called through
+ * {@link #validateRequestAsync(ServerAuth, MessageInfo, Subject, Subject, Executor)}, which runs their blocking
+ * <code>validateRequest</code> on the given executor instead.
+ *
+ * <p>
+ * The outcome must be the same as that of <code>validateRequest</code>, including what the module adds to the
+ * client subject and sets on the message. The stage completes exceptionally with an {@link AuthException} where
+ * <code>validateRequest</code> would have thrown one.
+ */
+public interface AsyncValidationCapability {
+
+    /**
+     * Validates the given message, completing the returned stage with the status <code>validateRequest</code>
+     * would have returned.
+     *
+     * @param messageInfo the message to validate
+     * @param clientSubject the subject to which the caller's identity is added
+     * @param serviceSubject the subject of the service, or <code>null</code>
+     * @param executor an executor on which blocking work, such as calling the callback handler, may be done
+     * @return the stage that completes with the status of the validation
+     */
+    CompletionStage<AuthStatus> validateRequestAsync(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, Executor executor);
+
+    /**
+     * Validates the given message with the given server auth context or module, asynchronously if it declares the
+     * capability, and otherwise by calling its <code>validateRequest</code> on the given executor.
+     */
+    static CompletionStage<AuthStatus> validateRequestAsync(ServerAuth serverAuth, MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, Executor executor) {
+        if (serverAuth instanceof AsyncValidationCapability asyncServerAuth) {
+            try {
+                return asyncServerAuth.validateRequestAsync(messageInfo, clientSubject, serviceSubject, executor);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        return validateRequestOn(serverAuth, messageInfo, clientSubject, serviceSubject, executor);
+    }
+
+    /**
+     * Calls <code>validateRequest</code> of the given server auth context or module on the given executor, whether
+     * or not it declares the capability.
+     */
+    static CompletionStage<AuthStatus> validateRequestOn(ServerAuth serverAuth, MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return serverAuth.validateRequest(messageInfo, clientSubject, serviceSubject);
+            } catch (AuthException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+}
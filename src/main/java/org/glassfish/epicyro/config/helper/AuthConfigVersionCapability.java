@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import jakarta.security.auth.message.config.AuthConfig;
+
+/**
+ * Optional capability of an auth config to tell which version of its configuration the auth contexts it returns
+ * are created from.
+ *
+ * <p>
+ * The version changes whenever <code>getAuthContext</code> may return contexts with other modules or other module
+ * options than before, such as after a refresh reloaded the module configuration. Callers may keep the contexts a
+ * config returned for as long as its version stays the same, and use them for concurrent requests. Contexts of
+ * configs without this capability must be obtained from the config each time.
+ *
+ * <p>
+ * A config should therefore only declare this capability when the contexts it returns, and the modules behind them,
+ * can be used by several threads at once. The {@link org.glassfish.epicyro.config.module.config.GFAuthConfig} doesn't,
+ * as its modules were never required to be thread-safe and get a new instance for each context.
+ */
+public interface AuthConfigVersionCapability {
+
+    /**
+     * Returns the version of the configuration from which <code>getAuthContext</code> currently creates contexts.
+     *
+     * @return the version, which is never negative
+     */
+    long getConfigVersion();
+
+    /**
+     * Returns the version of the configuration of the given auth config, or -1 if it doesn't declare the capability.
+     */
+    static long getConfigVersion(AuthConfig authConfig) {
+        return authConfig instanceof AuthConfigVersionCapability versionCapability ? versionCapability.getConfigVersion() : -1;
+    }
+}
@@ -24,8 +24,10 @@ import static jakarta.security.auth.message.MessagePolicy.ProtectionPolicy.AUTHE
 
 import jakarta.security.auth.message.MessagePolicy;
 import jakarta.security.auth.message.MessagePolicy.TargetPolicy;
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import javax.security.auth.callback.CallbackHandler;
 
 
@@ -41,7 +43,7 @@ public class AuthMessagePolicy {
     private static final MessagePolicy MANDATORY_POLICY = getMessagePolicy(SENDER, null, true);
     private static final MessagePolicy OPTIONAL_POLICY = getMessagePolicy(SENDER, null, false);
 
-    private static String handlerClassName;
+    private static final HandlerSources HANDLER_SOURCES = new HandlerSources();
 
     private AuthMessagePolicy() {
     }
@@ -95,21 +97,71 @@ public class AuthMessagePolicy {
         return new MessagePolicy[] { OPTIONAL_POLICY, null };
     }
 
+    /**
+     * Returns the callback handler for configs that aren't given one.
+     *
+     * <p>
+     * This is an instance of the class named by the system property
+     * <code>security.jaspic.config.ConfigHelper.CallbackHandler</code>, loaded by the context class loader, and of
+     * {@link ServerCallbackHandler} by default. Handlers that implement {@link SharedCallbackHandler}, which the
+     * default one does, are created once and shared. If the class is a {@link CallbackHandlerFactory}, the handler
+     * comes from a single instance of that factory. Other handlers are created anew on each call. The shared
+     * handlers and factories are kept per handler class, and go away with the class loader of the class.
+     *
+     * @return the callback handler
+     */
     public static CallbackHandler getDefaultCallbackHandler() {
-        ClassLoader loader = Thread.currentThread().getContextClassLoader();
-        if (handlerClassName == null) {
-            handlerClassName = System.getProperty(HANDLER_CLASS_PROPERTY, DEFAULT_HANDLER_CLASS);
+        String handlerClassName = System.getProperty(HANDLER_CLASS_PROPERTY, DEFAULT_HANDLER_CLASS);
+        if (DEFAULT_HANDLER_CLASS.equals(handlerClassName)) {
+            return DefaultHandlerHolder.DEFAULT_HANDLER;
         }
 
         try {
-            return (CallbackHandler)
-                Class.forName(handlerClassName, true, loader)
-                     .getDeclaredConstructor()
-                     .newInstance();
+            Class<?> handlerClass = Class.forName(handlerClassName, true, Thread.currentThread().getContextClassLoader());
 
-        } catch (ReflectiveOperationException | IllegalArgumentException | SecurityException e) {
+            return HANDLER_SOURCES.get(handlerClass).get();
+        } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static final class DefaultHandlerHolder {
+        static final CallbackHandler DEFAULT_HANDLER = new ServerCallbackHandler();
+    }
+
+    /**
+     * Where the handlers of a configured handler class come from, kept with the class itself so that neither the
+     * class nor its loader is kept reachable by this class, and so that classes of other loaders don't replace it.
+     */
+    private static final class HandlerSources extends ClassValue<Supplier<CallbackHandler>> {
+
+        @Override
+        protected Supplier<CallbackHandler> computeValue(Class<?> handlerClass) {
+            try {
+                Constructor<?> constructor = handlerClass.getDeclaredConstructor();
+
+                if (CallbackHandlerFactory.class.isAssignableFrom(handlerClass)) {
+                    CallbackHandlerFactory factory = (CallbackHandlerFactory) constructor.newInstance();
+                    return factory::createCallbackHandler;
+                }
+
+                if (SharedCallbackHandler.class.isAssignableFrom(handlerClass)) {
+                    CallbackHandler sharedHandler = (CallbackHandler) constructor.newInstance();
+                    return () -> sharedHandler;
+                }
+
+                return () -> newInstance(constructor);
+            } catch (ReflectiveOperationException | IllegalArgumentException | SecurityException | ClassCastException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private static CallbackHandler newInstance(Constructor<?> constructor) {
+            try {
+                return (CallbackHandler) constructor.newInstance();
+            } catch (ReflectiveOperationException | IllegalArgumentException | SecurityException | ClassCastException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
@@ -27,10 +27,10 @@ import jakarta.security.auth.message.callback.TrustStoreCallback;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.System.Logger;
 import java.math.BigInteger;
 import java.security.GeneralSecurityException;
-import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyStore;
 import java.security.KeyStore.PrivateKeyEntry;
 import java.security.KeyStoreException;
@@ -42,12 +42,8 @@ import java.security.UnrecoverableKeyException;
 import java.security.cert.CertStore;
 import java.security.cert.Certificate;
 import java.security.cert.CollectionCertStoreParameters;
-import java.security.cert.X509CertSelector;
-import java.security.cert.X509Certificate;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Enumeration;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.crypto.SecretKey;
 import javax.security.auth.Subject;
@@ -57,53 +53,248 @@ import javax.security.auth.callback.UnsupportedCallbackException;
 import javax.security.auth.x500.X500Principal;
 
 import org.glassfish.epicyro.services.InMemoryStore;
+import org.glassfish.epicyro.services.MappedIdentityStore;
 
 import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.WARNING;
-import static java.util.Collections.list;
+import static java.util.Collections.emptyList;
 
 /**
  * Created on April 21, 2004, 11:56 AM
  */
-public abstract class BaseCallbackHandler implements CallbackHandler {
+public abstract class BaseCallbackHandler implements CallbackHandler, IdentityStoreChangeCapability {
 
     private static final Logger LOG = System.getLogger(BaseCallbackHandler.class.getName());
 
     private static final String DEFAULT_DIGEST_ALGORITHM = "SHA-1";
 
+    private final PasswordValidationCoalescer passwordValidations = new PasswordValidationCoalescer();
+    private final TrustMaterialCache trustMaterial = new TrustMaterialCache();
+    private volatile PrivateKeyIndex privateKeyIndex;
+    private final MappedIdentityStore identityStore;
+    private final ChangeListeners identityStoreListeners = new ChangeListeners();
+
+    /**
+     * Kept by this handler, as the {@link InMemoryStore} only keeps a weak reference to it.
+     */
+    private final Runnable inMemoryStoreListener = identityStoreListeners::fire;
+
+    /**
+     * The processors registered per callback type, in order of registration. Only ever replaced, never changed.
+     */
+    private Map<Class<?>, CallbackProcessor<?>> registeredProcessors = new LinkedHashMap<>();
+
+    /**
+     * The processor per callback class, resolved from the registered processors on first use. Replaced by a new
+     * one whenever a processor is registered.
+     */
+    private volatile ClassValue<CallbackProcessor<Callback>> processors;
+
+    /**
+     * Creates a handler that validates passwords against the {@link InMemoryStore}.
+     */
+    protected BaseCallbackHandler() {
+        this(null);
+    }
+
+    /**
+     * Creates a handler that validates passwords against the given memory-mapped identity store.
+     *
+     * @param identityStore the identity store, or <code>null</code> to use the {@link InMemoryStore}
+     */
+    protected BaseCallbackHandler(MappedIdentityStore identityStore) {
+        this.identityStore = identityStore;
+        if (identityStore == null) {
+            InMemoryStore.addChangeListener(inMemoryStoreListener);
+        }
+        passwordValidations.invalidateOnChangeOf(this);
+
+        registerCallbackProcessor(CallerPrincipalCallback.class, this::processCallerPrincipal);
+        registerCallbackProcessor(GroupPrincipalCallback.class, this::processGroupPrincipal);
+        registerCallbackProcessor(PasswordValidationCallback.class, this::processPasswordValidation);
+        registerCallbackProcessor(PrivateKeyCallback.class, this::processPrivateKey);
+        registerCallbackProcessor(TrustStoreCallback.class, this::processTrustStore);
+        registerCallbackProcessor(CertStoreCallback.class, this::processCertStore);
+        registerCallbackProcessor(SecretKeyCallback.class, this::processSecretKey);
+    }
+
+    /**
+     * Handles the given callbacks.
+     *
+     * <p>
+     * The processor of each callback is looked up first, so that if any of them is not supported none of them are
+     * processed. Each callback is then processed by its processor, in order.
+     *
+     * <p>
+     * Handlers that override {@link #isSupportedCallback(Callback)}, {@link #handleSupportedCallbacks(Callback[])} or
+     * {@link #processCallback(Callback)} have these called instead, as before processors could be registered.
+     */
     @Override
     public void handle(Callback[] callbacks) throws IOException, UnsupportedCallbackException {
         if (callbacks == null) {
             return;
         }
 
+        if (OVERRIDES_HOOKS.get(getClass())) {
+            for (Callback callback : callbacks) {
+                if (!isSupportedCallback(callback)) {
+                    throw new UnsupportedCallbackException(callback, callback.getClass().getName());
+                }
+            }
+
+            handleSupportedCallbacks(callbacks);
+            return;
+        }
+
+        // Both passes look up the same processors, as the registered ones are read only once
+        ClassValue<CallbackProcessor<Callback>> currentProcessors = processors;
+
         for (Callback callback : callbacks) {
-            if (!isSupportedCallback(callback)) {
+            if (currentProcessors.get(callback.getClass()) == null) {
                 throw new UnsupportedCallbackException(callback, callback.getClass().getName());
             }
         }
 
-        handleSupportedCallbacks(callbacks);
+        for (Callback callback : callbacks) {
+            currentProcessors.get(callback.getClass()).process(callback);
+        }
+    }
+
+    /**
+     * Registers the processor for callbacks of the given type, replacing the one registered for it before.
+     *
+     * <p>
+     * A callback is processed by the processor registered for its class, or for the closest of its superclasses.
+     * Failing that, it's processed by the first registered processor for an interface it implements.
+     *
+     * <p>
+     * Only the handler itself can register processors, typically from its constructor, so that a handler that's
+     * shared by several configs can't be changed by any of them.
+     *
+     * @param <C> the type of callbacks
+     * @param callbackType the type of callbacks
+     * @param processor the processor for callbacks of that type
+     */
+    protected final synchronized <C extends Callback> void registerCallbackProcessor(Class<C> callbackType, CallbackProcessor<? super C> processor) {
+        Map<Class<?>, CallbackProcessor<?>> newRegisteredProcessors = new LinkedHashMap<>(registeredProcessors);
+        newRegisteredProcessors.put(callbackType, processor);
+
+        registeredProcessors = newRegisteredProcessors;
+        processors = new ProcessorDispatch(newRegisteredProcessors);
+    }
+
+    /**
+     * Returns whether a processor is registered for the given callback.
+     *
+     * @param callback the callback
+     * @return <code>true</code> if the callback can be processed
+     * @deprecated register a processor with {@link #registerCallbackProcessor(Class, CallbackProcessor)} instead
+     */
+    @Deprecated
+    protected boolean isSupportedCallback(Callback callback) {
+        return processors.get(callback.getClass()) != null;
+    }
+
+    /**
+     * Processes the given callbacks, which are all supported, in order.
+     *
+     * @param callbacks the callbacks to process
+     * @throws IOException if an input or output error occurs
+     * @throws UnsupportedCallbackException if a callback can't be processed after all
+     * @deprecated register a processor with {@link #registerCallbackProcessor(Class, CallbackProcessor)} instead
+     */
+    @Deprecated
+    protected void handleSupportedCallbacks(Callback[] callbacks) throws IOException, UnsupportedCallbackException {
+        try {
+            for (Callback callback : callbacks) {
+                processCallback(callback);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
+    /**
+     * Processes the given callback by the processor registered for it.
+     *
+     * <p>
+     * An {@link IOException} of the processor is thrown as an {@link UncheckedIOException}, which
+     * {@link #handleSupportedCallbacks(Callback[])} unwraps again.
+     *
+     * @param callback the callback to process
+     * @throws UnsupportedCallbackException if no processor is registered for the callback
+     * @deprecated register a processor with {@link #registerCallbackProcessor(Class, CallbackProcessor)} instead
+     */
+    @Deprecated
     protected void processCallback(Callback callback) throws UnsupportedCallbackException {
-        if (callback instanceof CallerPrincipalCallback) {
-            processCallerPrincipal((CallerPrincipalCallback) callback);
-        } else if (callback instanceof GroupPrincipalCallback) {
-            processGroupPrincipal((GroupPrincipalCallback) callback);
-        } else if (callback instanceof PasswordValidationCallback) {
-            processPasswordValidation((PasswordValidationCallback) callback);
-        } else if (callback instanceof PrivateKeyCallback) {
-            processPrivateKey((PrivateKeyCallback) callback);
-        } else if (callback instanceof TrustStoreCallback) {
-            processTrustStore((TrustStoreCallback) callback);
-        } else if (callback instanceof CertStoreCallback) {
-            processCertStore((CertStoreCallback) callback);
-        } else if (callback instanceof SecretKeyCallback) {
-            processSecretKey((SecretKeyCallback) callback);
-        } else {
+        CallbackProcessor<Callback> processor = processors.get(callback.getClass());
+        if (processor == null) {
             throw new UnsupportedCallbackException(callback);
         }
+
+        try {
+            processor.process(callback);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether a handler class overrides any of the hooks that handled callbacks before processors could be registered.
+     */
+    private static final ClassValue<Boolean> OVERRIDES_HOOKS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> handlerClass) {
+            for (Class<?> type = handlerClass; type != BaseCallbackHandler.class; type = type.getSuperclass()) {
+                if (declares(type, "isSupportedCallback", Callback.class) ||
+                    declares(type, "handleSupportedCallbacks", Callback[].class) ||
+                    declares(type, "processCallback", Callback.class)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean declares(Class<?> type, String name, Class<?> parameterType) {
+            try {
+                type.getDeclaredMethod(name, parameterType);
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    /**
+     * Resolves the processor per callback class from the registered processors.
+     */
+    private static final class ProcessorDispatch extends ClassValue<CallbackProcessor<Callback>> {
+
+        private final Map<Class<?>, CallbackProcessor<?>> registeredProcessors;
+
+        ProcessorDispatch(Map<Class<?>, CallbackProcessor<?>> registeredProcessors) {
+            this.registeredProcessors = registeredProcessors;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected CallbackProcessor<Callback> computeValue(Class<?> callbackClass) {
+            for (Class<?> type = callbackClass; type != null; type = type.getSuperclass()) {
+                CallbackProcessor<?> processor = registeredProcessors.get(type);
+                if (processor != null) {
+                    return (CallbackProcessor<Callback>) processor;
+                }
+            }
+
+            for (Map.Entry<Class<?>, CallbackProcessor<?>> registered : registeredProcessors.entrySet()) {
+                if (registered.getKey().isInterface() && registered.getKey().isAssignableFrom(callbackClass)) {
+                    return (CallbackProcessor<Callback>) registered.getValue();
+                }
+            }
+
+            return null;
+        }
     }
 
     private void processCallerPrincipal(CallerPrincipalCallback callerPrincipalCallback) {
@@ -135,23 +326,65 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
                 caller.addGroups(groups);
             }
         } else if (groups == null && caller != null) {
-            caller.getGroups().clear();
+            caller.setGroups(GroupSet.EMPTY);
         }
     }
 
     protected void processPasswordValidation(PasswordValidationCallback pwdCallback) {
-        // Default to a very basic in memory identity store.
-        // Clients may want to override this for more advanced features.
-        Caller caller = InMemoryStore.validate(pwdCallback.getUsername(), getPassword(pwdCallback));
+        String username = pwdCallback.getUsername();
+        char[] password = pwdCallback.getPassword();
+
+        // Concurrent validations of the same credentials share a single lookup
+        Caller caller = username == null ?
+            validatePassword(username, getPassword(pwdCallback)) :
+            passwordValidations.validate(username, password, () -> validatePassword(username, getPassword(pwdCallback)));
+
         if (caller != null) {
             processCallerPrincipal(new CallerPrincipalCallback(pwdCallback.getSubject(), caller.getCallerPrincipal()));
-            if (!caller.getGroups().isEmpty()) {
-                processGroupPrincipal(new GroupPrincipalCallback(pwdCallback.getSubject(), caller.getGroupsAsArray()));
+            String[] groups = caller.getGroupsAsArray();
+            if (groups.length > 0) {
+                processGroupPrincipal(new GroupPrincipalCallback(pwdCallback.getSubject(), groups));
             }
             pwdCallback.setResult(true);
         }
     }
 
+    /**
+     * Looks up the caller with the given username and password in the identity store.
+     *
+     * <p>
+     * Defaults to the memory-mapped identity store this handler was created with, if any, and to a very basic
+     * in memory identity store otherwise. Clients may want to override this for more advanced features.
+     *
+     * @param username the username to validate
+     * @param password the password to validate the username against
+     * @return the caller if the password is valid for the username, <code>null</code> otherwise
+     */
+    protected Caller validatePassword(String username, String password) {
+        if (identityStore != null) {
+            return identityStore.validate(username, password);
+        }
+
+        return InMemoryStore.validate(username, password);
+    }
+
+    /**
+     * Changes of the {@link InMemoryStore} are reported when passwords are validated against it, and a
+     * memory-mapped identity store never changes. Subclasses that validate passwords against another store report
+     * its changes through {@link #identityStoreChanged()}.
+     */
+    @Override
+    public void addIdentityStoreChangeListener(Runnable listener) {
+        identityStoreListeners.add(listener);
+    }
+
+    /**
+     * Tells the listeners that the identity store passwords are validated against has changed.
+     */
+    protected void identityStoreChanged() {
+        identityStoreListeners.fire();
+    }
+
     protected void processTrustStore(TrustStoreCallback trustStoreCallback) {
         trustStoreCallback.setTrustStore(getTrustStore());
     }
@@ -209,24 +442,11 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
                 BigInteger serialNum = issuerSerialNumRequest.getSerialNum();
 
                 if (issuer != null && serialNum != null) {
-                    boolean found = false;
-
-                    for (int i = 0; i < keyStores.length && !found; i++) {
-                        Enumeration<String> aliases = keyStores[i].aliases();
-                        while (aliases.hasMoreElements() && !found) {
-                            String nextAlias = aliases.nextElement();
-                            PrivateKey key = getPrivateKeyForAlias(nextAlias, i);
-                            if (key != null) {
-                                Certificate[] certificates = keyStores[i].getCertificateChain(nextAlias);
-                                // Check issuer/serial
-                                X509Certificate eeCert = (X509Certificate) certificates[0];
-                                if (eeCert.getIssuerX500Principal().equals(issuer) && eeCert.getSerialNumber().equals(serialNum)) {
-                                    privateKey = key;
-                                    certificateChain = certificates;
-                                    found = true;
-                                }
-                            }
-                        }
+                    PrivateKeyIndex privateKeyIndex = getPrivateKeyIndex(keyStores);
+                    PrivateKeyIndex.IndexedKey key = privateKeyIndex.getByIssuerSerialNumber(issuer, serialNum);
+                    if (key != null) {
+                        privateKey = privateKeyIndex.getKey(key);
+                        certificateChain = key.getCertificateChain();
                     }
                 }
             } else if (request instanceof PrivateKeyCallback.SubjectKeyIDRequest) {
@@ -234,27 +454,11 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
                 byte[] subjectKeyID = subjectKeyIDRequest.getSubjectKeyID();
 
                 if (subjectKeyID != null) {
-                    boolean found = false;
-
-                    X509CertSelector selector = new X509CertSelector();
-                    selector.setSubjectKeyIdentifier(toDerOctetString(subjectKeyID));
-
-                    for (int i = 0; i < keyStores.length && !found; i++) {
-                        Enumeration<String> aliases = keyStores[i].aliases();
-                        while (aliases.hasMoreElements() && !found) {
-                            String nextAlias = aliases.nextElement();
-                            PrivateKey key = getPrivateKeyForAlias(nextAlias, i);
-
-                            if (key != null) {
-                                Certificate[] certificates = keyStores[i].getCertificateChain(nextAlias);
-
-                                if (selector.match(certificates[0])) {
-                                    privateKey = key;
-                                    certificateChain = certificates;
-                                    found = true;
-                                }
-                            }
-                        }
+                    PrivateKeyIndex privateKeyIndex = getPrivateKeyIndex(keyStores);
+                    PrivateKeyIndex.IndexedKey key = privateKeyIndex.getBySubjectKeyId(toDerOctetString(subjectKeyID));
+                    if (key != null) {
+                        privateKey = privateKeyIndex.getKey(key);
+                        certificateChain = key.getCertificateChain();
                     }
                 }
             } else if (request instanceof PrivateKeyCallback.DigestRequest) {
@@ -270,8 +474,8 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
                     if (algorithm == null) {
                         algorithm = DEFAULT_DIGEST_ALGORITHM;
                     }
-                    MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
-                    privateKeyEntry = getPrivateKeyEntry(keyStores, messageDigest, digest);
+                    PrivateKeyIndex privateKeyIndex = getPrivateKeyIndex(keyStores);
+                    privateKeyEntry = toPrivateKeyEntry(privateKeyIndex, privateKeyIndex.getByDigest(MessageDigest.getInstance(algorithm), digest));
                 }
 
                 if (privateKeyEntry != null) {
@@ -291,30 +495,22 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
         }
     }
 
+    /**
+     * Returns the first private key entry in keystore and alias order for which {@link #getPrivateKeyForAlias(String, int)}
+     * returns a key.
+     *
+     * @param keyStores the keystores to search
+     * @return the default private key entry, or <code>null</code> if there is none
+     */
     protected PrivateKeyEntry getDefaultPrivateKeyEntry(KeyStore[] keyStores) {
-        PrivateKey privateKey = null;
-        Certificate[] certificates = null;
         try {
-            for (int i = 0; i < keyStores.length && privateKey == null; i++) {
-                Enumeration<String> aliases = keyStores[i].aliases();
-
-                // Loop through aliases and try to get the key/chain
-                while (aliases.hasMoreElements() && privateKey == null) {
-                    String nextAlias = aliases.nextElement();
-                    privateKey = null;
-                    certificates = null;
-                    PrivateKey key = getPrivateKeyForAlias(nextAlias, i);
-                    if (key != null) {
-                        privateKey = key;
-                        certificates = keyStores[i].getCertificateChain(nextAlias);
-                    }
-                }
-            }
+            PrivateKeyIndex privateKeyIndex = getPrivateKeyIndex(keyStores);
+            return toPrivateKeyEntry(privateKeyIndex, privateKeyIndex.getDefault());
         } catch (Exception e) {
             LOG.log(DEBUG, "Exception in getDefaultPrivateKeyEntry", e);
         }
 
-        return new PrivateKeyEntry(privateKey, certificates);
+        return null;
     }
 
     protected PrivateKey getPrivateKeyForAlias(String alias, int keystoreIndex) throws KeyStoreException, NoSuchAlgorithmException, UnrecoverableKeyException {
@@ -325,34 +521,35 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
         return null;
     }
 
+    /**
+     * Returns the version of the keystores returned by {@link #getKeyStores()} and of the truststore returned by
+     * {@link #getTrustStore()}.
+     *
+     * <p>
+     * The private keys are looked up in an index of the keystores, and the cert store is a snapshot of the truststore.
+     * Both are taken again when other keystores are returned, when one of them changes in size, or when this version
+     * changes. Subclasses that change entries of their keystores in place should return a new version afterwards.
+     *
+     * @return the version of the keystores
+     */
+    protected long getKeyStoresVersion() {
+        return 0;
+    }
+
     protected void processCertStore(CertStoreCallback certStoreCallback) {
         LOG.log(DEBUG, "Jakarta Authentication: In CertStoreCallback Processor");
 
         KeyStore certStore = getTrustStore();
-        if (certStore == null) { // should never happen (but of course, it practice it will)
-            certStoreCallback.setCertStore(null);
-        }
-
-        List<Certificate> certificates = new ArrayList<>();
         try {
-            if (certStore != null) {
-                for (String alias : list(certStore.aliases())) {
-                    if (certStore.isCertificateEntry(alias)) {
-                        try {
-                            certificates.add(certStore.getCertificate(alias));
-                        } catch (KeyStoreException kse) {
-                            // ignore and move to next
-                            LOG.log(DEBUG, "Jakarta Authentication: Cannot retrieve certificate for alias {0}", alias);
-                        }
-                    }
-                }
+            if (certStore == null) { // should never happen (but of course, it practice it will)
+                certStoreCallback.setCertStore(
+                    CertStore.getInstance("Collection", new CollectionCertStoreParameters(emptyList())));
+            } else {
+                certStoreCallback.setCertStore(trustMaterial.getCertStore(certStore, getKeyStoresVersion()));
             }
-
-            certStoreCallback.setCertStore(
-                CertStore.getInstance("Collection", new CollectionCertStoreParameters(certificates)));
         } catch (KeyStoreException kse) {
             LOG.log(DEBUG, "Jakarta Authentication:  Cannot determine truststore aliases", kse);
-        } catch (InvalidAlgorithmParameterException | NoSuchAlgorithmException nsape) {
+        } catch (GeneralSecurityException nsape) {
             LOG.log(DEBUG, "Jakarta Authentication:  Cannot instantiate CertStore", nsape);
         }
     }
@@ -363,7 +560,7 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
         String alias = ((SecretKeyCallback.AliasRequest) secretKeyCallback.getRequest()).getAlias();
         if (alias != null) {
             try {
-                secretKeyCallback.setKey(getPasswordSecretKeyForAlias(alias));
+                secretKeyCallback.setKey(trustMaterial.getSecretKey(alias, this::getPasswordSecretKeyForAlias));
             } catch (Exception e) {
                 LOG.log(DEBUG, () -> "Jakarta Authentication: In SecretKeyCallback Processor: Error reading key ! for alias " + alias, e);
                 secretKeyCallback.setKey(null);
@@ -376,6 +573,24 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
         }
     }
 
+    /**
+     * Drops the cert store snapshot of the truststore, the secret keys and the private keys that were kept for
+     * callbacks, so that they are obtained again from {@link #getTrustStore()}, {@link #getPasswordSecretKeyForAlias(String)}
+     * and {@link #getKeyStores()}.
+     *
+     * <p>
+     * The private keys and the cert store snapshot are otherwise kept until other keystores are returned, one of them
+     * changes in size, or {@link #getKeyStoresVersion()} changes; the secret keys are kept until this method is called.
+     * A certificate or key that's replaced under the same alias goes unnoticed until then, so subclasses that replace
+     * entries in place must call this method or return a new version. The cert store snapshot and the secret keys
+     * also expire after the time in milliseconds set by the system property
+     * <code>org.glassfish.epicyro.trust.material.ttl</code>, if any.
+     */
+    public void invalidateTrustMaterial() {
+        trustMaterial.invalidate();
+        privateKeyIndex = null;
+    }
+
     protected KeyStore getTrustStore() {
         return null;
     }
@@ -388,10 +603,6 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
         return null;
     }
 
-    protected abstract boolean isSupportedCallback(Callback callback);
-
-    protected abstract void handleSupportedCallbacks(Callback[] callbacks) throws IOException, UnsupportedCallbackException;
-
     private String getPassword(PasswordValidationCallback pwdCallback) {
         char[] password = pwdCallback.getPassword();
         if (password == null) {
@@ -453,37 +664,31 @@ public abstract class BaseCallbackHandler implements CallbackHandler {
         return lengthBytes;
     }
 
-    private PrivateKeyEntry getPrivateKeyEntry(KeyStore[] keyStores, MessageDigest messageDigest, byte[] digest) {
-        PrivateKey privateKey = null;
-        Certificate[] certificates = null;
-        try {
-            for (int i = 0; i < keyStores.length && privateKey == null; i++) {
-                Enumeration<String> aliases = keyStores[i].aliases();
-
-                // Loop thru aliases and try to get the key/chain
-                while (aliases.hasMoreElements() && privateKey == null) {
-                    String nextAlias = aliases.nextElement();
-                    privateKey = null;
-                    certificates = null;
-                    PrivateKey key = getPrivateKeyForAlias(nextAlias, i);
-                    if (key != null) {
-                        certificates = keyStores[i].getCertificateChain(nextAlias);
-                        messageDigest.reset();
-                        byte[] cDigest = messageDigest.digest(certificates[0].getEncoded());
-                        if (Arrays.equals(digest, cDigest)) {
-                            privateKey = key;
-                        }
-                    }
-                }
+    private PrivateKeyIndex getPrivateKeyIndex(KeyStore[] keyStores) throws KeyStoreException {
+        long version = getKeyStoresVersion();
+
+        PrivateKeyIndex index = privateKeyIndex;
+        if (index != null && index.isFor(keyStores, version)) {
+            return index;
+        }
+
+        synchronized (this) {
+            index = privateKeyIndex;
+            if (index == null || !index.isFor(keyStores, version)) {
+                index = new PrivateKeyIndex(keyStores, version, this::getPrivateKeyForAlias);
+                privateKeyIndex = index;
             }
-        } catch (Exception e) {
-            // UnrecoverableKeyException
-            // NoSuchAlgorithmException
-            // KeyStoreException
-            LOG.log(DEBUG, "Exception in getPrivateKeyEntry for Digest", e);
+
+            return index;
+        }
+    }
+
+    private static PrivateKeyEntry toPrivateKeyEntry(PrivateKeyIndex privateKeyIndex, PrivateKeyIndex.IndexedKey key) {
+        if (key == null) {
+            return null;
         }
 
-        return new PrivateKeyEntry(privateKey, certificates);
+        return new PrivateKeyEntry(privateKeyIndex.getKey(key), key.getCertificateChain());
     }
 
     private static boolean isEmpty(Object[] array) {
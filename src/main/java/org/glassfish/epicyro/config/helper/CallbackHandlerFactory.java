@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import javax.security.auth.callback.CallbackHandler;
+
+/**
+ * Creates the callback handlers for configs that aren't given one.
+ *
+ * <p>
+ * The class named by the system property <code>security.jaspic.config.ConfigHelper.CallbackHandler</code> may
+ * implement this instead of {@link CallbackHandler}. A single instance of it is then created, and asked for a handler
+ * each time {@link AuthMessagePolicy#getDefaultCallbackHandler()} is called. It decides which handlers are created
+ * anew and which are shared.
+ */
+@FunctionalInterface
+public interface CallbackHandlerFactory {
+
+    /**
+     * Returns a callback handler for a config.
+     *
+     * @return the callback handler
+     */
+    CallbackHandler createCallbackHandler();
+}
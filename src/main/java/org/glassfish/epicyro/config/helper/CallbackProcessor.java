@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import java.io.IOException;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+
+/**
+ * Processes callbacks of a given type for a {@link BaseCallbackHandler}.
+ *
+ * <p>
+ * Processors are registered by a handler with {@link BaseCallbackHandler#registerCallbackProcessor(Class, CallbackProcessor)},
+ * which is also how handlers can be taught callbacks of types they don't know, such as token validation callbacks.
+ *
+ * @param <C> the type of callbacks processed
+ */
+@FunctionalInterface
+public interface CallbackProcessor<C extends Callback> {
+
+    /**
+     * Processes the given callback.
+     *
+     * @param callback the callback to process
+     * @throws IOException if an input or output error occurs
+     * @throws UnsupportedCallbackException if the callback can't be processed after all
+     */
+    void process(C callback) throws IOException, UnsupportedCallbackException;
+}
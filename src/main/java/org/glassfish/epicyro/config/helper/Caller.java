@@ -17,11 +17,17 @@
 
 package org.glassfish.epicyro.config.helper;
 
-import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.security.Principal;
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import javax.security.auth.Subject;
@@ -30,20 +36,60 @@ public class Caller implements Principal, Serializable  {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The caller of a request that was not authenticated, shared by all such requests. It can't be modified.
+     */
+    public static final Caller ANONYMOUS = new AnonymousCaller();
+
     private Principal callerPrincipal;
-    private Set<String> groups = new HashSet<>();
 
+    // Always a GroupSet, but declared as a Set so that callers serialized before can be read
+    private Set<String> groups = GroupSet.EMPTY;
+
+    /**
+     * Returns the caller in the principals of the given subject.
+     *
+     * <p>
+     * The caller that was last put in the subject by {@link #toSubject(Subject, Caller)} is found without copying
+     * the principals, as long as it's still among them. Otherwise the principals are searched, and the caller found
+     * there is remembered for next time.
+     *
+     * @param subject the subject
+     * @return the caller, or <code>null</code> if the subject has none
+     */
     public static Caller fromSubject(Subject subject) {
+        Caller caller = SubjectCallerIndex.get(subject);
+        if (caller != null) {
+            return caller;
+        }
+
         Set<Caller> callers = subject.getPrincipals(Caller.class);
         if (callers == null || callers.isEmpty()) {
             return null;
         }
 
-        return callers.iterator().next();
+        caller = callers.iterator().next();
+        SubjectCallerIndex.put(subject, caller);
+
+        return caller;
     }
 
     public static void toSubject(Subject subject, Caller caller) {
-        subject.getPrincipals().add(caller);
+        // A caller that is not added, as an equal one is there already, is not in the principals to be found
+        if (subject.getPrincipals().add(caller)) {
+            SubjectCallerIndex.put(subject, caller);
+        }
+    }
+
+    /**
+     * Creates a caller with the given set of groups, which is used as is if it's a {@link GroupSet}.
+     *
+     * @param callerPrincipal the caller principal
+     * @param groups the groups, which may be shared by many callers
+     * @return the caller
+     */
+    public static Caller withSharedGroups(Principal callerPrincipal, Set<String> groups) {
+        return new Caller(callerPrincipal, groups);
     }
 
     public Caller() {
@@ -54,12 +100,12 @@ public class Caller implements Principal, Serializable  {
     }
 
     public Caller(String[] groups) {
-        this.groups.addAll(asList(groups));
+        this.groups = GroupSet.of(groups);
     }
 
     public Caller(Principal callerPrincipal, Set<String> groups) {
         this.callerPrincipal = callerPrincipal;
-        this.groups.addAll(groups);
+        this.groups = GroupSet.of(groups);
     }
 
     @Override
@@ -79,16 +125,159 @@ public class Caller implements Principal, Serializable  {
         this.callerPrincipal = callerPrincipal;
     }
 
+    /**
+     * Returns a view of the groups of this caller, through which they can be modified.
+     *
+     * @return the groups
+     */
     public Set<String> getGroups() {
-        return groups;
+        return new GroupsView();
+    }
+
+    /**
+     * Returns the groups of this caller as they are now, which can't be modified.
+     *
+     * @return the groups
+     */
+    public GroupSet getGroupSet() {
+        return (GroupSet) groups;
     }
 
     public String[] getGroupsAsArray() {
-        return groups.toArray(new String[0]);
+        return getGroupSet().toArray();
     }
 
     public void addGroups(String[] groups) {
-        this.groups.addAll(asList(groups));
+        this.groups = getGroupSet().union(groups);
+    }
+
+    /**
+     * Sets the groups of this caller.
+     *
+     * @param groups the groups
+     */
+    public void setGroups(Set<String> groups) {
+        this.groups = GroupSet.of(groups);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        groups = GroupSet.of(groups);
+    }
+
+    // Only for callers of this class itself, as subclasses may have state of their own
+    private Object writeReplace() {
+        return new SerializedForm(this);
+    }
+
+    /**
+     * Compact serialized form of a caller: the version, the principal and the group names.
+     */
+    private static final class SerializedForm implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int VERSION = 1;
+
+        private Caller caller;
+
+        public SerializedForm() {
+        }
+
+        SerializedForm(Caller caller) {
+            this.caller = caller;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(VERSION);
+            CompactObjectIO.writePrincipal(out, caller.callerPrincipal);
+            CompactObjectIO.writeGroups(out, caller.getGroupSet());
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            CompactObjectIO.readVersion(in, Caller.class, VERSION);
+            caller = withSharedGroups(
+                CompactObjectIO.readPrincipal(in),
+                CompactObjectIO.readGroups(in));
+        }
+
+        private Object readResolve() {
+            return caller;
+        }
+    }
+
+    /**
+     * Modifiable view of the groups, which replaces the immutable group set of the caller on each change.
+     */
+    private final class GroupsView extends AbstractSet<String> {
+
+        @Override
+        public Iterator<String> iterator() {
+            Iterator<String> iterator = getGroupSet().iterator();
+
+            return new Iterator<>() {
+
+                private String current;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    current = iterator.next();
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    if (current == null) {
+                        throw new IllegalStateException();
+                    }
+
+                    groups = getGroupSet().without(current);
+                    current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return groups.size();
+        }
+
+        @Override
+        public boolean contains(Object group) {
+            return groups.contains(group);
+        }
+
+        @Override
+        public boolean add(String group) {
+            GroupSet oldGroups = getGroupSet();
+            groups = oldGroups.union(group);
+
+            return groups != oldGroups;
+        }
+
+        @Override
+        public boolean remove(Object group) {
+            if (!(group instanceof String name)) {
+                return false;
+            }
+
+            GroupSet oldGroups = getGroupSet();
+            groups = oldGroups.without(name);
+
+            return groups != oldGroups;
+        }
+
+        @Override
+        public void clear() {
+            groups = GroupSet.EMPTY;
+        }
     }
 
     @Override
@@ -108,4 +297,37 @@ public class Caller implements Principal, Serializable  {
                31 * callerPrincipal.getName().hashCode();
     }
 
+    private static final class AnonymousCaller extends Caller {
+
+        private static final long serialVersionUID = 1L;
+
+        AnonymousCaller() {
+            super(new CallerPrincipal(null));
+        }
+
+        @Override
+        public void setCallerPrincipal(Principal callerPrincipal) {
+            throw new UnsupportedOperationException("The anonymous caller can't be modified");
+        }
+
+        @Override
+        public Set<String> getGroups() {
+            return emptySet();
+        }
+
+        @Override
+        public void addGroups(String[] groups) {
+            throw new UnsupportedOperationException("The anonymous caller can't be modified");
+        }
+
+        @Override
+        public void setGroups(Set<String> groups) {
+            throw new UnsupportedOperationException("The anonymous caller can't be modified");
+        }
+
+        private Object readResolve() {
+            return ANONYMOUS;
+        }
+    }
+
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Listeners that are run whenever something changes.
+ *
+ * <p>
+ * The listeners are only weakly referenced, so that registering one doesn't keep it, or what it belongs to, alive
+ * for as long as what it listens to. Whoever registers a listener has to keep it for as long as it wants to be
+ * notified.
+ */
+public final class ChangeListeners {
+
+    private final List<WeakReference<Runnable>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Adds the given listener.
+     *
+     * @param listener the listener to run on every change
+     */
+    public void add(Runnable listener) {
+        listeners.removeIf(reference -> reference.get() == null);
+        listeners.add(new WeakReference<>(listener));
+    }
+
+    /**
+     * Runs all listeners that are still alive.
+     */
+    public void fire() {
+        for (WeakReference<Runnable> reference : listeners) {
+            Runnable listener = reference.get();
+            if (listener == null) {
+                listeners.remove(reference);
+            } else {
+                listener.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.security.Principal;
+
+/**
+ * Reading and writing of the values that make up the compact serialized forms of the objects kept in the HTTP
+ * session, such as {@link Caller}.
+ *
+ * <p>
+ * Counts and lengths are written as variable length integers of 7 bits per byte. Strings, arrays and collections
+ * that may be <code>null</code> are written with their length plus one, so that 0 stands for <code>null</code>.
+ * Lengths read are checked against {@link #MAX_LENGTH} before anything is allocated for them, so that a corrupt
+ * stream can't make the reader allocate more than it holds.
+ */
+public final class CompactObjectIO {
+
+    /**
+     * The maximum length read of a string in bytes, or of an array or collection in elements.
+     */
+    public static final int MAX_LENGTH = 16 * 1024 * 1024;
+
+    private static final int NO_PRINCIPAL = 0;
+    private static final int CALLER_PRINCIPAL = 1;
+    private static final int OTHER_PRINCIPAL = 2;
+
+    private CompactObjectIO() {
+    }
+
+    /**
+     * Reads the version of a serialized form, and checks that it's at most the given version.
+     *
+     * @param in the input
+     * @param type the type of the serialized form
+     * @param supportedVersion the latest supported version
+     * @return the version
+     * @throws IOException if the version can't be read or is not supported
+     */
+    public static int readVersion(DataInput in, Class<?> type, int supportedVersion) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version == 0 || version > supportedVersion) {
+            throw new InvalidClassException(type.getName(), "Unsupported serialized form version " + version);
+        }
+
+        return version;
+    }
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new StreamCorruptedException("Malformed variable length integer");
+    }
+
+    /**
+     * Writes the length of an array or collection that may be <code>null</code>.
+     *
+     * @param out the output
+     * @param length the length, or -1 for <code>null</code>
+     * @throws IOException if the length can't be written
+     */
+    public static void writeLength(DataOutput out, int length) throws IOException {
+        writeVarInt(out, length + 1);
+    }
+
+    /**
+     * Reads the length of an array or collection that may be <code>null</code>.
+     *
+     * @param in the input
+     * @return the length, or -1 for <code>null</code>
+     * @throws IOException if the length can't be read, or is negative or larger than {@link #MAX_LENGTH}
+     */
+    public static int readLength(DataInput in) throws IOException {
+        int encodedLength = readVarInt(in);
+        if (encodedLength == 0) {
+            return -1;
+        }
+
+        return checkLength(encodedLength - 1);
+    }
+
+    /**
+     * Reads the length of an array that can't be <code>null</code>, written with {@link #writeVarInt(DataOutput, int)}.
+     *
+     * @param in the input
+     * @return the length
+     * @throws IOException if the length can't be read, or is negative or larger than {@link #MAX_LENGTH}
+     */
+    public static int readArrayLength(DataInput in) throws IOException {
+        return checkLength(readVarInt(in));
+    }
+
+    private static int checkLength(int length) throws StreamCorruptedException {
+        if (length < 0) {
+            throw new StreamCorruptedException("Negative length " + length);
+        }
+        if (length > MAX_LENGTH) {
+            throw new StreamCorruptedException("Length " + length + " exceeds the maximum of " + MAX_LENGTH);
+        }
+
+        return length;
+    }
+
+    public static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            writeLength(out, -1);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(UTF_8);
+        writeLength(out, bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    public static void writeStrings(DataOutput out, String[] strings) throws IOException {
+        if (strings == null) {
+            writeLength(out, -1);
+            return;
+        }
+
+        writeLength(out, strings.length);
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    public static String[] readStrings(DataInput in) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+
+        String[] strings = new String[length];
+        for (int i = 0; i < length; i++) {
+            strings[i] = readString(in);
+        }
+
+        return strings;
+    }
+
+    public static void writeGroups(DataOutput out, GroupSet groups) throws IOException {
+        writeStrings(out, groups.toArray());
+    }
+
+    public static GroupSet readGroups(DataInput in) throws IOException {
+        String[] groups = readStrings(in);
+        if (groups == null) {
+            throw new StreamCorruptedException("Missing groups");
+        }
+
+        return GroupSet.of(groups);
+    }
+
+    /**
+     * Writes a principal, which is just its name for a {@link CallerPrincipal}, and the principal as an object
+     * otherwise.
+     *
+     * @param out the output
+     * @param principal the principal, which may be <code>null</code>
+     * @throws IOException if the principal can't be written
+     */
+    public static void writePrincipal(ObjectOutput out, Principal principal) throws IOException {
+        if (principal == null) {
+            out.writeByte(NO_PRINCIPAL);
+        } else if (principal.getClass() == CallerPrincipal.class) {
+            out.writeByte(CALLER_PRINCIPAL);
+            writeString(out, principal.getName());
+        } else {
+            out.writeByte(OTHER_PRINCIPAL);
+            out.writeObject(principal);
+        }
+    }
+
+    public static Principal readPrincipal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int kind = in.readUnsignedByte();
+        switch (kind) {
+            case NO_PRINCIPAL:
+                return null;
+            case CALLER_PRINCIPAL:
+                return new CallerPrincipal(readString(in));
+            case OTHER_PRINCIPAL:
+                Object object = in.readObject();
+                if (!(object instanceof Principal principal)) {
+                    throw new StreamCorruptedException("Not a principal: " + object);
+                }
+                return principal;
+            default:
+                throw new StreamCorruptedException("Unknown principal kind " + kind);
+        }
+    }
+}
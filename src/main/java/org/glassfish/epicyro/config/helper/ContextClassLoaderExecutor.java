@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of daemon threads that runs every task with the context class loader of the thread that submitted it.
+ *
+ * <p>
+ * As the pool is shared by all applications, its threads don't keep the context class loader, nor the inheritable
+ * thread locals, of the thread that happened to create them; that would keep the loader of an application that was
+ * undeployed alive, and give the modules of other applications the wrong context class loader. When all threads are
+ * busy and the queue is full, tasks are run on the submitting thread.
+ */
+public final class ContextClassLoaderExecutor implements Executor {
+
+    private static final int QUEUED_TASKS_PER_THREAD = 64;
+
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * @param threadNamePrefix the prefix of the names of the threads
+     * @param threads the maximum number of threads
+     */
+    public ContextClassLoaderExecutor(String threadNamePrefix, int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(QUEUED_TASKS_PER_THREAD * threads),
+            runnable -> {
+                Thread thread = new Thread(null, runnable, threadNamePrefix + threadNumber.incrementAndGet(), 0, false);
+                thread.setDaemon(true);
+                thread.setContextClassLoader(ContextClassLoaderExecutor.class.getClassLoader());
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        pool.execute(() -> {
+            Thread thread = Thread.currentThread();
+            ClassLoader previousClassLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(contextClassLoader);
+            try {
+                task.run();
+            } finally {
+                thread.setContextClassLoader(previousClassLoader);
+            }
+        });
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of group names, which gives each distinct group name a small int id for the lifetime of the
+ * dictionary. Group sets are kept as sorted arrays of the ids in the {@link #GLOBAL} dictionary.
+ *
+ * <p>
+ * The dictionary only grows, up to its maximum size; it's meant for the group names of a directory, which are a
+ * bounded set. Names that come after it's full get no id, and group sets keep those by name instead.
+ */
+final class GroupDictionary {
+
+    /**
+     * The system property that sets the maximum number of names in the global dictionary.
+     */
+    static final String MAX_SIZE_PROPERTY = "org.glassfish.epicyro.group.dictionary.maxSize";
+
+    static final GroupDictionary GLOBAL = new GroupDictionary(Integer.getInteger(MAX_SIZE_PROPERTY, 65536));
+
+    private final int maxSize;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Group names by id. Written to again after every change, so that reading it makes the change visible.
+     */
+    private volatile String[] names;
+    private int size;
+
+    GroupDictionary(int maxSize) {
+        this.maxSize = maxSize;
+        this.names = new String[Math.max(1, Math.min(64, maxSize))];
+    }
+
+    /**
+     * Returns the id of the given group name, giving it one if it has none yet, or -1 if it has none and the
+     * dictionary is full.
+     */
+    int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+
+            if (size >= maxSize) {
+                return -1;
+            }
+
+            String[] currentNames = names;
+            if (size == currentNames.length) {
+                currentNames = Arrays.copyOf(currentNames, Math.min(size * 2, maxSize));
+            }
+            currentNames[size] = name;
+            names = currentNames;
+
+            ids.put(name, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the id of the given group name, or -1 if it has none.
+     */
+    int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    String nameOf(int id) {
+        return names[id];
+    }
+}
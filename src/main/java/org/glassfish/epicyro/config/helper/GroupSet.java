@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of group names, kept as a sorted array of the ids the names have in a global dictionary.
+ *
+ * <p>
+ * Each group name is held once, by the dictionary, however many callers have it. Membership is a hash lookup of
+ * the id followed by a binary search, and union and difference are merges of sorted arrays. Names that came after
+ * the dictionary was full are kept by name, in a sorted array of their own. Sets are serialized by name, as ids
+ * only have meaning within one dictionary.
+ */
+public final class GroupSet extends AbstractSet<String> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final GroupDictionary DICTIONARY = GroupDictionary.GLOBAL;
+
+    private static final String[] NO_NAMES = new String[0];
+
+    public static final GroupSet EMPTY = new GroupSet(new int[0], NO_NAMES);
+
+    private final transient int[] ids;
+
+    /**
+     * The names that have no id in the dictionary, sorted.
+     */
+    private final transient String[] names;
+
+    private transient int hashCode;
+
+    /**
+     * Creates the set of the given sorted ids, and of the given sorted names that have no id.
+     */
+    private GroupSet(int[] ids, String[] names) {
+        this.ids = ids;
+        this.names = names;
+    }
+
+    /**
+     * Returns the set of the given group names.
+     *
+     * @param groups the group names, of which <code>null</code> ones are ignored
+     * @return the set of group names
+     */
+    public static GroupSet of(String... groups) {
+        if (groups == null || groups.length == 0) {
+            return EMPTY;
+        }
+
+        return EMPTY.union(groups);
+    }
+
+    /**
+     * Returns the set of the given group names, which is the given collection itself if it's a group set.
+     *
+     * @param groups the group names, of which <code>null</code> ones are ignored
+     * @return the set of group names
+     */
+    public static GroupSet of(Collection<String> groups) {
+        if (groups instanceof GroupSet groupSet) {
+            return groupSet;
+        }
+
+        if (groups == null || groups.isEmpty()) {
+            return EMPTY;
+        }
+
+        return of(groups.toArray(new String[0]));
+    }
+
+    /**
+     * Returns the set of the group names in this set and the given ones.
+     *
+     * @param groups the group names to add, of which <code>null</code> ones are ignored
+     * @return the union, which is this set if all given names are in it
+     */
+    public GroupSet union(String... groups) {
+        if (groups == null || groups.length == 0) {
+            return this;
+        }
+
+        int[] addedIds = new int[groups.length];
+        String[] addedNames = NO_NAMES;
+        int idCount = 0;
+        int nameCount = 0;
+        for (String group : groups) {
+            if (group != null) {
+                int id = DICTIONARY.intern(group);
+                if (id >= 0) {
+                    addedIds[idCount++] = id;
+                } else {
+                    if (nameCount == addedNames.length) {
+                        addedNames = new String[groups.length];
+                    }
+                    addedNames[nameCount++] = group;
+                }
+            }
+        }
+
+        Arrays.sort(addedIds, 0, idCount);
+        Arrays.sort(addedNames, 0, nameCount);
+
+        return union(addedIds, idCount, addedNames, nameCount);
+    }
+
+    /**
+     * Returns the set of the group names in this set and the given set.
+     *
+     * @param groups the group names to add
+     * @return the union, which is this set if all given names are in it
+     */
+    public GroupSet union(GroupSet groups) {
+        if (groups.isEmpty()) {
+            return this;
+        }
+
+        if (isEmpty()) {
+            return groups;
+        }
+
+        return union(groups.ids, groups.ids.length, groups.names, groups.names.length);
+    }
+
+    /**
+     * Returns the set of the group names in this set except the given one.
+     *
+     * @param group the group name to leave out
+     * @return the difference, which is this set if the name is not in it
+     */
+    public GroupSet without(String group) {
+        if (group == null) {
+            return this;
+        }
+
+        int id = DICTIONARY.idOf(group);
+        if (id >= 0) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index < 0) {
+                return this;
+            }
+
+            int[] remainingIds = new int[ids.length - 1];
+            System.arraycopy(ids, 0, remainingIds, 0, index);
+            System.arraycopy(ids, index + 1, remainingIds, index, remainingIds.length - index);
+
+            return create(remainingIds, names);
+        }
+
+        int index = Arrays.binarySearch(names, group);
+        if (index < 0) {
+            return this;
+        }
+
+        String[] remainingNames = new String[names.length - 1];
+        System.arraycopy(names, 0, remainingNames, 0, index);
+        System.arraycopy(names, index + 1, remainingNames, index, remainingNames.length - index);
+
+        return create(ids, remainingNames);
+    }
+
+    @Override
+    public boolean contains(Object group) {
+        if (!(group instanceof String name)) {
+            return false;
+        }
+
+        int id = DICTIONARY.idOf(name);
+        if (id >= 0) {
+            return Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        return names.length > 0 && Arrays.binarySearch(names, name) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return ids.length + names.length;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public String next() {
+                if (index >= size()) {
+                    throw new NoSuchElementException();
+                }
+
+                return nameAt(index++);
+            }
+        };
+    }
+
+    @Override
+    public String[] toArray() {
+        String[] array = new String[size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = nameAt(i);
+        }
+
+        return array;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof GroupSet otherSet) {
+            return Arrays.equals(ids, otherSet.ids) && Arrays.equals(names, otherSet.names);
+        }
+
+        return super.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        // Same as for any other set; zero for the empty set, for which it doesn't matter that it's computed each time
+        int hash = hashCode;
+        if (hash == 0) {
+            hash = super.hashCode();
+            hashCode = hash;
+        }
+
+        return hash;
+    }
+
+    private String nameAt(int index) {
+        return index < ids.length ? DICTIONARY.nameOf(ids[index]) : names[index - ids.length];
+    }
+
+    /**
+     * Merges the given sorted ids and names, of which only the first counts are used, into those of this set.
+     */
+    private GroupSet union(int[] otherIds, int idCount, String[] otherNames, int nameCount) {
+        int[] mergedIds = merge(ids, otherIds, idCount);
+        String[] mergedNames = merge(names, otherNames, nameCount);
+
+        if (mergedIds == ids && mergedNames == names) {
+            return this;
+        }
+
+        return new GroupSet(mergedIds, mergedNames);
+    }
+
+    /**
+     * Returns the given ids merged with the first count other ids, which are the given ids themselves if nothing
+     * was added.
+     */
+    private static int[] merge(int[] ids, int[] otherIds, int count) {
+        if (count == 0) {
+            return ids;
+        }
+
+        int[] mergedIds = new int[ids.length + count];
+        int i = 0;
+        int j = 0;
+        int merged = 0;
+
+        while (i < ids.length || j < count) {
+            int id;
+            if (j == count || (i < ids.length && ids[i] < otherIds[j])) {
+                id = ids[i++];
+            } else if (i == ids.length || otherIds[j] < ids[i]) {
+                id = otherIds[j++];
+            } else {
+                id = ids[i++];
+                j++;
+            }
+
+            // The other ids may contain duplicates of their own
+            if (merged == 0 || mergedIds[merged - 1] != id) {
+                mergedIds[merged++] = id;
+            }
+        }
+
+        if (merged == ids.length) {
+            return ids;
+        }
+
+        return merged == mergedIds.length ? mergedIds : Arrays.copyOf(mergedIds, merged);
+    }
+
+    /**
+     * Returns the given names merged with the first count other names, which are the given names themselves if
+     * nothing was added.
+     */
+    private static String[] merge(String[] names, String[] otherNames, int count) {
+        if (count == 0) {
+            return names;
+        }
+
+        String[] mergedNames = new String[names.length + count];
+        int i = 0;
+        int j = 0;
+        int merged = 0;
+
+        while (i < names.length || j < count) {
+            String name;
+            if (j == count || (i < names.length && names[i].compareTo(otherNames[j]) < 0)) {
+                name = names[i++];
+            } else if (i == names.length || otherNames[j].compareTo(names[i]) < 0) {
+                name = otherNames[j++];
+            } else {
+                name = names[i++];
+                j++;
+            }
+
+            // The other names may contain duplicates of their own
+            if (merged == 0 || !mergedNames[merged - 1].equals(name)) {
+                mergedNames[merged++] = name;
+            }
+        }
+
+        if (merged == names.length) {
+            return names;
+        }
+
+        return merged == mergedNames.length ? mergedNames : Arrays.copyOf(mergedNames, merged);
+    }
+
+    private static GroupSet create(int[] ids, String[] names) {
+        return ids.length == 0 && names.length == 0 ? EMPTY : new GroupSet(ids, names);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Group sets are serialized by name");
+    }
+
+    private Object writeReplace() {
+        return new SerializedForm(toArray());
+    }
+
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] groups;
+
+        SerializedForm(String[] groups) {
+            this.groups = groups;
+        }
+
+        private Object readResolve() {
+            return of(groups);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import javax.security.auth.callback.CallbackHandler;
+
+/**
+ * Optional capability of a callback handler to tell when the identity store it validates passwords against
+ * changes, so that modules can drop what they remember of earlier validations.
+ */
+public interface IdentityStoreChangeCapability {
+
+    /**
+     * Adds a listener that is run after every change to the identity store. The handler only keeps a weak
+     * reference to it, so the caller has to keep the listener for as long as it wants to be notified.
+     *
+     * @param listener the listener to run after every change
+     */
+    void addIdentityStoreChangeListener(Runnable listener);
+
+    /**
+     * Adds the given listener to the given handler if it declares the capability.
+     *
+     * @return <code>true</code> if the listener was added, <code>false</code> if the handler can't tell about changes
+     */
+    static boolean addIdentityStoreChangeListener(CallbackHandler handler, Runnable listener) {
+        if (handler instanceof IdentityStoreChangeCapability changeCapability) {
+            changeCapability.addIdentityStoreChangeListener(listener);
+            return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import java.io.IOException;
+
+import jakarta.security.auth.message.MessageInfo;
+
+/**
+ * A message info that can hand out copies of itself to a single module, of which the changes are kept apart until
+ * they're merged back, so that modules can be called concurrently without seeing each other's changes, and the changes
+ * of modules of which the outcome is not used can be dropped.
+ *
+ * @see ModuleStackDecisionTable#evaluateConcurrently
+ */
+public interface IsolatableMessageInfo extends MessageInfo {
+
+    /**
+     * Returns a copy of this message, of which the changes, including those made to the response message, are kept
+     * apart until they're merged.
+     *
+     * @return the copy
+     */
+    MessageInfo isolate();
+
+    /**
+     * Applies the changes made to the given copy to this message, and those made to its response message to the
+     * response message of this one.
+     *
+     * @param isolated a copy obtained from {@link #isolate()} of this message
+     * @throws IOException if the changes to the response message can't be applied
+     */
+    void merge(MessageInfo isolated) throws IOException;
+}
@@ -31,6 +31,7 @@ import jakarta.security.auth.message.AuthStatus;
 import java.lang.System.Logger;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -233,6 +234,22 @@ public class JAASModulesManager extends ModulesManager {
         return defaultFailStatus;
     }
 
+    @Override
+    public <M> ModuleStackDecisionTable getDecisionTable(M[] modules, AuthStatus[] successValue, AuthStatus defaultFailStatus) {
+        AppConfigurationEntry[] entries = appConfigurationEntry;
+        LoginModuleControlFlag[] controlFlags = new LoginModuleControlFlag[modules.length];
+
+        for (int moduleNumber = 0; moduleNumber < modules.length && moduleNumber < entries.length; moduleNumber++) {
+            if (modules[moduleNumber] != null && entries[moduleNumber] != null) {
+                controlFlags[moduleNumber] = entries[moduleNumber].getControlFlag();
+            }
+        }
+
+        LOG.log(DEBUG, () -> "getDecisionTable - control flags: " + Arrays.toString(controlFlags));
+
+        return new ModuleStackDecisionTable(controlFlags, successValue, defaultFailStatus);
+    }
+
 
 
     // ### Private methods
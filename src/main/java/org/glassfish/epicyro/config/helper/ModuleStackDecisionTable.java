@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.REQUIRED;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.REQUISITE;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.SUFFICIENT;
+
+import jakarta.security.auth.message.AuthException;
+import jakarta.security.auth.message.AuthStatus;
+import jakarta.security.auth.message.MessageInfo;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag;
+
+/**
+ * Decision table for a stack of authentication modules, compiled once from the control flags of the
+ * modules and the set of status values that count as success for a given operation.
+ *
+ * <p>
+ * Evaluating a stack with this table gives the same result as calling
+ * {@link ModulesManager#shouldStopProcessingModules(AuthStatus[], int, AuthStatus)} after every module
+ * followed by {@link ModulesManager#getReturnStatus(AuthStatus[], AuthStatus, AuthStatus[], int)}, but
+ * does so in a single pass and without collecting the module statuses in an array.
+ */
+public final class ModuleStackDecisionTable {
+
+    /**
+     * Calls a single module of the stack, e.g. <code>validateRequest</code> on a <code>ServerAuthModule</code>.
+     *
+     * @param <M> the type of the module
+     */
+    @FunctionalInterface
+    public interface ModuleInvocation<M> {
+        AuthStatus invoke(M module, MessageInfo messageInfo, Subject subject, Subject serviceSubject) throws AuthException;
+    }
+
+    // The module outcome plays no role in the result
+    private static final byte IGNORE = 0;
+
+    // The outcome is the result if no later module decides otherwise and no earlier module was kept
+    private static final byte KEEP_FIRST = 1;
+
+    // The outcome is the result if no earlier module decided, but the remaining modules are still called
+    private static final byte DECIDE = 2;
+
+    // The outcome is the result if no earlier module decided, and the remaining modules are skipped
+    private static final byte DECIDE_AND_STOP = 3;
+
+    private final AuthStatus[] successValues;
+    private final AuthStatus defaultFailStatus;
+    private final byte[] onSuccess;
+    private final byte[] onFailure;
+
+    // The position of the first REQUISITE module, after which no modules are called concurrently
+    private final int firstRequisite;
+
+    /**
+     * Compiles the decision table.
+     *
+     * @param controlFlags the control flag of each module in the stack, or <code>null</code> for a module that is not
+     * present (e.g. because its class could not be loaded)
+     * @param successValues the status values that count as success for the operation
+     * @param defaultFailStatus the status to return when no module decided and no module succeeded
+     */
+    public ModuleStackDecisionTable(LoginModuleControlFlag[] controlFlags, AuthStatus[] successValues, AuthStatus defaultFailStatus) {
+        this.successValues = successValues.clone();
+        this.defaultFailStatus = defaultFailStatus;
+        this.onSuccess = new byte[controlFlags.length];
+        this.onFailure = new byte[controlFlags.length];
+
+        int firstRequisite = Integer.MAX_VALUE;
+
+        for (int moduleNumber = 0; moduleNumber < controlFlags.length; moduleNumber++) {
+            LoginModuleControlFlag flag = controlFlags[moduleNumber];
+
+            if (flag == REQUIRED) {
+                onSuccess[moduleNumber] = KEEP_FIRST;
+                onFailure[moduleNumber] = DECIDE;
+            } else if (flag == REQUISITE) {
+                onSuccess[moduleNumber] = KEEP_FIRST;
+                onFailure[moduleNumber] = DECIDE_AND_STOP;
+                firstRequisite = Math.min(firstRequisite, moduleNumber);
+            } else if (flag == SUFFICIENT) {
+                onSuccess[moduleNumber] = DECIDE_AND_STOP;
+                onFailure[moduleNumber] = IGNORE;
+            } else if (flag == OPTIONAL) {
+                onSuccess[moduleNumber] = KEEP_FIRST;
+                onFailure[moduleNumber] = IGNORE;
+            }
+        }
+
+        this.firstRequisite = firstRequisite;
+    }
+
+    /**
+     * Calls the given modules in order and computes the status of the stack as a whole.
+     *
+     * @param <M> the type of the modules
+     * @param modules the modules of the stack, <code>null</code> entries are skipped
+     * @param invocation the operation to call on each module
+     * @param messageInfo the message info passed to each module
+     * @param subject the (client) subject passed to each module
+     * @param serviceSubject the service subject passed to each module
+     * @return the status of the stack
+     * @throws AuthException if a module throws
+     */
+    public <M> AuthStatus evaluate(M[] modules, ModuleInvocation<M> invocation, MessageInfo messageInfo, Subject subject, Subject serviceSubject) throws AuthException {
+        Decision decision = new Decision();
+
+        for (int moduleNumber = 0; moduleNumber < modules.length; moduleNumber++) {
+            if (modules[moduleNumber] == null) {
+                continue;
+            }
+
+            AuthStatus moduleStatus = invocation.invoke(modules[moduleNumber], messageInfo, subject, serviceSubject);
+            if (decision.apply(getAction(moduleNumber, moduleStatus), moduleStatus)) {
+                return decision.status;
+            }
+        }
+
+        return decision.getStatus(defaultFailStatus);
+    }
+
+    /**
+     * Calls the given modules and computes the status of the stack as a whole, calling runs of modules that don't
+     * depend on each other's outcome concurrently.
+     *
+     * <p>
+     * Only consecutive <code>SUFFICIENT</code> and <code>OPTIONAL</code> modules, of which a failure plays no role in
+     * the result, with no <code>REQUISITE</code> module before them, are called concurrently; all other modules are
+     * called in turn on the calling thread. The modules of a run are started at once on the given executor, each with
+     * its own scratch subject and its own isolated copy of the message, of which the response buffers what is done to
+     * it. The outcomes are then consumed in the declared order of the modules, exactly as {@link #evaluate} would do:
+     * the subject and message of every consumed module are merged in that order, and as soon as the outcome is
+     * decided the modules that are still running are cancelled and their changes dropped. The result is therefore the
+     * same as that of a sequential evaluation, provided that the modules don't depend on each other's side effects
+     * other than through the subject and the message (e.g. on the request or the session).
+     *
+     * <p>
+     * If the message can't be isolated, see {@link IsolatableMessageInfo}, the modules are all called in turn.
+     *
+     * @param <M> the type of the modules
+     * @param modules the modules of the stack, <code>null</code> entries are skipped
+     * @param invocation the operation to call on each module
+     * @param messageInfo the message info passed to each module, or isolated for each module of a run
+     * @param subject the (client) subject into which the subjects of the consumed modules are merged
+     * @param serviceSubject the service subject passed to each module
+     * @param executor the executor on which the modules of a run are called
+     * @return the status of the stack
+     * @throws AuthException if a consumed module throws, or if the calling thread is interrupted
+     */
+    public <M> AuthStatus evaluateConcurrently(M[] modules, ModuleInvocation<M> invocation, MessageInfo messageInfo, Subject subject, Subject serviceSubject, Executor executor) throws AuthException {
+        if (!(messageInfo instanceof IsolatableMessageInfo isolatableMessageInfo)) {
+            return evaluate(modules, invocation, messageInfo, subject, serviceSubject);
+        }
+
+        Decision decision = new Decision();
+
+        for (int moduleNumber = 0; moduleNumber < modules.length;) {
+            int runEnd = getConcurrentRunEnd(modules, moduleNumber);
+
+            if (runEnd < 0) {
+                if (modules[moduleNumber] != null) {
+                    AuthStatus moduleStatus = invocation.invoke(modules[moduleNumber], messageInfo, subject, serviceSubject);
+                    if (decision.apply(getAction(moduleNumber, moduleStatus), moduleStatus)) {
+                        return decision.status;
+                    }
+                }
+                moduleNumber++;
+            } else {
+                if (evaluateRun(modules, moduleNumber, runEnd, invocation, isolatableMessageInfo, subject, serviceSubject, executor, decision)) {
+                    return decision.status;
+                }
+                moduleNumber = runEnd;
+            }
+        }
+
+        return decision.getStatus(defaultFailStatus);
+    }
+
+    /**
+     * Calls the modules of a run concurrently and consumes their outcomes in order, returning whether the outcome of
+     * the stack was decided.
+     */
+    private <M> boolean evaluateRun(M[] modules, int runStart, int runEnd, ModuleInvocation<M> invocation, IsolatableMessageInfo messageInfo,
+            Subject subject, Subject serviceSubject, Executor executor, Decision decision) throws AuthException {
+        int runLength = runEnd - runStart;
+        List<FutureTask<AuthStatus>> moduleTasks = new ArrayList<>(runLength);
+        Subject[] moduleSubjects = new Subject[runLength];
+        MessageInfo[] moduleMessages = new MessageInfo[runLength];
+
+        try {
+            for (int i = 0; i < runLength; i++) {
+                M module = modules[runStart + i];
+                if (module == null) {
+                    moduleTasks.add(null);
+                    continue;
+                }
+
+                Subject moduleSubject = new Subject();
+                MessageInfo moduleMessage = messageInfo.isolate();
+                moduleSubjects[i] = moduleSubject;
+                moduleMessages[i] = moduleMessage;
+
+                FutureTask<AuthStatus> moduleTask = new FutureTask<>(() -> invocation.invoke(module, moduleMessage, moduleSubject, serviceSubject));
+                moduleTasks.add(moduleTask);
+                executor.execute(moduleTask);
+            }
+
+            for (int i = 0; i < runLength; i++) {
+                FutureTask<AuthStatus> moduleTask = moduleTasks.get(i);
+                if (moduleTask == null) {
+                    continue;
+                }
+
+                AuthStatus moduleStatus = getStatus(moduleTask);
+                mergeSubject(moduleSubjects[i], subject);
+                mergeMessage(moduleMessages[i], messageInfo);
+
+                if (decision.apply(getAction(runStart + i, moduleStatus), moduleStatus)) {
+                    return true;
+                }
+            }
+
+            return false;
+        } finally {
+            // Only modules of which the outcome was not consumed are still running; their changes are never merged
+            for (FutureTask<AuthStatus> moduleTask : moduleTasks) {
+                if (moduleTask != null) {
+                    moduleTask.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the end of the run of modules starting at the given one that can be called concurrently, or -1 if there
+     * is no such run of at least two modules.
+     */
+    private <M> int getConcurrentRunEnd(M[] modules, int runStart) {
+        if (runStart > firstRequisite) {
+            return -1;
+        }
+
+        int runEnd = runStart;
+        int moduleCount = 0;
+        while (runEnd < modules.length && runEnd < onFailure.length && onFailure[runEnd] == IGNORE) {
+            if (modules[runEnd] != null) {
+                moduleCount++;
+            }
+            runEnd++;
+        }
+
+        return moduleCount < 2 ? -1 : runEnd;
+    }
+
+    /**
+     * The outcome of a stack as its modules are consumed, in order; the one place where the actions of the table are
+     * applied, for sequential and concurrent evaluation alike.
+     */
+    private static final class Decision {
+
+        AuthStatus keptStatus;
+        AuthStatus decidedStatus;
+        boolean decided;
+        AuthStatus status;
+
+        /**
+         * Applies the action for the outcome of a module, returning whether this decides the status of the stack.
+         */
+        boolean apply(byte action, AuthStatus moduleStatus) {
+            switch (action) {
+                case KEEP_FIRST:
+                    if (keptStatus == null) {
+                        keptStatus = moduleStatus;
+                    }
+                    return false;
+                case DECIDE:
+                    if (!decided) {
+                        decidedStatus = moduleStatus;
+                        decided = true;
+                    }
+                    return false;
+                case DECIDE_AND_STOP:
+                    status = decided ? decidedStatus : moduleStatus;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        AuthStatus getStatus(AuthStatus defaultFailStatus) {
+            if (decided) {
+                return decidedStatus;
+            }
+
+            return keptStatus != null ? keptStatus : defaultFailStatus;
+        }
+    }
+
+    /**
+     * Computes the status of a stack in which only the given module is present, from the status that module
+     * returned; for when the module was called by other means than {@link #evaluate}, e.g. asynchronously.
+     *
+     * @param moduleNumber the position of the module in the stack
+     * @param moduleStatus the status the module returned
+     * @return the status of the stack
+     */
+    public AuthStatus decide(int moduleNumber, AuthStatus moduleStatus) {
+        return getAction(moduleNumber, moduleStatus) == IGNORE ? defaultFailStatus : moduleStatus;
+    }
+
+    private static AuthStatus getStatus(FutureTask<AuthStatus> moduleTask) throws AuthException {
+        try {
+            return moduleTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthException("Interrupted while waiting for auth module", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthException authException) {
+                throw authException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+
+            throw new AuthException("Auth module failed", e.getCause());
+        }
+    }
+
+    /**
+     * Merges the principals and credentials that a module set on its own scratch subject into the subject of the stack,
+     * the same way the callback handler would have done had the module used the subject of the stack directly.
+     */
+    private static void mergeSubject(Subject moduleSubject, Subject subject) {
+        Caller moduleCaller = Caller.fromSubject(moduleSubject);
+        Caller caller = Caller.fromSubject(subject);
+
+        for (Principal principal : moduleSubject.getPrincipals()) {
+            if (principal != moduleCaller || caller == null) {
+                subject.getPrincipals().add(principal);
+            }
+        }
+
+        if (moduleCaller != null && caller != null) {
+            if (moduleCaller.getCallerPrincipal() != null) {
+                caller.setCallerPrincipal(moduleCaller.getCallerPrincipal());
+            }
+            caller.setGroups(caller.getGroupSet().union(moduleCaller.getGroupSet()));
+        }
+
+        subject.getPublicCredentials().addAll(moduleSubject.getPublicCredentials());
+        subject.getPrivateCredentials().addAll(moduleSubject.getPrivateCredentials());
+    }
+
+    private static void mergeMessage(MessageInfo moduleMessage, IsolatableMessageInfo messageInfo) throws AuthException {
+        try {
+            messageInfo.merge(moduleMessage);
+        } catch (IOException e) {
+            throw new AuthException("Cannot apply the response of auth module", e);
+        }
+    }
+
+    private byte getAction(int moduleNumber, AuthStatus moduleStatus) {
+        if (moduleNumber >= onSuccess.length) {
+            return IGNORE;
+        }
+
+        return isSuccess(moduleStatus) ? onSuccess[moduleNumber] : onFailure[moduleNumber];
+    }
+
+    private boolean isSuccess(AuthStatus moduleStatus) {
+        for (AuthStatus successValue : successValues) {
+            if (moduleStatus == successValue) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
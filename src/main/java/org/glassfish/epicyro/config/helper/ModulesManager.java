@@ -61,6 +61,18 @@ public abstract class ModulesManager {
 
     public abstract AuthStatus getReturnStatus(AuthStatus[] successValue, AuthStatus defaultFailStatus, AuthStatus[] status, int position);
 
+    /**
+     * Compiles the control flags of the given modules into a decision table that can be used to evaluate
+     * the module stack, instead of calling {@link #shouldStopProcessingModules} and {@link #getReturnStatus}.
+     *
+     * @param <M> Type of the modules
+     * @param modules the modules as returned by {@link #getModules}
+     * @param successValue the status values that count as success
+     * @param defaultFailStatus the status returned when no module succeeded
+     * @return the decision table
+     */
+    public abstract <M> ModuleStackDecisionTable getDecisionTable(M[] modules, AuthStatus[] successValue, AuthStatus defaultFailStatus);
+
     public abstract void refresh();
 
 
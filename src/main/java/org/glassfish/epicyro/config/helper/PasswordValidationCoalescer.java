@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.System.Logger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.callback.CallbackHandler;
+
+/**
+ * Lets concurrent validations of the same username and password share a single lookup in the identity store.
+ *
+ * <p>
+ * The first caller for a given username and password performs the lookup; callers that arrive while it is in
+ * flight wait for its outcome instead of doing their own lookup. Waiting is bounded; a caller that waited too long
+ * does its own lookup after all. Passwords are only ever kept as a keyed digest, and by default nothing is kept
+ * after the lookup completes. A retention time can be configured via {@value #RETAIN_PROPERTY}, during which the
+ * outcome is also handed to callers that arrive after the lookup completed. Retained outcomes are all dropped as
+ * soon as the identity store changes, if the callback handler can tell (see {@link IdentityStoreChangeCapability}).
+ */
+final class PasswordValidationCoalescer {
+
+    private static final Logger LOG = System.getLogger(PasswordValidationCoalescer.class.getName());
+
+    /**
+     * System property with the maximum time in milliseconds to wait for an in-flight lookup, 5000 by default.
+     */
+    static final String MAX_WAIT_PROPERTY = "org.glassfish.epicyro.password.validation.maxWait";
+
+    /**
+     * System property with the time in milliseconds that a completed lookup is retained, 0 (not at all) by default.
+     */
+    static final String RETAIN_PROPERTY = "org.glassfish.epicyro.password.validation.retain";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final byte NO_PASSWORD = 0;
+    private static final byte PASSWORD = 1;
+
+    private final SecretKeySpec digestKey;
+    private final long maxWaitMillis;
+    private final long retainNanos;
+    private final Map<ValidationKey, Validation> validations = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever the identity store changes, so that lookups that were running at that time aren't
+     * retained.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Kept by this coalescer, as the callback handler only keeps a weak reference to it.
+     */
+    private final Runnable invalidation = this::invalidate;
+
+    PasswordValidationCoalescer() {
+        this(Long.getLong(MAX_WAIT_PROPERTY, 5000), Long.getLong(RETAIN_PROPERTY, 0));
+    }
+
+    PasswordValidationCoalescer(long maxWaitMillis, long retainMillis) {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+
+        this.digestKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.maxWaitMillis = maxWaitMillis;
+        this.retainNanos = MILLISECONDS.toNanos(retainMillis);
+    }
+
+    /**
+     * Drops the retained outcomes whenever the identity store of the given handler changes.
+     *
+     * @return <code>true</code> if the handler can tell about changes, <code>false</code> otherwise
+     */
+    boolean invalidateOnChangeOf(CallbackHandler handler) {
+        return IdentityStoreChangeCapability.addIdentityStoreChangeListener(handler, invalidation);
+    }
+
+    /**
+     * Drops all retained outcomes, and keeps lookups that are running from being retained.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        validations.values().removeIf(validation -> validation.outcome.isDone());
+    }
+
+    /**
+     * Returns the outcome of the given lookup for the given username and password, sharing it with concurrent
+     * callers for the same username and password.
+     */
+    Caller validate(String username, char[] password, Supplier<Caller> lookup) {
+        ValidationKey key = new ValidationKey(username, digest(password));
+
+        while (true) {
+            Validation validation = validations.get(key);
+
+            if (validation != null && validation.isExpired(System.nanoTime())) {
+                validations.remove(key, validation);
+                continue;
+            }
+
+            if (validation != null) {
+                return await(validation, lookup);
+            }
+
+            validation = new Validation();
+            if (validations.putIfAbsent(key, validation) == null) {
+                return perform(key, validation, lookup);
+            }
+        }
+    }
+
+    private Caller perform(ValidationKey key, Validation validation, Supplier<Caller> lookup) {
+        long lookupGeneration = generation.get();
+        try {
+            Caller caller = lookup.get();
+            validation.complete(caller, System.nanoTime() + retainNanos);
+
+            // Checked after completing, so that an invalidation either drops the outcome or is seen here
+            if (generation.get() != lookupGeneration) {
+                validations.remove(key, validation);
+            }
+
+            return caller;
+        } catch (RuntimeException | Error e) {
+            validation.outcome.completeExceptionally(e);
+            validations.remove(key, validation);
+            throw e;
+        } finally {
+            if (retainNanos <= 0) {
+                validations.remove(key, validation);
+            }
+        }
+    }
+
+    private Caller await(Validation validation, Supplier<Caller> lookup) {
+        try {
+            return validation.outcome.get(maxWaitMillis, MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.log(DEBUG, "Timed out waiting for in-flight password validation, validating separately");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return lookup.get();
+    }
+
+    /**
+     * Returns the keyed digest of the given password. A marker goes first, so that a <code>null</code> password
+     * doesn't have the digest of an empty one.
+     */
+    private byte[] digest(char[] password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(digestKey);
+
+            if (password == null) {
+                mac.update(NO_PASSWORD);
+            } else {
+                mac.update(PASSWORD);
+
+                ByteBuffer encodedPassword = UTF_8.encode(CharBuffer.wrap(password));
+                try {
+                    mac.update(encodedPassword);
+                } finally {
+                    clear(encodedPassword);
+                }
+            }
+
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Overwrites the whole buffer, which holds the plaintext password.
+     */
+    private static void clear(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            Arrays.fill(buffer.array(), (byte) 0);
+        } else {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 0);
+            }
+        }
+    }
+
+    private static final class Validation {
+
+        final CompletableFuture<Caller> outcome = new CompletableFuture<>();
+        volatile long retainedUntil;
+
+        void complete(Caller caller, long retainedUntil) {
+            this.retainedUntil = retainedUntil;
+            outcome.complete(caller);
+        }
+
+        boolean isExpired(long now) {
+            return outcome.isDone() && now - retainedUntil >= 0;
+        }
+    }
+
+    private static final class ValidationKey {
+
+        final String username;
+        final byte[] passwordDigest;
+        final int hashCode;
+
+        ValidationKey(String username, byte[] passwordDigest) {
+            this.username = username;
+            this.passwordDigest = passwordDigest;
+            this.hashCode = 31 * username.hashCode() + Arrays.hashCode(passwordDigest);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ValidationKey another &&
+                   username.equals(another.username) &&
+                   Arrays.equals(passwordDigest, another.passwordDigest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
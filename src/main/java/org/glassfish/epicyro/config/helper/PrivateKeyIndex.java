@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.util.Collections.list;
+
+import java.lang.System.Logger;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Index of the private key entries of a set of keystores, by issuer and serial number, by subject key identifier
+ * and by certificate digest, so that finding the key for a {@link jakarta.security.auth.message.callback.PrivateKeyCallback}
+ * doesn't need to go through all aliases.
+ *
+ * <p>
+ * The index is built from the aliases and certificate chains only. Keys are recovered when they're first asked
+ * for, and then kept, as is the outcome of a recovery that yielded no key. Digest indexes are built once per
+ * algorithm, when first asked for. An index is only valid for the keystores and version it was built for; see
+ * {@link #isFor(KeyStore[], long)}.
+ */
+final class PrivateKeyIndex {
+
+    private static final Logger LOG = System.getLogger(PrivateKeyIndex.class.getName());
+
+    /**
+     * The subject key identifier extension.
+     */
+    private static final String SUBJECT_KEY_ID_OID = "2.5.29.14";
+
+    /**
+     * Recovers the private key for an alias of one of the keystores.
+     */
+    @FunctionalInterface
+    interface KeyRecovery {
+        PrivateKey recover(String alias, int keyStoreIndex) throws GeneralSecurityException;
+    }
+
+    /**
+     * A private key entry of one of the keystores, with its key once recovered.
+     */
+    static final class IndexedKey {
+
+        private static final Object NOT_RECOVERED = new Object();
+        private static final Object NO_KEY = new Object();
+
+        private final int keyStoreIndex;
+        private final String alias;
+        private final Certificate[] certificateChain;
+        private volatile Object key = NOT_RECOVERED;
+
+        IndexedKey(int keyStoreIndex, String alias, Certificate[] certificateChain) {
+            this.keyStoreIndex = keyStoreIndex;
+            this.alias = alias;
+            this.certificateChain = certificateChain;
+        }
+
+        Certificate[] getCertificateChain() {
+            return certificateChain.clone();
+        }
+
+        /**
+         * Returns the key of this entry, recovering it if that wasn't done before, or <code>null</code> if it has
+         * no key that can be recovered.
+         */
+        PrivateKey getKey(KeyRecovery keyRecovery) {
+            Object recoveredKey = key;
+
+            if (recoveredKey == NOT_RECOVERED) {
+                try {
+                    PrivateKey privateKey = keyRecovery.recover(alias, keyStoreIndex);
+                    recoveredKey = privateKey != null ? privateKey : NO_KEY;
+                    key = recoveredKey;
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    // Not kept, as it may well work the next time
+                    LOG.log(DEBUG, () -> "Cannot recover private key for alias " + alias, e);
+                    return null;
+                }
+            }
+
+            return recoveredKey == NO_KEY ? null : (PrivateKey) recoveredKey;
+        }
+
+        /**
+         * Returns whether recovering the key of this entry was done, whether or not it yielded a key.
+         */
+        boolean isRecovered() {
+            return key != NOT_RECOVERED;
+        }
+    }
+
+    private static final class IssuerSerialNumber {
+
+        private final X500Principal issuer;
+        private final BigInteger serialNumber;
+
+        IssuerSerialNumber(X500Principal issuer, BigInteger serialNumber) {
+            this.issuer = issuer;
+            this.serialNumber = serialNumber;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof IssuerSerialNumber another)) {
+                return false;
+            }
+
+            return issuer.equals(another.issuer) && serialNumber.equals(another.serialNumber);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(issuer, serialNumber);
+        }
+    }
+
+    private final KeyStore[] keyStores;
+    private final int[] keyStoreSizes;
+    private final long version;
+    private final KeyRecovery keyRecovery;
+
+    private final List<IndexedKey> keys = new ArrayList<>();
+    private final Map<IssuerSerialNumber, List<IndexedKey>> keysByIssuerSerialNumber = new HashMap<>();
+    private final Map<ByteBuffer, List<IndexedKey>> keysBySubjectKeyId = new HashMap<>();
+    private final Map<String, Map<ByteBuffer, List<IndexedKey>>> keysByDigest = new ConcurrentHashMap<>();
+
+    private volatile IndexedKey defaultKey;
+
+    PrivateKeyIndex(KeyStore[] keyStores, long version, KeyRecovery keyRecovery) throws KeyStoreException {
+        this.keyStores = keyStores.clone();
+        this.keyStoreSizes = sizes(keyStores);
+        this.version = version;
+        this.keyRecovery = keyRecovery;
+
+        for (int i = 0; i < keyStores.length; i++) {
+            for (String alias : list(keyStores[i].aliases())) {
+                if (!keyStores[i].isKeyEntry(alias)) {
+                    continue;
+                }
+
+                Certificate[] certificateChain = keyStores[i].getCertificateChain(alias);
+                if (certificateChain == null || certificateChain.length == 0) {
+                    continue;
+                }
+
+                index(new IndexedKey(i, alias, certificateChain));
+            }
+        }
+    }
+
+    /**
+     * Returns whether this index was built for the given keystores at the given version, and none of them changed
+     * in size since.
+     */
+    boolean isFor(KeyStore[] keyStores, long version) throws KeyStoreException {
+        if (this.version != version || this.keyStores.length != keyStores.length) {
+            return false;
+        }
+
+        for (int i = 0; i < keyStores.length; i++) {
+            if (this.keyStores[i] != keyStores[i] || keyStoreSizes[i] != keyStores[i].size()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the first entry in keystore and alias order of which the key can be recovered.
+     *
+     * <p>
+     * The entry is kept, unless recovering the key of an entry before it failed; that entry may be the default
+     * the next time.
+     */
+    IndexedKey getDefault() {
+        IndexedKey key = defaultKey;
+        if (key != null) {
+            return key;
+        }
+
+        boolean recoveryFailed = false;
+        for (IndexedKey candidate : keys) {
+            if (candidate.getKey(keyRecovery) != null) {
+                if (!recoveryFailed) {
+                    defaultKey = candidate;
+                }
+
+                return candidate;
+            }
+
+            recoveryFailed |= !candidate.isRecovered();
+        }
+
+        return null;
+    }
+
+    IndexedKey getByIssuerSerialNumber(X500Principal issuer, BigInteger serialNumber) {
+        return firstWithKey(keysByIssuerSerialNumber.get(new IssuerSerialNumber(issuer, serialNumber)));
+    }
+
+    /**
+     * Returns the entry with the given subject key identifier extension value, which is the DER encoded octet string
+     * of the identifier itself.
+     */
+    IndexedKey getBySubjectKeyId(byte[] subjectKeyIdExtension) {
+        return firstWithKey(keysBySubjectKeyId.get(ByteBuffer.wrap(subjectKeyIdExtension)));
+    }
+
+    IndexedKey getByDigest(MessageDigest messageDigest, byte[] digest) {
+        Map<ByteBuffer, List<IndexedKey>> digestIndex = keysByDigest.computeIfAbsent(
+            messageDigest.getAlgorithm().toUpperCase(Locale.ROOT),
+            algorithm -> indexDigests(messageDigest));
+
+        return firstWithKey(digestIndex.get(ByteBuffer.wrap(digest)));
+    }
+
+    PrivateKey getKey(IndexedKey key) {
+        return key.getKey(keyRecovery);
+    }
+
+    private void index(IndexedKey key) {
+        keys.add(key);
+
+        if (!(key.certificateChain[0] instanceof X509Certificate certificate)) {
+            return;
+        }
+
+        keysByIssuerSerialNumber
+            .computeIfAbsent(new IssuerSerialNumber(certificate.getIssuerX500Principal(), certificate.getSerialNumber()), k -> new ArrayList<>(1))
+            .add(key);
+
+        ByteBuffer subjectKeyIdExtension = getExtensionValue(certificate, SUBJECT_KEY_ID_OID);
+        if (subjectKeyIdExtension != null) {
+            keysBySubjectKeyId
+                .computeIfAbsent(subjectKeyIdExtension, k -> new ArrayList<>(1))
+                .add(key);
+        }
+    }
+
+    private Map<ByteBuffer, List<IndexedKey>> indexDigests(MessageDigest messageDigest) {
+        Map<ByteBuffer, List<IndexedKey>> digestIndex = new HashMap<>();
+
+        for (IndexedKey key : keys) {
+            try {
+                messageDigest.reset();
+                digestIndex
+                    .computeIfAbsent(ByteBuffer.wrap(messageDigest.digest(key.certificateChain[0].getEncoded())), k -> new ArrayList<>(1))
+                    .add(key);
+            } catch (CertificateEncodingException e) {
+                LOG.log(DEBUG, () -> "Cannot encode certificate for alias " + key.alias, e);
+            }
+        }
+
+        return digestIndex;
+    }
+
+    private IndexedKey firstWithKey(List<IndexedKey> candidates) {
+        if (candidates == null) {
+            return null;
+        }
+
+        for (IndexedKey candidate : candidates) {
+            if (candidate.getKey(keyRecovery) != null) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the DER encoded value of the given extension, without the octet string around it that
+     * {@link X509Certificate#getExtensionValue(String)} adds, as {@link java.security.cert.X509CertSelector} does.
+     */
+    private static ByteBuffer getExtensionValue(X509Certificate certificate, String oid) {
+        byte[] extension = certificate.getExtensionValue(oid);
+        if (extension == null || extension.length < 2 || extension[0] != 0x04) {
+            return null;
+        }
+
+        // Short form length, or long form with the number of length bytes in the lower 7 bits
+        int offset = (extension[1] & 0x80) == 0 ? 2 : 2 + (extension[1] & 0x7f);
+        if (offset > extension.length) {
+            return null;
+        }
+
+        return ByteBuffer.wrap(extension, offset, extension.length - offset).slice();
+    }
+
+    private static int[] sizes(KeyStore[] keyStores) throws KeyStoreException {
+        int[] sizes = new int[keyStores.length];
+        for (int i = 0; i < keyStores.length; i++) {
+            sizes[i] = keyStores[i].size();
+        }
+
+        return sizes;
+    }
+}
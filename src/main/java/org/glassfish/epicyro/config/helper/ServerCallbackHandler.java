@@ -22,43 +22,19 @@
 
 package org.glassfish.epicyro.config.helper;
 
-import java.io.IOException;
-
-import javax.security.auth.callback.Callback;
-import javax.security.auth.callback.UnsupportedCallbackException;
-import jakarta.security.auth.message.callback.CallerPrincipalCallback;
-import jakarta.security.auth.message.callback.CertStoreCallback;
-import jakarta.security.auth.message.callback.GroupPrincipalCallback;
-import jakarta.security.auth.message.callback.PasswordValidationCallback;
-import jakarta.security.auth.message.callback.PrivateKeyCallback;
-import jakarta.security.auth.message.callback.SecretKeyCallback;
-import jakarta.security.auth.message.callback.TrustStoreCallback;
-
 /**
  * Callback Handler for ServerContainer
+ *
+ * <p>
+ * Processes the callbacks defined by Jakarta Authentication, using the processors registered by default.
+ * Keeps no state per config, so a single instance is shared by all configs that aren't given a handler.
  * 
  * @author Harpreet Singh
  * @author Shing Wai Chan
  * @author Arjan Tijms
  */
-final class ServerCallbackHandler extends BaseCallbackHandler {
+final class ServerCallbackHandler extends BaseCallbackHandler implements SharedCallbackHandler {
 
     ServerCallbackHandler() {
     }
-
-    protected void handleSupportedCallbacks(Callback[] callbacks) throws IOException, UnsupportedCallbackException {
-        for (Callback callback : callbacks) {
-            processCallback(callback);
-        }
-    }
-
-    protected boolean isSupportedCallback(Callback callback) {
-        return callback instanceof CertStoreCallback 
-                || callback instanceof PasswordValidationCallback
-                || callback instanceof CallerPrincipalCallback 
-                || callback instanceof GroupPrincipalCallback
-                || callback instanceof SecretKeyCallback 
-                || callback instanceof PrivateKeyCallback
-                || callback instanceof TrustStoreCallback; 
-    }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import javax.security.auth.callback.CallbackHandler;
+
+/**
+ * Marks a callback handler that keeps no state per config or per message, and that is safe for concurrent use.
+ *
+ * <p>
+ * When the default callback handler class implements this, {@link AuthMessagePolicy#getDefaultCallbackHandler()}
+ * creates a single instance of it and hands that out to every config, so that what the handler caches (keys,
+ * verified credentials) is shared by the whole runtime.
+ */
+public interface SharedCallbackHandler extends CallbackHandler {
+}
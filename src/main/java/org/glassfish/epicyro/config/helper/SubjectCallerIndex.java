@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.Subject;
+
+/**
+ * Side index from subjects to the caller that was put in their principals, so that the caller of a subject can be
+ * found without going through, and copying, its principals.
+ *
+ * <p>
+ * Subjects are held weakly and compared by identity, as their equality and hash code depend on their changing
+ * contents. Entries of subjects that were garbage collected are removed whenever a caller is put. The index is only
+ * a hint: the principals of the subject remain the source of truth, so a caller is only returned while that very
+ * instance is still among them. That check goes through the principals in place, without copying them as
+ * {@link Subject#getPrincipals(Class)} does, and so without the cost the index saves.
+ *
+ * <p>
+ * The subject has no hook or modification count that tells when a principal is removed, so the check can't be
+ * avoided. It goes through the principals under their lock, as {@link Subject#getPrincipals(Class)} does, and a
+ * subject has only a few of them.
+ */
+final class SubjectCallerIndex {
+
+    private static final Map<Object, Caller> CALLERS = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Subject> COLLECTED_SUBJECTS = new ReferenceQueue<>();
+    private static final ThreadLocal<LookupKey> LOOKUP_KEYS = ThreadLocal.withInitial(LookupKey::new);
+
+    /**
+     * The key under which a caller is kept.
+     */
+    private static final class SubjectKey extends WeakReference<Subject> {
+
+        private final int hashCode;
+
+        SubjectKey(Subject subject) {
+            super(subject, COLLECTED_SUBJECTS);
+            this.hashCode = System.identityHashCode(subject);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+
+            Subject subject = get();
+            if (subject == null) {
+                return false;
+            }
+
+            if (other instanceof SubjectKey subjectKey) {
+                return subjectKey.get() == subject;
+            }
+
+            return other instanceof LookupKey lookupKey && lookupKey.subject == subject;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A per-thread reusable key to look up the caller of a subject with.
+     */
+    private static final class LookupKey {
+
+        private Subject subject;
+        private int hashCode;
+
+        LookupKey of(Subject subject) {
+            this.subject = subject;
+            this.hashCode = System.identityHashCode(subject);
+            return this;
+        }
+
+        void clear() {
+            subject = null;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SubjectKey subjectKey && subjectKey.get() == subject;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private SubjectCallerIndex() {
+    }
+
+    /**
+     * Returns the caller that was last put for the given subject, if that instance is still in the principals of the
+     * subject.
+     */
+    static Caller get(Subject subject) {
+        LookupKey lookupKey = LOOKUP_KEYS.get().of(subject);
+        try {
+            Caller caller = CALLERS.get(lookupKey);
+            if (caller == null) {
+                return null;
+            }
+
+            // By identity, as callers are equal to any other caller with the same name. The principals are a
+            // synchronized set, which has to be locked to be iterated while other threads may change it.
+            Set<Principal> principals = subject.getPrincipals();
+            synchronized (principals) {
+                for (Principal principal : principals) {
+                    if (principal == caller) {
+                        return caller;
+                    }
+                }
+            }
+
+            return null;
+        } finally {
+            lookupKey.clear();
+        }
+    }
+
+    static void put(Subject subject, Caller caller) {
+        expungeCollectedSubjects();
+
+        LookupKey lookupKey = LOOKUP_KEYS.get().of(subject);
+        try {
+            // Replace the value of an existing key, so that the key stays the one that gets enqueued
+            if (CALLERS.replace(lookupKey, caller) == null) {
+                CALLERS.put(new SubjectKey(subject), caller);
+            }
+        } finally {
+            lookupKey.clear();
+        }
+    }
+
+    private static void expungeCollectedSubjects() {
+        for (Reference<? extends Subject> collected; (collected = COLLECTED_SUBJECTS.poll()) != null;) {
+            CALLERS.remove(collected);
+        }
+    }
+}
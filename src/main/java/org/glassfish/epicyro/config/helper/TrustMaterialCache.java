@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.helper;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.util.Collections.list;
+import static java.util.Collections.unmodifiableList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.System.Logger;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.CertStore;
+import java.security.cert.Certificate;
+import java.security.cert.CollectionCertStoreParameters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Cache of the trust material that callback handlers hand out for every message: the {@link CertStore} with the
+ * certificates of the truststore, and the secret keys per alias.
+ *
+ * <p>
+ * The cert store is a snapshot of the truststore, which is taken again when another truststore is used, the
+ * truststore changes in size, or the version of the truststore the owner passes changes. A certificate that's
+ * replaced under the same alias therefore goes unnoticed until the owner changes that version or calls
+ * {@link #invalidate()}. Both the snapshot and the secret keys are kept until then, or, if {@value #TTL_PROPERTY}
+ * is set, until they are older than that.
+ */
+final class TrustMaterialCache {
+
+    private static final Logger LOG = System.getLogger(TrustMaterialCache.class.getName());
+
+    /**
+     * System property with the time in milliseconds that trust material is kept, 0 (until invalidated) by default.
+     */
+    static final String TTL_PROPERTY = "org.glassfish.epicyro.trust.material.ttl";
+
+    /**
+     * Looks up the secret key for an alias.
+     */
+    @FunctionalInterface
+    interface SecretKeyLookup {
+        SecretKey lookup(String alias) throws GeneralSecurityException;
+    }
+
+    private static final class Cached<T> {
+
+        final T value;
+        final long expiresAt;
+
+        Cached(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class CertStoreSnapshot {
+
+        final KeyStore trustStore;
+        final int trustStoreSize;
+        final long trustStoreVersion;
+        final CertStore certStore;
+        final long expiresAt;
+
+        CertStoreSnapshot(KeyStore trustStore, int trustStoreSize, long trustStoreVersion, CertStore certStore, long expiresAt) {
+            this.trustStore = trustStore;
+            this.trustStoreSize = trustStoreSize;
+            this.trustStoreVersion = trustStoreVersion;
+            this.certStore = certStore;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long timeToLiveNanos;
+
+    private volatile CertStoreSnapshot certStoreSnapshot;
+    private final Map<String, Cached<SecretKey>> secretKeys = new ConcurrentHashMap<>();
+
+    TrustMaterialCache() {
+        this(Long.getLong(TTL_PROPERTY, 0));
+    }
+
+    TrustMaterialCache(long timeToLiveMillis) {
+        this.timeToLiveNanos = MILLISECONDS.toNanos(timeToLiveMillis);
+    }
+
+    /**
+     * Returns a cert store with the certificate entries of the given version of the given truststore, taking a new
+     * snapshot of it if the current one is not of this truststore and version or is stale.
+     */
+    CertStore getCertStore(KeyStore trustStore, long trustStoreVersion) throws GeneralSecurityException {
+        long now = System.nanoTime();
+        int trustStoreSize = trustStore.size();
+
+        CertStoreSnapshot snapshot = certStoreSnapshot;
+        if (snapshot != null && snapshot.trustStore == trustStore && snapshot.trustStoreSize == trustStoreSize &&
+                snapshot.trustStoreVersion == trustStoreVersion && !isExpired(snapshot.expiresAt, now)) {
+            return snapshot.certStore;
+        }
+
+        List<Certificate> certificates = new ArrayList<>();
+        for (String alias : list(trustStore.aliases())) {
+            if (trustStore.isCertificateEntry(alias)) {
+                try {
+                    certificates.add(trustStore.getCertificate(alias));
+                } catch (KeyStoreException kse) {
+                    // ignore and move to next
+                    LOG.log(DEBUG, "Jakarta Authentication: Cannot retrieve certificate for alias {0}", alias);
+                }
+            }
+        }
+
+        CertStore certStore = CertStore.getInstance("Collection", new CollectionCertStoreParameters(unmodifiableList(certificates)));
+        certStoreSnapshot = new CertStoreSnapshot(trustStore, trustStoreSize, trustStoreVersion, certStore, now + timeToLiveNanos);
+
+        return certStore;
+    }
+
+    /**
+     * Returns the secret key for the given alias, looking it up if it's not cached or stale. Aliases without a
+     * key are not cached.
+     */
+    SecretKey getSecretKey(String alias, SecretKeyLookup secretKeyLookup) throws GeneralSecurityException {
+        long now = System.nanoTime();
+
+        Cached<SecretKey> cached = secretKeys.get(alias);
+        if (cached != null && !isExpired(cached.expiresAt, now)) {
+            return cached.value;
+        }
+
+        SecretKey secretKey = secretKeyLookup.lookup(alias);
+        if (secretKey != null) {
+            secretKeys.put(alias, new Cached<>(secretKey, now + timeToLiveNanos));
+        } else {
+            secretKeys.remove(alias);
+        }
+
+        return secretKey;
+    }
+
+    void invalidate() {
+        certStoreSnapshot = null;
+        secretKeys.clear();
+    }
+
+    private boolean isExpired(long expiresAt, long now) {
+        return timeToLiveNanos > 0 && now - expiresAt >= 0;
+    }
+}
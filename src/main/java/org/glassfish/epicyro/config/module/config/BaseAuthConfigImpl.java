@@ -27,6 +27,7 @@ import javax.security.auth.Subject;
 import javax.security.auth.callback.CallbackHandler;
 
 import org.glassfish.epicyro.config.delegate.MessagePolicyDelegate;
+import org.glassfish.epicyro.config.helper.AuthConfigVersionCapability;
 import org.glassfish.epicyro.config.helper.EpochCarrier;
 
 import static java.lang.System.Logger.Level.DEBUG;
@@ -40,12 +41,15 @@ import jakarta.security.auth.message.config.AuthConfig;
  *
  * @author Ron Monzillo
  */
-public abstract class BaseAuthConfigImpl implements AuthConfig {
+public abstract class BaseAuthConfigImpl implements AuthConfig, AuthConfigVersionCapability {
 
     private static final Logger LOG = System.getLogger(BaseAuthConfigImpl.class.getName());
 
     EpochCarrier providerEpoch;
     long epoch;
+
+    // Incremented each time the contexts are dropped, so that contexts handed out before can be recognized
+    private volatile long configVersion;
     MessagePolicyDelegate policyDelegate;
     String layer;
     String appContext;
@@ -81,6 +85,16 @@ public abstract class BaseAuthConfigImpl implements AuthConfig {
         return policyDelegate.getAuthContextID(messageInfo);
     }
 
+    /**
+     * The version changes each time this config is refreshed, including when the provider changed since.
+     */
+    @Override
+    public long getConfigVersion() {
+        doRefreshIfNeeded();
+
+        return configVersion;
+    }
+
     @Override
     public void refresh() {
         try {
@@ -95,6 +109,7 @@ public abstract class BaseAuthConfigImpl implements AuthConfig {
         try {
             epoch = providerEpoch.getEpoch();
             initializeContextMap();
+            configVersion++;
         } finally {
             instanceWriteLock.unlock();
         }
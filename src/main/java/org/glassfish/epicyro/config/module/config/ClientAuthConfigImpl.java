@@ -35,6 +35,8 @@ import javax.security.auth.callback.CallbackHandler;
 
 import org.glassfish.epicyro.config.delegate.MessagePolicyDelegate;
 import org.glassfish.epicyro.config.helper.EpochCarrier;
+import org.glassfish.epicyro.config.helper.ModuleStackDecisionTable;
+import org.glassfish.epicyro.config.helper.ModuleStackDecisionTable.ModuleInvocation;
 import org.glassfish.epicyro.config.helper.ModulesManager;
 
 import static jakarta.security.auth.message.AuthStatus.SEND_FAILURE;
@@ -85,6 +87,24 @@ public class ClientAuthConfigImpl extends BaseAuthConfigImpl implements ClientAu
 
             ClientAuthModule[] module = init();
 
+            ModuleStackDecisionTable validateResponseDecisions =
+                authContextHelper.getDecisionTable(module, validateResponseSuccessValues, SEND_FAILURE);
+
+            ModuleStackDecisionTable secureRequestDecisions =
+                authContextHelper.getDecisionTable(module, secureResponseSuccessValues, SEND_FAILURE);
+
+            ModuleInvocation<ClientAuthModule> validateResponseInvocation = (clientModule, messageInfo, clientSubject, serviceSubject) -> {
+                LOG.log(DEBUG, "ClientAuthContext: {0} of AppContext: {1} - calling vaidateResponse on module", authContextID, getAppContext());
+
+                return clientModule.validateResponse(messageInfo, clientSubject, serviceSubject);
+            };
+
+            ModuleInvocation<ClientAuthModule> secureRequestInvocation = (clientModule, messageInfo, clientSubject, unused) -> {
+                LOG.log(DEBUG, "ClientAuthContext: {0} of AppContext: {1} - calling secureResponse on module", authContextID, getAppContext());
+
+                return clientModule.secureRequest(messageInfo, clientSubject);
+            };
+
             ClientAuthModule[] init() throws AuthException {
 
                 ClientAuthModule[] clientModules;
@@ -121,42 +141,12 @@ public class ClientAuthConfigImpl extends BaseAuthConfigImpl implements ClientAu
 
             @Override
             public AuthStatus validateResponse(MessageInfo arg0, Subject arg1, Subject arg2) throws AuthException {
-                AuthStatus[] status = new AuthStatus[module.length];
-
-                for (int i = 0; i < module.length; i++) {
-                    if (module[i] == null) {
-                        continue;
-                    }
-
-                    LOG.log(DEBUG, "ClientAuthContext: {0} of AppContext: {1} - calling vaidateResponse on module", authContextID, getAppContext());
-
-                    status[i] = module[i].validateResponse(arg0, arg1, arg2);
-
-                    if (authContextHelper.shouldStopProcessingModules(validateResponseSuccessValues, i, status[i])) {
-                        return authContextHelper.getReturnStatus(validateResponseSuccessValues, SEND_FAILURE, status, i);
-                    }
-                }
-
-                return authContextHelper.getReturnStatus(validateResponseSuccessValues, SEND_FAILURE, status, status.length - 1);
+                return validateResponseDecisions.evaluate(module, validateResponseInvocation, arg0, arg1, arg2);
             }
 
             @Override
             public AuthStatus secureRequest(MessageInfo arg0, Subject arg1) throws AuthException {
-                AuthStatus[] status = new AuthStatus[module.length];
-                for (int i = 0; i < module.length; i++) {
-                    if (module[i] == null) {
-                        continue;
-                    }
-
-                    LOG.log(DEBUG, "ClientAuthContext: {0} of AppContext: {1} - calling secureResponse on module", authContextID, getAppContext());
-
-                    status[i] = module[i].secureRequest(arg0, arg1);
-
-                    if (authContextHelper.shouldStopProcessingModules(secureResponseSuccessValues, i, status[i])) {
-                        return authContextHelper.getReturnStatus(secureResponseSuccessValues, AuthStatus.SEND_FAILURE, status, i);
-                    }
-                }
-                return authContextHelper.getReturnStatus(secureResponseSuccessValues, AuthStatus.SEND_FAILURE, status, status.length - 1);
+                return secureRequestDecisions.evaluate(module, secureRequestInvocation, arg0, arg1, null);
             }
 
             @Override
@@ -18,7 +18,6 @@ package org.glassfish.epicyro.config.module.config;
 
 import static org.glassfish.epicyro.config.helper.AuthMessagePolicy.getHttpServletPolicies;
 import static org.glassfish.epicyro.config.helper.HttpServletConstants.HTTPSERVLET;
-import static org.glassfish.epicyro.config.helper.HttpServletConstants.IS_MANDATORY;
 import static org.glassfish.epicyro.config.helper.HttpServletConstants.SOAP;
 
 import java.security.Provider;
@@ -32,6 +31,7 @@ import javax.security.auth.callback.CallbackHandler;
 
 import org.glassfish.epicyro.config.helper.AuthMessagePolicy;
 import org.glassfish.epicyro.config.helper.ModuleConfigurationManager;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
 import org.glassfish.epicyro.data.AuthModuleBaseConfig;
 import org.glassfish.epicyro.data.AuthModuleInstanceHolder;
 
@@ -113,7 +113,7 @@ public class GFAuthConfig implements AuthConfig {
         }
 
         if (HTTPSERVLET.equals(messageLayer)) {
-            return Boolean.valueOf((String) messageInfo.getMap().get(IS_MANDATORY)).toString();
+            return Boolean.toString(HttpMessageInfo.isMandatory(messageInfo));
         }
 
         return null;
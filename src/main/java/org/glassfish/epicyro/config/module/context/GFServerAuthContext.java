@@ -16,6 +16,9 @@
 
 package org.glassfish.epicyro.config.module.context;
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
 import javax.security.auth.Subject;
 import jakarta.security.auth.message.AuthException;
 import jakarta.security.auth.message.AuthStatus;
@@ -23,7 +26,10 @@ import jakarta.security.auth.message.MessageInfo;
 import jakarta.security.auth.message.config.ServerAuthContext;
 import jakarta.security.auth.message.module.ServerAuthModule;
 
-public class GFServerAuthContext implements ServerAuthContext {
+import org.glassfish.epicyro.config.helper.AnonymousRequestCapability;
+import org.glassfish.epicyro.config.helper.AsyncValidationCapability;
+
+public class GFServerAuthContext implements ServerAuthContext, AnonymousRequestCapability, AsyncValidationCapability {
 
     private final ServerAuthModule serverAuthModule;
 
@@ -39,6 +45,16 @@ public class GFServerAuthContext implements ServerAuthContext {
         return serverAuthModule.validateRequest(messageInfo, clientSubject, serviceSubject);
     }
 
+    @Override
+    public CompletionStage<AuthStatus> validateRequestAsync(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, Executor executor) {
+        return AsyncValidationCapability.validateRequestAsync(serverAuthModule, messageInfo, clientSubject, serviceSubject, executor);
+    }
+
+    @Override
+    public boolean isAnonymousRequest(MessageInfo messageInfo) {
+        return AnonymousRequestCapability.isAnonymousRequest(serverAuthModule, messageInfo);
+    }
+
     @Override
     public AuthStatus secureResponse(MessageInfo messageInfo, Subject serviceSubject) throws AuthException {
         return serverAuthModule.secureResponse(messageInfo, serviceSubject);
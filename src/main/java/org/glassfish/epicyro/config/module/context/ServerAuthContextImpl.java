@@ -26,11 +26,18 @@ import jakarta.security.auth.message.module.ServerAuthModule;
 
 import java.lang.System.Logger;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import javax.security.auth.Subject;
 import javax.security.auth.callback.CallbackHandler;
 
 import org.glassfish.epicyro.config.delegate.MessagePolicyDelegate;
+import org.glassfish.epicyro.config.helper.AnonymousRequestCapability;
+import org.glassfish.epicyro.config.helper.AsyncValidationCapability;
+import org.glassfish.epicyro.config.helper.ContextClassLoaderExecutor;
+import org.glassfish.epicyro.config.helper.ModuleStackDecisionTable;
+import org.glassfish.epicyro.config.helper.ModuleStackDecisionTable.ModuleInvocation;
 import org.glassfish.epicyro.config.helper.ModulesManager;
 
 import static jakarta.security.auth.message.AuthStatus.SEND_FAILURE;
@@ -40,10 +47,22 @@ import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.ERROR;
 import static java.lang.System.Logger.Level.WARNING;
 
-public class ServerAuthContextImpl implements ServerAuthContext {
+public class ServerAuthContextImpl implements ServerAuthContext, AnonymousRequestCapability, AsyncValidationCapability {
 
     private static final Logger LOG = System.getLogger(ServerAuthContextImpl.class.getName());
 
+    /**
+     * Property that opts in to calling the modules of a stack concurrently in <code>validateRequest</code>.
+     *
+     * <p>
+     * The value is either an {@link Executor} on which the modules are called (e.g. a virtual thread per task
+     * executor), or <code>true</code> (as Boolean or String) to use a shared, bounded pool of daemon threads. Only
+     * runs of <code>SUFFICIENT</code> and <code>OPTIONAL</code> modules are called concurrently, each with its own
+     * copy of the message; this is only safe when they don't depend on each other's side effects on the request or
+     * the session. See {@link ModuleStackDecisionTable#evaluateConcurrently}.
+     */
+    public static final String PARALLEL_MODULES = "org.glassfish.epicyro.parallel.modules";
+
     private final static AuthStatus[] validateRequestSuccessValues = { SUCCESS, SEND_SUCCESS };
     private final static AuthStatus[] secureResponseSuccessValues = { SEND_SUCCESS };
 
@@ -54,6 +73,12 @@ public class ServerAuthContextImpl implements ServerAuthContext {
     private final String authContextID;
     private final Map<String, ?> properties;
     private final ServerAuthModule[] serverAuthModules;
+    private final ModuleStackDecisionTable validateRequestDecisions;
+    private final ModuleStackDecisionTable secureResponseDecisions;
+    private final Executor moduleExecutor;
+    private final int singleModuleNumber;
+    private final ModuleInvocation<ServerAuthModule> validateRequestInvocation = this::callValidateRequest;
+    private final ModuleInvocation<ServerAuthModule> secureResponseInvocation = this::callSecureResponse;
 
 
     public ServerAuthContextImpl(ModulesManager modulesManager, MessagePolicyDelegate policyDelegate, String appContext,
@@ -66,48 +91,63 @@ public class ServerAuthContextImpl implements ServerAuthContext {
         this.properties = properties;
 
         this.serverAuthModules = getServerAuthModules();
+        this.validateRequestDecisions = modulesManager.getDecisionTable(serverAuthModules, validateRequestSuccessValues, SEND_FAILURE);
+        this.secureResponseDecisions = modulesManager.getDecisionTable(serverAuthModules, secureResponseSuccessValues, SEND_FAILURE);
+        this.moduleExecutor = getModuleExecutor();
+        this.singleModuleNumber = getSingleModuleNumber();
     }
 
     @Override
     public AuthStatus validateRequest(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) throws AuthException {
-        AuthStatus[] status = new AuthStatus[serverAuthModules.length];
-
-        for (int moduleNumber = 0; moduleNumber < serverAuthModules.length; moduleNumber++) {
-            if (serverAuthModules[moduleNumber] == null) {
-                continue;
-            }
+        if (moduleExecutor != null) {
+            return validateRequestDecisions.evaluateConcurrently(serverAuthModules, validateRequestInvocation, messageInfo, clientSubject, serviceSubject, moduleExecutor);
+        }
 
-            LOG.log(DEBUG, "ServerAuthContext: {0} of AppContext: {1} - calling vaidateRequest on module.", authContextID, appContext);
+        return validateRequestDecisions.evaluate(serverAuthModules, validateRequestInvocation, messageInfo, clientSubject, serviceSubject);
+    }
 
-            status[moduleNumber] = serverAuthModules[moduleNumber].validateRequest(messageInfo, clientSubject, serviceSubject);
+    /**
+     * A stack with a single module is validated as that module validates, asynchronously if it can. Other stacks are
+     * evaluated as a whole on the given executor, as which modules are called depends on the outcome of the earlier ones.
+     */
+    @Override
+    public CompletionStage<AuthStatus> validateRequestAsync(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, Executor executor) {
+        if (singleModuleNumber >= 0) {
+            LOG.log(DEBUG, "ServerAuthContext: {0} of AppContext: {1} - calling validateRequestAsync on module.", authContextID, appContext);
 
-            if (modulesManager.shouldStopProcessingModules(validateRequestSuccessValues, moduleNumber, status[moduleNumber])) {
-                return modulesManager.getReturnStatus(validateRequestSuccessValues, SEND_FAILURE, status, moduleNumber);
-            }
+            return AsyncValidationCapability
+                .validateRequestAsync(serverAuthModules[singleModuleNumber], messageInfo, clientSubject, serviceSubject, executor)
+                .thenApply(moduleStatus -> validateRequestDecisions.decide(singleModuleNumber, moduleStatus));
         }
 
-        return modulesManager.getReturnStatus(validateRequestSuccessValues, SEND_FAILURE, status, status.length - 1);
+        return AsyncValidationCapability.validateRequestOn(this, messageInfo, clientSubject, serviceSubject, executor);
     }
 
+    /**
+     * A stack of modules has an anonymous outcome when all its modules do, whatever their control flags.
+     */
     @Override
-    public AuthStatus secureResponse(MessageInfo messageInfo, Subject serviceSubject) throws AuthException {
-        AuthStatus[] status = new AuthStatus[serverAuthModules.length];
+    public boolean isAnonymousRequest(MessageInfo messageInfo) {
+        boolean hasModule = false;
 
-        for (int i = 0; i < serverAuthModules.length; i++) {
-            if (serverAuthModules[i] == null) {
+        for (ServerAuthModule serverAuthModule : serverAuthModules) {
+            if (serverAuthModule == null) {
                 continue;
             }
 
-            LOG.log(DEBUG, "ServerAuthContext: {0} of AppContext: {1} - calling secureResponse on module.", authContextID, appContext);
-
-            status[i] = serverAuthModules[i].secureResponse(messageInfo, serviceSubject);
-
-            if (modulesManager.shouldStopProcessingModules(secureResponseSuccessValues, i, status[i])) {
-                return modulesManager.getReturnStatus(secureResponseSuccessValues, SEND_FAILURE, status, i);
+            if (!AnonymousRequestCapability.isAnonymousRequest(serverAuthModule, messageInfo)) {
+                return false;
             }
+
+            hasModule = true;
         }
 
-        return modulesManager.getReturnStatus(secureResponseSuccessValues, SEND_FAILURE, status, status.length - 1);
+        return hasModule;
+    }
+
+    @Override
+    public AuthStatus secureResponse(MessageInfo messageInfo, Subject serviceSubject) throws AuthException {
+        return secureResponseDecisions.evaluate(serverAuthModules, secureResponseInvocation, messageInfo, serviceSubject, null);
     }
 
     @Override
@@ -123,6 +163,69 @@ public class ServerAuthContextImpl implements ServerAuthContext {
         }
     }
 
+    private AuthStatus callValidateRequest(ServerAuthModule module, MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) throws AuthException {
+        LOG.log(DEBUG, "ServerAuthContext: {0} of AppContext: {1} - calling vaidateRequest on module.", authContextID, appContext);
+
+        return module.validateRequest(messageInfo, clientSubject, serviceSubject);
+    }
+
+    private AuthStatus callSecureResponse(ServerAuthModule module, MessageInfo messageInfo, Subject serviceSubject, Subject unused) throws AuthException {
+        LOG.log(DEBUG, "ServerAuthContext: {0} of AppContext: {1} - calling secureResponse on module.", authContextID, appContext);
+
+        return module.secureResponse(messageInfo, serviceSubject);
+    }
+
+    private Executor getModuleExecutor() {
+        Object parallelModules = properties == null ? null : properties.get(PARALLEL_MODULES);
+        if (parallelModules == null) {
+            return null;
+        }
+
+        int moduleCount = 0;
+        for (ServerAuthModule serverAuthModule : serverAuthModules) {
+            if (serverAuthModule != null) {
+                moduleCount++;
+            }
+        }
+
+        // Nothing to gain from calling a single module on another thread
+        if (moduleCount < 2) {
+            return null;
+        }
+
+        if (parallelModules instanceof Executor) {
+            return (Executor) parallelModules;
+        }
+
+        if (Boolean.parseBoolean(parallelModules.toString())) {
+            LOG.log(DEBUG, "ServerAuthContext: {0} of AppContext: {1} - calling {2} modules concurrently.", authContextID, appContext, moduleCount);
+
+            return SharedModuleExecutor.INSTANCE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the position of the module of a stack that has exactly one, or -1.
+     */
+    private int getSingleModuleNumber() {
+        int singleModuleNumber = -1;
+        for (int i = 0; i < serverAuthModules.length; i++) {
+            if (serverAuthModules[i] == null) {
+                continue;
+            }
+
+            if (singleModuleNumber >= 0) {
+                return -1;
+            }
+
+            singleModuleNumber = i;
+        }
+
+        return singleModuleNumber;
+    }
+
     private ServerAuthModule[] getServerAuthModules() {
         try {
             ServerAuthModule[] serverAuthModules;
@@ -178,4 +281,13 @@ public class ServerAuthContextImpl implements ServerAuthContext {
             }
         }
     }
+
+    /**
+     * Holder for the pool that's used when parallel module evaluation is enabled without an explicit executor.
+     */
+    private static final class SharedModuleExecutor {
+
+        static final Executor INSTANCE = new ContextClassLoaderExecutor("epicyro-auth-module-",
+            Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+    }
 }
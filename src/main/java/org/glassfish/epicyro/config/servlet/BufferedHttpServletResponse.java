@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response that records what is done to it instead of doing it, until it's replayed on the response it wraps, after
+ * which it passes everything on.
+ *
+ * <p>
+ * The status and whether the response is committed reflect what was recorded; headers are read from the wrapped
+ * response, so headers that were set but not yet replayed are not seen.
+ */
+final class BufferedHttpServletResponse extends HttpServletResponseWrapper {
+
+    @FunctionalInterface
+    private interface ResponseAction {
+        void apply(HttpServletResponse response) throws IOException;
+    }
+
+    private final List<ResponseAction> actions = new ArrayList<>();
+    private boolean replayed;
+
+    private int status;
+    private boolean committed;
+    private ByteArrayOutputStream body;
+    private CharArrayWriter text;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    BufferedHttpServletResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Applies what was recorded to the wrapped response, and passes everything on from now on.
+     */
+    synchronized void replay() throws IOException {
+        if (replayed) {
+            return;
+        }
+        replayed = true;
+
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        for (ResponseAction action : actions) {
+            action.apply(response);
+        }
+        actions.clear();
+
+        if (body != null && body.size() > 0) {
+            response.getOutputStream().write(body.toByteArray());
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+        if (text != null && text.size() > 0) {
+            response.getWriter().write(text.toCharArray());
+        }
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        record(response -> response.addCookie(cookie));
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        record(response -> response.setHeader(name, value));
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        record(response -> response.addHeader(name, value));
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        record(response -> response.setIntHeader(name, value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        record(response -> response.addIntHeader(name, value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        record(response -> response.setDateHeader(name, date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        record(response -> response.addDateHeader(name, date));
+    }
+
+    @Override
+    public void setTrailerFields(Supplier<Map<String, String>> supplier) {
+        record(response -> response.setTrailerFields(supplier));
+    }
+
+    @Override
+    public void setContentType(String type) {
+        record(response -> response.setContentType(type));
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        record(response -> response.setCharacterEncoding(charset));
+    }
+
+    @Override
+    public void setCharacterEncoding(Charset charset) {
+        record(response -> response.setCharacterEncoding(charset));
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        record(response -> response.setContentLength(length));
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        record(response -> response.setContentLengthLong(length));
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        record(response -> response.setLocale(locale));
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        record(response -> response.setBufferSize(size));
+    }
+
+    @Override
+    public synchronized void setStatus(int status) {
+        if (!replayed) {
+            this.status = status;
+        }
+        record(response -> response.setStatus(status));
+    }
+
+    @Override
+    public synchronized int getStatus() {
+        return replayed || status == 0 ? super.getStatus() : status;
+    }
+
+    @Override
+    public synchronized boolean isCommitted() {
+        return replayed ? super.isCommitted() : committed;
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        commit(status, response -> response.sendError(status));
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        commit(status, response -> response.sendError(status, message));
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        commit(SC_FOUND, response -> response.sendRedirect(location));
+    }
+
+    @Override
+    public void sendRedirect(String location, boolean clearBuffer) throws IOException {
+        commit(SC_FOUND, response -> response.sendRedirect(location, clearBuffer));
+    }
+
+    @Override
+    public void sendRedirect(String location, int status) throws IOException {
+        commit(status, response -> response.sendRedirect(location, status));
+    }
+
+    @Override
+    public void sendRedirect(String location, int status, boolean clearBuffer) throws IOException {
+        commit(status, response -> response.sendRedirect(location, status, clearBuffer));
+    }
+
+    @Override
+    public synchronized void flushBuffer() throws IOException {
+        if (replayed) {
+            super.flushBuffer();
+            return;
+        }
+
+        committed = true;
+        actions.add(HttpServletResponse::flushBuffer);
+    }
+
+    @Override
+    public synchronized void reset() {
+        if (replayed) {
+            super.reset();
+            return;
+        }
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+
+        actions.clear();
+        status = 0;
+        resetBuffer();
+    }
+
+    @Override
+    public synchronized void resetBuffer() {
+        if (replayed) {
+            super.resetBuffer();
+            return;
+        }
+
+        if (body != null) {
+            body.reset();
+        }
+        if (text != null) {
+            text.reset();
+        }
+    }
+
+    @Override
+    public synchronized ServletOutputStream getOutputStream() throws IOException {
+        if (replayed) {
+            return super.getOutputStream();
+        }
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() was already called");
+        }
+
+        if (outputStream == null) {
+            body = new ByteArrayOutputStream();
+            outputStream = new ServletOutputStream() {
+
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new IllegalStateException("Not an asynchronous response");
+                }
+            };
+        }
+
+        return outputStream;
+    }
+
+    @Override
+    public synchronized PrintWriter getWriter() throws IOException {
+        if (replayed) {
+            return super.getWriter();
+        }
+        if (outputStream != null) {
+            throw new IllegalStateException("getOutputStream() was already called");
+        }
+
+        if (writer == null) {
+            text = new CharArrayWriter();
+            writer = new PrintWriter(text);
+        }
+
+        return writer;
+    }
+
+    private void commit(int status, ResponseAction action) throws IOException {
+        synchronized (this) {
+            if (!replayed) {
+                if (committed) {
+                    throw new IllegalStateException("Response already committed");
+                }
+
+                this.status = status;
+                committed = true;
+                actions.add(action);
+                return;
+            }
+        }
+
+        action.apply((HttpServletResponse) getResponse());
+    }
+
+    private void record(ResponseAction action) {
+        synchronized (this) {
+            if (!replayed) {
+                actions.add(action);
+                return;
+            }
+        }
+
+        try {
+            action.apply((HttpServletResponse) getResponse());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
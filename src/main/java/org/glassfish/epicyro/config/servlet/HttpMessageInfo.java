@@ -17,24 +17,114 @@
 
 package org.glassfish.epicyro.config.servlet;
 
+import static java.lang.Boolean.TRUE;
+import static org.glassfish.epicyro.config.helper.HttpServletConstants.IS_MANDATORY;
+import static org.glassfish.epicyro.config.helper.HttpServletConstants.REGISTER_SESSION;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.glassfish.epicyro.config.helper.IsolatableMessageInfo;
 
 import jakarta.security.auth.message.MessageInfo;
+import jakarta.security.auth.message.config.ServerAuthContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-public class HttpMessageInfo implements MessageInfo {
+/**
+ * The message info used for the HttpServlet profile.
+ *
+ * <p>
+ * The well-known keys {@link org.glassfish.epicyro.config.helper.HttpServletConstants#IS_MANDATORY IS_MANDATORY} and
+ * {@link org.glassfish.epicyro.config.helper.HttpServletConstants#REGISTER_SESSION REGISTER_SESSION} are kept in
+ * dedicated boolean fields, which can be read via {@link #isMandatory()} and {@link #isRegisterSession()}.
+ * The map returned by {@link #getMap()} is a view that contains these fields as well, with the values
+ * <code>"true"</code> or <code>"false"</code> whatever value was put; a backing map is only allocated when other
+ * keys are stored.
+ *
+ * <p>
+ * Copies handed out by {@link #isolate()} share the request, but have a response that buffers what is done to it
+ * until the copy is merged back.
+ */
+public class HttpMessageInfo implements IsolatableMessageInfo {
 
     private HttpServletRequest servletRequest;
     private HttpServletResponse servletResponse;
-    private Map<String, Object> map = new HashMap<>();
+
+    // Whether the well-known keys are present in the map, and their values if so
+    private boolean mandatoryPresent;
+    private boolean mandatory;
+    private boolean registerSessionPresent;
+    private boolean registerSession;
+    private Map<String, Object> otherEntries;
+    private Map<String, Object> map;
+
+    // The server auth context resolved for this message, kept for the remainder of the request
+    private ServerAuthContext serverAuthContext;
+
+    // For a copy handed out by isolate(): the state it was copied from, and its buffered response
+    private HttpMessageInfo isolatedFrom;
+    private BufferedHttpServletResponse bufferedResponse;
 
     public HttpMessageInfo(HttpServletRequest servletRequest, HttpServletResponse servletResponse) {
         this.servletRequest = servletRequest;
         this.servletResponse = servletResponse;
     }
 
+    /**
+     * Returns whether the given message is for a resource that requires authentication, reading the typed
+     * field directly if the message is an <code>HttpMessageInfo</code>.
+     */
+    public static boolean isMandatory(MessageInfo messageInfo) {
+        if (messageInfo instanceof HttpMessageInfo httpMessageInfo) {
+            return httpMessageInfo.isMandatory();
+        }
+
+        return toBoolean(messageInfo.getMap().get(IS_MANDATORY));
+    }
+
+    /**
+     * Returns whether an authentication session was requested for the given message, reading the typed
+     * field directly if the message is an <code>HttpMessageInfo</code>.
+     */
+    public static boolean isRegisterSession(MessageInfo messageInfo) {
+        if (messageInfo instanceof HttpMessageInfo httpMessageInfo) {
+            return httpMessageInfo.isRegisterSession();
+        }
+
+        return toBoolean(messageInfo.getMap().get(REGISTER_SESSION));
+    }
+
+    /**
+     * Marks the given message as being for a resource that requires authentication (or not).
+     */
+    public static void setMandatory(MessageInfo messageInfo, boolean mandatory) {
+        if (messageInfo instanceof HttpMessageInfo httpMessageInfo) {
+            httpMessageInfo.setMandatory(mandatory);
+        } else {
+            messageInfo.getMap().put(IS_MANDATORY, Boolean.toString(mandatory));
+        }
+    }
+
+    /**
+     * Requests (or not) an authentication session for the given message.
+     */
+    public static void setRegisterSession(MessageInfo messageInfo, boolean registerSession) {
+        if (messageInfo instanceof HttpMessageInfo httpMessageInfo) {
+            httpMessageInfo.setRegisterSession(registerSession);
+        } else {
+            messageInfo.getMap().put(REGISTER_SESSION, Boolean.toString(registerSession));
+        }
+    }
+
     @Override
     public HttpServletRequest getRequestMessage() {
         return servletRequest;
@@ -57,6 +147,305 @@ public class HttpMessageInfo implements MessageInfo {
 
     @Override
     public Map<String, Object> getMap() {
+        if (map == null) {
+            map = new MessageInfoMap();
+        }
+
         return map;
     }
-}
\ No newline at end of file
+
+    public boolean isMandatory() {
+        return mandatory;
+    }
+
+    public void setMandatory(boolean mandatory) {
+        setMandatoryEntry(true, mandatory);
+    }
+
+    public boolean isRegisterSession() {
+        return registerSession;
+    }
+
+    public void setRegisterSession(boolean registerSession) {
+        setRegisterSessionEntry(true, registerSession);
+    }
+
+    /**
+     * Returns the server auth context bound to this message, or <code>null</code> if none was bound yet.
+     */
+    public ServerAuthContext getServerAuthContext() {
+        return serverAuthContext;
+    }
+
+    /**
+     * Binds the server auth context obtained for this message to it, so that subsequent processing of the same
+     * request doesn't have to resolve it again.
+     */
+    public void bindServerAuthContext(ServerAuthContext serverAuthContext) {
+        this.serverAuthContext = serverAuthContext;
+    }
+
+    /**
+     * Removes the bound server auth context, e.g. when the message changed in a way that may select another one.
+     */
+    public void unbindServerAuthContext() {
+        this.serverAuthContext = null;
+    }
+
+    @Override
+    public MessageInfo isolate() {
+        BufferedHttpServletResponse bufferedResponse = new BufferedHttpServletResponse(servletResponse);
+
+        HttpMessageInfo isolated = copy(bufferedResponse);
+        isolated.isolatedFrom = copy(servletResponse);
+        isolated.bufferedResponse = bufferedResponse;
+
+        return isolated;
+    }
+
+    /**
+     * Applies what the copy changed since it was isolated, so that the changes of several copies merged in turn
+     * add up as if they were made in turn.
+     */
+    @Override
+    public void merge(MessageInfo isolated) throws IOException {
+        if (!(isolated instanceof HttpMessageInfo copy) || copy.isolatedFrom == null) {
+            throw new IllegalArgumentException("Not an isolated message info");
+        }
+
+        HttpMessageInfo original = copy.isolatedFrom;
+
+        if (copy.servletRequest != original.servletRequest) {
+            servletRequest = copy.servletRequest;
+        }
+        if (copy.mandatoryPresent != original.mandatoryPresent || copy.mandatory != original.mandatory) {
+            setMandatoryEntry(copy.mandatoryPresent, copy.mandatory);
+        }
+        if (copy.registerSessionPresent != original.registerSessionPresent || copy.registerSession != original.registerSession) {
+            setRegisterSessionEntry(copy.registerSessionPresent, copy.registerSession);
+        }
+        mergeOtherEntries(copy.otherEntries, original.otherEntries);
+
+        copy.bufferedResponse.replay();
+
+        // A response the module wrapped around its buffered one passes everything on now that it's replayed
+        if (copy.servletResponse != copy.bufferedResponse) {
+            servletResponse = copy.servletResponse;
+        }
+    }
+
+    private HttpMessageInfo copy(HttpServletResponse response) {
+        HttpMessageInfo copy = new HttpMessageInfo(servletRequest, response);
+        copy.mandatoryPresent = mandatoryPresent;
+        copy.mandatory = mandatory;
+        copy.registerSessionPresent = registerSessionPresent;
+        copy.registerSession = registerSession;
+        copy.otherEntries = otherEntries == null ? null : new HashMap<>(otherEntries);
+        copy.serverAuthContext = serverAuthContext;
+
+        return copy;
+    }
+
+    private void mergeOtherEntries(Map<String, Object> changedEntries, Map<String, Object> originalEntries) {
+        if (originalEntries != null) {
+            for (String key : originalEntries.keySet()) {
+                if (changedEntries == null || !changedEntries.containsKey(key)) {
+                    getMap().remove(key);
+                }
+            }
+        }
+
+        if (changedEntries != null) {
+            for (Map.Entry<String, Object> entry : changedEntries.entrySet()) {
+                if (originalEntries == null || !originalEntries.containsKey(entry.getKey()) || !Objects.equals(originalEntries.get(entry.getKey()), entry.getValue())) {
+                    getMap().put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the mandatory entry, and returns its previous value as seen through the map.
+     */
+    private String setMandatoryEntry(boolean present, boolean value) {
+        String previous = entryValue(mandatoryPresent, mandatory);
+
+        // The mandatory flag takes part in the auth context ID, so a context bound before may no longer apply
+        if (present != mandatoryPresent || value != mandatory) {
+            unbindServerAuthContext();
+        }
+
+        mandatoryPresent = present;
+        mandatory = present && value;
+
+        return previous;
+    }
+
+    /**
+     * Sets the register session entry, and returns its previous value as seen through the map.
+     */
+    private String setRegisterSessionEntry(boolean present, boolean value) {
+        String previous = entryValue(registerSessionPresent, registerSession);
+
+        registerSessionPresent = present;
+        registerSession = present && value;
+
+        return previous;
+    }
+
+    private static String entryValue(boolean present, boolean value) {
+        return present ? Boolean.toString(value) : null;
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof String string) {
+            return Boolean.parseBoolean(string);
+        }
+
+        return TRUE.equals(value);
+    }
+
+    /**
+     * Map view of the message info, with the well-known keys mapped to the dedicated fields.
+     */
+    private class MessageInfoMap extends AbstractMap<String, Object> {
+
+        @Override
+        public int size() {
+            return (mandatoryPresent ? 1 : 0) +
+                   (registerSessionPresent ? 1 : 0) +
+                   (otherEntries != null ? otherEntries.size() : 0);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (IS_MANDATORY.equals(key)) {
+                return mandatoryPresent;
+            }
+            if (REGISTER_SESSION.equals(key)) {
+                return registerSessionPresent;
+            }
+
+            return otherEntries != null && otherEntries.containsKey(key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (IS_MANDATORY.equals(key)) {
+                return entryValue(mandatoryPresent, mandatory);
+            }
+            if (REGISTER_SESSION.equals(key)) {
+                return entryValue(registerSessionPresent, registerSession);
+            }
+
+            return otherEntries != null ? otherEntries.get(key) : null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            if (IS_MANDATORY.equals(key)) {
+                return setMandatoryEntry(true, toBoolean(value));
+            }
+            if (REGISTER_SESSION.equals(key)) {
+                return setRegisterSessionEntry(true, toBoolean(value));
+            }
+
+            if (otherEntries == null) {
+                otherEntries = new HashMap<>();
+            }
+
+            return otherEntries.put(key, value);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (IS_MANDATORY.equals(key)) {
+                return setMandatoryEntry(false, false);
+            }
+            if (REGISTER_SESSION.equals(key)) {
+                return setRegisterSessionEntry(false, false);
+            }
+
+            return otherEntries != null ? otherEntries.remove(key) : null;
+        }
+
+        @Override
+        public void clear() {
+            setMandatoryEntry(false, false);
+            setRegisterSessionEntry(false, false);
+            otherEntries = null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+
+                @Override
+                public int size() {
+                    return MessageInfoMap.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates over a snapshot of the keys, so that entries can be removed and values set while iterating.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private final Iterator<String> keys;
+        private String currentKey;
+
+        EntryIterator() {
+            List<String> keySnapshot = new ArrayList<>(map.size());
+            if (mandatoryPresent) {
+                keySnapshot.add(IS_MANDATORY);
+            }
+            if (registerSessionPresent) {
+                keySnapshot.add(REGISTER_SESSION);
+            }
+            if (otherEntries != null) {
+                keySnapshot.addAll(otherEntries.keySet());
+            }
+
+            keys = keySnapshot.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return keys.hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            currentKey = keys.next();
+
+            String key = currentKey;
+            return new AbstractMap.SimpleEntry<>(key, map.get(key)) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Object setValue(Object value) {
+                    super.setValue(value);
+                    return map.put(key, value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (currentKey == null) {
+                throw new IllegalStateException();
+            }
+
+            map.remove(currentKey);
+            currentKey = null;
+        }
+    }
+}
@@ -16,13 +16,17 @@
 
 package org.glassfish.epicyro.config.servlet.sam;
 
-import static java.util.Collections.unmodifiableSet;
-
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.security.Principal;
-import java.util.HashSet;
 import java.util.Set;
 
+import org.glassfish.epicyro.config.helper.CompactObjectIO;
+import org.glassfish.epicyro.config.helper.GroupSet;
+
 /**
  * This class holds stores "authentication data" (principal and groups).
  * 
@@ -37,11 +41,12 @@ public class AuthenticationData implements Serializable {
     private static final long serialVersionUID = 1L;
     
     private final Principal principal;
+    // Always a GroupSet, but declared as a Set so that data serialized before can be read
     private final Set<String> groups;
     
     public AuthenticationData(Principal principal, Set<String> groups) {
         this.principal = principal;
-        this.groups = unmodifiableSet(new HashSet<>(groups));
+        this.groups = GroupSet.of(groups);
     }
     
     public Principal getPrincipal() {
@@ -51,5 +56,52 @@ public class AuthenticationData implements Serializable {
     public Set<String> getGroups() {
         return groups;
     }
+
+    private Object readResolve() {
+        return groups instanceof GroupSet ? this : new AuthenticationData(principal, groups);
+    }
+
+    // Only for data of this class itself, as subclasses may have state of their own
+    private Object writeReplace() {
+        return new SerializedForm(this);
+    }
+
+    /**
+     * Compact serialized form of authentication data: the version, the principal and the group names.
+     */
+    private static final class SerializedForm implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int VERSION = 1;
+
+        private AuthenticationData authenticationData;
+
+        public SerializedForm() {
+        }
+
+        SerializedForm(AuthenticationData authenticationData) {
+            this.authenticationData = authenticationData;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(VERSION);
+            CompactObjectIO.writePrincipal(out, authenticationData.principal);
+            CompactObjectIO.writeGroups(out, GroupSet.of(authenticationData.groups));
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            CompactObjectIO.readVersion(in, AuthenticationData.class, VERSION);
+            authenticationData = new AuthenticationData(
+                CompactObjectIO.readPrincipal(in),
+                CompactObjectIO.readGroups(in));
+        }
+
+        private Object readResolve() {
+            return authenticationData;
+        }
+    }
     
 }
@@ -19,6 +19,8 @@ import static jakarta.security.auth.message.AuthStatus.SEND_FAILURE;
 import static jakarta.security.auth.message.AuthStatus.SEND_SUCCESS;
 import static jakarta.security.auth.message.AuthStatus.SUCCESS;
 import static jakarta.servlet.http.HttpServletResponse.SC_UNAUTHORIZED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.io.IOException;
 import java.security.Principal;
@@ -30,25 +32,43 @@ import javax.security.auth.callback.Callback;
 import javax.security.auth.callback.CallbackHandler;
 import javax.security.auth.callback.UnsupportedCallbackException;
 
+import org.glassfish.epicyro.config.helper.AnonymousRequestCapability;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
+
 import jakarta.security.auth.message.AuthException;
 import jakarta.security.auth.message.AuthStatus;
 import jakarta.security.auth.message.MessageInfo;
 import jakarta.security.auth.message.MessagePolicy;
 import jakarta.security.auth.message.callback.CallerPrincipalCallback;
+import jakarta.security.auth.message.callback.GroupPrincipalCallback;
 import jakarta.security.auth.message.callback.PasswordValidationCallback;
 import jakarta.security.auth.message.module.ServerAuthModule;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 /**
+ * Server auth module for HTTP Basic authentication.
+ *
+ * <p>
+ * Successfully verified credentials can optionally be cached, by setting the options
+ * {@value #CREDENTIAL_CACHE_TTL} (in seconds) and {@value #CREDENTIAL_CACHE_SIZE}. See {@link VerifiedCredentialCache}
+ * for what is kept and for how long.
  *
  * @author Arjan Tijms
  *
  */
-public class BasicServerAuthModule implements ServerAuthModule {
+public class BasicServerAuthModule implements ServerAuthModule, AnonymousRequestCapability {
+
+    public static final String CREDENTIAL_CACHE_TTL = "credentialCacheTtl";
+    public static final String CREDENTIAL_CACHE_SIZE = "credentialCacheSize";
+
+    private static final String BASIC_SCHEME = "Basic ";
+    private static final int DEFAULT_CREDENTIAL_CACHE_SIZE = 1024;
 
     private CallbackHandler handler;
     private String realm;
+    private VerifiedCredentialCache credentialCache;
 
     @Override
     public Class<?>[] getSupportedMessageTypes() {
@@ -60,6 +80,14 @@ public class BasicServerAuthModule implements ServerAuthModule {
             @SuppressWarnings("rawtypes") Map options) throws AuthException {
         this.handler = handler;
         realm = (String) options.get("realmName");
+
+        long credentialCacheTtl = getLongOption(options, CREDENTIAL_CACHE_TTL, 0);
+        if (credentialCacheTtl > 0) {
+            credentialCache = new VerifiedCredentialCache(
+                credentialCacheTtl, SECONDS,
+                (int) getLongOption(options, CREDENTIAL_CACHE_SIZE, DEFAULT_CREDENTIAL_CACHE_SIZE));
+            credentialCache.invalidateOnChangeOf(handler);
+        }
     }
 
     @Override
@@ -68,18 +96,37 @@ public class BasicServerAuthModule implements ServerAuthModule {
             HttpServletRequest request = (HttpServletRequest) messageInfo.getRequestMessage();
             HttpServletResponse response = (HttpServletResponse) messageInfo.getResponseMessage();
 
-            String[] credentials = getCredentials(request);
+            String encodedCredentials = getEncodedCredentials(request);
 
-            if (credentials != null) {
-                PasswordValidationCallback passwordValidation =
-                    new PasswordValidationCallback(clientSubject,
-                        credentials[0],
-                        credentials[1].toCharArray());
+            if (encodedCredentials != null) {
+                if (credentialCache != null) {
+                    VerifiedCredentialCache.VerifiedCaller verifiedCaller = credentialCache.get(encodedCredentials);
+                    if (verifiedCaller != null) {
+                        handler.handle(new Callback[] {
+                            new CallerPrincipalCallback(clientSubject, verifiedCaller.getCallerPrincipal()),
+                            new GroupPrincipalCallback(clientSubject, verifiedCaller.getGroups())
+                        });
+
+                        return SUCCESS;
+                    }
+                }
 
-                handler.handle(new Callback[] { passwordValidation });
+                String[] credentials = decodeCredentials(encodedCredentials);
 
-                if (passwordValidation.getResult()) {
-                    return SUCCESS;
+                if (credentials != null) {
+                    long cacheGeneration = credentialCache != null ? credentialCache.getGeneration() : 0;
+                    PasswordValidationCallback passwordValidation =
+                        new PasswordValidationCallback(clientSubject,
+                            credentials[0],
+                            credentials[1].toCharArray());
+
+                    handler.handle(new Callback[] { passwordValidation });
+                    passwordValidation.clearPassword();
+
+                    if (passwordValidation.getResult()) {
+                        cacheVerifiedCaller(encodedCredentials, clientSubject, cacheGeneration);
+                        return SUCCESS;
+                    }
                 }
             }
 
@@ -98,6 +145,14 @@ public class BasicServerAuthModule implements ServerAuthModule {
         }
     }
 
+    /**
+     * A request to a public resource without Basic credentials is let through as anonymous.
+     */
+    @Override
+    public boolean isAnonymousRequest(MessageInfo messageInfo) {
+        return !isProtectedResource(messageInfo) && !hasCredentials((HttpServletRequest) messageInfo.getRequestMessage());
+    }
+
     @Override
     public AuthStatus secureResponse(MessageInfo messageInfo, Subject serviceSubject) throws AuthException {
         return SEND_SUCCESS;
@@ -107,16 +162,58 @@ public class BasicServerAuthModule implements ServerAuthModule {
     public void cleanSubject(MessageInfo messageInfo, Subject subject) throws AuthException {
     }
 
-    private String[] getCredentials(HttpServletRequest request) {
+    private boolean hasCredentials(HttpServletRequest request) {
+        return getEncodedCredentials(request) != null;
+    }
+
+    private String getEncodedCredentials(HttpServletRequest request) {
         String authorizationHeader = request.getHeader("Authorization");
-        if (authorizationHeader != null && authorizationHeader.startsWith("Basic ")) {
-            return new String(Base64.getDecoder().decode(authorizationHeader.substring(6))).split(":");
+        if (authorizationHeader != null && authorizationHeader.startsWith(BASIC_SCHEME)) {
+            return authorizationHeader.substring(BASIC_SCHEME.length());
         }
 
         return null;
     }
 
+    /**
+     * Decodes the user-pass of the Basic scheme (RFC 7617), which is in UTF-8 and of which only the user-id can't
+     * contain a colon.
+     */
+    private static String[] decodeCredentials(String encodedCredentials) {
+        String credentials = new String(Base64.getDecoder().decode(encodedCredentials), UTF_8);
+
+        int separator = credentials.indexOf(':');
+        if (separator < 0) {
+            return null;
+        }
+
+        return new String[] { credentials.substring(0, separator), credentials.substring(separator + 1) };
+    }
+
+    private void cacheVerifiedCaller(String encodedCredentials, Subject clientSubject, long cacheGeneration) {
+        if (credentialCache == null) {
+            return;
+        }
+
+        Caller caller = Caller.fromSubject(clientSubject);
+        if (caller != null && caller.getCallerPrincipal() != null) {
+            credentialCache.put(encodedCredentials, caller.getCallerPrincipal(), caller.getGroupsAsArray(), cacheGeneration);
+        }
+    }
+
+    private static long getLongOption(@SuppressWarnings("rawtypes") Map options, String name, long defaultValue) {
+        Object value = options.get(name);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String string && !string.isEmpty()) {
+            return Long.parseLong(string);
+        }
+
+        return defaultValue;
+    }
+
     public static boolean isProtectedResource(MessageInfo messageInfo) {
-        return Boolean.valueOf((String) messageInfo.getMap().get("jakarta.security.auth.message.MessagePolicy.isMandatory"));
+        return HttpMessageInfo.isMandatory(messageInfo);
     }
 }
\ No newline at end of file
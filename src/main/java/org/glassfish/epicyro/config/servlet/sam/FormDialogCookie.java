@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.servlet.sam;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.glassfish.epicyro.config.helper.CompactObjectIO;
+
+/**
+ * Encodes the state of a FORM authentication dialog into a cookie value, and decodes it again, so that the dialog
+ * needs no HTTP session.
+ *
+ * <p>
+ * Only the target of the saved request (method, URL and query string) and whether the caller initiated the dialog
+ * are kept. The authenticated caller is never kept, as a copy of the cookie could be replayed for as long as it's
+ * valid; state with a saved authentication can't be encoded. The value carries its expiry time and is signed with
+ * HMAC-SHA256; optionally the state is encrypted with AES-GCM as well. Both keys are derived from a secret, of which
+ * several can be given for key rotation: the first one signs, and all of them are accepted.
+ *
+ * <p>
+ * The value is laid out as the version, the id of the secret, the flags, the expiry time in epoch seconds, the state
+ * (or the nonce and the encrypted state) and the signature, and is Base64url encoded.
+ */
+final class FormDialogCookie {
+
+    private static final Logger LOG = System.getLogger(FormDialogCookie.class.getName());
+
+    // Version 1 values could carry the authenticated caller, and are no longer accepted
+    private static final int VERSION = 2;
+
+    private static final int ENCRYPTED = 1;
+
+    private static final int SAVED_REQUEST = 1;
+    private static final int CALLER_INITIATED = 4;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int MAC_LENGTH = 32;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    /**
+     * The minimum length of a secret in bytes.
+     */
+    private static final int MIN_SECRET_LENGTH = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The keys derived from one secret.
+     */
+    private static final class Keys {
+
+        final int id;
+        final SecretKeySpec macKey;
+        final SecretKeySpec encryptionKey;
+
+        Keys(byte[] secret) throws GeneralSecurityException {
+            this.id = toInt(MessageDigest.getInstance("SHA-256").digest(secret));
+            this.macKey = new SecretKeySpec(derive(secret, "signature"), MAC_ALGORITHM);
+            this.encryptionKey = new SecretKeySpec(derive(secret, "encryption"), "AES");
+        }
+
+        private static byte[] derive(byte[] secret, String purpose) throws GeneralSecurityException {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+
+            return mac.doFinal(purpose.getBytes(US_ASCII));
+        }
+    }
+
+    private final String name;
+    private final List<Keys> keys;
+    private final boolean encrypted;
+    private final int maxAgeSeconds;
+    private final int maxSize;
+
+    /**
+     * @param name the name of the cookie
+     * @param secrets the secrets, of which the first one signs
+     * @param encrypted whether the state is encrypted
+     * @param maxAgeSeconds the time after which the state expires
+     * @param maxSize the maximum length of the cookie value
+     */
+    FormDialogCookie(String name, List<byte[]> secrets, boolean encrypted, int maxAgeSeconds, int maxSize) throws GeneralSecurityException {
+        if (secrets.isEmpty()) {
+            throw new IllegalArgumentException("At least one secret is needed");
+        }
+
+        this.name = name;
+        this.keys = new ArrayList<>(secrets.size());
+        for (byte[] secret : secrets) {
+            if (secret.length < MIN_SECRET_LENGTH) {
+                throw new IllegalArgumentException("Secrets must be at least " + MIN_SECRET_LENGTH + " bytes");
+            }
+            keys.add(new Keys(secret));
+        }
+
+        this.encrypted = encrypted;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.maxSize = maxSize;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    /**
+     * Returns the cookie value for the given state, or <code>null</code> if it has a saved authentication or would be
+     * longer than the maximum size.
+     */
+    String encode(FormDialogState state) {
+        if (state.getSavedAuthentication() != null) {
+            return null;
+        }
+
+        try {
+            byte[] plainState = writeState(state);
+            Keys signingKeys = keys.get(0);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeInt(signingKeys.id);
+            out.writeByte(encrypted ? ENCRYPTED : 0);
+            out.writeLong(System.currentTimeMillis() / 1000 + maxAgeSeconds);
+
+            if (encrypted) {
+                byte[] nonce = new byte[NONCE_LENGTH];
+                RANDOM.nextBytes(nonce);
+
+                Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+                cipher.init(Cipher.ENCRYPT_MODE, signingKeys.encryptionKey, new GCMParameterSpec(TAG_BITS, nonce));
+                out.write(nonce);
+                out.write(cipher.doFinal(plainState));
+            } else {
+                out.write(plainState);
+            }
+
+            out.write(mac(signingKeys, bytes.toByteArray()));
+
+            String value = ENCODER.encodeToString(bytes.toByteArray());
+            if (value.length() > maxSize) {
+                LOG.log(DEBUG, "FORM dialog state of {0} bytes exceeds the cookie size limit of {1}", value.length(), maxSize);
+                return null;
+            }
+
+            return value;
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the state in the given cookie value, or <code>null</code> if the value is not valid, was not signed with
+     * one of the secrets or has expired.
+     */
+    FormDialogState decode(String value) {
+        try {
+            byte[] bytes = DECODER.decode(value);
+            if (bytes.length < 1 + Integer.BYTES + 1 + Long.BYTES + MAC_LENGTH) {
+                return null;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - MAC_LENGTH));
+            if (in.readUnsignedByte() != VERSION) {
+                return null;
+            }
+
+            Keys signingKeys = findKeys(in.readInt());
+            if (signingKeys == null || !verify(signingKeys, bytes)) {
+                return null;
+            }
+
+            int flags = in.readUnsignedByte();
+            if (in.readLong() < System.currentTimeMillis() / 1000) {
+                return null;
+            }
+
+            byte[] stateBytes = in.readNBytes(in.available());
+            if ((flags & ENCRYPTED) != 0) {
+                if (stateBytes.length < NONCE_LENGTH) {
+                    return null;
+                }
+
+                Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+                cipher.init(Cipher.DECRYPT_MODE, signingKeys.encryptionKey, new GCMParameterSpec(TAG_BITS, stateBytes, 0, NONCE_LENGTH));
+                stateBytes = cipher.doFinal(stateBytes, NONCE_LENGTH, stateBytes.length - NONCE_LENGTH);
+            }
+
+            return readState(stateBytes);
+        } catch (IllegalArgumentException | IOException | GeneralSecurityException e) {
+            LOG.log(DEBUG, "Ignoring invalid FORM dialog cookie", e);
+            return null;
+        }
+    }
+
+    private static byte[] writeState(FormDialogState state) throws IOException {
+        RequestData savedRequest = state.getSavedRequest();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(
+            (savedRequest != null ? SAVED_REQUEST : 0) |
+            (state.isCallerInitiated() ? CALLER_INITIATED : 0));
+
+        if (savedRequest != null) {
+            CompactObjectIO.writeString(out, savedRequest.getMethod());
+            CompactObjectIO.writeString(out, savedRequest.getRequestURL());
+            CompactObjectIO.writeString(out, savedRequest.getQueryString());
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static FormDialogState readState(byte[] stateBytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(stateBytes));
+        int flags = in.readUnsignedByte();
+
+        FormDialogState state = FormDialogState.EMPTY;
+
+        if ((flags & SAVED_REQUEST) != 0) {
+            state = state.withSavedRequest(RequestData.ofTarget(
+                CompactObjectIO.readString(in),
+                CompactObjectIO.readString(in),
+                CompactObjectIO.readString(in)));
+        }
+
+        return state.withCallerInitiated((flags & CALLER_INITIATED) != 0);
+    }
+
+    private Keys findKeys(int id) {
+        for (Keys candidate : keys) {
+            if (candidate.id == id) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean verify(Keys keys, byte[] bytes) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(keys.macKey);
+        mac.update(bytes, 0, bytes.length - MAC_LENGTH);
+
+        byte[] expected = mac.doFinal();
+        byte[] actual = new byte[MAC_LENGTH];
+        System.arraycopy(bytes, bytes.length - MAC_LENGTH, actual, 0, MAC_LENGTH);
+
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    private static byte[] mac(Keys keys, byte[] bytes) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(keys.macKey);
+
+        return mac.doFinal(bytes);
+    }
+
+    private static int toInt(byte[] bytes) {
+        return (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.servlet.sam;
+
+import java.io.Serializable;
+
+/**
+ * The state of a FORM authentication dialog, as kept in the HTTP session: the request that was saved before
+ * the caller was sent to the login page, the authentication data that was saved before the caller was sent back to
+ * the saved request, and whether the caller initiated the dialog.
+ *
+ * <p>
+ * Instances are immutable, so that the state can be read from the session once per request, changed in memory, and
+ * written back at most once.
+ */
+final class FormDialogState implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final FormDialogState EMPTY = new FormDialogState(null, null, false);
+
+    private final RequestData savedRequest;
+    private final AuthenticationData savedAuthentication;
+    private final boolean callerInitiated;
+
+    private FormDialogState(RequestData savedRequest, AuthenticationData savedAuthentication, boolean callerInitiated) {
+        this.savedRequest = savedRequest;
+        this.savedAuthentication = savedAuthentication;
+        this.callerInitiated = callerInitiated;
+    }
+
+    RequestData getSavedRequest() {
+        return savedRequest;
+    }
+
+    AuthenticationData getSavedAuthentication() {
+        return savedAuthentication;
+    }
+
+    boolean isCallerInitiated() {
+        return callerInitiated;
+    }
+
+    boolean isEmpty() {
+        return savedRequest == null && savedAuthentication == null && !callerInitiated;
+    }
+
+    FormDialogState withSavedRequest(RequestData savedRequest) {
+        if (savedRequest == this.savedRequest) {
+            return this;
+        }
+
+        return of(savedRequest, savedAuthentication, callerInitiated);
+    }
+
+    FormDialogState withSavedAuthentication(AuthenticationData savedAuthentication) {
+        if (savedAuthentication == this.savedAuthentication) {
+            return this;
+        }
+
+        return of(savedRequest, savedAuthentication, callerInitiated);
+    }
+
+    FormDialogState withCallerInitiated(boolean callerInitiated) {
+        if (callerInitiated == this.callerInitiated) {
+            return this;
+        }
+
+        return of(savedRequest, savedAuthentication, callerInitiated);
+    }
+
+    private static FormDialogState of(RequestData savedRequest, AuthenticationData savedAuthentication, boolean callerInitiated) {
+        if (savedRequest == null && savedAuthentication == null && !callerInitiated) {
+            return EMPTY;
+        }
+
+        return new FormDialogState(savedRequest, savedAuthentication, callerInitiated);
+    }
+
+    private Object readResolve() {
+        return isEmpty() ? EMPTY : this;
+    }
+}
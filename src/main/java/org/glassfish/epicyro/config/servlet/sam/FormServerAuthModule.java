@@ -26,14 +26,21 @@ import static org.glassfish.epicyro.config.servlet.sam.Utils.isEmpty;
 import static org.glassfish.epicyro.config.servlet.sam.Utils.notNull;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.security.auth.Subject;
 import javax.security.auth.callback.Callback;
 import javax.security.auth.callback.CallbackHandler;
 
 import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
 
 import jakarta.security.auth.message.AuthException;
 import jakarta.security.auth.message.AuthStatus;
@@ -44,6 +51,7 @@ import jakarta.security.auth.message.callback.GroupPrincipalCallback;
 import jakarta.security.auth.message.callback.PasswordValidationCallback;
 import jakarta.security.auth.message.module.ServerAuthModule;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
@@ -52,24 +60,60 @@ import jakarta.servlet.http.HttpSession;
  * Authentication mechanism that authenticates according to the Servlet spec defined FORM
  * authentication mechanism. See Servlet spec for further details.
  *
+ * <p>
+ * The state of the authentication dialog is kept in the HTTP session by default. With the option {@value #STATELESS}
+ * set to <code>true</code> it is kept in a signed cookie instead, so that no session is created for callers that
+ * never log in. Only the target of the saved request is kept then, which the caller is sent back to after logging
+ * in, but which is not restored. The authenticated caller is never kept in the cookie; between logging in and
+ * being sent back it's kept in the session, as it would be without this option. The options are:
+ * <ul>
+ * <li>{@value #STATE_COOKIE_SECRETS}: comma separated Base64 encoded secrets of at least 32 bytes, of which the first
+ * one signs and all of them are accepted, so that secrets can be rotated. Required, as the cookie must be accepted
+ * by every instance the caller's requests may reach;
+ * <li>{@value #STATE_COOKIE_ENCRYPTED}: whether the state is encrypted as well, <code>false</code> by default;
+ * <li>{@value #STATE_COOKIE_MAX_AGE}: the time in seconds after which the dialog expires, 1800 by default;
+ * <li>{@value #STATE_COOKIE_MAX_SIZE}: the maximum length of the cookie value, 4000 by default. State that doesn't
+ * fit is kept in the session after all, as is state with an authenticated caller.
+ * </ul>
+ *
+ * <p>
+ * What is saved of the request is limited by a {@link RequestCapturePolicy}, of which the options are:
+ * <ul>
+ * <li>{@value #SAVED_REQUEST_HEADERS}: comma separated names of the headers to save, all headers by default;
+ * <li>{@value #SAVED_REQUEST_MAX_HEADER_SIZE}: the maximum size of the saved headers and cookies, no maximum by default;
+ * <li>{@value #SAVED_REQUEST_MAX_PARAMETER_SIZE}: the maximum size of the saved parameters, no maximum by default;
+ * <li>{@value #SAVED_REQUEST_GET_ONLY}: whether only GET requests are saved in full, <code>false</code> by default.
+ * </ul>
+ * Without any of these options the whole request is saved, as {@link RequestCapturePolicy#UNLIMITED}. A request that
+ * exceeds the limits is not restored after logging in, but the caller is still sent back to its URL.
+ *
  * @author Arjan Tijms
  *
  */
 public class FormServerAuthModule implements ServerAuthModule {
 
-    // Key in the MessageInfo Map that when present AND set to true indicated a protected resource is being accessed.
-    // When the resource is not protected, GlassFish omits the key altogether. WebSphere does insert the key and sets
-    // it to false.
-    private static final String IS_MANDATORY = "jakarta.security.auth.message.MessagePolicy.isMandatory";
     public static final String IS_AUTHENTICATION = "org.glassfish.elios.security.message.request.authentication";
     public static final String IS_NEW_AUTHENTICATION = "org.glassfish.elios.security.message.request.new.authentication";
-    private static final String ORIGINAL_REQUEST_DATA_SESSION_NAME = "org.glassfish.elios.original.request";
-    private static final String AUTHENTICATION_DATA_SESSION_NAME = "org.glassfish.elios.authentication";
-    private static final String CALLER_INITIATED_AUTHENTICATION_SESSION_NAME = "org.glassfish.elios.caller_initiated_authentication";
+    public static final String STATELESS = "stateless";
+    public static final String STATE_COOKIE_SECRETS = "stateCookieSecrets";
+    public static final String STATE_COOKIE_ENCRYPTED = "stateCookieEncrypted";
+    public static final String STATE_COOKIE_MAX_AGE = "stateCookieMaxAge";
+    public static final String STATE_COOKIE_MAX_SIZE = "stateCookieMaxSize";
+    public static final String SAVED_REQUEST_HEADERS = "savedRequestHeaders";
+    public static final String SAVED_REQUEST_MAX_HEADER_SIZE = "savedRequestMaxHeaderSize";
+    public static final String SAVED_REQUEST_MAX_PARAMETER_SIZE = "savedRequestMaxParameterSize";
+    public static final String SAVED_REQUEST_GET_ONLY = "savedRequestGetOnly";
+
+    private static final String FORM_DIALOG_SESSION_NAME = "org.glassfish.elios.form.dialog";
+    private static final String FORM_DIALOG_COOKIE_NAME = "org.glassfish.elios.form.dialog";
+    private static final int DEFAULT_STATE_COOKIE_MAX_AGE = 1800;
+    private static final int DEFAULT_STATE_COOKIE_MAX_SIZE = 4000;
 
     private CallbackHandler handler;
     private String loginPage = "";
     private String errorPage = "";
+    private FormDialogCookie dialogCookie;
+    private RequestCapturePolicy capturePolicy;
     boolean useForwardToLogin = true;
 
     @Override
@@ -83,6 +127,12 @@ public class FormServerAuthModule implements ServerAuthModule {
         this.handler = handler;
         loginPage = (String) options.get("formLoginPage");
         errorPage = (String) options.get("formErrorPage");
+
+        capturePolicy = createCapturePolicy(options);
+
+        if (getBooleanOption(options, STATELESS)) {
+            dialogCookie = createDialogCookie(options);
+        }
     }
 
     @Override
@@ -122,7 +172,7 @@ public class FormServerAuthModule implements ServerAuthModule {
         AuthStatus outcome = validateRequestLoginToContinue(messageInfo, clientSubject, serviceSubject);
 
         if (SUCCESS.equals(outcome)) {
-            messageInfo.getMap().put("jakarta.servlet.http.registerSession", TRUE.toString());
+            HttpMessageInfo.setRegisterSession(messageInfo, true);
         }
 
         return outcome;
@@ -131,17 +181,26 @@ public class FormServerAuthModule implements ServerAuthModule {
     public AuthStatus validateRequestLoginToContinue(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) throws Exception {
         HttpServletRequest request = (HttpServletRequest) messageInfo.getRequestMessage();
 
-        // Check if there's any state lingering behind from a previous aborted authentication dialog
-        tryClean(messageInfo, request);
-
-        if (isCallerInitiatedAuthentication(request)) {
-            // The caller explicitly initiated the authentication dialog, i.e. by clicking on a login button,
-            // in response to which the application called HttpServletRequest#authenticate
-            return processCallerInitiatedAuthentication(messageInfo, clientSubject, serviceSubject);
-        } else {
-            // If the caller didn't initiated the dialog, the container did, i.e. after the caller tried to access
-            // a protected resource.
-            return processContainerInitiatedAuthentication(messageInfo, clientSubject, serviceSubject);
+        // The state of the dialog is read from the session or cookie once, and written back at most once
+        FormDialog dialog = dialogCookie != null ?
+            CookieFormDialog.of(request, (HttpServletResponse) messageInfo.getResponseMessage(), dialogCookie) :
+            SessionFormDialog.of(request);
+
+        try {
+            // Check if there's any state lingering behind from a previous aborted authentication dialog
+            tryClean(messageInfo, request, dialog);
+
+            if (dialog.state.isCallerInitiated()) {
+                // The caller explicitly initiated the authentication dialog, i.e. by clicking on a login button,
+                // in response to which the application called HttpServletRequest#authenticate
+                return processCallerInitiatedAuthentication(messageInfo, clientSubject, serviceSubject, dialog);
+            } else {
+                // If the caller didn't initiated the dialog, the container did, i.e. after the caller tried to access
+                // a protected resource.
+                return processContainerInitiatedAuthentication(messageInfo, clientSubject, serviceSubject, dialog);
+            }
+        } finally {
+            dialog.store();
         }
     }
 
@@ -173,25 +232,25 @@ public class FormServerAuthModule implements ServerAuthModule {
     // ### Private methods
 
 
-    private void tryClean(MessageInfo messageInfo, HttpServletRequest request) {
+    private void tryClean(MessageInfo messageInfo, HttpServletRequest request, FormDialog dialog) {
 
         // 1. Check if caller aborted earlier flow and does a new request to protected resource
-        if (isOnProtectedURLWithStaleData(messageInfo, request)) {
-            removeSavedRequest(request);
-            removeCallerInitiatedAuthentication(request);
+        if (isOnProtectedURLWithStaleData(messageInfo, request, dialog.state)) {
+            dialog.state = dialog.state
+                .withSavedRequest(null)
+                .withCallerInitiated(false);
         }
 
         // 2. Check if caller aborted earlier flow and explicitly initiated a new authentication dialog
         if (isNewAuthentication(request)) {
-            saveCallerInitiatedAuthentication(request);
-            removeSavedRequest(request);
-            removeSavedAuthentication(request);
+            dialog.state = dialog.state
+                .withCallerInitiated(true)
+                .withSavedRequest(null)
+                .withSavedAuthentication(null);
         }
     }
 
-    private AuthStatus processCallerInitiatedAuthentication(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) throws Exception {
-        HttpServletRequest request = (HttpServletRequest) messageInfo.getRequestMessage();
-
+    private AuthStatus processCallerInitiatedAuthentication(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, FormDialog dialog) throws Exception {
         // Try to authenticate with the next interceptor or actual authentication mechanism
         AuthStatus authstatus;
 
@@ -209,7 +268,7 @@ public class FormServerAuthModule implements ServerAuthModule {
             }
 
             // Actually authenticated now, so we remove the authentication dialog marker
-            removeCallerInitiatedAuthentication(request);
+            dialog.state = dialog.state.withCallerInitiated(false);
 
             // TODO: for some mechanisms, such as OAuth the caller would now likely be at an
             // application OAuth landing page, and should likely be returned to "some other" location
@@ -222,15 +281,17 @@ public class FormServerAuthModule implements ServerAuthModule {
         return authstatus;
     }
 
-    private AuthStatus processContainerInitiatedAuthentication(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) throws Exception {
+    private AuthStatus processContainerInitiatedAuthentication(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, FormDialog dialog) throws Exception {
         HttpServletRequest request = (HttpServletRequest) messageInfo.getRequestMessage();
         HttpServletResponse response = (HttpServletResponse) messageInfo.getResponseMessage();
 
         // 1. Protected resource requested and no request saved before
-        if (isOnInitialProtectedURL(messageInfo, request)) {
+        if (isOnInitialProtectedURL(messageInfo, request, dialog.state)) {
 
-            // Save request details and redirect/forward to /login page
-            saveRequest(request);
+            // Save request details and redirect/forward to /login page. The session must be written to before
+            // the response is committed, as it may need to be created.
+            dialog.state = dialog.state.withSavedRequest(RequestData.of(request, capturePolicy));
+            dialog.store();
 
             if (useForwardToLogin) {
                 return forward(loginPage, request, response);
@@ -245,7 +306,7 @@ public class FormServerAuthModule implements ServerAuthModule {
         //          E.g. we can redirect to /login, and /login can postback to J_SECURITY_CHECK or /login2,
         //          or whatever. For each such postback we give the authentication mechanism the opportunity
         //          to authenticate though.
-        if (isOnLoginPostback(request)) {
+        if (isOnLoginPostback(dialog.state)) {
             // Try to authenticate with the next interceptor or actual authentication mechanism
             AuthStatus authstatus;
 
@@ -265,17 +326,18 @@ public class FormServerAuthModule implements ServerAuthModule {
                 }
 
                 // Authentication was successful and an actual caller principal was set
-                RequestData savedRequest = getSavedRequest(request);
+                RequestData savedRequest = dialog.state.getSavedRequest();
 
                 // Check if we're already on the right target URL
-                if  (!savedRequest.matchesRequest(request)) {
+                if  (!savedRequest.matches(dialog.getRequestFingerprint())) {
 
                     // Store the authenticated data before redirecting to the right
                     // URL. This is needed since the underlying Jakarta Authentication runtime does not
                     // remember the authenticated identity if we redirect.
-                    saveAuthentication(request, new AuthenticationData(
+                    dialog.state = dialog.state.withSavedAuthentication(new AuthenticationData(
                             caller.getCallerPrincipal(),
-                            caller.getGroups()));
+                            caller.getGroupSet()));
+                    dialog.store();
 
                     return redirect(savedRequest.getFullRequestURL(), response);
                 } // else return success
@@ -294,15 +356,20 @@ public class FormServerAuthModule implements ServerAuthModule {
 
 
         // 3. Authenticated data saved and back on original URL from step 1.
-        if (isOnOriginalURLAfterAuthenticate(request)) {
+        if (isOnOriginalURLAfterAuthenticate(dialog)) {
 
             // Remove all the data we saved
-            RequestData requestData = removeSavedRequest(request);
-            AuthenticationData authenticationData = removeSavedAuthentication(request);
+            RequestData requestData = dialog.state.getSavedRequest();
+            AuthenticationData authenticationData = dialog.state.getSavedAuthentication();
+            dialog.state = dialog.state
+                .withSavedRequest(null)
+                .withSavedAuthentication(null);
 
             // Wrap the request to provide all the original request data again, such as the original
             // headers and the HTTP method, authenticate and then invoke the originally requested resource
-            messageInfo.setRequestMessage(new HttpServletRequestDelegator(request, requestData));
+            if (!requestData.isRedirectOnly()) {
+                messageInfo.setRequestMessage(new HttpServletRequestDelegator(request, requestData));
+            }
 
             handler.handle(new Callback[] {
                     new CallerPrincipalCallback(clientSubject, authenticationData.getPrincipal()),
@@ -316,11 +383,7 @@ public class FormServerAuthModule implements ServerAuthModule {
 
     }
 
-    private boolean isCallerInitiatedAuthentication(HttpServletRequest request) {
-        return TRUE.equals(getCallerInitiatedAuthentication(request));
-    }
-
-    private boolean isOnProtectedURLWithStaleData(MessageInfo messageInfo, HttpServletRequest request) {
+    private static boolean isOnProtectedURLWithStaleData(MessageInfo messageInfo, HttpServletRequest request, FormDialogState state) {
         return
             isProtected(messageInfo) &&
 
@@ -328,15 +391,15 @@ public class FormServerAuthModule implements ServerAuthModule {
             // which here means isProtected() is true. But we want to use HttpServletRequest#authenticate
             // to resume a dialog started by accessing a protected page, so therefore exclude it here.
             !isAuthenticationRequest(request) &&
-            getSavedRequest(request) != null &&
-            getSavedAuthentication(request) == null &&
+            state.getSavedRequest() != null &&
+            state.getSavedAuthentication() == null &&
 
             // Some servers consider the Servlet special URL "/j_security_check" as
             // a protected URL
             !request.getRequestURI().endsWith("j_security_check");
     }
 
-    private boolean isOnInitialProtectedURL(MessageInfo messageInfo, HttpServletRequest request) {
+    private static boolean isOnInitialProtectedURL(MessageInfo messageInfo, HttpServletRequest request, FormDialogState state) {
         return
             isProtected(messageInfo) &&
 
@@ -344,94 +407,166 @@ public class FormServerAuthModule implements ServerAuthModule {
             // which here means isProtected() is true. But we want to use HttpServletRequest#authenticate
             // to resume a dialog started by accessing a protected page, so therefore exclude it here.
             !isAuthenticationRequest(request) &&
-            getSavedRequest(request) == null &&
-            getSavedAuthentication(request) == null &&
+            state.getSavedRequest() == null &&
+            state.getSavedAuthentication() == null &&
 
             // Some servers consider the Servlet special URL "/j_security_check" as
             // a protected URL
             !request.getRequestURI().endsWith("j_security_check");
     }
 
-    private boolean isOnLoginPostback(HttpServletRequest request) {
+    private static boolean isOnLoginPostback(FormDialogState state) {
         return
-            getSavedRequest(request) != null &&
-            getSavedAuthentication(request) == null;
+            state.getSavedRequest() != null &&
+            state.getSavedAuthentication() == null;
     }
 
-    private boolean isOnOriginalURLAfterAuthenticate(HttpServletRequest request) {
-        RequestData savedRequest = getSavedRequest(request);
-        AuthenticationData authenticationData = getSavedAuthentication(request);
+    private static boolean isOnOriginalURLAfterAuthenticate(FormDialog dialog) {
+        RequestData savedRequest = dialog.state.getSavedRequest();
+        AuthenticationData authenticationData = dialog.state.getSavedAuthentication();
 
         return
             notNull(savedRequest, authenticationData) &&
-            savedRequest.matchesRequest(request);
+            savedRequest.matches(dialog.getRequestFingerprint());
     }
 
-    private void saveCallerInitiatedAuthentication(HttpServletRequest request) {
-        request.getSession().setAttribute(CALLER_INITIATED_AUTHENTICATION_SESSION_NAME, TRUE);
-    }
-
-    private Boolean getCallerInitiatedAuthentication(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            return null;
+    /**
+     * The state of the dialog for the current request, which tracks the state as it was read and last written, so
+     * that it's only written when it changed.
+     */
+    private abstract static class FormDialog {
+
+        final HttpServletRequest request;
+        private FormDialogState storedState;
+        private RequestFingerprint requestFingerprint;
+        FormDialogState state;
+
+        FormDialog(HttpServletRequest request, FormDialogState storedState) {
+            this.request = request;
+            this.storedState = storedState;
+            this.state = storedState;
         }
 
-        return (Boolean) session.getAttribute(CALLER_INITIATED_AUTHENTICATION_SESSION_NAME);
-    }
+        /**
+         * Returns the fingerprint of the current request, which is computed once.
+         */
+        RequestFingerprint getRequestFingerprint() {
+            if (requestFingerprint == null) {
+                requestFingerprint = RequestFingerprint.of(request);
+            }
 
-    private void removeCallerInitiatedAuthentication(HttpServletRequest request) {
-        request.getSession().removeAttribute(CALLER_INITIATED_AUTHENTICATION_SESSION_NAME);
-    }
+            return requestFingerprint;
+        }
 
-    private void saveRequest(HttpServletRequest request) {
-        request.getSession().setAttribute(ORIGINAL_REQUEST_DATA_SESSION_NAME, RequestData.of(request));
-    }
+        /**
+         * Writes the state, if it changed since it was read or last written.
+         */
+        void store() {
+            if (state == storedState) {
+                return;
+            }
 
-    private RequestData getSavedRequest(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            return null;
+            write(state);
+            storedState = state;
         }
 
-        return (RequestData) session.getAttribute(ORIGINAL_REQUEST_DATA_SESSION_NAME);
+        abstract void write(FormDialogState state);
     }
 
-    private RequestData removeSavedRequest(HttpServletRequest request) {
-        RequestData requestData = getSavedRequest(request);
+    /**
+     * Dialog of which the state is kept in the HTTP session, which is only created when there is state to keep.
+     */
+    private static final class SessionFormDialog extends FormDialog {
 
-        request.getSession().removeAttribute(ORIGINAL_REQUEST_DATA_SESSION_NAME);
+        private HttpSession session;
 
-        return requestData;
-    }
+        private SessionFormDialog(HttpServletRequest request, HttpSession session, FormDialogState storedState) {
+            super(request, storedState);
+            this.session = session;
+        }
 
-    private void saveAuthentication(HttpServletRequest request, AuthenticationData authenticationData) {
-        request.getSession().setAttribute(AUTHENTICATION_DATA_SESSION_NAME, authenticationData);
-    }
+        static SessionFormDialog of(HttpServletRequest request) {
+            HttpSession session = request.getSession(false);
+
+            FormDialogState storedState = FormDialogState.EMPTY;
+            if (session != null && session.getAttribute(FORM_DIALOG_SESSION_NAME) instanceof FormDialogState sessionState) {
+                storedState = sessionState;
+            }
 
-    private AuthenticationData getSavedAuthentication(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            return null;
+            return new SessionFormDialog(request, session, storedState);
         }
 
-        return (AuthenticationData) session.getAttribute(AUTHENTICATION_DATA_SESSION_NAME);
+        @Override
+        void write(FormDialogState state) {
+            if (state.isEmpty()) {
+                if (session != null) {
+                    session.removeAttribute(FORM_DIALOG_SESSION_NAME);
+                }
+            } else {
+                if (session == null) {
+                    session = request.getSession();
+                }
+                session.setAttribute(FORM_DIALOG_SESSION_NAME, state);
+            }
+        }
     }
 
-    private AuthenticationData removeSavedAuthentication(HttpServletRequest request) {
-        AuthenticationData authenticationData = getSavedAuthentication(request);
+    /**
+     * Dialog of which the state is kept in a signed cookie, or in the HTTP session when it doesn't fit in one or
+     * has an authenticated caller.
+     */
+    private static final class CookieFormDialog extends FormDialog {
+
+        private final HttpServletResponse response;
+        private final FormDialogCookie dialogCookie;
+        private final SessionFormDialog sessionDialog;
+        private boolean hasCookie;
+
+        private CookieFormDialog(HttpServletRequest request, HttpServletResponse response, FormDialogCookie dialogCookie,
+                SessionFormDialog sessionDialog, FormDialogState storedState, boolean hasCookie) {
+            super(request, storedState);
+            this.response = response;
+            this.dialogCookie = dialogCookie;
+            this.sessionDialog = sessionDialog;
+            this.hasCookie = hasCookie;
+        }
 
-        request.getSession().removeAttribute(AUTHENTICATION_DATA_SESSION_NAME);
+        static CookieFormDialog of(HttpServletRequest request, HttpServletResponse response, FormDialogCookie dialogCookie) {
+            Cookie cookie = CookieHandler.getCookie(request, dialogCookie.getName());
+            FormDialogState cookieState = cookie == null ? null : dialogCookie.decode(cookie.getValue());
 
-        return authenticationData;
-    }
+            // Only looks in an existing session, for state that didn't fit in the cookie
+            SessionFormDialog sessionDialog = SessionFormDialog.of(request);
 
+            return new CookieFormDialog(request, response, dialogCookie, sessionDialog,
+                cookieState != null ? cookieState : sessionDialog.state,
+                cookie != null);
+        }
 
+        @Override
+        void write(FormDialogState state) {
+            String value = state.isEmpty() ? null : dialogCookie.encode(state);
+
+            if (value != null) {
+                CookieHandler.saveCookie(request, response, dialogCookie.getName(), value, dialogCookie.getMaxAgeSeconds(), request.isSecure(), true);
+                hasCookie = true;
+            } else if (hasCookie) {
+                CookieHandler.removeCookie(request, response, dialogCookie.getName());
+                hasCookie = false;
+            }
+
+            sessionDialog.state = value != null ? FormDialogState.EMPTY : state;
+            sessionDialog.store();
+        }
+    }
 
     // ### Static helper methods
 
+    // The isMandatory key in the MessageInfo Map when present AND set to true indicates a protected resource is being
+    // accessed. When the resource is not protected, GlassFish omits the key altogether. WebSphere does insert the key
+    // and sets it to false.
     private static boolean isProtected(MessageInfo messageInfo) {
-        return Boolean.valueOf((String) messageInfo.getMap().get(IS_MANDATORY));
+        return HttpMessageInfo.isMandatory(messageInfo);
     }
 
     private static boolean isAuthenticationRequest(HttpServletRequest request) {
@@ -472,5 +607,81 @@ public class FormServerAuthModule implements ServerAuthModule {
         return request.getUserPrincipal();
     }
 
+    private static FormDialogCookie createDialogCookie(@SuppressWarnings("rawtypes") Map options) throws AuthException {
+        try {
+            List<byte[]> secrets = new ArrayList<>();
+
+            if (options.get(STATE_COOKIE_SECRETS) instanceof String secretsOption) {
+                for (String secret : secretsOption.split(",")) {
+                    if (!secret.trim().isEmpty()) {
+                        secrets.add(Base64.getDecoder().decode(secret.trim()));
+                    }
+                }
+            }
+
+            if (secrets.isEmpty()) {
+                throw new IllegalArgumentException("The option " + STATE_COOKIE_SECRETS + " is required when " + STATELESS + " is set");
+            }
+
+            return new FormDialogCookie(
+                FORM_DIALOG_COOKIE_NAME,
+                secrets,
+                getBooleanOption(options, STATE_COOKIE_ENCRYPTED),
+                getIntOption(options, STATE_COOKIE_MAX_AGE, DEFAULT_STATE_COOKIE_MAX_AGE),
+                getIntOption(options, STATE_COOKIE_MAX_SIZE, DEFAULT_STATE_COOKIE_MAX_SIZE));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            AuthException authException = new AuthException("Invalid FORM dialog cookie options");
+            authException.initCause(e);
+            throw authException;
+        }
+    }
+
+    private static RequestCapturePolicy createCapturePolicy(@SuppressWarnings("rawtypes") Map options) throws AuthException {
+        try {
+            Set<String> headerNames = null;
+
+            if (options.get(SAVED_REQUEST_HEADERS) instanceof String headersOption) {
+                headerNames = new HashSet<>();
+                for (String headerName : headersOption.split(",")) {
+                    if (!headerName.trim().isEmpty()) {
+                        headerNames.add(headerName.trim());
+                    }
+                }
+            }
+
+            int maxHeaderSize = getIntOption(options, SAVED_REQUEST_MAX_HEADER_SIZE, -1);
+            int maxParameterSize = getIntOption(options, SAVED_REQUEST_MAX_PARAMETER_SIZE, -1);
+            boolean getOnly = getBooleanOption(options, SAVED_REQUEST_GET_ONLY);
+
+            if (headerNames == null && maxHeaderSize == -1 && maxParameterSize == -1 && !getOnly) {
+                return RequestCapturePolicy.UNLIMITED;
+            }
+
+            return new RequestCapturePolicy(headerNames, maxHeaderSize, maxParameterSize, getOnly);
+        } catch (IllegalArgumentException e) {
+            AuthException authException = new AuthException("Invalid saved request options");
+            authException.initCause(e);
+            throw authException;
+        }
+    }
+
+    private static boolean getBooleanOption(@SuppressWarnings("rawtypes") Map options, String name) {
+        Object value = options.get(name);
+
+        return TRUE.equals(value) || value instanceof String string && Boolean.parseBoolean(string);
+    }
+
+    private static int getIntOption(@SuppressWarnings("rawtypes") Map options, String name, int defaultValue) {
+        Object value = options.get(name);
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value instanceof String string && !string.isEmpty()) {
+            return Integer.parseInt(string);
+        }
+
+        return defaultValue;
+    }
+
 
 }
@@ -17,20 +17,22 @@
 package org.glassfish.epicyro.config.servlet.sam;
 
 import static java.lang.Integer.parseInt;
+import static java.time.ZoneOffset.UTC;
+import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+import static java.time.temporal.ChronoField.YEAR;
 import static java.util.Collections.enumeration;
 import static java.util.Locale.US;
-import static java.util.TimeZone.getTimeZone;
 import static org.glassfish.epicyro.config.servlet.sam.Utils.isEmpty;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -46,15 +48,22 @@ import jakarta.servlet.http.HttpServletRequestWrapper;
  */
 public class HttpServletRequestDelegator extends HttpServletRequestWrapper {
 
-    private static final TimeZone GMT = getTimeZone("GMT");
-    private static final String[] datePatterns = {
-        "EE, dd MMM yyyy HH:mm:ss zz",
-        "EEEE, dd-MMM-yy HH:mm:ss zz",
-        "EE MMM  d HH:mm:ss yyyy"
-    };
+    // The three date formats of HTTP/1.1; e.g. "Sun, 06 Nov 1994 08:49:37 GMT" is RFC 1123
+    private static final DateTimeFormatter RFC_1123_DATE = RFC_1123_DATE_TIME;
+
+    // e.g. "Sunday, 06-Nov-94 08:49:37 GMT", of which the year is taken to be within 50 years of now
+    private static final DateTimeFormatter RFC_850_DATE = new DateTimeFormatterBuilder()
+        .appendPattern("EEEE, dd-MMM-")
+        .appendValueReduced(YEAR, 2, 2, LocalDate.now(UTC).minusYears(50))
+        .appendPattern(" HH:mm:ss zzz")
+        .toFormatter(US);
+
+    // e.g. "Sun Nov  6 08:49:37 1994", which is always in GMT
+    private static final DateTimeFormatter ASCTIME_DATE = DateTimeFormatter
+        .ofPattern("EEE MMM ppd HH:mm:ss yyyy", US)
+        .withZone(UTC);
 
     private final RequestData requestData;
-    private List<DateFormat> dateFormats;
 
     public HttpServletRequestDelegator(HttpServletRequest request, RequestData requestData) {
         super(request);
@@ -78,29 +87,18 @@ public class HttpServletRequestDelegator extends HttpServletRequestWrapper {
     @Override
     public String getHeader(String name) {
 
-        // Return the first matching header that has the same (case insensitive) name
-        for (Map.Entry<String, List<String>> header : requestData.getHeaders().entrySet()) {
-            if (header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()) {
-                return header.getValue().get(0);
-            }
-        }
+        // Return the first value of the headers that have the same (case insensitive) name
+        List<String> values = requestData.getHeaderValues(name);
 
-        return null;
+        return values.isEmpty() ? null : values.get(0);
     }
 
     @Override
     public Enumeration<String> getHeaders(String name) {
 
-        // Collect headers irrespective of the case that was used for the actual header
+        // The values of all headers irrespective of the case that was used for the actual header
         // when submitted and the case of the name asked here.
-        List<String> headers = new ArrayList<>();
-        for (Map.Entry<String, List<String>> header : requestData.getHeaders().entrySet()) {
-            if (header.getKey().equalsIgnoreCase(name)) {
-                headers.addAll(header.getValue());
-            }
-        }
-
-        return enumeration(headers);
+        return enumeration(requestData.getHeaderValues(name));
     }
 
     @Override
@@ -126,23 +124,14 @@ public class HttpServletRequestDelegator extends HttpServletRequestWrapper {
             return -1;
         }
 
-        if (dateFormats == null) {
-            dateFormats = new ArrayList<>(datePatterns.length);
-            for (String datePattern : datePatterns) {
-                dateFormats.add(createDateFormat(datePattern));
-            }
-        }
+        String date = header.trim();
 
-        for (DateFormat dateFormat : dateFormats) {
-            try {
-                return dateFormat.parse(header).getTime();
-            } catch (ParseException e) {
-                // noop
-            }
+        try {
+            return getDateFormat(date).parse(date, Instant::from).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // If no conversion is possible, spec says an IllegalArgumentException should be thrown
+            throw new IllegalArgumentException("Can't convert " + header + " to a date", e);
         }
-
-        // If no conversion is possible, spec says an IllegalArgumentException should be thrown
-        throw new IllegalArgumentException("Can't convert " + header + " to a date");
     }
 
 
@@ -199,10 +188,19 @@ public class HttpServletRequestDelegator extends HttpServletRequestWrapper {
     }
 
 
-    private DateFormat createDateFormat(String pattern) {
-        DateFormat dateFormat = new SimpleDateFormat(pattern, US);
-        dateFormat.setTimeZone(GMT);
-        return dateFormat;
+    /**
+     * Returns the one format the given date can be in, judging by the position of its comma, so that it's parsed
+     * only once.
+     */
+    private static DateTimeFormatter getDateFormat(String date) {
+        int comma = date.indexOf(',');
+
+        if (comma < 0) {
+            // RFC 1123 dates may leave out the day of the week
+            return date.isEmpty() || Character.isDigit(date.charAt(0)) ? RFC_1123_DATE : ASCTIME_DATE;
+        }
+
+        return comma <= 3 ? RFC_1123_DATE : RFC_850_DATE;
     }
 
 }
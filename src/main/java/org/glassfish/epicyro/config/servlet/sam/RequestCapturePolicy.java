@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.servlet.sam;
+
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Limits what {@link RequestData#of(jakarta.servlet.http.HttpServletRequest, RequestCapturePolicy)} captures of a
+ * request, so that a large request doesn't put a large amount of data into the HTTP session.
+ *
+ * <p>
+ * A request that exceeds the limits is captured {@link RequestData#isRedirectOnly() redirect only}: the caller
+ * is sent back to its URL after logging in, but its headers, cookies, locales and parameters are not restored.
+ * Sizes are the number of characters of the names and values.
+ */
+public final class RequestCapturePolicy {
+
+    /**
+     * The policy that captures everything of every request.
+     */
+    public static final RequestCapturePolicy UNLIMITED = new RequestCapturePolicy(null, -1, -1, false);
+
+    private final Set<String> headerNames;
+    private final long maxHeaderSize;
+    private final long maxParameterSize;
+    private final boolean getOnly;
+
+    /**
+     * Creates a policy.
+     *
+     * @param headerNames the names of the headers to capture, or <code>null</code> for all headers
+     * @param maxHeaderSize the maximum size of the captured headers and cookies, or -1 for no maximum
+     * @param maxParameterSize the maximum size of the parameters, or -1 for no maximum
+     * @param getOnly whether only GET requests are captured in full
+     */
+    public RequestCapturePolicy(Set<String> headerNames, long maxHeaderSize, long maxParameterSize, boolean getOnly) {
+        this.headerNames = headerNames == null ? null : lowerCase(headerNames);
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxParameterSize = maxParameterSize;
+        this.getOnly = getOnly;
+    }
+
+    /**
+     * Returns whether the header with the given name is captured.
+     *
+     * @param headerName the name of the header
+     * @return whether the header is captured
+     */
+    public boolean isCaptured(String headerName) {
+        return headerNames == null || headerNames.contains(headerName.toLowerCase(Locale.ROOT));
+    }
+
+    public long getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    public long getMaxParameterSize() {
+        return maxParameterSize;
+    }
+
+    public boolean isGetOnly() {
+        return getOnly;
+    }
+
+    boolean exceedsHeaderSize(long size) {
+        return maxHeaderSize >= 0 && size > maxHeaderSize;
+    }
+
+    boolean exceedsParameterSize(long size) {
+        return maxParameterSize >= 0 && size > maxParameterSize;
+    }
+
+    private static Set<String> lowerCase(Set<String> names) {
+        Set<String> lowerCaseNames = new TreeSet<>();
+        for (String name : names) {
+            lowerCaseNames.add(name.toLowerCase(Locale.ROOT));
+        }
+
+        return unmodifiableSet(lowerCaseNames);
+    }
+}
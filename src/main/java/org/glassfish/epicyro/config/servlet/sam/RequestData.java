@@ -16,17 +16,39 @@
 
 package org.glassfish.epicyro.config.servlet.sam;
 
+import static java.lang.System.Logger.Level.DEBUG;
 import static java.util.Arrays.copyOf;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.Collections.list;
 import static org.glassfish.epicyro.config.servlet.sam.Utils.isEmpty;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.System.Logger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.glassfish.epicyro.config.helper.CompactObjectIO;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -35,6 +57,10 @@ import jakarta.servlet.http.HttpServletRequest;
 /**
  * This class stores the core data that makes up an {@link HttpServletRequest}.
  *
+ * <p>
+ * It is serialized in a compact, versioned form. When that form is larger than {@value #COMPRESSION_THRESHOLD_PROPERTY}
+ * bytes, 4096 by default, it is compressed.
+ *
  * @author Arjan Tijms
  *
  */
@@ -42,6 +68,16 @@ public class RequestData implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Logger LOG = System.getLogger(RequestData.class.getName());
+
+    /**
+     * System property with the size in bytes from which the serialized form is compressed, or -1 to never
+     * compress it.
+     */
+    public static final String COMPRESSION_THRESHOLD_PROPERTY = "org.glassfish.epicyro.request.data.compression.threshold";
+
+    private static final int COMPRESSION_THRESHOLD = Integer.getInteger(COMPRESSION_THRESHOLD_PROPERTY, 4096);
+
     private Cookie[] cookies;
     private Map<String, List<String>> headers;
     private List<Locale> locales;
@@ -51,17 +87,79 @@ public class RequestData implements Serializable {
     private String requestURL;
     private String queryString;
 
+    // The values of the headers by lower cased name, built whenever the headers are set
+    private transient Map<String, List<String>> headerIndex;
+
+    // The hash of the target of the request, see RequestFingerprint, or 0 if not computed yet
+    private transient int fingerprint;
+
     public static RequestData of(HttpServletRequest request) {
+        return of(request, RequestCapturePolicy.UNLIMITED);
+    }
+
+    /**
+     * Captures the given request within the limits of the given policy. If the request exceeds them, only its
+     * target is captured; see {@link #isRedirectOnly()}.
+     *
+     * @param request the request
+     * @param policy the limits to what is captured
+     * @return the request data
+     */
+    public static RequestData of(HttpServletRequest request, RequestCapturePolicy policy) {
+        String method = request.getMethod();
+        String requestURL = request.getRequestURL().toString();
+        String queryString = request.getQueryString();
+
+        if (policy.isGetOnly() && !"GET".equals(method)) {
+            return ofTarget(method, requestURL, queryString);
+        }
+
+        Map<String, String[]> parameters = request.getParameterMap();
+        if (policy.exceedsParameterSize(sizeOf(parameters))) {
+            LOG.log(DEBUG, "Capturing only the target of {0} {1}, as its parameters exceed the size limit", method, requestURL);
+            return ofTarget(method, requestURL, queryString);
+        }
+
+        Cookie[] cookies = request.getCookies();
+        Map<String, List<String>> headers = copyHeaders(request, policy, sizeOf(cookies));
+        if (headers == null) {
+            LOG.log(DEBUG, "Capturing only the target of {0} {1}, as its headers exceed the size limit", method, requestURL);
+            return ofTarget(method, requestURL, queryString);
+        }
+
         RequestData requestData = new RequestData();
 
-        requestData.cookies = copyCookies(request.getCookies());
-        requestData.headers = copyHeaders(request);
-        requestData.parameters = copyParameters(request.getParameterMap());
+        requestData.cookies = copyCookies(cookies);
+        requestData.headers = headers;
+        requestData.parameters = copyParameters(parameters);
         requestData.locales = list(request.getLocales());
 
-        requestData.method = request.getMethod();
-        requestData.requestURL = request.getRequestURL().toString();
-        requestData.queryString = request.getQueryString();
+        requestData.method = method;
+        requestData.requestURL = requestURL;
+        requestData.queryString = queryString;
+
+        requestData.indexHeaders();
+        requestData.fingerprint();
+
+        return requestData;
+    }
+
+    /**
+     * Returns request data with only the target of a request, which can be redirected to, but not restored.
+     *
+     * @param method the HTTP method
+     * @param requestURL the request URL
+     * @param queryString the query string, or <code>null</code>
+     * @return the request data
+     */
+    static RequestData ofTarget(String method, String requestURL, String queryString) {
+        RequestData requestData = new RequestData();
+
+        requestData.method = method;
+        requestData.requestURL = requestURL;
+        requestData.queryString = queryString;
+
+        requestData.fingerprint();
 
         return requestData;
     }
@@ -80,15 +178,60 @@ public class RequestData implements Serializable {
         return copiedCookies.toArray(new Cookie[copiedCookies.size()]);
     }
 
-    private static Map<String, List<String>> copyHeaders(HttpServletRequest request) {
+    /**
+     * Returns the headers that the policy captures, or <code>null</code> if they exceed its size limit.
+     */
+    private static Map<String, List<String>> copyHeaders(HttpServletRequest request, RequestCapturePolicy policy, long cookieSize) {
+        long size = cookieSize;
+
         Map<String, List<String>> copiedHeaders = new HashMap<>();
         for (String headerName : list(request.getHeaderNames())) {
-            copiedHeaders.put(headerName, list(request.getHeaders(headerName)));
+            if (!policy.isCaptured(headerName)) {
+                continue;
+            }
+
+            List<String> values = list(request.getHeaders(headerName));
+
+            size += headerName.length();
+            for (String value : values) {
+                size += value == null ? 0 : value.length();
+            }
+
+            if (policy.exceedsHeaderSize(size)) {
+                return null;
+            }
+
+            copiedHeaders.put(headerName, values);
         }
 
         return copiedHeaders;
     }
 
+    private static long sizeOf(Cookie[] cookies) {
+        long size = 0;
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                size += cookie.getName().length() + (cookie.getValue() == null ? 0 : cookie.getValue().length());
+            }
+        }
+
+        return size;
+    }
+
+    private static long sizeOf(Map<String, String[]> parameters) {
+        long size = 0;
+        if (parameters != null) {
+            for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+                size += parameter.getKey().length();
+                for (String value : parameter.getValue()) {
+                    size += value == null ? 0 : value.length();
+                }
+            }
+        }
+
+        return size;
+    }
+
     private static Map<String, String[]> copyParameters(Map<String, String[]> parameters) {
         if (isEmptyMap(parameters)) {
             return emptyMap();
@@ -110,10 +253,31 @@ public class RequestData implements Serializable {
         return cookies;
     }
 
+    /**
+     * Returns the headers by the names they were sent with.
+     *
+     * @return the headers, which can't be modified, or <code>null</code> if only the target of the request was kept
+     */
     public Map<String, List<String>> getHeaders() {
         return headers;
     }
 
+    /**
+     * Returns the values of all headers with the given name, ignoring case.
+     *
+     * @param name the name of the header
+     * @return the values of the header, which can't be modified, or an empty list if there are none
+     */
+    public List<String> getHeaderValues(String name) {
+        if (name == null || headerIndex == null) {
+            return emptyList();
+        }
+
+        List<String> values = headerIndex.get(name.toLowerCase(Locale.ROOT));
+
+        return values != null ? values : emptyList();
+    }
+
 
     public List<Locale> getLocales() {
         return locales;
@@ -137,13 +301,42 @@ public class RequestData implements Serializable {
         return requestURL;
     }
 
+    /**
+     * Returns whether only the target of the request was kept, so that the caller can be redirected to it, but the
+     * request can't be restored from this data.
+     *
+     * @return whether only the target of the request was kept
+     */
+    public boolean isRedirectOnly() {
+        return headers == null;
+    }
+
     public String getFullRequestURL() {
         return buildFullRequestURL(requestURL, queryString);
     }
 
     public boolean matchesRequest(HttpServletRequest request) {
+        return matches(RequestFingerprint.of(request));
+    }
+
+    /**
+     * Returns whether the request of the given fingerprint has the same target, i.e. URL and query string, as this
+     * request.
+     */
+    boolean matches(RequestFingerprint requestFingerprint) {
         // (or use requestURI instead of requestURL?)
-        return getFullRequestURL().equals(buildFullRequestURL(request.getRequestURL().toString(), request.getQueryString()));
+        return requestFingerprint.matches(fingerprint(), requestURL, queryString);
+    }
+
+    private int fingerprint() {
+        // Racy, but all threads compute the same value
+        int hash = fingerprint;
+        if (hash == 0) {
+            hash = RequestFingerprint.hash(requestURL, queryString);
+            fingerprint = hash;
+        }
+
+        return hash;
     }
 
     @Override
@@ -154,4 +347,249 @@ public class RequestData implements Serializable {
     private String buildFullRequestURL(String requestURL, String queryString) {
         return requestURL + (isEmpty(queryString) ? "" : "?" + queryString);
     }
+
+    /**
+     * Makes the headers unmodifiable, so that they can't get out of step with their index by name, and indexes them.
+     */
+    private void indexHeaders() {
+        if (headers == null) {
+            headerIndex = null;
+            return;
+        }
+
+        Map<String, List<String>> unmodifiableHeaders = new HashMap<>(headers);
+        Map<String, List<String>> index = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : unmodifiableHeaders.entrySet()) {
+            if (header.getValue() != null) {
+                header.setValue(unmodifiableList(header.getValue()));
+                index.computeIfAbsent(header.getKey().toLowerCase(Locale.ROOT), name -> new ArrayList<>(1))
+                     .addAll(header.getValue());
+            }
+        }
+
+        for (Map.Entry<String, List<String>> values : index.entrySet()) {
+            values.setValue(unmodifiableList(values.getValue()));
+        }
+
+        headers = unmodifiableMap(unmodifiableHeaders);
+        headerIndex = unmodifiableMap(index);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        indexHeaders();
+    }
+
+    // Only for data of this class itself, as subclasses may have state of their own
+    private Object writeReplace() {
+        return new SerializedForm(this);
+    }
+
+    /**
+     * Compact serialized form of request data: the version, the flags and the fields, which are deflated when
+     * the {@link #COMPRESSED} flag is set.
+     */
+    private static final class SerializedForm implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int VERSION = 1;
+
+        /**
+         * The fields are deflated, and preceded by their uncompressed and compressed lengths.
+         */
+        private static final int COMPRESSED = 1;
+
+        private RequestData requestData;
+
+        public SerializedForm() {
+        }
+
+        SerializedForm(RequestData requestData) {
+            this.requestData = requestData;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            ByteArrayOutputStream fields = new ByteArrayOutputStream();
+            try (DataOutputStream fieldsOut = new DataOutputStream(fields)) {
+                writeFields(fieldsOut, requestData);
+            }
+
+            byte[] uncompressed = fields.toByteArray();
+            byte[] compressed = COMPRESSION_THRESHOLD >= 0 && uncompressed.length >= COMPRESSION_THRESHOLD ? deflate(uncompressed) : null;
+
+            out.writeByte(VERSION);
+
+            if (compressed != null && compressed.length < uncompressed.length) {
+                out.writeByte(COMPRESSED);
+                CompactObjectIO.writeVarInt(out, uncompressed.length);
+                CompactObjectIO.writeVarInt(out, compressed.length);
+                out.write(compressed);
+            } else {
+                out.writeByte(0);
+                out.write(uncompressed);
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            CompactObjectIO.readVersion(in, RequestData.class, VERSION);
+            int flags = in.readUnsignedByte();
+
+            if ((flags & COMPRESSED) == 0) {
+                requestData = readFields(in);
+                return;
+            }
+
+            byte[] uncompressed = new byte[CompactObjectIO.readArrayLength(in)];
+            byte[] compressed = new byte[CompactObjectIO.readArrayLength(in)];
+            in.readFully(compressed);
+            inflate(compressed, uncompressed);
+
+            requestData = readFields(new DataInputStream(new ByteArrayInputStream(uncompressed)));
+        }
+
+        private Object readResolve() {
+            return requestData;
+        }
+
+        private static void writeFields(DataOutput out, RequestData requestData) throws IOException {
+            CompactObjectIO.writeString(out, requestData.method);
+            CompactObjectIO.writeString(out, requestData.requestURL);
+            CompactObjectIO.writeString(out, requestData.queryString);
+
+            Map<String, List<String>> headers = requestData.headers;
+            CompactObjectIO.writeLength(out, headers == null ? -1 : headers.size());
+            if (headers != null) {
+                for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                    CompactObjectIO.writeString(out, header.getKey());
+                    CompactObjectIO.writeStrings(out, header.getValue() == null ? null : header.getValue().toArray(new String[0]));
+                }
+            }
+
+            Map<String, String[]> parameters = requestData.parameters;
+            CompactObjectIO.writeLength(out, parameters == null ? -1 : parameters.size());
+            if (parameters != null) {
+                for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+                    CompactObjectIO.writeString(out, parameter.getKey());
+                    CompactObjectIO.writeStrings(out, parameter.getValue());
+                }
+            }
+
+            List<Locale> locales = requestData.locales;
+            CompactObjectIO.writeLength(out, locales == null ? -1 : locales.size());
+            if (locales != null) {
+                for (Locale locale : locales) {
+                    CompactObjectIO.writeString(out, locale.toLanguageTag());
+                }
+            }
+
+            Cookie[] cookies = requestData.cookies;
+            CompactObjectIO.writeLength(out, cookies == null ? -1 : cookies.length);
+            if (cookies != null) {
+                for (Cookie cookie : cookies) {
+                    CompactObjectIO.writeString(out, cookie.getName());
+                    CompactObjectIO.writeString(out, cookie.getValue());
+
+                    Map<String, String> attributes = cookie.getAttributes();
+                    CompactObjectIO.writeLength(out, attributes.size());
+                    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                        CompactObjectIO.writeString(out, attribute.getKey());
+                        CompactObjectIO.writeString(out, attribute.getValue());
+                    }
+                }
+            }
+        }
+
+        private static RequestData readFields(DataInput in) throws IOException {
+            RequestData requestData = new RequestData();
+
+            requestData.method = CompactObjectIO.readString(in);
+            requestData.requestURL = CompactObjectIO.readString(in);
+            requestData.queryString = CompactObjectIO.readString(in);
+
+            int headerCount = CompactObjectIO.readLength(in);
+            if (headerCount >= 0) {
+                requestData.headers = new HashMap<>();
+                for (int i = 0; i < headerCount; i++) {
+                    String name = CompactObjectIO.readString(in);
+                    String[] values = CompactObjectIO.readStrings(in);
+                    requestData.headers.put(name, values == null ? null : new ArrayList<>(List.of(values)));
+                }
+            }
+
+            int parameterCount = CompactObjectIO.readLength(in);
+            if (parameterCount == 0) {
+                requestData.parameters = emptyMap();
+            } else if (parameterCount > 0) {
+                requestData.parameters = new HashMap<>();
+                for (int i = 0; i < parameterCount; i++) {
+                    requestData.parameters.put(CompactObjectIO.readString(in), CompactObjectIO.readStrings(in));
+                }
+            }
+
+            int localeCount = CompactObjectIO.readLength(in);
+            if (localeCount >= 0) {
+                requestData.locales = new ArrayList<>(localeCount);
+                for (int i = 0; i < localeCount; i++) {
+                    requestData.locales.add(Locale.forLanguageTag(CompactObjectIO.readString(in)));
+                }
+            }
+
+            int cookieCount = CompactObjectIO.readLength(in);
+            if (cookieCount >= 0) {
+                requestData.cookies = new Cookie[cookieCount];
+                for (int i = 0; i < cookieCount; i++) {
+                    Cookie cookie = new Cookie(CompactObjectIO.readString(in), CompactObjectIO.readString(in));
+
+                    int attributeCount = CompactObjectIO.readLength(in);
+                    for (int j = 0; j < attributeCount; j++) {
+                        cookie.setAttribute(CompactObjectIO.readString(in), CompactObjectIO.readString(in));
+                    }
+
+                    requestData.cookies[i] = cookie;
+                }
+            }
+
+            requestData.indexHeaders();
+
+            return requestData;
+        }
+
+        private static byte[] deflate(byte[] uncompressed) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(uncompressed);
+                deflater.finish();
+
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 2);
+                byte[] buffer = new byte[4096];
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+
+                return compressed.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private static void inflate(byte[] compressed, byte[] uncompressed) throws IOException {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int length = inflater.inflate(uncompressed);
+                if (length != uncompressed.length || !inflater.finished()) {
+                    throw new StreamCorruptedException("Compressed request data has the wrong length");
+                }
+            } catch (DataFormatException e) {
+                StreamCorruptedException corrupted = new StreamCorruptedException("Corrupt compressed request data");
+                corrupted.initCause(e);
+                throw corrupted;
+            } finally {
+                inflater.end();
+            }
+        }
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.servlet.sam;
+
+import java.util.Objects;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * The target of a request, its URL and query string, with a hash of both, so that it can be compared to the target of
+ * saved {@link RequestData} without building the full URL.
+ *
+ * <p>
+ * An empty query string is the same as none. The hash is that of the full URL, i.e. the URL followed by
+ * <code>?</code> and the query string if there is one.
+ */
+final class RequestFingerprint {
+
+    private final CharSequence requestURL;
+    private final String queryString;
+    private final int hash;
+
+    private RequestFingerprint(CharSequence requestURL, String queryString) {
+        this.requestURL = requestURL;
+        this.queryString = queryString;
+        this.hash = hash(requestURL, queryString);
+    }
+
+    static RequestFingerprint of(HttpServletRequest request) {
+        return new RequestFingerprint(request.getRequestURL(), normalize(request.getQueryString()));
+    }
+
+    /**
+     * Returns whether this is the fingerprint of a request with the given target, of which the given hash was
+     * computed by {@link #hash(CharSequence, String)}.
+     */
+    boolean matches(int hash, String requestURL, String queryString) {
+        return
+            this.hash == hash &&
+            requestURL.contentEquals(this.requestURL) &&
+            Objects.equals(this.queryString, normalize(queryString));
+    }
+
+    static int hash(CharSequence requestURL, String queryString) {
+        int hash = 0;
+
+        for (int i = 0; i < requestURL.length(); i++) {
+            hash = 31 * hash + requestURL.charAt(i);
+        }
+
+        String normalizedQueryString = normalize(queryString);
+        if (normalizedQueryString != null) {
+            hash = 31 * hash + '?';
+            for (int i = 0; i < normalizedQueryString.length(); i++) {
+                hash = 31 * hash + normalizedQueryString.charAt(i);
+            }
+        }
+
+        return hash;
+    }
+
+    private static String normalize(String queryString) {
+        return queryString == null || queryString.isEmpty() ? null : queryString;
+    }
+}
@@ -17,13 +17,11 @@
 package org.glassfish.epicyro.config.servlet.sam;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.util.regex.Pattern.quote;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
@@ -53,7 +51,7 @@ import jakarta.servlet.http.HttpServletResponse;
  */
 public final class Utils {
 
-	private static final String ERROR_UNSUPPORTED_ENCODING = "UTF-8 is apparently not supported on this platform.";
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
     private Utils() {}
 
@@ -177,30 +175,35 @@ public final class Utils {
 		return Collections.unmodifiableSet(set);
 	}
 
+	/**
+	 * URL encodes the given string as {@link URLEncoder} does with UTF-8, i.e. for use in a query string.
+	 * @param string The string to encode.
+	 * @return The encoded string.
+	 */
 	public static String encodeURL(String string) {
 		if (string == null) {
 			return null;
 		}
 
-		try {
-			return URLEncoder.encode(string, UTF_8.name());
-		}
-		catch (UnsupportedEncodingException e) {
-			throw new UnsupportedOperationException(ERROR_UNSUPPORTED_ENCODING, e);
+		int unsafe = indexOfUnsafe(string);
+		if (unsafe == string.length()) {
+			return string;
 		}
+
+		return appendEncodedURL(new StringBuilder(string.length() + 16), string, unsafe).toString();
 	}
 
+	/**
+	 * URL decodes the given string as {@link URLDecoder} does with UTF-8.
+	 * @param string The string to decode.
+	 * @return The decoded string.
+	 */
 	public static String decodeURL(String string) {
 		if (string == null) {
 			return null;
 		}
 
-		try {
-			return URLDecoder.decode(string, UTF_8.name());
-		}
-		catch (UnsupportedEncodingException e) {
-			throw new UnsupportedOperationException(ERROR_UNSUPPORTED_ENCODING, e);
-		}
+		return decodeURL(string, 0, string.length());
 	}
 
 	/**
@@ -209,17 +212,20 @@ public final class Utils {
 	 * @return The request query string as request parameter values map.
 	 */
 	public static Map<String, List<String>> toParameterMap(String queryString) {
-		String[] parameters = queryString.split(quote("&"));
-		Map<String, List<String>> parameterMap = new LinkedHashMap<>(parameters.length);
+		Map<String, List<String>> parameterMap = new LinkedHashMap<>();
+
+		int length = queryString.length();
+		for (int start = 0, end; start < length; start = end + 1) {
+			end = indexOf(queryString, '&', start, length);
+			int separator = indexOf(queryString, '=', start, end);
 
-		for (String parameter : parameters) {
-			if (parameter.contains("=")) {
-				String[] pair = parameter.split(quote("="));
-				String key = decodeURL(pair[0]);
-				String value = (pair.length > 1 && !isEmpty(pair[1])) ? decodeURL(pair[1]) : "";
-				List<String> values = parameterMap.computeIfAbsent(key, k -> new ArrayList<>(1));
+			// Parameters without a value are skipped
+			if (separator < end) {
+				String key = decodeURL(queryString, start, separator);
+				String value = decodeURL(queryString, separator + 1, end);
 
-				values.add(value);
+				parameterMap.computeIfAbsent(key, k -> new ArrayList<>(1))
+				            .add(value);
 			}
 		}
 
@@ -235,14 +241,15 @@ public final class Utils {
 		StringBuilder queryString = new StringBuilder();
 
 		for (Entry<String, List<String>> entry : parameterMap.entrySet()) {
-			String name = encodeURL(entry.getKey());
+			String name = entry.getKey();
 
 			for (String value : entry.getValue()) {
 				if (queryString.length() > 0) {
-					queryString.append("&");
+					queryString.append('&');
 				}
 
-				queryString.append(name).append("=").append(encodeURL(value));
+				appendEncodedURL(queryString, name).append('=');
+				appendEncodedURL(queryString, value);
 			}
 		}
 
@@ -250,17 +257,130 @@ public final class Utils {
 	}
 
 	public static String getSingleParameterFromQueryString(String queryString, String paramName) {
-		if (!isEmpty(queryString)) {
-			Map<String, List<String>> requestParameters = toParameterMap(queryString);
+		if (isEmpty(queryString)) {
+			return null;
+		}
+
+		// Finds the first parameter with the given name without converting the whole query string
+		int length = queryString.length();
+		for (int start = 0, end; start < length; start = end + 1) {
+			end = indexOf(queryString, '&', start, length);
+			int separator = indexOf(queryString, '=', start, end);
 
-			if (!isEmpty(requestParameters.get(paramName))) {
-				return requestParameters.get(paramName).get(0);
+			if (separator < end && paramName.equals(decodeURL(queryString, start, separator))) {
+				return decodeURL(queryString, separator + 1, end);
 			}
 		}
 
 		return null;
 	}
 
+	private static int indexOf(String string, char character, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (string.charAt(i) == character) {
+				return i;
+			}
+		}
+
+		return to;
+	}
+
+	/**
+	 * Decodes the given part of the string, which is only taken apart and decoded if it contains encoded characters.
+	 */
+	private static String decodeURL(String string, int from, int to) {
+		for (int i = from; i < to; i++) {
+			char character = string.charAt(i);
+			if (character == '%' || character == '+') {
+				return URLDecoder.decode(string.substring(from, to), UTF_8);
+			}
+		}
+
+		return string.substring(from, to);
+	}
+
+	/**
+	 * Returns the index of the first character that {@link URLEncoder} would encode, or the length of the string if
+	 * there is none.
+	 */
+	private static int indexOfUnsafe(String string) {
+		for (int i = 0; i < string.length(); i++) {
+			if (!isSafe(string.charAt(i))) {
+				return i;
+			}
+		}
+
+		return string.length();
+	}
+
+	private static boolean isSafe(char character) {
+		return
+			character >= 'a' && character <= 'z' ||
+			character >= 'A' && character <= 'Z' ||
+			character >= '0' && character <= '9' ||
+			character == '.' || character == '-' || character == '*' || character == '_';
+	}
+
+	private static StringBuilder appendEncodedURL(StringBuilder builder, String string) {
+		if (string == null) {
+			return builder.append((String) null);
+		}
+
+		return appendEncodedURL(builder, string, indexOfUnsafe(string));
+	}
+
+	/**
+	 * Appends the given string URL encoded as {@link URLEncoder} does with UTF-8, of which the characters before the
+	 * given index need no encoding.
+	 */
+	private static StringBuilder appendEncodedURL(StringBuilder builder, String string, int unsafe) {
+		builder.append(string, 0, unsafe);
+
+		for (int i = unsafe; i < string.length(); i++) {
+			char character = string.charAt(i);
+
+			if (isSafe(character)) {
+				builder.append(character);
+			} else if (character == ' ') {
+				builder.append('+');
+			} else {
+				int codePoint = character;
+				if (Character.isHighSurrogate(character) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+					codePoint = Character.toCodePoint(character, string.charAt(++i));
+				} else if (Character.isSurrogate(character)) {
+					// Unpaired surrogates can't be encoded, for which UTF-8 encoding substitutes '?'
+					codePoint = '?';
+				}
+
+				appendEncodedUTF8(builder, codePoint);
+			}
+		}
+
+		return builder;
+	}
+
+	private static void appendEncodedUTF8(StringBuilder builder, int codePoint) {
+		if (codePoint < 0x80) {
+			appendEncodedByte(builder, codePoint);
+		} else if (codePoint < 0x800) {
+			appendEncodedByte(builder, 0xC0 | codePoint >> 6);
+			appendEncodedByte(builder, 0x80 | codePoint & 0x3F);
+		} else if (codePoint < 0x10000) {
+			appendEncodedByte(builder, 0xE0 | codePoint >> 12);
+			appendEncodedByte(builder, 0x80 | codePoint >> 6 & 0x3F);
+			appendEncodedByte(builder, 0x80 | codePoint & 0x3F);
+		} else {
+			appendEncodedByte(builder, 0xF0 | codePoint >> 18);
+			appendEncodedByte(builder, 0x80 | codePoint >> 12 & 0x3F);
+			appendEncodedByte(builder, 0x80 | codePoint >> 6 & 0x3F);
+			appendEncodedByte(builder, 0x80 | codePoint & 0x3F);
+		}
+	}
+
+	private static void appendEncodedByte(StringBuilder builder, int b) {
+		builder.append('%').append(HEX_DIGITS[b >> 4 & 0xF]).append(HEX_DIGITS[b & 0xF]);
+	}
+
 	public static long stream(InputStream input, OutputStream output) throws IOException {
 		try (ReadableByteChannel inputChannel = Channels.newChannel(input);
 			WritableByteChannel outputChannel = Channels.newChannel(output))
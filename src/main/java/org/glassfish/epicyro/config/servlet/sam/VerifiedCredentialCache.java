@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.config.servlet.sam;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.callback.CallbackHandler;
+
+import org.glassfish.epicyro.config.helper.IdentityStoreChangeCapability;
+
+/**
+ * Cache of credentials that were successfully verified, keyed by a keyed digest (HMAC) of the credentials as
+ * they were sent, and holding only the caller principal and groups that resulted from the verification.
+ *
+ * <p>
+ * Neither the credentials nor anything from which they could be recovered without the per-instance random
+ * key is kept. Entries expire after the configured time to live, and are all dropped as soon as the identity store
+ * changes, if the callback handler can tell (see {@link IdentityStoreChangeCapability}). Otherwise changes are only
+ * picked up once an entry expires.
+ */
+final class VerifiedCredentialCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec digestKey;
+
+    /**
+     * Initialized with the digest key, and cloned for every digest.
+     */
+    private final Mac prototypeMac;
+
+    private final long timeToLiveNanos;
+    private final int maxSize;
+    private final Map<ByteBuffer, VerifiedCaller> verifiedCallers = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever the cache is invalidated, so that verifications that were running at that time aren't
+     * cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Kept by this cache, as the callback handler only keeps a weak reference to it.
+     */
+    private final Runnable invalidation = this::invalidate;
+
+    /**
+     * The outcome of a successful verification.
+     */
+    static final class VerifiedCaller {
+
+        private final Principal callerPrincipal;
+        private final String[] groups;
+        private final long expiresAt;
+
+        VerifiedCaller(Principal callerPrincipal, String[] groups, long expiresAt) {
+            this.callerPrincipal = callerPrincipal;
+            this.groups = groups;
+            this.expiresAt = expiresAt;
+        }
+
+        Principal getCallerPrincipal() {
+            return callerPrincipal;
+        }
+
+        String[] getGroups() {
+            return groups.clone();
+        }
+
+        boolean isValid(long now) {
+            return now - expiresAt < 0;
+        }
+    }
+
+    VerifiedCredentialCache(long timeToLive, TimeUnit unit, int maxSize) {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+
+        this.digestKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.prototypeMac = newMac();
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Invalidates this cache whenever the identity store of the given handler changes.
+     *
+     * @return <code>true</code> if the handler can tell about changes, <code>false</code> otherwise
+     */
+    boolean invalidateOnChangeOf(CallbackHandler handler) {
+        return IdentityStoreChangeCapability.addIdentityStoreChangeListener(handler, invalidation);
+    }
+
+    /**
+     * Returns the current generation of this cache, to be taken before verifying credentials and to be passed to
+     * {@link #put(String, Principal, String[], long)} after.
+     */
+    long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns the caller to which the given credentials were verified before, or <code>null</code> if they were
+     * not verified before, or if that verification is no longer valid.
+     */
+    VerifiedCaller get(String credentials) {
+        ByteBuffer digest = digest(credentials);
+        VerifiedCaller verifiedCaller = verifiedCallers.get(digest);
+
+        if (verifiedCaller != null && !verifiedCaller.isValid(System.nanoTime())) {
+            verifiedCallers.remove(digest, verifiedCaller);
+            return null;
+        }
+
+        return verifiedCaller;
+    }
+
+    /**
+     * Remembers that the given credentials were verified to the given caller principal and groups, unless this
+     * cache was invalidated since the given generation.
+     */
+    void put(String credentials, Principal callerPrincipal, String[] groups, long verifiedGeneration) {
+        long now = System.nanoTime();
+
+        if (verifiedCallers.size() >= maxSize) {
+            verifiedCallers.values().removeIf(verifiedCaller -> !verifiedCaller.isValid(now));
+            if (verifiedCallers.size() >= maxSize) {
+                return;
+            }
+        }
+
+        ByteBuffer digest = digest(credentials);
+        VerifiedCaller verifiedCaller = new VerifiedCaller(callerPrincipal, groups.clone(), now + timeToLiveNanos);
+        verifiedCallers.put(digest, verifiedCaller);
+
+        // Checked after adding, so that an invalidation either sees the entry or is seen here
+        if (generation.get() != verifiedGeneration) {
+            verifiedCallers.remove(digest, verifiedCaller);
+        }
+    }
+
+    /**
+     * Drops all entries, and keeps verifications that are running from being cached.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        verifiedCallers.clear();
+    }
+
+    private ByteBuffer digest(String credentials) {
+        Mac mac;
+        try {
+            mac = (Mac) prototypeMac.clone();
+        } catch (CloneNotSupportedException e) {
+            mac = newMac();
+        }
+
+        return ByteBuffer.wrap(mac.doFinal(credentials.getBytes(US_ASCII)));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(digestKey);
+
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.glassfish.epicyro.services;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -29,8 +31,11 @@ public class AuthConfigRegistrationWrapper {
     private String layer;
     private String applicationContextId;
     private String authenticationProviderRegistrationId;
-    private boolean enabled;
-    private ConfigData data;
+    private volatile boolean enabled;
+    private final AtomicReference<ConfigData> data = new AtomicReference<>();
+
+    // Bumped on every invalidation of the config data, so that a resolution that overlapped one isn't published
+    private final AtomicLong configDataGeneration = new AtomicLong();
 
     private Lock wLock;
     private ReadWriteLock rwLock;
@@ -66,7 +71,7 @@ public class AuthConfigRegistrationWrapper {
             setEnabled(false);
         } finally {
             this.wLock.unlock();
-            data = null;
+            invalidateConfigData();
         }
 
         if (authConfigFactory != null) {
@@ -121,11 +126,43 @@ public class AuthConfigRegistrationWrapper {
     }
 
     public ConfigData getConfigData() {
-        return data;
+        return data.get();
     }
 
     public void setConfigData(ConfigData data) {
-        this.data = data;
+        this.data.set(data);
+    }
+
+    /**
+     * Returns the number of times the config data was invalidated, which is to be read before the current config
+     * data when resolving a new one.
+     */
+    public long getConfigDataGeneration() {
+        return configDataGeneration.get();
+    }
+
+    /**
+     * Publishes the given config data, but only if the current config data is still the expected one and it wasn't
+     * invalidated since the given generation, i.e. if it wasn't invalidated or replaced while the new config data
+     * was being resolved.
+     */
+    public boolean compareAndSetConfigData(long expectedGeneration, ConfigData expectedData, ConfigData newData) {
+        if (!data.compareAndSet(expectedData, newData)) {
+            return false;
+        }
+
+        if (configDataGeneration.get() != expectedGeneration) {
+            // Invalidated while resolving; the invalidation may have cleared the data before it was published
+            data.compareAndSet(newData, null);
+            return false;
+        }
+
+        return true;
+    }
+
+    private void invalidateConfigData() {
+        configDataGeneration.incrementAndGet();
+        data.set(null);
     }
 
     public class AuthConfigRegistrationListener implements RegistrationListener {
@@ -142,12 +179,7 @@ public class AuthConfigRegistrationWrapper {
         public void notify(String layer, String appContext) {
             if (this.layer.equals(layer)
                     && ((this.appCtxt == null && appContext == null) || (appContext != null && appContext.equals(this.appCtxt)))) {
-                try {
-                    wLock.lock();
-                    data = null;
-                } finally {
-                    wLock.unlock();
-                }
+                invalidateConfigData();
             }
         }
 
@@ -19,23 +19,28 @@ package org.glassfish.epicyro.services;
 
 
 import static jakarta.security.auth.message.AuthStatus.SUCCESS;
-import static java.lang.Boolean.TRUE;
-import static org.glassfish.epicyro.config.helper.HttpServletConstants.IS_MANDATORY;
-import static org.glassfish.epicyro.config.helper.HttpServletConstants.REGISTER_SESSION;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.security.auth.Subject;
 import javax.security.auth.callback.Callback;
 import javax.security.auth.callback.CallbackHandler;
 import javax.security.auth.callback.UnsupportedCallbackException;
 
+import org.glassfish.epicyro.config.helper.AnonymousRequestCapability;
+import org.glassfish.epicyro.config.helper.AsyncValidationCapability;
+import org.glassfish.epicyro.config.helper.AuthConfigVersionCapability;
 import org.glassfish.epicyro.config.helper.AuthMessagePolicy;
 import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.helper.ContextClassLoaderExecutor;
 import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
 
 import jakarta.security.auth.message.AuthException;
@@ -58,9 +63,20 @@ public class BaseAuthenticationService {
 
     private static final String MESSAGE_INFO = BaseAuthenticationService.class.getName() + ".message.info";
 
-    private ReadWriteLock readWriteLock;
-    private Lock readLock;
-    private Lock writeLock;
+    /**
+     * System property with the number of threads on which {@link #validateRequestAsync(HttpServletRequest, HttpServletResponse, boolean, boolean)}
+     * calls modules that can't validate asynchronously; twice the number of processors, with a minimum of 8, by default.
+     */
+    public static final String ASYNC_THREADS_PROPERTY = "org.glassfish.epicyro.authentication.async.threads";
+
+    // Guards against an authContextIdGenerator that produces many distinct IDs
+    private static final int MAX_CACHED_SERVER_AUTH_CONTEXTS = 64;
+
+    // Only taken when the config data is missing or incomplete, so that a single thread resolves it
+    private final Lock resolveLock = new ReentrantLock();
+
+    // Server auth contexts by auth context ID, for the server auth config they were obtained from
+    private volatile ServerAuthContexts serverAuthContexts;
 
     protected String messageLayer;
     protected String appContextId;
@@ -78,10 +94,6 @@ public class BaseAuthenticationService {
             this.callbackHandler = getCallbackHandler();
         }
 
-        this.readWriteLock = new ReentrantReadWriteLock(true);
-        this.readLock = readWriteLock.readLock();
-        this.writeLock = readWriteLock.writeLock();
-
         authConfigFactory = AuthConfigFactory.getFactory();
         listenerWrapper = new AuthConfigRegistrationWrapper(
                 this.authConfigFactory, this.messageLayer, this.appContextId, removerDelegate);
@@ -139,11 +151,54 @@ public class BaseAuthenticationService {
 
     public ServerAuthContext getServerAuthContext(MessageInfo info, Subject serviceSubject) throws AuthException {
         ServerAuthConfig serverAuthConfig = (ServerAuthConfig) getAuthConfig(true);
-        if (serverAuthConfig != null) {
-            return serverAuthConfig.getAuthContext(serverAuthConfig.getAuthContextID(info), serviceSubject, map);
+        if (serverAuthConfig == null) {
+            return null;
         }
 
-        return null;
+        String authContextID = serverAuthConfig.getAuthContextID(info);
+        if (serviceSubject != null || authContextID == null) {
+            return serverAuthConfig.getAuthContext(authContextID, serviceSubject, map);
+        }
+
+        ServerAuthContext serverAuthContext = getCachedServerAuthContext(serverAuthConfig, authContextID);
+        if (info instanceof HttpMessageInfo httpMessageInfo) {
+            httpMessageInfo.bindServerAuthContext(serverAuthContext);
+        }
+
+        return serverAuthContext;
+    }
+
+    /**
+     * Returns the server auth context for the given auth context ID, from the cache of this service if the
+     * server auth config and the version of its configuration are still those the cached contexts were obtained for.
+     *
+     * <p>
+     * The cache follows the server auth config; when the registration changes a new config is obtained and
+     * the cache starts over, as it does when the config is refreshed. Contexts of configs that don't declare the
+     * {@link AuthConfigVersionCapability} are not cached, as there's no telling when they change nor whether they
+     * can be shared by concurrent requests.
+     */
+    private ServerAuthContext getCachedServerAuthContext(ServerAuthConfig serverAuthConfig, String authContextID) throws AuthException {
+        long configVersion = AuthConfigVersionCapability.getConfigVersion(serverAuthConfig);
+        if (configVersion < 0) {
+            return serverAuthConfig.getAuthContext(authContextID, null, map);
+        }
+
+        ServerAuthContexts contexts = serverAuthContexts;
+        if (contexts == null || contexts.serverAuthConfig != serverAuthConfig || contexts.configVersion != configVersion) {
+            contexts = new ServerAuthContexts(serverAuthConfig, configVersion);
+            serverAuthContexts = contexts;
+        }
+
+        ServerAuthContext serverAuthContext = contexts.byAuthContextID.get(authContextID);
+        if (serverAuthContext == null) {
+            serverAuthContext = serverAuthConfig.getAuthContext(authContextID, null, map);
+            if (serverAuthContext != null && contexts.byAuthContextID.size() < MAX_CACHED_SERVER_AUTH_CONTEXTS) {
+                contexts.byAuthContextID.putIfAbsent(authContextID, serverAuthContext);
+            }
+        }
+
+        return serverAuthContext;
     }
 
     protected AuthConfig getAuthConfig(AuthConfigProvider authConfigProvider, boolean isServer) throws AuthException {
@@ -161,49 +216,62 @@ public class BaseAuthenticationService {
     }
 
     protected AuthConfig getAuthConfig(boolean isServer) throws AuthException {
-        ConfigData configData = null;
-        AuthConfig authConfig = null;
-        boolean disabled = false;
-        AuthConfigProvider lastConfigProvider = null;
+        if (!listenerWrapper.isEnabled()) {
+            return null;
+        }
+
+        // Steady state: a single volatile read of the current config data
+        ConfigData configData = listenerWrapper.getConfigData();
+        if (configData != null && configData.isResolved(isServer)) {
+            return configData.getConfig(isServer);
+        }
 
+        return resolveAuthConfig(isServer);
+    }
+
+    /**
+     * Resolves the provider and/or the requested config when the current config data doesn't have them, and
+     * publishes the result as a new config data snapshot.
+     *
+     * <p>
+     * Only one thread resolves at a time; threads that missed concurrently find the published result once they
+     * get their turn. The snapshot is only published if the registration listener didn't invalidate the config
+     * data in the meantime (or the service was disabled), in which case the result is returned to the caller but
+     * the next call resolves again.
+     */
+    private AuthConfig resolveAuthConfig(boolean isServer) throws AuthException {
+        resolveLock.lock();
         try {
-            readLock.lock();
-            disabled = !listenerWrapper.isEnabled();
-            if (!disabled) {
-                configData = listenerWrapper.getConfigData();
-                if (configData != null) {
-                    authConfig = isServer ? configData.getServerConfig() : configData.getClientConfig();
-                    lastConfigProvider = configData.getProvider();
-                }
+            if (!listenerWrapper.isEnabled()) {
+                return null;
             }
 
-        } finally {
-            readLock.unlock();
-            if (disabled || authConfig != null || (configData != null && lastConfigProvider == null)) {
-                return authConfig;
+            long generation = listenerWrapper.getConfigDataGeneration();
+            ConfigData currentData = listenerWrapper.getConfigData();
+            if (currentData != null && currentData.isResolved(isServer)) {
+                return currentData.getConfig(isServer);
             }
-        }
 
-        // d == null || (d != null && lastP != null && c == null)
-        if (configData == null) {
-            try {
-                writeLock.lock();
-                if (listenerWrapper.getConfigData() == null) {
-                    AuthConfigProvider nextConfigProvider = authConfigFactory.getConfigProvider(messageLayer, appContextId, getRegistrationListener());
-
-                    if (nextConfigProvider != null) {
-                        listenerWrapper.setConfigData(new ConfigData(nextConfigProvider, getAuthConfig(nextConfigProvider, isServer)));
-                    } else {
-                        listenerWrapper.setConfigData(new ConfigData());
-                    }
+            ConfigData nextData = currentData;
+            if (nextData == null) {
+                AuthConfigProvider configProvider = authConfigFactory.getConfigProvider(messageLayer, appContextId, getRegistrationListener());
+                if (configProvider == null) {
+                    nextData = ConfigData.NO_PROVIDER;
+                } else {
+                    nextData = new ConfigData(configProvider);
                 }
-                configData = listenerWrapper.getConfigData();
-            } finally {
-                writeLock.unlock();
             }
-        }
 
-        return isServer ? configData.getServerConfig() : configData.getClientConfig();
+            if (!nextData.isResolved(isServer)) {
+                nextData = nextData.withConfig(isServer, getAuthConfig(nextData.getProvider(), isServer));
+            }
+
+            listenerWrapper.compareAndSetConfigData(generation, currentData, nextData);
+
+            return nextData.getConfig(isServer);
+        } finally {
+            resolveLock.unlock();
+        }
     }
 
     /**
@@ -257,7 +325,6 @@ public class BaseAuthenticationService {
     }
 
     public Caller validateRequest(HttpServletRequest servletRequest, HttpServletResponse servletResponse, boolean calledFromAuthenticate, boolean isMandatory) throws IOException {
-        Subject subject = new Subject();
         MessageInfo messageInfo = getMessageInfo(servletRequest, servletResponse);
 
         try {
@@ -265,7 +332,15 @@ public class BaseAuthenticationService {
                 setMandatory(messageInfo);
             }
 
-            if (!SUCCESS.equals(getServerAuthContext(messageInfo).validateRequest(messageInfo, subject, null))) {
+            ServerAuthContext serverAuthContext = getRequestServerAuthContext(messageInfo);
+
+            // Public resource and the modules declare there's nothing to authenticate; skip them altogether
+            if (!HttpMessageInfo.isMandatory(messageInfo) && AnonymousRequestCapability.isAnonymousRequest(serverAuthContext, messageInfo)) {
+                return Caller.ANONYMOUS;
+            }
+
+            Subject subject = new Subject();
+            if (!SUCCESS.equals(serverAuthContext.validateRequest(messageInfo, subject, null))) {
                 return null;
             }
 
@@ -276,6 +351,71 @@ public class BaseAuthenticationService {
         }
     }
 
+    /**
+     * Validates the request like {@link #validateRequest(HttpServletRequest, HttpServletResponse, boolean, boolean)},
+     * without blocking the calling thread on the modules.
+     *
+     * <p>
+     * Modules that can't validate asynchronously are called on a bounded pool of daemon threads; see
+     * {@value #ASYNC_THREADS_PROPERTY}.
+     *
+     * @see #validateRequestAsync(HttpServletRequest, HttpServletResponse, boolean, boolean, Executor)
+     */
+    public CompletionStage<Caller> validateRequestAsync(HttpServletRequest servletRequest, HttpServletResponse servletResponse, boolean calledFromAuthenticate, boolean isMandatory) {
+        return validateRequestAsync(servletRequest, servletResponse, calledFromAuthenticate, isMandatory, AsyncValidationExecutor.INSTANCE);
+    }
+
+    /**
+     * Validates the request like {@link #validateRequest(HttpServletRequest, HttpServletResponse, boolean, boolean)},
+     * without blocking the calling thread on the modules.
+     *
+     * <p>
+     * Modules that declare the {@link AsyncValidationCapability} complete the validation on threads of their own
+     * choosing; other modules are called on the given executor. The request is not put into asynchronous mode; a
+     * caller that wants the container thread to return while the modules run starts the
+     * {@link jakarta.servlet.AsyncContext} itself, and completes or dispatches it once the returned stage completes,
+     * normally or exceptionally. Otherwise the caller must not let the request end before that. The stage may already
+     * be complete when it's returned, for instance when the executor ran the modules on the calling thread.
+     *
+     * @param servletRequest the request to validate
+     * @param servletResponse the response to the request
+     * @param calledFromAuthenticate whether this is called from <code>HttpServletRequest.authenticate</code>
+     * @param isMandatory whether the requested resource is protected
+     * @param executor the executor on which modules that can't validate asynchronously are called
+     * @return the stage that completes with the caller, or with <code>null</code> if the request was not validated,
+     * or exceptionally with an {@link IllegalStateException} if a module failed
+     */
+    public CompletionStage<Caller> validateRequestAsync(HttpServletRequest servletRequest, HttpServletResponse servletResponse, boolean calledFromAuthenticate, boolean isMandatory, Executor executor) {
+        MessageInfo messageInfo = getMessageInfo(servletRequest, servletResponse);
+
+        try {
+            if (isMandatory || calledFromAuthenticate) {
+                setMandatory(messageInfo);
+            }
+
+            ServerAuthContext serverAuthContext = getRequestServerAuthContext(messageInfo);
+
+            // Public resource and the modules declare there's nothing to authenticate; no need to go asynchronous
+            if (!HttpMessageInfo.isMandatory(messageInfo) && AnonymousRequestCapability.isAnonymousRequest(serverAuthContext, messageInfo)) {
+                return CompletableFuture.completedFuture(Caller.ANONYMOUS);
+            }
+
+            Subject subject = new Subject();
+
+            return AsyncValidationCapability.validateRequestAsync(serverAuthContext, messageInfo, subject, null, executor)
+                .handle((status, failure) -> {
+                    if (failure != null) {
+                        throw new IllegalStateException(failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+                    }
+
+                    return SUCCESS.equals(status) ? Caller.fromSubject(subject) : null;
+                });
+
+        } catch (AuthException | RuntimeException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException(e));
+        }
+    }
+
     public boolean mustRegisterSession(HttpServletRequest servletRequest, HttpServletResponse servletResponse) {
         return isRegisterSession(getMessageInfo(servletRequest, servletResponse));
     }
@@ -292,7 +432,7 @@ public class BaseAuthenticationService {
         MessageInfo messageInfo = getMessageInfo(servletRequest, servletResponse);
 
         try {
-            getServerAuthContext(messageInfo).secureResponse(messageInfo, null);
+            getRequestServerAuthContext(messageInfo).secureResponse(messageInfo, null);
         } catch (AuthException e) {
             throw new IllegalStateException(e);
         }
@@ -302,7 +442,7 @@ public class BaseAuthenticationService {
         MessageInfo messageInfo = getMessageInfo(servletRequest, servletResponse);
 
         try {
-            getServerAuthContext(messageInfo).cleanSubject(messageInfo, subject);
+            getRequestServerAuthContext(messageInfo).cleanSubject(messageInfo, subject);
         } catch (AuthException e) {
             throw new IllegalStateException(e);
         }
@@ -314,11 +454,26 @@ public class BaseAuthenticationService {
     // ### Private methods
 
     private boolean isRegisterSession(MessageInfo messageInfo) {
-        return Boolean.valueOf((String) messageInfo.getMap().get(REGISTER_SESSION));
+        return HttpMessageInfo.isRegisterSession(messageInfo);
     }
 
     private void setMandatory(MessageInfo messageInfo) {
-        messageInfo.getMap().put(IS_MANDATORY, TRUE.toString());
+        HttpMessageInfo.setMandatory(messageInfo, true);
+    }
+
+    /**
+     * Returns the server auth context bound to the message of the current request, resolving and binding it first
+     * if that hasn't happened yet.
+     */
+    private ServerAuthContext getRequestServerAuthContext(MessageInfo messageInfo) throws AuthException {
+        if (messageInfo instanceof HttpMessageInfo httpMessageInfo) {
+            ServerAuthContext serverAuthContext = httpMessageInfo.getServerAuthContext();
+            if (serverAuthContext != null) {
+                return serverAuthContext;
+            }
+        }
+
+        return getServerAuthContext(messageInfo);
     }
 
     private MessageInfo getMessageInfo(HttpServletRequest servletRequest, HttpServletResponse servletResponse) {
@@ -336,4 +491,30 @@ public class BaseAuthenticationService {
         servletRequest.setAttribute(MESSAGE_INFO, messageInfo);
     }
 
+    /**
+     * Holder for the pool on which modules that can't validate asynchronously are called by default.
+     *
+     * <p>
+     * The pool has a fixed number of threads, so that slow identity stores can't make it grow without bound. When
+     * its queue is full, modules are called on the calling thread, as <code>validateRequest</code> would have done.
+     * Modules run with the context class loader of the application that validates the request.
+     */
+    private static final class AsyncValidationExecutor {
+
+        static final Executor INSTANCE = new ContextClassLoaderExecutor("epicyro-auth-async-",
+            Math.max(1, Integer.getInteger(ASYNC_THREADS_PROPERTY, Math.max(8, 2 * Runtime.getRuntime().availableProcessors()))));
+    }
+
+    private static final class ServerAuthContexts {
+
+        final ServerAuthConfig serverAuthConfig;
+        final long configVersion;
+        final Map<String, ServerAuthContext> byAuthContextID = new ConcurrentHashMap<>();
+
+        ServerAuthContexts(ServerAuthConfig serverAuthConfig, long configVersion) {
+            this.serverAuthConfig = serverAuthConfig;
+            this.configVersion = configVersion;
+        }
+    }
+
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.services;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams the <code>&lt;caller callername="..." password="..." groups="..."/&gt;</code> elements of a callers
+ * document to a consumer, one at a time, without building a tree of the document.
+ */
+final class CallerXmlReader {
+
+    private static final String CALLER = "caller";
+    private static final String CALLER_NAME = "callername";
+    private static final String PASSWORD = "password";
+    private static final String GROUPS = "groups";
+
+    /**
+     * Receives the callers read from the document.
+     */
+    @FunctionalInterface
+    interface CallerConsumer {
+        void accept(String callerName, String password, List<String> groups);
+    }
+
+    private CallerXmlReader() {
+    }
+
+    /**
+     * Reads all callers from the given stream, which is not closed.
+     */
+    static void read(InputStream callersAsXml, CallerConsumer consumer) throws XMLStreamException {
+        read(newInputFactory().createXMLStreamReader(callersAsXml), consumer);
+    }
+
+    /**
+     * Reads all callers from the given reader, which is not closed.
+     */
+    static void read(Reader callersAsXml, CallerConsumer consumer) throws XMLStreamException {
+        read(newInputFactory().createXMLStreamReader(callersAsXml), consumer);
+    }
+
+    private static void read(XMLStreamReader reader, CallerConsumer consumer) throws XMLStreamException {
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == START_ELEMENT && CALLER.equals(reader.getLocalName())) {
+                    String callerName = reader.getAttributeValue(null, CALLER_NAME);
+                    if (callerName == null) {
+                        throw new XMLStreamException("Caller without " + CALLER_NAME, reader.getLocation());
+                    }
+
+                    String groups = reader.getAttributeValue(null, GROUPS);
+
+                    consumer.accept(
+                        callerName,
+                        reader.getAttributeValue(null, PASSWORD),
+                        groups == null ? emptyList() : asList(groups.split(",")));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        return factory;
+    }
+}
@@ -21,31 +21,72 @@ import jakarta.security.auth.message.config.AuthConfigProvider;
 import jakarta.security.auth.message.config.ClientAuthConfig;
 import jakarta.security.auth.message.config.ServerAuthConfig;
 
-class ConfigData {
+/**
+ * Immutable snapshot of the provider and the auth configs obtained from it for a given layer and app context.
+ *
+ * <p>
+ * The server and client configs are resolved independently; a snapshot in which one of them has not been
+ * resolved yet is replaced by a new snapshot once it has.
+ */
+final class ConfigData {
+
+    /**
+     * Snapshot for when no provider is registered for the layer and app context.
+     */
+    static final ConfigData NO_PROVIDER = new ConfigData(null, null, true, null, true);
 
-    private AuthConfigProvider provider;
-    private AuthConfig serverConfig;
-    private AuthConfig clientConfig;
+    private final AuthConfigProvider provider;
+    private final AuthConfig serverConfig;
+    private final boolean serverConfigResolved;
+    private final AuthConfig clientConfig;
+    private final boolean clientConfigResolved;
 
-    ConfigData() {
+    private ConfigData(AuthConfigProvider provider, AuthConfig serverConfig, boolean serverConfigResolved, AuthConfig clientConfig, boolean clientConfigResolved) {
+        this.provider = provider;
+        this.serverConfig = serverConfig;
+        this.serverConfigResolved = serverConfigResolved;
+        this.clientConfig = clientConfig;
+        this.clientConfigResolved = clientConfigResolved;
     }
 
-    ConfigData(AuthConfigProvider authConfigProvider, AuthConfig authConfig) {
-        provider = authConfigProvider;
+    /**
+     * Snapshot for the given provider, in which neither of the configs has been resolved yet.
+     */
+    ConfigData(AuthConfigProvider authConfigProvider) {
+        this(authConfigProvider, null, false, null, false);
+    }
+
+    /**
+     * Returns a snapshot for the same provider with the given config added for the given side.
+     */
+    ConfigData withConfig(boolean isServer, AuthConfig authConfig) {
+        if (isServer) {
+            if (authConfig != null && !(authConfig instanceof ServerAuthConfig)) {
+                throw new IllegalArgumentException();
+            }
+
+            return new ConfigData(provider, authConfig, true, clientConfig, clientConfigResolved);
+        }
 
-        if (authConfig instanceof ServerAuthConfig) {
-            serverConfig = authConfig;
-        } else if (authConfig instanceof ClientAuthConfig) {
-            clientConfig = authConfig;
-        } else {
+        if (authConfig != null && !(authConfig instanceof ClientAuthConfig)) {
             throw new IllegalArgumentException();
         }
+
+        return new ConfigData(provider, serverConfig, serverConfigResolved, authConfig, true);
     }
 
     public AuthConfigProvider getProvider() {
         return provider;
     }
 
+    public boolean isResolved(boolean isServer) {
+        return isServer ? serverConfigResolved : clientConfigResolved;
+    }
+
+    public AuthConfig getConfig(boolean isServer) {
+        return isServer ? serverConfig : clientConfig;
+    }
+
     public AuthConfig getServerConfig() {
         return serverConfig;
     }
@@ -53,4 +94,4 @@ class ConfigData {
     public AuthConfig getClientConfig() {
         return clientConfig;
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,8 @@
 package org.glassfish.epicyro.services;
 
 import static org.glassfish.epicyro.config.helper.HttpServletConstants.HTTPSERVLET;
+import static org.glassfish.epicyro.config.servlet.sam.BasicServerAuthModule.CREDENTIAL_CACHE_SIZE;
+import static org.glassfish.epicyro.config.servlet.sam.BasicServerAuthModule.CREDENTIAL_CACHE_TTL;
 
 import java.util.Map;
 
@@ -39,9 +41,16 @@ public class DefaultAuthenticationService extends BaseAuthenticationService {
 
                 // Defines the modules that we have available. Here it's only a single fixed module.
                 DefaultConfigParser newParser = new DefaultConfigParser();
-                newParser.withAuthModuleClass(BasicServerAuthModule.class)
-                         .getOptions()
-                         .put("realmName", properties.get("realmName"));
+                Map<String, Object> options = newParser.withAuthModuleClass(BasicServerAuthModule.class)
+                         .getOptions();
+
+                options.put("realmName", properties.get("realmName"));
+
+                // Opt-in cache of verified credentials
+                if (properties.containsKey(CREDENTIAL_CACHE_TTL)) {
+                    options.put(CREDENTIAL_CACHE_TTL, properties.get(CREDENTIAL_CACHE_TTL));
+                    options.put(CREDENTIAL_CACHE_SIZE, properties.get(CREDENTIAL_CACHE_SIZE));
+                }
 
                 // Indicates the module we want to use
                 properties.put("authModuleId", BasicServerAuthModule.class.getSimpleName());
@@ -1,30 +1,28 @@
 package org.glassfish.epicyro.services;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
-import java.util.HashSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamException;
 
 import org.glassfish.epicyro.config.helper.Caller;
 import org.glassfish.epicyro.config.helper.CallerPrincipal;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import org.glassfish.epicyro.config.helper.ChangeListeners;
+import org.glassfish.epicyro.config.helper.GroupSet;
 
-import static java.util.Arrays.asList;
-import static java.util.Collections.emptySet;
-import static javax.xml.xpath.XPathConstants.NODESET;
+import static java.util.Collections.unmodifiableMap;
 
 
 /**
@@ -87,53 +85,140 @@ public class InMemoryStore {
     }
 
     /**
-     * Stores the caller to credentials map.
+     * Immutable record of a caller, with everything needed to validate it and to return its identity
+     * precomputed.
      */
-    private static final Map<String, Credential> CALLER_TO_CREDENTIALS = new ConcurrentHashMap<>();
+    private static final class CallerRecord {
 
+        private final String callerName;
+        private final CallerPrincipal callerPrincipal;
+        private final GroupSet groups;
+        private final byte[] salt;
+        private final byte[] passwordHash;
+
+        CallerRecord(String callerName, String password, GroupSet groups) {
+            this.callerName = callerName;
+            this.callerPrincipal = new CallerPrincipal(callerName);
+            this.groups = groups;
+            this.salt = SaltedPasswordHash.newSalt();
+            this.passwordHash = password == null ? null : SaltedPasswordHash.hash(salt, password);
+        }
+
+        boolean verify(String password) {
+            if (password == null || passwordHash == null) {
+                return false;
+            }
+
+            return SaltedPasswordHash.verify(salt, passwordHash, password);
+        }
+    }
+
+    /**
+     * Record against which unknown callers are verified, so that they take as long as known ones.
+     */
+    private static final CallerRecord UNKNOWN_CALLER = new CallerRecord("", "", GroupSet.EMPTY);
+
+    /**
+     * Stores the caller to record map.
+     *
+     * <p>
+     * Single credentials are added to the current map, while callers loaded from XML are added to a copy that then
+     * replaces it, so that they all become visible at once. Writers hold {@link #WRITE_LOCK} so that neither loses
+     * the other's credentials.
+     */
+    private static volatile Map<String, CallerRecord> callerToRecord = new ConcurrentHashMap<>();
+    private static final Object WRITE_LOCK = new Object();
+
+    /**
+     * Interned group sets, so that callers with the same groups share them.
+     */
+    private static final Map<GroupSet, GroupSet> GROUP_SETS = new ConcurrentHashMap<>();
+
+    /**
+     * Run whenever credentials are added, so that caches of verified credentials can drop what became stale.
+     */
+    private static final ChangeListeners CHANGE_LISTENERS = new ChangeListeners();
+
+    /**
+     * Adds the callers from the given XML.
+     *
+     * <p>
+     * All callers become visible at once, as a new generation of the store. If the XML can't be read, none of
+     * them are added.
+     *
+     * @param callersAsXml the callers XML
+     */
     public static void initFromString(String callersAsXml) {
         if (isEmpty(callersAsXml)) {
             return;
         }
 
         try {
-            XPath xPath = XPathFactory
-                    .newInstance()
-                    .newXPath();
-
-            NodeList nodes = (NodeList) xPath
-                    .evaluate(
-                            "//caller",
-                            DocumentBuilderFactory
-                                    .newInstance()
-                                    .newDocumentBuilder()
-                                    .parse(new ByteArrayInputStream(callersAsXml.getBytes())),
-                            NODESET);
-
-            for (int i = 0; i < nodes.getLength(); i++) {
-                NamedNodeMap callerAttributes = nodes.item(i).getAttributes();
-
-                String caller = callerAttributes.getNamedItem("callername").getNodeValue();
-                String password = callerAttributes.getNamedItem("password").getNodeValue();
-                String groups = callerAttributes.getNamedItem("groups").getNodeValue();
-
-                addCredential(caller, password, asList(groups.split(",")));
-            }
+            List<CallerRecord> records = new ArrayList<>();
+            CallerXmlReader.read(new StringReader(callersAsXml),
+                (callerName, password, groups) -> records.add(newRecord(callerName, password, groups)));
 
-        } catch (SAXException | IOException | ParserConfigurationException | XPathExpressionException e) {
+            publish(records);
+        } catch (XMLStreamException e) {
             LOG.log(Level.WARNING, "Unable to get caller credentials", e);
         }
+    }
 
+    /**
+     * Adds the callers from the given XML stream, which is not closed.
+     *
+     * <p>
+     * All callers become visible at once, as a new generation of the store. If the XML can't be read, none of
+     * them are added.
+     *
+     * @param callersAsXml the callers XML
+     * @throws IOException if the XML can't be read
+     */
+    public static void initFrom(InputStream callersAsXml) throws IOException {
+        try {
+            List<CallerRecord> records = new ArrayList<>();
+            CallerXmlReader.read(callersAsXml,
+                (callerName, password, groups) -> records.add(newRecord(callerName, password, groups)));
+
+            publish(records);
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to get caller credentials", e);
+        }
     }
 
+    /**
+     * Adds the callers from the given XML file.
+     *
+     * <p>
+     * All callers become visible at once, as a new generation of the store. If the XML can't be read, none of
+     * them are added.
+     *
+     * @param callersAsXml the callers XML file
+     * @throws IOException if the XML can't be read
+     */
+    public static void initFrom(Path callersAsXml) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(callersAsXml))) {
+            initFrom(in);
+        }
+    }
 
     /**
-     * Returns the caller to credentials map.
+     * Returns a snapshot of the caller to credentials map.
+     *
+     * <p>
+     * Passwords are only stored as salted hashes, so the returned credentials have no password.
      *
      * @return the caller to credentials map.
+     * @deprecated the store no longer keeps plaintext passwords; use {@link #getCallerGroups(String)}
      */
+    @Deprecated
     public static Map<String, Credential> getCALLER_TO_CREDENTIALS() {
-        return CALLER_TO_CREDENTIALS;
+        Map<String, Credential> callerToCredentials = new HashMap<>();
+        for (CallerRecord record : callerToRecord.values()) {
+            callerToCredentials.put(record.callerName, new Credential(record.callerName, null, new ArrayList<>(record.groups)));
+        }
+
+        return unmodifiableMap(callerToCredentials);
     }
 
     /**
@@ -153,7 +238,23 @@ public class InMemoryStore {
      * @param credential the credential.
      */
     public static void addCredential(Credential credential) {
-        CALLER_TO_CREDENTIALS.put(credential.getCallerName(), credential);
+        CallerRecord record = newRecord(credential.getCallerName(), credential.getPassword(), credential.getGroups());
+
+        synchronized (WRITE_LOCK) {
+            callerToRecord.put(record.callerName, record);
+        }
+
+        CHANGE_LISTENERS.fire();
+    }
+
+    /**
+     * Adds a listener that is run after credentials are added. The store only keeps a weak reference to it, so the
+     * caller has to keep the listener for as long as it wants to be notified.
+     *
+     * @param listener the listener to run after every change
+     */
+    public static void addChangeListener(Runnable listener) {
+        CHANGE_LISTENERS.add(listener);
     }
 
     /**
@@ -168,22 +269,58 @@ public class InMemoryStore {
             return null;
         }
 
-        Credential credential = CALLER_TO_CREDENTIALS.get(callerName);
+        CallerRecord record = callerToRecord.get(callerName);
 
-        if (credential != null && password != null && password.equals(credential.getPassword())) {
-            return new Caller(
-                new CallerPrincipal(credential.getCallerName()),
-                new HashSet<>(credential.getGroups())
-            );
+        if (record == null) {
+            UNKNOWN_CALLER.verify(password);
+            return null;
+        }
+
+        if (record.verify(password)) {
+            return Caller.withSharedGroups(record.callerPrincipal, record.groups);
         }
 
         return null;
     }
 
+    /**
+     * Returns the groups of the given caller.
+     *
+     * @param callerName the caller name
+     * @return the groups of the caller, which can't be modified, or an empty set if the caller is not known
+     */
     public static Set<String> getCallerGroups(String callerName) {
-        Credential credentials = CALLER_TO_CREDENTIALS.get(callerName);
+        CallerRecord record = callerToRecord.get(callerName);
+
+        return record != null ? record.groups : GroupSet.EMPTY;
+    }
+
+    private static CallerRecord newRecord(String callerName, String password, List<String> groups) {
+        return new CallerRecord(callerName, password, internGroups(groups));
+    }
+
+    /**
+     * Replaces the caller to record map by a copy with the given records added, and tells the listeners.
+     */
+    private static void publish(List<CallerRecord> records) {
+        synchronized (WRITE_LOCK) {
+            Map<String, CallerRecord> newCallerToRecord = new ConcurrentHashMap<>(callerToRecord);
+            for (CallerRecord record : records) {
+                newCallerToRecord.put(record.callerName, record);
+            }
+
+            callerToRecord = newCallerToRecord;
+        }
+
+        CHANGE_LISTENERS.fire();
+    }
+
+    private static GroupSet internGroups(List<String> groups) {
+        if (groups == null || groups.isEmpty()) {
+            return GroupSet.EMPTY;
+        }
 
-        return credentials != null ? new HashSet<>(credentials.getGroups()) : emptySet();
+        return GROUP_SETS.computeIfAbsent(GroupSet.of(groups), set -> set);
     }
 
     private static boolean isEmpty(String string) {
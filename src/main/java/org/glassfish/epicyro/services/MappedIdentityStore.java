@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.services;
+
+import static java.lang.System.Logger.Level.INFO;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.helper.CallerPrincipal;
+import org.glassfish.epicyro.config.helper.GroupSet;
+
+/**
+ * An identity store that validates callers against a prebuilt binary index file, which is memory-mapped rather
+ * than read into the heap.
+ *
+ * <p>
+ * This store is meant for very large numbers of callers, for which keeping a record per caller on the heap would
+ * be too costly. Only the group dictionary and the distinct group sets are read into the heap, and shared by all
+ * callers having them; caller names, salts and password hashes are read from the mapped file on each lookup.
+ *
+ * <p>
+ * The index is built from the same <code>&lt;caller callername password groups&gt;</code> XML that
+ * {@link InMemoryStore#initFromString(String)} reads, by {@link MappedIdentityStoreBuilder}. A store never changes
+ * once opened; a new index is used by opening it as a new store.
+ *
+ * <p>
+ * A callback handler validates passwords against a store when given one, see
+ * {@link org.glassfish.epicyro.config.helper.BaseCallbackHandler#BaseCallbackHandler(MappedIdentityStore)}, and
+ * against the {@link InMemoryStore} otherwise.
+ */
+public final class MappedIdentityStore {
+
+    private static final Logger LOG = System.getLogger(MappedIdentityStore.class.getName());
+
+    static final int MAGIC = 0x45504958; // "EPIX"
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header: magic, version, group count, group set count, slot count and caller count.
+     */
+    static final int HEADER_LENGTH = 6 * Integer.BYTES;
+
+    /**
+     * Size of a record without the characters of the caller name: hash, name length, salt, password hash and
+     * group set id.
+     */
+    static final int RECORD_OVERHEAD = 2 * Integer.BYTES + SaltedPasswordHash.SALT_LENGTH + SaltedPasswordHash.HASH_LENGTH + Integer.BYTES;
+
+    /**
+     * Salt and hash against which unknown callers are verified, so that they take as long as known ones.
+     */
+    private static final byte[] UNKNOWN_CALLER_SALT = SaltedPasswordHash.newSalt();
+    private static final byte[] UNKNOWN_CALLER_HASH = SaltedPasswordHash.hash(UNKNOWN_CALLER_SALT, "");
+
+    private final Index index;
+
+    /**
+     * An opened index file.
+     *
+     * <p>
+     * The file consists of a header, the group dictionary, the group sets, an open addressing hash table of
+     * record offsets and the records themselves; see {@link MappedIdentityStoreBuilder} for the details.
+     */
+    private static final class Index {
+
+        private final ByteBuffer buffer;
+        private final GroupSet[] groupSets;
+        private final int tableOffset;
+        private final int slotMask;
+        private final int callerCount;
+
+        Index(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException("Not an identity store index");
+                }
+                int version = buffer.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported identity store index version " + version);
+                }
+
+                int groupCount = buffer.getInt();
+                int groupSetCount = buffer.getInt();
+                int slotCount = buffer.getInt();
+                callerCount = buffer.getInt();
+
+                if (groupCount < 0 || groupSetCount < 0 || slotCount <= 0 || Integer.bitCount(slotCount) != 1 || callerCount < 0) {
+                    throw new IOException("Corrupt identity store index header");
+                }
+
+                String[] groups = new String[groupCount];
+                for (int i = 0; i < groupCount; i++) {
+                    byte[] name = new byte[buffer.getInt()];
+                    buffer.get(name);
+                    groups[i] = new String(name, UTF_8);
+                }
+
+                groupSets = new GroupSet[groupSetCount];
+                for (int i = 0; i < groupSetCount; i++) {
+                    String[] groupSet = new String[buffer.getInt()];
+                    for (int j = 0; j < groupSet.length; j++) {
+                        groupSet[j] = groups[buffer.getInt()];
+                    }
+                    groupSets[i] = GroupSet.of(groupSet);
+                }
+
+                tableOffset = buffer.position();
+                slotMask = slotCount - 1;
+
+                if ((long) tableOffset + (long) slotCount * Integer.BYTES > buffer.limit()) {
+                    throw new IOException("Truncated identity store index");
+                }
+
+                checkRecords(slotCount);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+                throw new IOException("Corrupt identity store index", e);
+            }
+        }
+
+        /**
+         * Checks that the records the table refers to are within the file. The records are written one after the
+         * other, so it's enough that the last one is complete.
+         */
+        private void checkRecords(int slotCount) throws IOException {
+            int tableEnd = tableOffset + slotCount * Integer.BYTES;
+            int lastRecordOffset = 0;
+            int records = 0;
+
+            for (int slot = 0; slot < slotCount; slot++) {
+                int recordOffset = buffer.getInt(tableOffset + slot * Integer.BYTES);
+                if (recordOffset != 0) {
+                    if (recordOffset < tableEnd) {
+                        throw new IOException("Corrupt identity store index table");
+                    }
+                    lastRecordOffset = Math.max(lastRecordOffset, recordOffset);
+                    records++;
+                }
+            }
+
+            if (records != callerCount) {
+                throw new IOException("Corrupt identity store index table");
+            }
+
+            if (lastRecordOffset != 0 &&
+                    (lastRecordOffset > buffer.limit() - RECORD_OVERHEAD ||
+                     lastRecordOffset + RECORD_OVERHEAD + (long) buffer.getInt(lastRecordOffset + Integer.BYTES) * Character.BYTES > buffer.limit())) {
+                throw new IOException("Truncated identity store index");
+            }
+        }
+
+        /**
+         * Returns the offset of the record for the given caller name, or 0 if there is none.
+         */
+        int find(String callerName) {
+            int hash = callerName.hashCode();
+
+            int slot = slot(hash, slotMask);
+            for (int probes = 0; probes <= slotMask; probes++, slot = (slot + 1) & slotMask) {
+                int recordOffset = buffer.getInt(tableOffset + slot * Integer.BYTES);
+
+                if (recordOffset == 0) {
+                    return 0;
+                }
+
+                if (buffer.getInt(recordOffset) == hash && nameEquals(recordOffset, callerName)) {
+                    return recordOffset;
+                }
+            }
+
+            return 0;
+        }
+
+        Caller validate(String callerName, String password) {
+            int recordOffset = find(callerName);
+
+            if (recordOffset == 0) {
+                SaltedPasswordHash.verify(UNKNOWN_CALLER_SALT, UNKNOWN_CALLER_HASH, password);
+                return null;
+            }
+
+            int saltOffset = recordOffset + 2 * Integer.BYTES + callerName.length() * Character.BYTES;
+            int hashOffset = saltOffset + SaltedPasswordHash.SALT_LENGTH;
+
+            if (!SaltedPasswordHash.verify(buffer, saltOffset, hashOffset, password)) {
+                return null;
+            }
+
+            return Caller.withSharedGroups(
+                new CallerPrincipal(callerName),
+                groupSets[buffer.getInt(hashOffset + SaltedPasswordHash.HASH_LENGTH)]);
+        }
+
+        private boolean nameEquals(int recordOffset, String callerName) {
+            int length = buffer.getInt(recordOffset + Integer.BYTES);
+            if (length != callerName.length()) {
+                return false;
+            }
+
+            int charOffset = recordOffset + 2 * Integer.BYTES;
+            for (int i = 0; i < length; i++) {
+                if (buffer.getChar(charOffset + i * Character.BYTES) != callerName.charAt(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private MappedIdentityStore(Index index) {
+        this.index = index;
+    }
+
+    /**
+     * Opens the given index file.
+     *
+     * @param indexFile the index file, as built by {@link MappedIdentityStoreBuilder}
+     * @return the store
+     * @throws IOException if the file can't be read, or is not a valid index
+     */
+    public static MappedIdentityStore open(Path indexFile) throws IOException {
+        MappedIdentityStore store = new MappedIdentityStore(map(indexFile));
+        LOG.log(INFO, "Opened identity store index {0} with {1} callers", indexFile, store.size());
+
+        return store;
+    }
+
+    /**
+     * Validate the username password credential.
+     *
+     * @param callerName the caller name to validate
+     * @param password the password to validate the caller name against
+     * @return the credential validation result, or <code>null</code> if the credential is not valid
+     */
+    public Caller validate(String callerName, String password) {
+        if (callerName == null || password == null) {
+            return null;
+        }
+
+        return index.validate(callerName, password);
+    }
+
+    /**
+     * Returns the number of callers in the current index.
+     *
+     * @return the number of callers
+     */
+    public int size() {
+        return index.callerCount;
+    }
+
+    /**
+     * Returns the slot of the given hash code in a table with the given mask, spreading the higher bits.
+     */
+    static int slot(int hash, int slotMask) {
+        return (hash ^ (hash >>> 16)) & slotMask;
+    }
+
+    private static Index map(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Identity store index " + indexFile + " is too large");
+            }
+
+            // The mapping stays valid after the channel is closed
+            return new Index(channel.map(READ_ONLY, 0, size));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.services;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Builds the index file of a {@link MappedIdentityStore} from the
+ * <code>&lt;caller callername password groups&gt;</code> XML.
+ *
+ * <p>
+ * All numbers in the file are big-endian. The file consists of:
+ * <ul>
+ * <li>a header with the magic number, the version, the group count, the group set count, the slot count and the
+ * caller count;
+ * <li>the group dictionary: per group the length and UTF-8 bytes of its name;
+ * <li>the group sets: per set its size and the ids of its groups;
+ * <li>the hash table: per slot the offset of a record, or 0 for an empty slot. The slot count is a power of two,
+ * and collisions are resolved by linear probing;
+ * <li>the records: per caller the hash code and length of its name, the UTF-16 characters of its name, its salt,
+ * its salted password hash and the id of its group set.
+ * </ul>
+ *
+ * <p>
+ * The index is written to a temporary file next to the target, which is then moved over the target, so that a
+ * store opening the target never sees a partially written index.
+ */
+public final class MappedIdentityStoreBuilder {
+
+    private final Map<String, CallerEntry> callers = new LinkedHashMap<>();
+    private final Map<String, Integer> groupIds = new LinkedHashMap<>();
+    private final Map<List<Integer>, Integer> groupSetIds = new LinkedHashMap<>();
+
+    private static final class CallerEntry {
+
+        final String callerName;
+        final byte[] salt;
+        final byte[] passwordHash;
+        final int groupSetId;
+
+        CallerEntry(String callerName, byte[] salt, byte[] passwordHash, int groupSetId) {
+            this.callerName = callerName;
+            this.salt = salt;
+            this.passwordHash = passwordHash;
+            this.groupSetId = groupSetId;
+        }
+
+        int length() {
+            return MappedIdentityStore.RECORD_OVERHEAD + callerName.length() * Character.BYTES;
+        }
+    }
+
+    /**
+     * Builds an index file from a callers XML file.
+     *
+     * @param args the callers XML file and the index file to write
+     * @throws Exception if the index file can't be built
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: " + MappedIdentityStoreBuilder.class.getName() + " <callers.xml> <index file>");
+            System.exit(1);
+        }
+
+        MappedIdentityStoreBuilder builder = new MappedIdentityStoreBuilder();
+        try (InputStream callersAsXml = Files.newInputStream(Paths.get(args[0]))) {
+            builder.addCallers(callersAsXml);
+        }
+
+        builder.write(Paths.get(args[1]));
+        System.out.println("Wrote " + builder.callers.size() + " callers to " + args[1]);
+    }
+
+    /**
+     * Adds the callers from the given XML. Later callers replace earlier ones with the same name.
+     *
+     * @param callersAsXml the callers XML
+     * @return this builder
+     * @throws XMLStreamException if the XML can't be read
+     */
+    public MappedIdentityStoreBuilder addCallers(InputStream callersAsXml) throws XMLStreamException {
+        CallerXmlReader.read(callersAsXml, this::addCaller);
+        return this;
+    }
+
+    /**
+     * Adds a caller, replacing an earlier one with the same name.
+     *
+     * @param callerName the caller name
+     * @param password the password
+     * @param groups the groups
+     * @return this builder
+     */
+    public MappedIdentityStoreBuilder addCaller(String callerName, String password, List<String> groups) {
+        TreeSet<Integer> groupSet = new TreeSet<>();
+        for (String group : groups) {
+            groupSet.add(groupIds.computeIfAbsent(group, name -> groupIds.size()));
+        }
+
+        // A caller without password can't be validated, which an unknown salt with an empty hash achieves
+        byte[] salt = SaltedPasswordHash.newSalt();
+        byte[] passwordHash = password == null ? new byte[SaltedPasswordHash.HASH_LENGTH] : SaltedPasswordHash.hash(salt, password);
+
+        callers.put(callerName, new CallerEntry(
+            callerName, salt, passwordHash,
+            groupSetIds.computeIfAbsent(new ArrayList<>(groupSet), set -> groupSetIds.size())));
+
+        return this;
+    }
+
+    /**
+     * Writes the index file, atomically replacing an existing one.
+     *
+     * @param indexFile the index file
+     * @throws IOException if the index file can't be written
+     */
+    public void write(Path indexFile) throws IOException {
+        Path absoluteIndexFile = indexFile.toAbsolutePath();
+        Path temporaryFile = Files.createTempFile(absoluteIndexFile.getParent(), absoluteIndexFile.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                write(out);
+            }
+
+            Files.move(temporaryFile, absoluteIndexFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        int slotCount = Integer.highestOneBit(Math.max(callers.size() * 2, 1)) << 1;
+
+        out.writeInt(MappedIdentityStore.MAGIC);
+        out.writeInt(MappedIdentityStore.VERSION);
+        out.writeInt(groupIds.size());
+        out.writeInt(groupSetIds.size());
+        out.writeInt(slotCount);
+        out.writeInt(callers.size());
+
+        for (String group : groupIds.keySet()) {
+            byte[] name = group.getBytes(UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+        }
+
+        for (List<Integer> groupSet : groupSetIds.keySet()) {
+            out.writeInt(groupSet.size());
+            for (int groupId : groupSet) {
+                out.writeInt(groupId);
+            }
+        }
+
+        // The records follow the table, so their offsets are known before anything of them is written
+        long recordOffset = out.size() + (long) slotCount * Integer.BYTES;
+        int slotMask = slotCount - 1;
+        int[] table = new int[slotCount];
+
+        for (CallerEntry caller : callers.values()) {
+            if (recordOffset + caller.length() > Integer.MAX_VALUE) {
+                throw new IOException("Too many callers for a single identity store index");
+            }
+
+            int slot = MappedIdentityStore.slot(caller.callerName.hashCode(), slotMask);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & slotMask;
+            }
+
+            table[slot] = (int) recordOffset;
+            recordOffset += caller.length();
+        }
+
+        for (int offset : table) {
+            out.writeInt(offset);
+        }
+
+        for (CallerEntry caller : callers.values()) {
+            out.writeInt(caller.callerName.hashCode());
+            out.writeInt(caller.callerName.length());
+            out.writeChars(caller.callerName);
+            out.write(caller.salt);
+            out.write(caller.passwordHash);
+            out.writeInt(caller.groupSetId);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.epicyro.services;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * The salted password hashes used by the identity stores: SHA-256 over a random salt followed by the UTF-16
+ * code units of the password.
+ *
+ * <p>
+ * Verification uses a per-thread digest and buffers and compares in constant time, so it doesn't allocate.
+ */
+final class SaltedPasswordHash {
+
+    static final int SALT_LENGTH = 16;
+    static final int HASH_LENGTH = 32;
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<Hasher> HASHERS = ThreadLocal.withInitial(Hasher::new);
+
+    private static final class Hasher {
+
+        private final MessageDigest digest;
+        private final byte[] salt = new byte[SALT_LENGTH];
+        private final byte[] output = new byte[HASH_LENGTH];
+
+        Hasher() {
+            try {
+                digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        byte[] hash(byte[] salt, String password) {
+            digest.update(salt);
+            for (int i = 0; i < password.length(); i++) {
+                char c = password.charAt(i);
+                digest.update((byte) (c >> 8));
+                digest.update((byte) c);
+            }
+
+            try {
+                digest.digest(output, 0, output.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+
+            return output;
+        }
+    }
+
+    private SaltedPasswordHash() {
+    }
+
+    static byte[] newSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+
+        return salt;
+    }
+
+    /**
+     * Returns a new array with the hash of the given salt and password.
+     */
+    static byte[] hash(byte[] salt, String password) {
+        return HASHERS.get().hash(salt, password).clone();
+    }
+
+    /**
+     * Verifies the given password against the given salt and hash.
+     */
+    static boolean verify(byte[] salt, byte[] passwordHash, String password) {
+        return MessageDigest.isEqual(passwordHash, HASHERS.get().hash(salt, password));
+    }
+
+    /**
+     * Verifies the given password against the salt and hash stored at the given positions in the given buffer,
+     * without changing the position of the buffer.
+     */
+    static boolean verify(ByteBuffer buffer, int saltIndex, int hashIndex, String password) {
+        Hasher hasher = HASHERS.get();
+        buffer.get(saltIndex, hasher.salt);
+
+        byte[] actualHash = hasher.hash(hasher.salt, password);
+
+        int difference = 0;
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            difference |= actualHash[i] ^ buffer.get(hashIndex + i);
+        }
+
+        return difference == 0;
+    }
+}
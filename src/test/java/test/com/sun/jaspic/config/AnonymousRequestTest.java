@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static java.util.Collections.emptyMap;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.REQUIRED;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import jakarta.security.auth.message.MessageInfo;
+import jakarta.security.auth.message.config.ServerAuthContext;
+import java.util.Set;
+import javax.security.auth.login.AppConfigurationEntry;
+import org.glassfish.epicyro.config.factory.singlemodule.DefaultServerAuthContext;
+import org.glassfish.epicyro.config.helper.AnonymousRequestCapability;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.module.context.GFServerAuthContext;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
+import org.junit.Test;
+
+/**
+ * Checks that the server auth contexts only report an anonymous request when their modules do, and that the
+ * anonymous caller used for such requests can't be modified.
+ */
+public class AnonymousRequestTest {
+
+    /**
+     * Module that declares the capability, with the answer set by the test.
+     */
+    public static class AnonymousServerAuthModule extends SampleServerAuthModule implements AnonymousRequestCapability {
+
+        static volatile boolean anonymous;
+
+        @Override
+        public boolean isAnonymousRequest(MessageInfo messageInfo) {
+            return anonymous;
+        }
+    }
+
+    private final MessageInfo messageInfo = new HttpMessageInfo(null, null);
+
+    @Test
+    public void testGFServerAuthContext() {
+        checkDelegation(new GFServerAuthContext(new AnonymousServerAuthModule()));
+
+        assertFalse(AnonymousRequestCapability.isAnonymousRequest(new GFServerAuthContext(new SampleServerAuthModule()), messageInfo));
+    }
+
+    @Test
+    public void testDefaultServerAuthContext() throws Exception {
+        checkDelegation(new DefaultServerAuthContext(null, new AnonymousServerAuthModule()));
+
+        assertFalse(AnonymousRequestCapability.isAnonymousRequest(new DefaultServerAuthContext(null, new SampleServerAuthModule()), messageInfo));
+    }
+
+    @Test
+    public void testServerAuthContextImpl() throws Exception {
+        checkDelegation(AsyncValidationTest.serverAuthContext(entry(AnonymousServerAuthModule.class)));
+        checkDelegation(AsyncValidationTest.serverAuthContext(entry(AnonymousServerAuthModule.class), entry(AnonymousServerAuthModule.class)));
+
+        // A single module without the capability is enough to validate the request
+        AnonymousServerAuthModule.anonymous = true;
+        assertFalse(AnonymousRequestCapability.isAnonymousRequest(
+            AsyncValidationTest.serverAuthContext(entry(AnonymousServerAuthModule.class), entry(SampleServerAuthModule.class)), messageInfo));
+    }
+
+    @Test
+    public void testAnonymousCallerCantBeModified() {
+        Caller anonymous = Caller.ANONYMOUS;
+
+        try {
+            anonymous.setCallerPrincipal(() -> "alice");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            anonymous.addGroups(new String[] { "admin" });
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            anonymous.setGroups(Set.of("admin"));
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            anonymous.getGroups().add("admin");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        assertNull(anonymous.getName());
+        assertTrue(anonymous.getGroups().isEmpty());
+    }
+
+    private void checkDelegation(ServerAuthContext serverAuthContext) {
+        AnonymousServerAuthModule.anonymous = true;
+        assertTrue(AnonymousRequestCapability.isAnonymousRequest(serverAuthContext, messageInfo));
+
+        AnonymousServerAuthModule.anonymous = false;
+        assertFalse(AnonymousRequestCapability.isAnonymousRequest(serverAuthContext, messageInfo));
+    }
+
+    private static AppConfigurationEntry entry(Class<?> moduleClass) {
+        return new AppConfigurationEntry(moduleClass.getName(), REQUIRED, emptyMap());
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static jakarta.security.auth.message.AuthStatus.FAILURE;
+import static jakarta.security.auth.message.AuthStatus.SEND_FAILURE;
+import static jakarta.security.auth.message.AuthStatus.SUCCESS;
+import static java.util.Collections.emptyMap;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.REQUIRED;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.SUFFICIENT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import jakarta.security.auth.message.AuthException;
+import jakarta.security.auth.message.AuthStatus;
+import jakarta.security.auth.message.MessageInfo;
+import jakarta.security.auth.message.MessagePolicy;
+import jakarta.security.auth.message.config.ServerAuthContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.security.auth.Subject;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag;
+import org.glassfish.epicyro.config.delegate.MessagePolicyDelegate;
+import org.glassfish.epicyro.config.helper.AsyncValidationCapability;
+import org.glassfish.epicyro.config.helper.JAASModulesManager;
+import org.glassfish.epicyro.config.jaas.ExtendedConfigFile;
+import org.glassfish.epicyro.config.module.context.ServerAuthContextImpl;
+import org.glassfish.epicyro.services.BaseAuthenticationService;
+import org.junit.Test;
+
+/**
+ * Checks how a stack with a single module delegates to it when validating asynchronously, and how failures are
+ * reported by {@link BaseAuthenticationService#validateRequestAsync}.
+ */
+public class AsyncValidationTest {
+
+    private static final Executor NO_EXECUTOR = runnable -> {
+        throw new AssertionError("Not expected to run on the executor");
+    };
+
+    /**
+     * Module that validates asynchronously, with the outcome set by the test.
+     */
+    public static class AsyncServerAuthModule extends SampleServerAuthModule implements AsyncValidationCapability {
+
+        static volatile AuthStatus outcome;
+        static final AtomicInteger asyncCalls = new AtomicInteger();
+
+        @Override
+        public AuthStatus validateRequest(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) throws AuthException {
+            throw new AuthException("Not expected to be called synchronously");
+        }
+
+        @Override
+        public CompletionStage<AuthStatus> validateRequestAsync(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject, Executor executor) {
+            asyncCalls.incrementAndGet();
+            return CompletableFuture.completedFuture(outcome);
+        }
+    }
+
+    @Test
+    public void testSingleModuleDelegation() throws Exception {
+        checkDelegation(SUFFICIENT, SUCCESS, SUCCESS);
+        checkDelegation(SUFFICIENT, FAILURE, SEND_FAILURE);
+        checkDelegation(REQUIRED, FAILURE, FAILURE);
+        checkDelegation(OPTIONAL, SEND_FAILURE, SEND_FAILURE);
+    }
+
+    @Test
+    public void testStackIsEvaluatedOnExecutor() throws Exception {
+        AsyncServerAuthModule.outcome = SUCCESS;
+        ServerAuthContextImpl serverAuthContext = serverAuthContext(
+            new AppConfigurationEntry(SampleServerAuthModule.class.getName(), REQUIRED, emptyMap()),
+            new AppConfigurationEntry(SampleServerAuthModule.class.getName(), REQUIRED, emptyMap()));
+
+        AtomicInteger executed = new AtomicInteger();
+        AuthStatus status = serverAuthContext.validateRequestAsync(null, new Subject(), null, runnable -> {
+            executed.incrementAndGet();
+            runnable.run();
+        }).toCompletableFuture().get();
+
+        assertSame(SUCCESS, status);
+        assertEquals(1, executed.get());
+    }
+
+    @Test
+    public void testModuleFailureIsUnwrapped() throws Exception {
+        AuthException failure = new AuthException("Identity store unavailable");
+
+        // A module without the capability is called on the executor; its exception is the cause
+        CompletionStage<AuthStatus> moduleStage = AsyncValidationCapability.validateRequestAsync(new SampleServerAuthModule() {
+            @Override
+            public AuthStatus validateRequest(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) throws AuthException {
+                throw failure;
+            }
+        }, null, new Subject(), null, Runnable::run);
+
+        try {
+            moduleStage.toCompletableFuture().join();
+            fail();
+        } catch (CompletionException e) {
+            assertSame(failure, e.getCause());
+        }
+
+        // The service reports it as an IllegalStateException with the module's exception as cause
+        BaseAuthenticationService service = new BaseAuthenticationService() {
+            @Override
+            public ServerAuthContext getServerAuthContext(MessageInfo info) {
+                return new ServerAuthContext() {
+                    @Override
+                    public AuthStatus validateRequest(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) throws AuthException {
+                        throw failure;
+                    }
+
+                    @Override
+                    public AuthStatus secureResponse(MessageInfo messageInfo, Subject serviceSubject) {
+                        return AuthStatus.SEND_SUCCESS;
+                    }
+
+                    @Override
+                    public void cleanSubject(MessageInfo messageInfo, Subject subject) {
+                    }
+                };
+            }
+        };
+
+        HttpServletRequest request = request();
+        try {
+            service.validateRequestAsync(request, response(), false, true, Runnable::run).toCompletableFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertSame(failure, e.getCause().getCause());
+        }
+
+        assertFalse(request.isAsyncStarted());
+    }
+
+    private static void checkDelegation(LoginModuleControlFlag flag, AuthStatus moduleOutcome, AuthStatus expectedStatus) throws Exception {
+        AsyncServerAuthModule.outcome = moduleOutcome;
+        int asyncCalls = AsyncServerAuthModule.asyncCalls.get();
+
+        ServerAuthContextImpl serverAuthContext = serverAuthContext(
+            new AppConfigurationEntry(AsyncServerAuthModule.class.getName(), flag, emptyMap()));
+
+        AuthStatus status = serverAuthContext.validateRequestAsync(null, new Subject(), null, NO_EXECUTOR).toCompletableFuture().get();
+
+        assertSame(flag + " " + moduleOutcome, expectedStatus, status);
+        assertEquals(asyncCalls + 1, AsyncServerAuthModule.asyncCalls.get());
+    }
+
+    static ServerAuthContextImpl serverAuthContext(AppConfigurationEntry... entries) throws AuthException {
+        ExtendedConfigFile configFile = new ExtendedConfigFile() {
+            @Override
+            public AppConfigurationEntry[] getAppConfigurationEntry(String applicationName) {
+                return entries;
+            }
+        };
+
+        MessagePolicyDelegate policyDelegate = new MessagePolicyDelegate() {
+            @Override
+            public MessagePolicy getRequestPolicy(String authContextID, Map<String, ?> properties) {
+                return null;
+            }
+
+            @Override
+            public MessagePolicy getResponsePolicy(String authContextID, Map<String, ?> properties) {
+                return null;
+            }
+
+            @Override
+            public Class<?>[] getMessageTypes() {
+                return new Class<?>[] { HttpServletRequest.class, HttpServletResponse.class };
+            }
+
+            @Override
+            public String getAuthContextID(MessageInfo messageInfo) {
+                return null;
+            }
+
+            @Override
+            public boolean isProtected() {
+                return true;
+            }
+        };
+
+        return new ServerAuthContextImpl(new JAASModulesManager(false, configFile, emptyMap(), "test"), policyDelegate, "test", null, null, emptyMap());
+    }
+
+    private static HttpServletRequest request() {
+        Map<String, Object> attributes = new HashMap<>();
+
+        return (HttpServletRequest) Proxy.newProxyInstance(
+            AsyncValidationTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getAttribute":
+                        return attributes.get(args[0]);
+                    case "setAttribute":
+                        attributes.put((String) args[0], args[1]);
+                        return null;
+                    case "isAsyncSupported":
+                        return true;
+                    case "isAsyncStarted":
+                        return false;
+                    case "startAsync":
+                        throw new AssertionError("Asynchronous mode is up to the caller");
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private static HttpServletResponse response() {
+        return (HttpServletResponse) Proxy.newProxyInstance(
+            AsyncValidationTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletResponse.class },
+            (proxy, method, args) -> method.getReturnType() == boolean.class ? false : method.getReturnType() == int.class ? 0 : null);
+    }
+}
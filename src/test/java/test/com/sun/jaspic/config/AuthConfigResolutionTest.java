@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import jakarta.security.auth.message.config.AuthConfigFactory;
+import jakarta.security.auth.message.config.AuthConfigProvider;
+import jakarta.security.auth.message.config.ClientAuthConfig;
+import jakarta.security.auth.message.config.RegistrationListener;
+import jakarta.security.auth.message.config.ServerAuthConfig;
+import jakarta.security.auth.message.module.ServerAuthModule;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.security.auth.callback.CallbackHandler;
+import org.glassfish.epicyro.services.AuthConfigRegistrationWrapper;
+import org.glassfish.epicyro.services.BaseAuthenticationService;
+import org.junit.Test;
+
+/**
+ * Checks how {@link BaseAuthenticationService} resolves and keeps the provider and the auth configs, and that
+ * an invalidation while resolving isn't lost.
+ */
+public class AuthConfigResolutionTest {
+
+    private static final String LAYER = "HttpServlet";
+    private static final String APP_CONTEXT = "test";
+
+    static class TestAuthConfigProvider implements AuthConfigProvider {
+
+        final AtomicInteger serverConfigs = new AtomicInteger();
+        final AtomicInteger clientConfigs = new AtomicInteger();
+        volatile Runnable onGetServerAuthConfig;
+
+        @Override
+        public ServerAuthConfig getServerAuthConfig(String layer, String appContext, CallbackHandler handler) {
+            serverConfigs.incrementAndGet();
+            Runnable hook = onGetServerAuthConfig;
+            if (hook != null) {
+                onGetServerAuthConfig = null;
+                hook.run();
+            }
+
+            return newConfig(ServerAuthConfig.class);
+        }
+
+        @Override
+        public ClientAuthConfig getClientAuthConfig(String layer, String appContext, CallbackHandler handler) {
+            clientConfigs.incrementAndGet();
+            return newConfig(ClientAuthConfig.class);
+        }
+
+        @Override
+        public void refresh() {
+        }
+
+        private static <T> T newConfig(Class<T> type) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                return null;
+            }));
+        }
+    }
+
+    static class TestAuthConfigFactory extends AuthConfigFactory {
+
+        final AuthConfigProvider provider;
+        final AtomicInteger providerLookups = new AtomicInteger();
+
+        TestAuthConfigFactory(AuthConfigProvider provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public AuthConfigProvider getConfigProvider(String layer, String appContext, RegistrationListener listener) {
+            providerLookups.incrementAndGet();
+            return provider;
+        }
+
+        @Override
+        public String registerConfigProvider(String className, Map<String, String> properties, String layer, String appContext, String description) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String registerConfigProvider(AuthConfigProvider provider, String layer, String appContext, String description) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String registerServerAuthModule(ServerAuthModule serverAuthModule, Object context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeServerAuthModule(Object context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeRegistration(String registrationID) {
+            return false;
+        }
+
+        @Override
+        public String[] detachListener(RegistrationListener listener, String layer, String appContext) {
+            return new String[0];
+        }
+
+        @Override
+        public String[] getRegistrationIDs(AuthConfigProvider provider) {
+            return new String[0];
+        }
+
+        @Override
+        public RegistrationContext getRegistrationContext(String registrationID) {
+            return null;
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+
+    static class TestAuthenticationService extends BaseAuthenticationService {
+
+        TestAuthenticationService(AuthConfigFactory factory) {
+            messageLayer = LAYER;
+            appContextId = APP_CONTEXT;
+            authConfigFactory = factory;
+            listenerWrapper = new AuthConfigRegistrationWrapper(factory, LAYER, APP_CONTEXT, null);
+        }
+    }
+
+    @Test
+    public void testServerAndClientConfigsAreResolvedOnce() throws Exception {
+        TestAuthConfigProvider provider = new TestAuthConfigProvider();
+        TestAuthConfigFactory factory = new TestAuthConfigFactory(provider);
+        BaseAuthenticationService service = new TestAuthenticationService(factory);
+
+        ServerAuthConfig serverConfig = service.getServerAuthConfig();
+        assertNotNull(serverConfig);
+        assertSame(serverConfig, service.getServerAuthConfig());
+
+        // Resolving the client side keeps the server config of the snapshot
+        ClientAuthConfig clientConfig = service.getClientAuthConfig();
+        assertNotNull(clientConfig);
+        assertSame(clientConfig, service.getClientAuthConfig());
+        assertSame(serverConfig, service.getServerAuthConfig());
+
+        assertEquals(1, factory.providerLookups.get());
+        assertEquals(1, provider.serverConfigs.get());
+        assertEquals(1, provider.clientConfigs.get());
+    }
+
+    @Test
+    public void testMissingProviderIsResolvedOnce() throws Exception {
+        TestAuthConfigFactory factory = new TestAuthConfigFactory(null);
+        BaseAuthenticationService service = new TestAuthenticationService(factory);
+
+        assertNull(service.getServerAuthConfig());
+        assertNull(service.getClientAuthConfig());
+        assertNull(service.getServerAuthConfig());
+        assertEquals(1, factory.providerLookups.get());
+    }
+
+    @Test
+    public void testNotifyInvalidatesConfigs() throws Exception {
+        TestAuthConfigProvider provider = new TestAuthConfigProvider();
+        TestAuthConfigFactory factory = new TestAuthConfigFactory(provider);
+        BaseAuthenticationService service = new TestAuthenticationService(factory);
+
+        ServerAuthConfig serverConfig = service.getServerAuthConfig();
+        service.getRegistrationListener().notify(LAYER, APP_CONTEXT);
+
+        assertNotSame(serverConfig, service.getServerAuthConfig());
+        assertEquals(2, factory.providerLookups.get());
+        assertEquals(2, provider.serverConfigs.get());
+    }
+
+    @Test
+    public void testNotifyWhileResolvingIsNotLost() throws Exception {
+        TestAuthConfigProvider provider = new TestAuthConfigProvider();
+        TestAuthConfigFactory factory = new TestAuthConfigFactory(provider);
+        BaseAuthenticationService service = new TestAuthenticationService(factory);
+
+        RegistrationListener listener = service.getRegistrationListener();
+        provider.onGetServerAuthConfig = () -> listener.notify(LAYER, APP_CONTEXT);
+
+        // The config obtained before the notification is returned, but not kept
+        ServerAuthConfig staleConfig = service.getServerAuthConfig();
+        assertNotNull(staleConfig);
+
+        ServerAuthConfig serverConfig = service.getServerAuthConfig();
+        assertNotSame(staleConfig, serverConfig);
+        assertSame(serverConfig, service.getServerAuthConfig());
+        assertEquals(2, factory.providerLookups.get());
+        assertEquals(2, provider.serverConfigs.get());
+    }
+
+    @Test
+    public void testDisableWhileResolvingIsNotLost() throws Exception {
+        TestAuthConfigProvider provider = new TestAuthConfigProvider();
+        TestAuthConfigFactory factory = new TestAuthConfigFactory(provider);
+        BaseAuthenticationService service = new TestAuthenticationService(factory);
+
+        provider.onGetServerAuthConfig = service::disable;
+
+        assertNotNull(service.getServerAuthConfig());
+        assertNull(service.getServerAuthConfig());
+
+        // Nothing was published for the disabled service, so enabling it again resolves anew
+        service.getRegistrationWrapper().setEnabled(true);
+        assertNotNull(service.getServerAuthConfig());
+        assertEquals(2, factory.providerLookups.get());
+        assertEquals(2, provider.serverConfigs.get());
+    }
+}
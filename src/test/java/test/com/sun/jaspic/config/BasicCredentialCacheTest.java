@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static jakarta.security.auth.message.AuthStatus.SEND_FAILURE;
+import static jakarta.security.auth.message.AuthStatus.SUCCESS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import jakarta.security.auth.message.AuthStatus;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.security.auth.Subject;
+import org.glassfish.epicyro.config.helper.BaseCallbackHandler;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.helper.CallerPrincipal;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
+import org.glassfish.epicyro.config.servlet.sam.BasicServerAuthModule;
+import org.glassfish.epicyro.services.InMemoryStore;
+import org.junit.Test;
+
+/**
+ * Checks that the Basic module caches verified credentials for no longer than their time to live, up to the
+ * maximum size, and not beyond a change of the identity store; and that the credentials are decoded as RFC 7617
+ * says.
+ *
+ * <p>
+ * The cache itself is package-private, so it's checked through the number of password lookups of the module.
+ */
+public class BasicCredentialCacheTest {
+
+    /**
+     * Knows the passwords of alice and bob, and counts the lookups.
+     */
+    static class CountingCallbackHandler extends BaseCallbackHandler {
+
+        final AtomicInteger lookups = new AtomicInteger();
+        volatile String lastUsername;
+        volatile String lastPassword;
+        volatile boolean changeDuringLookup;
+
+        @Override
+        protected Caller validatePassword(String username, String password) {
+            lookups.incrementAndGet();
+            lastUsername = username;
+            lastPassword = password;
+
+            if (changeDuringLookup) {
+                changeDuringLookup = false;
+                change();
+            }
+
+            if (("alice".equals(username) || "bob".equals(username)) && "secret".equals(password)) {
+                return new Caller(new CallerPrincipal(username), Set.of("users"));
+            }
+
+            return null;
+        }
+
+        void change() {
+            identityStoreChanged();
+        }
+    }
+
+    private final CountingCallbackHandler handler = new CountingCallbackHandler();
+
+    @Test
+    public void testVerifiedCredentialsAreCached() throws Exception {
+        BasicServerAuthModule module = module("60", null);
+
+        assertSame(SUCCESS, validate(module, "alice:secret"));
+
+        Subject subject = new Subject();
+        assertSame(SUCCESS, validate(module, "alice:secret", subject));
+        assertEquals(1, handler.lookups.get());
+
+        // The cached outcome gives the same caller
+        Caller caller = Caller.fromSubject(subject);
+        assertEquals("alice", caller.getName());
+        assertEquals(Set.of("users"), caller.getGroups());
+    }
+
+    @Test
+    public void testNothingIsCachedByDefault() throws Exception {
+        BasicServerAuthModule module = module(null, null);
+
+        assertSame(SUCCESS, validate(module, "alice:secret"));
+        assertSame(SUCCESS, validate(module, "alice:secret"));
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testFailedVerificationsAreNotCached() throws Exception {
+        BasicServerAuthModule module = module("60", null);
+
+        assertSame(SEND_FAILURE, validate(module, "alice:other"));
+        assertSame(SEND_FAILURE, validate(module, "alice:other"));
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testEntriesExpireAndMakeRoom() throws Exception {
+        BasicServerAuthModule module = module("1", "1");
+
+        validate(module, "alice:secret");
+        validate(module, "alice:secret");
+        assertEquals(1, handler.lookups.get());
+
+        Thread.sleep(1100);
+
+        // The expired entry of alice makes room for bob
+        validate(module, "bob:secret");
+        validate(module, "bob:secret");
+        assertEquals(2, handler.lookups.get());
+
+        validate(module, "alice:secret");
+        assertEquals(3, handler.lookups.get());
+    }
+
+    @Test
+    public void testNothingIsAddedBeyondMaxSize() throws Exception {
+        BasicServerAuthModule module = module("60", "1");
+
+        validate(module, "alice:secret");
+        validate(module, "bob:secret");
+        validate(module, "alice:secret");
+        validate(module, "bob:secret");
+
+        // Only alice was cached
+        assertEquals(3, handler.lookups.get());
+    }
+
+    @Test
+    public void testHandlerStoreChangeInvalidates() throws Exception {
+        BasicServerAuthModule module = module("60", null);
+
+        validate(module, "alice:secret");
+        handler.change();
+        validate(module, "alice:secret");
+
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testInMemoryStoreChangeInvalidates() throws Exception {
+        BasicServerAuthModule module = module("60", null);
+
+        validate(module, "alice:secret");
+        InMemoryStore.addCredential(UUID.randomUUID().toString(), "password", singletonList("users"));
+        validate(module, "alice:secret");
+
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testVerificationDuringInvalidationIsNotCached() throws Exception {
+        BasicServerAuthModule module = module("60", null);
+
+        handler.changeDuringLookup = true;
+        validate(module, "alice:secret");
+        validate(module, "alice:secret");
+        validate(module, "alice:secret");
+
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testCredentialsAreUtf8AndSplitAtFirstColon() throws Exception {
+        BasicServerAuthModule module = module(null, null);
+
+        validate(module, "jürgen:päss:wörd");
+        assertEquals("jürgen", handler.lastUsername);
+        assertEquals("päss:wörd", handler.lastPassword);
+
+        validate(module, ":secret");
+        assertEquals("", handler.lastUsername);
+        assertEquals("secret", handler.lastPassword);
+
+        // Without a colon there's nothing to look up
+        assertSame(SEND_FAILURE, validate(module, "alice"));
+        assertEquals(2, handler.lookups.get());
+    }
+
+    private BasicServerAuthModule module(String timeToLive, String maxSize) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("realmName", "test");
+        if (timeToLive != null) {
+            options.put(BasicServerAuthModule.CREDENTIAL_CACHE_TTL, timeToLive);
+        }
+        if (maxSize != null) {
+            options.put(BasicServerAuthModule.CREDENTIAL_CACHE_SIZE, maxSize);
+        }
+
+        BasicServerAuthModule module = new BasicServerAuthModule();
+        module.initialize(null, null, handler, options);
+
+        return module;
+    }
+
+    private static AuthStatus validate(BasicServerAuthModule module, String credentials) throws Exception {
+        return validate(module, credentials, new Subject());
+    }
+
+    private static AuthStatus validate(BasicServerAuthModule module, String credentials, Subject subject) throws Exception {
+        String authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(UTF_8));
+
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+            BasicCredentialCacheTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class },
+            (proxy, method, args) -> method.getName().equals("getHeader") && "Authorization".equals(args[0]) ? authorization : null);
+
+        HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(
+            BasicCredentialCacheTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletResponse.class },
+            (proxy, method, args) -> null);
+
+        HttpMessageInfo messageInfo = new HttpMessageInfo(request, response);
+        HttpMessageInfo.setMandatory(messageInfo, true);
+
+        return module.validateRequest(messageInfo, subject, null);
+    }
+}
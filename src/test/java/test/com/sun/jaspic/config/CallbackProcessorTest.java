@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import jakarta.security.auth.message.callback.CallerPrincipalCallback;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.TextOutputCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import org.glassfish.epicyro.config.helper.BaseCallbackHandler;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.junit.Test;
+
+/**
+ * Checks how {@link BaseCallbackHandler} dispatches callbacks to the registered processors, and to the hooks of
+ * handlers written before these could be registered.
+ */
+public class CallbackProcessorTest {
+
+    interface TokenCallback extends Callback {
+    }
+
+    static class NamedTokenCallback extends NameCallback implements TokenCallback {
+
+        private static final long serialVersionUID = 1L;
+
+        NamedTokenCallback(String name) {
+            super("token");
+            setName(name);
+        }
+    }
+
+    static class ProcessingCallbackHandler extends BaseCallbackHandler {
+
+        final List<String> processed = new ArrayList<>();
+
+        ProcessingCallbackHandler() {
+            registerCallbackProcessor(NameCallback.class, callback -> processed.add("name " + callback.getName()));
+            registerCallbackProcessor(TokenCallback.class, callback -> processed.add("token"));
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    static class LegacyCallbackHandler extends BaseCallbackHandler {
+
+        final List<String> processed = new ArrayList<>();
+
+        LegacyCallbackHandler() {
+            registerCallbackProcessor(TextOutputCallback.class, callback -> {
+                throw new IOException(callback.getMessage());
+            });
+        }
+
+        @Override
+        protected boolean isSupportedCallback(Callback callback) {
+            return callback instanceof NameCallback || super.isSupportedCallback(callback);
+        }
+
+        @Override
+        protected void processCallback(Callback callback) throws UnsupportedCallbackException {
+            if (callback instanceof NameCallback nameCallback) {
+                processed.add("legacy " + nameCallback.getName());
+            } else {
+                super.processCallback(callback);
+            }
+        }
+    }
+
+    @Test
+    public void testDispatch() throws Exception {
+        ProcessingCallbackHandler handler = new ProcessingCallbackHandler();
+
+        NameCallback nameCallback = new NameCallback("name");
+        nameCallback.setName("alice");
+        Subject subject = new Subject();
+
+        handler.handle(new Callback[] { nameCallback, new CallerPrincipalCallback(subject, "bob") });
+
+        assertEquals(List.of("name alice"), handler.processed);
+        assertEquals("bob", Caller.fromSubject(subject).getCallerPrincipal().getName());
+    }
+
+    @Test
+    public void testSubtypeMatch() throws Exception {
+        ProcessingCallbackHandler handler = new ProcessingCallbackHandler();
+
+        // The processor for the superclass wins over the one for the interface
+        handler.handle(new Callback[] { new NamedTokenCallback("carol") });
+        assertEquals(List.of("name carol"), handler.processed);
+
+        // Only the interface matches
+        handler.handle(new Callback[] { new TokenCallback() { } });
+        assertEquals(List.of("name carol", "token"), handler.processed);
+    }
+
+    @Test
+    public void testUnsupportedCallback() throws Exception {
+        ProcessingCallbackHandler handler = new ProcessingCallbackHandler();
+
+        NameCallback nameCallback = new NameCallback("name");
+        Callback unsupported = new Callback() { };
+
+        try {
+            handler.handle(new Callback[] { nameCallback, unsupported });
+            fail();
+        } catch (UnsupportedCallbackException e) {
+            assertSame(unsupported, e.getCallback());
+        }
+
+        // None of the callbacks are processed
+        assertTrue(handler.processed.isEmpty());
+    }
+
+    @Test
+    public void testLegacyHooks() throws Exception {
+        LegacyCallbackHandler handler = new LegacyCallbackHandler();
+
+        NameCallback nameCallback = new NameCallback("name");
+        nameCallback.setName("dave");
+        Subject subject = new Subject();
+
+        handler.handle(new Callback[] { nameCallback, new CallerPrincipalCallback(subject, "erin") });
+
+        assertEquals(List.of("legacy dave"), handler.processed);
+        assertEquals("erin", Caller.fromSubject(subject).getCallerPrincipal().getName());
+
+        try {
+            handler.handle(new Callback[] { new Callback() { } });
+            fail();
+        } catch (UnsupportedCallbackException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLegacyHooksThrowIOException() throws Exception {
+        LegacyCallbackHandler handler = new LegacyCallbackHandler();
+
+        try {
+            handler.handle(new Callback[] { new TextOutputCallback(TextOutputCallback.ERROR, "broken") });
+            fail();
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.security.auth.Subject;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.helper.CallerPrincipal;
+import org.junit.Test;
+
+/**
+ * Checks that the caller found for a subject is always one that is in its principals.
+ */
+public class CallerSubjectTest {
+
+    @Test
+    public void testReplacedCaller() {
+        Subject subject = new Subject();
+        Caller alice = new Caller(new CallerPrincipal("alice"));
+        Caller bob = new Caller(new CallerPrincipal("bob"));
+
+        Caller.toSubject(subject, alice);
+        assertSame(alice, Caller.fromSubject(subject));
+
+        subject.getPrincipals().remove(alice);
+        Caller.toSubject(subject, bob);
+
+        assertSame(bob, Caller.fromSubject(subject));
+    }
+
+    @Test
+    public void testCallerReplacedOutsideToSubject() {
+        Subject subject = new Subject();
+        Caller alice = new Caller(new CallerPrincipal("alice"));
+        Caller bob = new Caller(new CallerPrincipal("bob"));
+
+        Caller.toSubject(subject, alice);
+        subject.getPrincipals().remove(alice);
+        subject.getPrincipals().add(bob);
+
+        assertSame(bob, Caller.fromSubject(subject));
+    }
+
+    @Test
+    public void testEqualCallerIsNotFound() {
+        Subject subject = new Subject();
+        Caller alice = new Caller(new CallerPrincipal("alice"));
+
+        Caller.toSubject(subject, alice);
+        subject.getPrincipals().remove(alice);
+
+        // Equal to the indexed caller, but not the same instance
+        Caller otherAlice = new Caller(new CallerPrincipal("alice"));
+        subject.getPrincipals().add(otherAlice);
+        assertSame(otherAlice, Caller.fromSubject(subject));
+
+        subject.getPrincipals().clear();
+        assertNull(Caller.fromSubject(subject));
+    }
+
+    @Test
+    public void testPrincipalsChangedConcurrently() throws Exception {
+        Subject subject = new Subject();
+        for (int i = 0; i < 8; i++) {
+            subject.getPrincipals().add(new CallerPrincipal("principal" + i));
+        }
+
+        // Behind the other principals, so that finding it goes through them while they change
+        Caller alice = new Caller(new CallerPrincipal("alice"));
+        Caller.toSubject(subject, alice);
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread changer = new Thread(() -> {
+            for (int i = 0; !done.get(); i++) {
+                CallerPrincipal principal = new CallerPrincipal("other" + (i % 8));
+                subject.getPrincipals().add(principal);
+                subject.getPrincipals().remove(principal);
+            }
+        });
+        changer.start();
+
+        try {
+            for (int i = 0; i < 1_000_000; i++) {
+                assertSame(alice, Caller.fromSubject(subject));
+            }
+        } finally {
+            done.set(true);
+            changer.join();
+        }
+    }
+}
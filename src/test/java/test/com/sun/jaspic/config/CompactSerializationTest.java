@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.enumeration;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Proxy;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.security.auth.x500.X500Principal;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.helper.CallerPrincipal;
+import org.glassfish.epicyro.config.helper.CompactObjectIO;
+import org.glassfish.epicyro.config.servlet.sam.AuthenticationData;
+import org.glassfish.epicyro.config.servlet.sam.RequestCapturePolicy;
+import org.glassfish.epicyro.config.servlet.sam.RequestData;
+import org.junit.Test;
+
+/**
+ * Checks that the objects kept in the HTTP session survive their compact serialized form, with and without
+ * compression and with fields that are <code>null</code>, and that they can still be read from the default
+ * serialized form they had before.
+ */
+public class CompactSerializationTest {
+
+    private static final String URL = "http://localhost:8080/app/protected";
+
+    // Written by the classes as they were before the compact form, with serialVersionUID 1
+    private static final String OLD_CALLER =
+        "rO0ABXNyACpvcmcuZ2xhc3NmaXNoLmVwaWN5cm8uY29uZmlnLmhlbHBlci5DYWxsZXIAAAAAAAAAAQIAAkwAD2NhbGxlclByaW5j" +
+        "aXBhbHQAGUxqYXZhL3NlY3VyaXR5L1ByaW5jaXBhbDtMAAZncm91cHN0AA9MamF2YS91dGlsL1NldDt4cHNyADNvcmcuZ2xhc3Nm" +
+        "aXNoLmVwaWN5cm8uY29uZmlnLmhlbHBlci5DYWxsZXJQcmluY2lwYWyfhx2FxhlPtgIAAUwABG5hbWV0ABJMamF2YS9sYW5nL1N0" +
+        "cmluZzt4cHQABWFsaWNlc3IAEWphdmEudXRpbC5IYXNoU2V0ukSFlZa4tzQDAAB4cHcMAAAAED9AAAAAAAACdAAFdXNlcnN0AAZh" +
+        "ZG1pbnN4";
+
+    private static final String OLD_AUTHENTICATION_DATA =
+        "rO0ABXNyADtvcmcuZ2xhc3NmaXNoLmVwaWN5cm8uY29uZmlnLnNlcnZsZXQuc2FtLkF1dGhlbnRpY2F0aW9uRGF0YQAAAAAAAAAB" +
+        "AgACTAAGZ3JvdXBzdAAPTGphdmEvdXRpbC9TZXQ7TAAJcHJpbmNpcGFsdAAZTGphdmEvc2VjdXJpdHkvUHJpbmNpcGFsO3hwc3IA" +
+        "JWphdmEudXRpbC5Db2xsZWN0aW9ucyRVbm1vZGlmaWFibGVTZXSAHZLRj5uAVQIAAHhyACxqYXZhLnV0aWwuQ29sbGVjdGlvbnMk" +
+        "VW5tb2RpZmlhYmxlQ29sbGVjdGlvbhlCAIDLXvceAgABTAABY3QAFkxqYXZhL3V0aWwvQ29sbGVjdGlvbjt4cHNyABFqYXZhLnV0" +
+        "aWwuSGFzaFNldLpEhZWWuLc0AwAAeHB3DAAAABA/QAAAAAAAAXQABXVzZXJzeHNyADNvcmcuZ2xhc3NmaXNoLmVwaWN5cm8uY29u" +
+        "ZmlnLmhlbHBlci5DYWxsZXJQcmluY2lwYWyfhx2FxhlPtgIAAUwABG5hbWV0ABJMamF2YS9sYW5nL1N0cmluZzt4cHQAA2JvYg==";
+
+    private static final String OLD_REQUEST_DATA =
+        "rO0ABXNyADRvcmcuZ2xhc3NmaXNoLmVwaWN5cm8uY29uZmlnLnNlcnZsZXQuc2FtLlJlcXVlc3REYXRhAAAAAAAAAAECAAdbAAdj" +
+        "b29raWVzdAAeW0xqYWthcnRhL3NlcnZsZXQvaHR0cC9Db29raWU7TAAHaGVhZGVyc3QAD0xqYXZhL3V0aWwvTWFwO0wAB2xvY2Fs" +
+        "ZXN0ABBMamF2YS91dGlsL0xpc3Q7TAAGbWV0aG9kdAASTGphdmEvbGFuZy9TdHJpbmc7TAAKcGFyYW1ldGVyc3EAfgACTAALcXVl" +
+        "cnlTdHJpbmdxAH4ABEwACnJlcXVlc3RVUkxxAH4ABHhwdXIAHltMamFrYXJ0YS5zZXJ2bGV0Lmh0dHAuQ29va2llOz+fuNggSzP4" +
+        "AgAAeHAAAAABc3IAG2pha2FydGEuc2VydmxldC5odHRwLkNvb2tpZbSZ2rN2YJriAgADTAAKYXR0cmlidXRlc3EAfgACTAAEbmFt" +
+        "ZXEAfgAETAAFdmFsdWVxAH4ABHhwcHQABXRoZW1ldAAEZGFya3NyABFqYXZhLnV0aWwuSGFzaE1hcAUH2sHDFmDRAwACRgAKbG9h" +
+        "ZEZhY3RvckkACXRocmVzaG9sZHhwP0AAAAAAAAx3CAAAABAAAAACdAAHWC1UcmFjZXNyABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHS" +
+        "HZnHYZ0DAAFJAARzaXpleHAAAAACdwQAAAACdAABYXQAAWJ4dAAGQWNjZXB0c3EAfgAPAAAAAXcEAAAAAXQACXRleHQvaHRtbHh4" +
+        "c3EAfgAPAAAAAXcEAAAAAXNyABBqYXZhLnV0aWwuTG9jYWxlfvgRYJww+ewDAAZJAAhoYXNoY29kZUwAB2NvdW50cnlxAH4ABEwA" +
+        "CmV4dGVuc2lvbnNxAH4ABEwACGxhbmd1YWdlcQB+AARMAAZzY3JpcHRxAH4ABEwAB3ZhcmlhbnRxAH4ABHhw/////3QAAlVTdAAA" +
+        "dAACZW5xAH4AGnEAfgAaeHh0AARQT1NUc3EAfgAMP0AAAAAAAAx3CAAAABAAAAABdAAEbmFtZXVyABNbTGphdmEubGFuZy5TdHJp" +
+        "bmc7rdJW5+kde0cCAAB4cAAAAAF0AAV2YWx1ZXh0AAZwYWdlPTF0ACNodHRwOi8vbG9jYWxob3N0OjgwODAvYXBwL3Byb3RlY3Rl" +
+        "ZA==";
+
+    @Test
+    public void testCaller() throws Exception {
+        Caller caller = roundTrip(new Caller(new CallerPrincipal("alice"), Set.of("users", "admins")));
+
+        assertEquals("alice", caller.getCallerPrincipal().getName());
+        assertEquals(Set.of("users", "admins"), caller.getGroups());
+    }
+
+    @Test
+    public void testCallerWithOtherPrincipal() throws Exception {
+        X500Principal principal = new X500Principal("CN=alice, O=Example");
+
+        Caller caller = roundTrip(new Caller(principal, Set.of("users")));
+
+        assertEquals(principal, caller.getCallerPrincipal());
+        assertEquals(Set.of("users"), caller.getGroups());
+    }
+
+    @Test
+    public void testCallerWithNullFields() throws Exception {
+        Caller caller = roundTrip(new Caller());
+
+        assertNull(caller.getCallerPrincipal());
+        assertTrue(caller.getGroups().isEmpty());
+    }
+
+    @Test
+    public void testAuthenticationData() throws Exception {
+        AuthenticationData authenticationData = roundTrip(new AuthenticationData(new CallerPrincipal("bob"), Set.of("users")));
+
+        assertEquals("bob", authenticationData.getPrincipal().getName());
+        assertEquals(Set.of("users"), authenticationData.getGroups());
+    }
+
+    @Test
+    public void testAuthenticationDataWithNullFields() throws Exception {
+        AuthenticationData authenticationData = roundTrip(new AuthenticationData(null, null));
+
+        assertNull(authenticationData.getPrincipal());
+        assertTrue(authenticationData.getGroups().isEmpty());
+    }
+
+    @Test
+    public void testRequestData() throws Exception {
+        RequestData requestData = RequestData.of(request("POST", "page=1", Map.of("name", new String[] { "value" })));
+
+        // Below the compression threshold
+        assertTrue(serialize(requestData).length < 4096);
+        assertRequestData(requestData, roundTrip(requestData));
+    }
+
+    @Test
+    public void testCompressedRequestData() throws Exception {
+        RequestData requestData = RequestData.of(request("POST", "page=1", Map.of("name", new String[] { "value".repeat(10000) })));
+
+        assertTrue(serialize(requestData).length < 10000);
+        assertRequestData(requestData, roundTrip(requestData));
+    }
+
+    @Test
+    public void testRequestDataWithNullFields() throws Exception {
+        RequestData requestData = roundTrip(
+            RequestData.of(request("POST", null, emptyMap()), new RequestCapturePolicy(null, -1, -1, true)));
+
+        assertTrue(requestData.isRedirectOnly());
+        assertEquals("POST", requestData.getMethod());
+        assertEquals(URL, requestData.getRequestURL());
+        assertNull(requestData.getQueryString());
+        assertNull(requestData.getHeaders());
+        assertNull(requestData.getParameters());
+        assertNull(requestData.getLocales());
+        assertNull(requestData.getCookies());
+        assertTrue(requestData.getHeaderValues("Accept").isEmpty());
+    }
+
+    @Test
+    public void testDefaultFormIsRead() throws Exception {
+        Caller caller = deserialize(Base64.getDecoder().decode(OLD_CALLER));
+        assertEquals("alice", caller.getCallerPrincipal().getName());
+        assertEquals(Set.of("users", "admins"), caller.getGroups());
+
+        AuthenticationData authenticationData = deserialize(Base64.getDecoder().decode(OLD_AUTHENTICATION_DATA));
+        assertEquals("bob", authenticationData.getPrincipal().getName());
+        assertEquals(Set.of("users"), authenticationData.getGroups());
+
+        RequestData requestData = deserialize(Base64.getDecoder().decode(OLD_REQUEST_DATA));
+        assertEquals("POST", requestData.getMethod());
+        assertEquals(URL + "?page=1", requestData.getFullRequestURL());
+        assertEquals(List.of("a", "b"), requestData.getHeaderValues("x-trace"));
+        assertArrayEquals(new String[] { "value" }, requestData.getParameters().get("name"));
+        assertEquals(List.of(Locale.US), requestData.getLocales());
+        assertEquals("dark", requestData.getCookies()[0].getValue());
+
+        // And written in the compact form from then on
+        assertRequestData(requestData, roundTrip(requestData));
+    }
+
+    @Test
+    public void testCorruptLengthsAreRejected() throws Exception {
+        // Encoded as the length plus one
+        assertCorruptString(-2);
+        assertCorruptString(CompactObjectIO.MAX_LENGTH + 2);
+        assertCorruptString(Integer.MAX_VALUE);
+        assertCorruptString(Integer.MIN_VALUE);
+
+        assertEquals("", CompactObjectIO.readString(input(1)));
+        assertNull(CompactObjectIO.readString(input(0)));
+    }
+
+    private static void assertCorruptString(int encodedLength) throws IOException {
+        try {
+            CompactObjectIO.readString(input(encodedLength));
+            fail("Length " + encodedLength + " was accepted");
+        } catch (StreamCorruptedException expected) {
+            // expected
+        }
+    }
+
+    private static DataInputStream input(int encodedLength) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            CompactObjectIO.writeVarInt(out, encodedLength);
+        }
+
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static void assertRequestData(RequestData expected, RequestData actual) {
+        assertEquals(expected.getMethod(), actual.getMethod());
+        assertEquals(expected.getRequestURL(), actual.getRequestURL());
+        assertEquals(expected.getQueryString(), actual.getQueryString());
+        assertEquals(expected.getHeaders(), actual.getHeaders());
+        assertEquals(expected.getLocales(), actual.getLocales());
+        assertEquals(expected.getParameters().keySet(), actual.getParameters().keySet());
+        for (Map.Entry<String, String[]> parameter : expected.getParameters().entrySet()) {
+            assertArrayEquals(parameter.getValue(), actual.getParameters().get(parameter.getKey()));
+        }
+        assertEquals(expected.getCookies().length, actual.getCookies().length);
+        for (int i = 0; i < expected.getCookies().length; i++) {
+            assertEquals(expected.getCookies()[i].getName(), actual.getCookies()[i].getName());
+            assertEquals(expected.getCookies()[i].getValue(), actual.getCookies()[i].getValue());
+            assertEquals(expected.getCookies()[i].getAttributes(), actual.getCookies()[i].getAttributes());
+        }
+        assertEquals(expected.getHeaderValues("X-Trace"), actual.getHeaderValues("x-trace"));
+    }
+
+    private static HttpServletRequest request(String method, String queryString, Map<String, String[]> parameters) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("Accept", singletonList("text/html"));
+        headers.put("X-Trace", List.of("a", "b"));
+
+        Cookie cookie = new Cookie("theme", "dark");
+        cookie.setAttribute("SameSite", "Strict");
+
+        return (HttpServletRequest) Proxy.newProxyInstance(
+            CompactSerializationTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class },
+            (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "getMethod":
+                        return method;
+                    case "getRequestURL":
+                        return new StringBuffer(URL);
+                    case "getQueryString":
+                        return queryString;
+                    case "getHeaderNames":
+                        return enumeration(headers.keySet());
+                    case "getHeaders":
+                        return enumeration(headers.get(args[0]));
+                    case "getParameterMap":
+                        return parameters;
+                    case "getCookies":
+                        return new Cookie[] { cookie };
+                    case "getLocales":
+                        return enumeration(List.of(Locale.US, Locale.FRENCH));
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private static <T> T roundTrip(T object) throws Exception {
+        return deserialize(serialize(object));
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (T) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static org.junit.Assert.assertSame;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.CompletableFuture;
+import org.glassfish.epicyro.config.helper.ContextClassLoaderExecutor;
+import org.junit.Test;
+
+/**
+ * Checks that tasks run with the context class loader of the thread that submitted them, and that the pool threads
+ * don't keep it.
+ */
+public class ContextClassLoaderExecutorTest {
+
+    @Test
+    public void testContextClassLoaderOfSubmitter() throws Exception {
+        ContextClassLoaderExecutor executor = new ContextClassLoaderExecutor("test-", 1);
+
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        ClassLoader appClassLoader = new URLClassLoader(new URL[0], original);
+
+        Thread.currentThread().setContextClassLoader(appClassLoader);
+        try {
+            assertSame(appClassLoader, CompletableFuture.supplyAsync(() -> Thread.currentThread().getContextClassLoader(), executor).get());
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+
+        // The same pool thread, submitted to by a thread of another application
+        assertSame(original, CompletableFuture.supplyAsync(() -> Thread.currentThread().getContextClassLoader(), executor).get());
+    }
+}
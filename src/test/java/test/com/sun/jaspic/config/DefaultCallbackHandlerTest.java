@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import org.glassfish.epicyro.config.helper.AuthMessagePolicy;
+import org.glassfish.epicyro.config.helper.CallbackHandlerFactory;
+import org.glassfish.epicyro.config.helper.SharedCallbackHandler;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks which default callback handlers are shared, and that the shared ones are kept per handler class.
+ */
+public class DefaultCallbackHandlerTest {
+
+    private static final String HANDLER_CLASS_PROPERTY = "security.jaspic.config.ConfigHelper.CallbackHandler";
+
+    public static class PerCallHandler implements CallbackHandler {
+
+        @Override
+        public void handle(Callback[] callbacks) {
+        }
+    }
+
+    public static class SharedHandler extends PerCallHandler implements SharedCallbackHandler {
+    }
+
+    public static class HandlerFactory implements CallbackHandlerFactory {
+
+        static final AtomicInteger factories = new AtomicInteger();
+        static final AtomicInteger handlers = new AtomicInteger();
+
+        public HandlerFactory() {
+            factories.incrementAndGet();
+        }
+
+        @Override
+        public CallbackHandler createCallbackHandler() {
+            handlers.incrementAndGet();
+            return new PerCallHandler();
+        }
+    }
+
+    /**
+     * Loads its own copy of the shared handler class, and delegates everything else.
+     */
+    static class HandlerClassLoader extends URLClassLoader {
+
+        HandlerClassLoader() {
+            super(new URL[] { SharedHandler.class.getProtectionDomain().getCodeSource().getLocation() }, SharedHandler.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(SharedHandler.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loadedClass = findLoadedClass(name);
+                return loadedClass != null ? loadedClass : findClass(name);
+            }
+        }
+    }
+
+    @After
+    public void clearHandlerClass() {
+        System.clearProperty(HANDLER_CLASS_PROPERTY);
+    }
+
+    @Test
+    public void testDefaultHandlerIsShared() {
+        CallbackHandler handler = AuthMessagePolicy.getDefaultCallbackHandler();
+
+        assertTrue(handler instanceof SharedCallbackHandler);
+        assertSame(handler, AuthMessagePolicy.getDefaultCallbackHandler());
+    }
+
+    @Test
+    public void testSharedHandler() {
+        System.setProperty(HANDLER_CLASS_PROPERTY, SharedHandler.class.getName());
+
+        CallbackHandler handler = AuthMessagePolicy.getDefaultCallbackHandler();
+        assertSame(SharedHandler.class, handler.getClass());
+        assertSame(handler, AuthMessagePolicy.getDefaultCallbackHandler());
+    }
+
+    @Test
+    public void testHandlerFactory() {
+        System.setProperty(HANDLER_CLASS_PROPERTY, HandlerFactory.class.getName());
+        int factories = HandlerFactory.factories.get();
+        int handlers = HandlerFactory.handlers.get();
+
+        CallbackHandler handler = AuthMessagePolicy.getDefaultCallbackHandler();
+        assertNotSame(handler, AuthMessagePolicy.getDefaultCallbackHandler());
+
+        // A single factory at most, which is asked each time
+        assertTrue(HandlerFactory.factories.get() - factories <= 1);
+        assertEquals(handlers + 2, HandlerFactory.handlers.get());
+    }
+
+    @Test
+    public void testPerCallHandler() {
+        System.setProperty(HANDLER_CLASS_PROPERTY, PerCallHandler.class.getName());
+
+        CallbackHandler handler = AuthMessagePolicy.getDefaultCallbackHandler();
+        assertSame(PerCallHandler.class, handler.getClass());
+        assertNotSame(handler, AuthMessagePolicy.getDefaultCallbackHandler());
+    }
+
+    @Test
+    public void testSharedHandlersArePerClassLoader() throws Exception {
+        System.setProperty(HANDLER_CLASS_PROPERTY, SharedHandler.class.getName());
+        HandlerClassLoader loader = new HandlerClassLoader();
+
+        CallbackHandler handler = AuthMessagePolicy.getDefaultCallbackHandler();
+        CallbackHandler otherHandler = getDefaultCallbackHandler(loader);
+        assertNotSame(SharedHandler.class, otherHandler.getClass());
+
+        // Alternating between the loaders doesn't replace either handler
+        assertSame(handler, AuthMessagePolicy.getDefaultCallbackHandler());
+        assertSame(otherHandler, getDefaultCallbackHandler(loader));
+        assertSame(handler, AuthMessagePolicy.getDefaultCallbackHandler());
+    }
+
+    @Test
+    public void testClassLoaderIsNotKept() throws Exception {
+        System.setProperty(HANDLER_CLASS_PROPERTY, SharedHandler.class.getName());
+        HandlerClassLoader loader = new HandlerClassLoader();
+        getDefaultCallbackHandler(loader);
+
+        WeakReference<ClassLoader> loaderReference = new WeakReference<>(loader);
+        loader.close();
+        loader = null;
+
+        for (int i = 0; i < 50 && loaderReference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertNull(loaderReference.get());
+    }
+
+    private static CallbackHandler getDefaultCallbackHandler(ClassLoader loader) {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            return AuthMessagePolicy.getDefaultCallbackHandler();
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+}
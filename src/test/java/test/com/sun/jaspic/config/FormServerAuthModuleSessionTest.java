@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static jakarta.security.auth.message.AuthStatus.SEND_CONTINUE;
+import static jakarta.security.auth.message.AuthStatus.SUCCESS;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyEnumeration;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.enumeration;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.security.auth.message.AuthStatus;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.security.auth.Subject;
+import org.glassfish.epicyro.config.helper.AuthMessagePolicy;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
+import org.glassfish.epicyro.config.servlet.sam.FormServerAuthModule;
+import org.glassfish.epicyro.services.InMemoryStore;
+import org.junit.Test;
+
+/**
+ * Checks that every step of a FORM authentication dialog reads the dialog state from the session once and writes
+ * it back at most once.
+ */
+public class FormServerAuthModuleSessionTest {
+
+    private static final String PROTECTED_URL = "http://localhost:8080/app/protected";
+    private static final String LOGIN_POSTBACK_URL = "http://localhost:8080/app/j_security_check";
+
+    private final List<String> sessionOperations = new ArrayList<>();
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+    private HttpSession session;
+
+    private String forwardedTo;
+    private String redirectedTo;
+
+    @Test
+    public void testSessionOperationsPerStep() throws Exception {
+        InMemoryStore.addCredential("form-session-test", "secret", singletonList("users"));
+
+        FormServerAuthModule module = new FormServerAuthModule();
+        Map<String, String> options = new HashMap<>();
+        options.put("formLoginPage", "/login.jsp");
+        options.put("formErrorPage", "/error.jsp");
+        module.initialize(null, null, AuthMessagePolicy.getDefaultCallbackHandler(), options);
+
+        // 1. Protected resource requested without a session: the request is saved and the caller sent to the login page
+        assertEquals(SEND_CONTINUE, validate(module, "GET", PROTECTED_URL, emptyMap(), new Subject()));
+        assertEquals("/login.jsp", forwardedTo);
+        assertEquals(asList("getSession(false)", "getSession()", "setAttribute"), sessionOperations);
+
+        // 2. Login postback: the authentication is saved and the caller sent back to the saved request
+        Map<String, String[]> credentials = new HashMap<>();
+        credentials.put("j_username", new String[] { "form-session-test" });
+        credentials.put("j_password", new String[] { "secret" });
+
+        assertEquals(SEND_CONTINUE, validate(module, "POST", LOGIN_POSTBACK_URL, credentials, new Subject()));
+        assertEquals(PROTECTED_URL, redirectedTo);
+        assertEquals(asList("getSession(false)", "getAttribute", "setAttribute"), sessionOperations);
+
+        // 3. Back on the saved request: the caller is authenticated and the dialog state removed
+        Subject clientSubject = new Subject();
+
+        assertEquals(SUCCESS, validate(module, "GET", PROTECTED_URL, emptyMap(), clientSubject));
+        assertEquals(asList("getSession(false)", "getAttribute", "removeAttribute"), sessionOperations);
+        assertTrue(sessionAttributes.isEmpty());
+
+        Principal callerPrincipal = clientSubject.getPrincipals().stream()
+            .filter(principal -> "form-session-test".equals(principal.getName()))
+            .findFirst()
+            .orElse(null);
+        assertNotNull(callerPrincipal);
+    }
+
+    private AuthStatus validate(FormServerAuthModule module, String method, String requestURL, Map<String, String[]> parameters, Subject clientSubject) throws Exception {
+        sessionOperations.clear();
+        forwardedTo = null;
+        redirectedTo = null;
+
+        HttpMessageInfo messageInfo = new HttpMessageInfo(request(method, requestURL, parameters), response());
+        HttpMessageInfo.setMandatory(messageInfo, true);
+
+        return module.validateRequest(messageInfo, clientSubject, null);
+    }
+
+    private HttpServletRequest request(String method, String requestURL, Map<String, String[]> parameters) {
+        String requestURI = requestURL.substring(requestURL.indexOf('/', "http://".length()));
+
+        return proxy(HttpServletRequest.class, (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "getSession":
+                    boolean create = args == null || (Boolean) args[0];
+                    sessionOperations.add(args == null ? "getSession()" : "getSession(" + args[0] + ")");
+                    if (session == null && create) {
+                        session = session();
+                    }
+                    return session;
+                case "getMethod":
+                    return method;
+                case "getRequestURL":
+                    return new StringBuffer(requestURL);
+                case "getRequestURI":
+                    return requestURI;
+                case "getParameter":
+                    String[] values = parameters.get(args[0]);
+                    return values == null ? null : values[0];
+                case "getParameterMap":
+                    return parameters;
+                case "getHeaderNames":
+                case "getHeaders":
+                    return emptyEnumeration();
+                case "getLocales":
+                    return enumeration(singletonList(Locale.ENGLISH));
+                case "getRequestDispatcher":
+                    return proxy(RequestDispatcher.class, (dispatcher, forward, forwardArgs) -> {
+                        forwardedTo = (String) args[0];
+                        return null;
+                    });
+                default:
+                    // getCookies, getQueryString, getUserPrincipal, getAttribute
+                    return null;
+            }
+        });
+    }
+
+    private HttpServletResponse response() {
+        return proxy(HttpServletResponse.class, (proxy, m, args) -> {
+            if (m.getName().equals("sendRedirect")) {
+                redirectedTo = (String) args[0];
+            }
+            return null;
+        });
+    }
+
+    private HttpSession session() {
+        return proxy(HttpSession.class, (proxy, m, args) -> {
+            sessionOperations.add(m.getName());
+            switch (m.getName()) {
+                case "getAttribute":
+                    return sessionAttributes.get(args[0]);
+                case "setAttribute":
+                    sessionAttributes.put((String) args[0], args[1]);
+                    return null;
+                case "removeAttribute":
+                    sessionAttributes.remove(args[0]);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(m.getName());
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FormServerAuthModuleSessionTest.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static jakarta.security.auth.message.AuthStatus.SEND_CONTINUE;
+import static jakarta.security.auth.message.AuthStatus.SUCCESS;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Collections.emptyEnumeration;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.enumeration;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.security.auth.message.AuthException;
+import jakarta.security.auth.message.AuthStatus;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.Subject;
+import org.glassfish.epicyro.config.helper.AuthMessagePolicy;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
+import org.glassfish.epicyro.config.servlet.sam.FormServerAuthModule;
+import org.glassfish.epicyro.services.InMemoryStore;
+import org.junit.Test;
+
+/**
+ * Checks that a stateless FORM authentication dialog keeps the saved request in a cookie, and the authenticated
+ * caller only in the session, and that the cookie is only accepted when it was signed with one of the configured
+ * secrets, hasn't expired and wasn't tampered with.
+ */
+public class FormServerAuthModuleStatelessTest {
+
+    private static final String PROTECTED_URL = "http://localhost:8080/app/protected";
+    private static final String LOGIN_POSTBACK_URL = "http://localhost:8080/app/j_security_check";
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(US_ASCII));
+
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+    private final Map<String, Cookie> cookies = new HashMap<>();
+    private HttpSession session;
+
+    private String redirectedTo;
+
+    @Test(expected = AuthException.class)
+    public void testSecretsAreRequired() throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put(FormServerAuthModule.STATELESS, "true");
+
+        new FormServerAuthModule().initialize(null, null, AuthMessagePolicy.getDefaultCallbackHandler(), options);
+    }
+
+    @Test
+    public void testAuthenticationIsNotKeptInCookie() throws Exception {
+        InMemoryStore.addCredential("form-stateless-test", "secret", singletonList("users"));
+
+        FormServerAuthModule module = module(4000);
+
+        // 1. The saved request goes into the cookie, and no session is created
+        assertEquals(SEND_CONTINUE, validate(module, "GET", PROTECTED_URL, emptyMap(), new Subject()));
+        assertNull(session);
+        Cookie dialogCookie = cookies.values().iterator().next();
+        assertTrue(dialogCookie.getMaxAge() > 0);
+
+        // 2. The authenticated caller goes into the session, and the cookie is removed
+        Map<String, String[]> credentials = new HashMap<>();
+        credentials.put("j_username", new String[] { "form-stateless-test" });
+        credentials.put("j_password", new String[] { "secret" });
+
+        assertEquals(SEND_CONTINUE, validate(module, "POST", LOGIN_POSTBACK_URL, credentials, new Subject()));
+        assertEquals(PROTECTED_URL, redirectedTo);
+        assertNotNull(session);
+        assertEquals(1, sessionAttributes.size());
+        assertTrue(cookies.isEmpty());
+
+        // 3. Back on the saved request, the caller is authenticated from the session
+        Subject clientSubject = new Subject();
+        assertEquals(SUCCESS, validate(module, "GET", PROTECTED_URL, emptyMap(), clientSubject));
+        assertTrue(sessionAttributes.isEmpty());
+        assertTrue(clientSubject.getPrincipals().stream().anyMatch(principal -> "form-stateless-test".equals(principal.getName())));
+
+        // Replaying the cookie of step 1 only restarts the dialog
+        cookies.put(dialogCookie.getName(), dialogCookie);
+        Subject replaySubject = new Subject();
+        assertEquals(SEND_CONTINUE, validate(module, "GET", PROTECTED_URL, emptyMap(), replaySubject));
+        assertFalse(replaySubject.getPrincipals().stream().anyMatch(principal -> "form-stateless-test".equals(principal.getName())));
+    }
+
+    @Test
+    public void testOversizedStateFallsBackToSession() throws Exception {
+        FormServerAuthModule module = module(10);
+
+        assertEquals(SEND_CONTINUE, validate(module, "GET", PROTECTED_URL, emptyMap(), new Subject()));
+        assertTrue(cookies.isEmpty());
+        assertNotNull(session);
+        assertEquals(1, sessionAttributes.size());
+    }
+
+    @Test
+    public void testCookieIsAccepted() throws Exception {
+        for (boolean encrypted : new boolean[] { false, true }) {
+            FormServerAuthModule module = module(SECRET, encrypted, 1800);
+
+            startDialog(module);
+            assertTrue(loginReturnsToSavedRequest(module));
+        }
+    }
+
+    @Test
+    public void testTamperedCookieIsRejected() throws Exception {
+        for (boolean encrypted : new boolean[] { false, true }) {
+            FormServerAuthModule module = module(SECRET, encrypted, 1800);
+            Cookie dialogCookie = startDialog(module);
+            byte[] bytes = Base64.getUrlDecoder().decode(dialogCookie.getValue());
+
+            // Flip a bit in the state, and in the signature
+            for (int position : new int[] { 14, bytes.length - 1 }) {
+                byte[] tampered = bytes.clone();
+                tampered[position] ^= 1;
+
+                putCookie(dialogCookie.getName(), encode(tampered));
+                assertFalse(loginReturnsToSavedRequest(module));
+            }
+
+            putCookie(dialogCookie.getName(), "not a cookie value");
+            assertFalse(loginReturnsToSavedRequest(module));
+        }
+    }
+
+    @Test
+    public void testExpiredCookieIsRejected() throws Exception {
+        FormServerAuthModule module = module(SECRET, false, -1);
+
+        startDialog(module);
+        assertFalse(loginReturnsToSavedRequest(module));
+    }
+
+    @Test
+    public void testCookieOfUnknownSecretIsRejected() throws Exception {
+        startDialog(module(SECRET, false, 1800));
+
+        assertFalse(loginReturnsToSavedRequest(module(OTHER_SECRET, false, 1800)));
+    }
+
+    @Test
+    public void testCookieOfRotatedSecretIsAccepted() throws Exception {
+        FormServerAuthModule rotated = module(OTHER_SECRET + "," + SECRET, true, 1800);
+
+        startDialog(module(SECRET, true, 1800));
+        assertTrue(loginReturnsToSavedRequest(rotated));
+
+        // New cookies are signed with the first secret, which the old configuration doesn't know
+        startDialog(rotated);
+        assertFalse(loginReturnsToSavedRequest(module(SECRET, true, 1800)));
+    }
+
+    @Test
+    public void testCookieOfWrongEncryptionKeyIsRejected() throws Exception {
+        // Correctly signed with the secret, but encrypted with a key derived from another one
+        Cookie dialogCookie = startDialog(module(SECRET, false, 1800));
+        byte[] plainState = Base64.getUrlDecoder().decode(dialogCookie.getValue());
+        byte[] state = new byte[plainState.length - 14 - 32];
+        System.arraycopy(plainState, 14, state, 0, state.length);
+
+        byte[] nonce = new byte[12];
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(derive(OTHER_SECRET, "encryption"), "AES"), new GCMParameterSpec(128, nonce));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(2);
+        out.write(MessageDigest.getInstance("SHA-256").digest(Base64.getDecoder().decode(SECRET)), 0, 4);
+        out.writeByte(1);
+        out.writeLong(System.currentTimeMillis() / 1000 + 1800);
+        out.write(nonce);
+        out.write(cipher.doFinal(state));
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(derive(SECRET, "signature"), "HmacSHA256"));
+        out.write(mac.doFinal(bytes.toByteArray()));
+
+        putCookie(dialogCookie.getName(), encode(bytes.toByteArray()));
+        assertFalse(loginReturnsToSavedRequest(module(SECRET, true, 1800)));
+    }
+
+    @Test(expected = AuthException.class)
+    public void testShortSecretIsRefused() throws Exception {
+        module(Base64.getEncoder().encodeToString(new byte[16]), false, 1800);
+    }
+
+    /**
+     * Accesses the protected page as a new caller, which saves the request in the dialog cookie.
+     */
+    private Cookie startDialog(FormServerAuthModule module) throws Exception {
+        cookies.clear();
+        sessionAttributes.clear();
+        session = null;
+
+        assertEquals(SEND_CONTINUE, validate(module, "GET", PROTECTED_URL, emptyMap(), new Subject()));
+        assertEquals(1, cookies.size());
+
+        return cookies.values().iterator().next();
+    }
+
+    /**
+     * Logs in, which only returns to the saved request if the dialog cookie was accepted.
+     */
+    private boolean loginReturnsToSavedRequest(FormServerAuthModule module) throws Exception {
+        InMemoryStore.addCredential("form-stateless-test", "secret", singletonList("users"));
+
+        Map<String, String[]> credentials = new HashMap<>();
+        credentials.put("j_username", new String[] { "form-stateless-test" });
+        credentials.put("j_password", new String[] { "secret" });
+
+        validate(module, "POST", LOGIN_POSTBACK_URL, credentials, new Subject());
+
+        return PROTECTED_URL.equals(redirectedTo);
+    }
+
+    private void putCookie(String name, String value) {
+        cookies.put(name, new Cookie(name, value));
+    }
+
+    private FormServerAuthModule module(int maxSize) throws Exception {
+        return module(SECRET, false, 1800, maxSize);
+    }
+
+    private FormServerAuthModule module(String secrets, boolean encrypted, int maxAge) throws Exception {
+        return module(secrets, encrypted, maxAge, 4000);
+    }
+
+    private FormServerAuthModule module(String secrets, boolean encrypted, int maxAge, int maxSize) throws Exception {
+        FormServerAuthModule module = new FormServerAuthModule();
+        Map<String, String> options = new HashMap<>();
+        options.put("formLoginPage", "/login.jsp");
+        options.put(FormServerAuthModule.STATELESS, "true");
+        options.put(FormServerAuthModule.STATE_COOKIE_SECRETS, secrets);
+        options.put(FormServerAuthModule.STATE_COOKIE_ENCRYPTED, Boolean.toString(encrypted));
+        options.put(FormServerAuthModule.STATE_COOKIE_MAX_AGE, Integer.toString(maxAge));
+        options.put(FormServerAuthModule.STATE_COOKIE_MAX_SIZE, Integer.toString(maxSize));
+        module.initialize(null, null, AuthMessagePolicy.getDefaultCallbackHandler(), options);
+
+        return module;
+    }
+
+    private AuthStatus validate(FormServerAuthModule module, String method, String requestURL, Map<String, String[]> parameters, Subject clientSubject) throws Exception {
+        redirectedTo = null;
+
+        HttpMessageInfo messageInfo = new HttpMessageInfo(request(method, requestURL, parameters), response());
+        HttpMessageInfo.setMandatory(messageInfo, true);
+
+        return module.validateRequest(messageInfo, clientSubject, null);
+    }
+
+    private HttpServletRequest request(String method, String requestURL, Map<String, String[]> parameters) {
+        String requestURI = requestURL.substring(requestURL.indexOf('/', "http://".length()));
+
+        return proxy(HttpServletRequest.class, (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "getSession":
+                    if (session == null && (args == null || (Boolean) args[0])) {
+                        session = session();
+                    }
+                    return session;
+                case "getCookies":
+                    return cookies.isEmpty() ? null : cookies.values().toArray(new Cookie[0]);
+                case "getMethod":
+                    return method;
+                case "getRequestURL":
+                    return new StringBuffer(requestURL);
+                case "getRequestURI":
+                    return requestURI;
+                case "getContextPath":
+                    return "/app";
+                case "isSecure":
+                    return false;
+                case "getParameter":
+                    String[] values = parameters.get(args[0]);
+                    return values == null ? null : values[0];
+                case "getParameterMap":
+                    return parameters;
+                case "getHeaderNames":
+                case "getHeaders":
+                    return emptyEnumeration();
+                case "getLocales":
+                    return enumeration(singletonList(Locale.ENGLISH));
+                case "getRequestDispatcher":
+                    return proxy(RequestDispatcher.class, (dispatcher, forward, forwardArgs) -> null);
+                default:
+                    // getQueryString, getUserPrincipal, getAttribute
+                    return null;
+            }
+        });
+    }
+
+    private HttpServletResponse response() {
+        return proxy(HttpServletResponse.class, (proxy, m, args) -> {
+            if (m.getName().equals("sendRedirect")) {
+                redirectedTo = (String) args[0];
+            } else if (m.getName().equals("addCookie")) {
+                Cookie cookie = (Cookie) args[0];
+                if (cookie.getMaxAge() == 0) {
+                    cookies.remove(cookie.getName());
+                } else {
+                    cookies.put(cookie.getName(), cookie);
+                }
+            }
+            return null;
+        });
+    }
+
+    private HttpSession session() {
+        return proxy(HttpSession.class, (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "getAttribute":
+                    return sessionAttributes.get(args[0]);
+                case "setAttribute":
+                    sessionAttributes.put((String) args[0], args[1]);
+                    return null;
+                case "removeAttribute":
+                    sessionAttributes.remove(args[0]);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(m.getName());
+            }
+        });
+    }
+
+    private static byte[] derive(String secret, String purpose) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(Base64.getDecoder().decode(secret), "HmacSHA256"));
+
+        return mac.doFinal(purpose.getBytes(US_ASCII));
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FormServerAuthModuleStatelessTest.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.glassfish.epicyro.config.helper.GroupSet;
+import org.junit.Test;
+
+/**
+ * Checks that group sets behave as immutable sets of names, also for names that got no id because the dictionary
+ * was full, and that the dictionary stops growing at its maximum size.
+ */
+public class GroupSetTest {
+
+    @Test
+    public void testOf() {
+        GroupSet groups = GroupSet.of("users", "admins", "users", null);
+
+        assertEquals(2, groups.size());
+        assertTrue(groups.contains("users"));
+        assertTrue(groups.contains("admins"));
+        assertFalse(groups.contains("guests"));
+        assertFalse(groups.contains(null));
+        assertFalse(groups.contains(1));
+
+        assertSame(GroupSet.EMPTY, GroupSet.of());
+        assertSame(GroupSet.EMPTY, GroupSet.of(new ArrayList<>()));
+        assertSame(groups, GroupSet.of(groups));
+    }
+
+    @Test
+    public void testUnion() {
+        GroupSet groups = GroupSet.of("users", "admins");
+
+        assertSame(groups, groups.union("admins", "users"));
+        assertSame(groups, groups.union(GroupSet.EMPTY));
+        assertSame(groups, GroupSet.EMPTY.union(groups));
+        assertSame(groups, groups.union((String[]) null));
+
+        GroupSet union = groups.union("guests", "admins", "guests");
+        assertEquals(set("users", "admins", "guests"), union);
+        assertEquals(set("users", "admins"), groups);
+
+        assertEquals(set("users", "admins", "guests", "operators"), groups.union(GroupSet.of("guests", "operators")));
+    }
+
+    @Test
+    public void testWithout() {
+        GroupSet groups = GroupSet.of("users", "admins");
+
+        assertEquals(set("users"), groups.without("admins"));
+        assertSame(groups, groups.without("guests"));
+        assertSame(groups, groups.without(null));
+        assertSame(GroupSet.EMPTY, groups.without("admins").without("users"));
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        GroupSet groups = GroupSet.of("users", "admins", "guests");
+        GroupSet sameGroups = GroupSet.of("guests", "users").union("admins");
+
+        assertEquals(groups, sameGroups);
+        assertEquals(groups.hashCode(), sameGroups.hashCode());
+
+        assertEquals(set("users", "admins", "guests"), groups);
+        assertEquals(groups, set("users", "admins", "guests"));
+        assertEquals(set("users", "admins", "guests").hashCode(), groups.hashCode());
+
+        assertNotEquals(groups, GroupSet.of("users", "admins"));
+        assertEquals(0, GroupSet.EMPTY.hashCode());
+    }
+
+    @Test
+    public void testIsImmutable() {
+        GroupSet groups = GroupSet.of("users");
+
+        try {
+            groups.add("admins");
+        } catch (UnsupportedOperationException expected) {
+            assertEquals(set("users"), groups);
+            return;
+        }
+
+        throw new AssertionError("Group set could be changed");
+    }
+
+    @Test
+    public void testSerializedByName() throws Exception {
+        GroupSet groups = GroupSet.of("users", "admins");
+
+        assertEquals(groups, roundTrip(groups));
+        assertSame(GroupSet.EMPTY, roundTrip(GroupSet.EMPTY));
+    }
+
+    @Test
+    public void testDictionaryIsBounded() throws Exception {
+        BoundedGroups groups = new BoundedGroups(2);
+
+        // The first two names get ids, the ones after them are kept by name
+        Set<String> users = groups.of("users", "admins");
+        Set<String> guests = groups.of("guests", "users");
+
+        assertEquals(set("users", "guests"), guests);
+        assertTrue(guests.contains("guests"));
+        assertTrue(guests.contains("users"));
+        assertFalse(guests.contains("admins"));
+        assertFalse(guests.contains("operators"));
+
+        assertEquals(set("users", "admins", "guests"), groups.union(users, guests));
+        assertEquals(guests, groups.of("users", "guests"));
+        assertEquals(guests.hashCode(), groups.of("users", "guests").hashCode());
+    }
+
+    @Test
+    public void testNamesWithoutIds() throws Exception {
+        BoundedGroups groups = new BoundedGroups(1);
+
+        String first = "a-" + UUID.randomUUID();
+        String second = "b-" + UUID.randomUUID();
+
+        // Takes the only id
+        Set<String> withIds = groups.of("users");
+        Set<String> named = groups.of(second, "users", first);
+
+        assertEquals(3, named.size());
+        assertTrue(named.contains(first));
+        assertTrue(named.contains("users"));
+        assertFalse(named.contains("c-" + UUID.randomUUID()));
+        assertEquals(set("users", first, second), named);
+        assertArrayEquals(new String[] { "users", first, second }, named.toArray());
+
+        assertEquals(set("users", second), groups.without(named, first));
+        assertTrue(groups.without(groups.without(groups.without(named, first), second), "users").isEmpty());
+
+        Set<String> others = groups.of(second);
+        assertSame(named, groups.union(named, others));
+        assertEquals(set("users", second), groups.union(withIds, others));
+        assertNotEquals(named, groups.union(withIds, others));
+
+        assertEquals(named, groups.roundTrip(named));
+    }
+
+    /**
+     * Group sets of their own class loader, and so of their own dictionary, with the given maximum size.
+     */
+    static class BoundedGroups extends URLClassLoader {
+
+        private static final String MAX_SIZE_PROPERTY = "org.glassfish.epicyro.group.dictionary.maxSize";
+
+        private final Method of;
+        private final Method union;
+        private final Method without;
+
+        BoundedGroups(int maxSize) throws Exception {
+            super(new URL[] { GroupSet.class.getProtectionDomain().getCodeSource().getLocation() }, GroupSet.class.getClassLoader());
+
+            Class<?> groupSetClass;
+            System.setProperty(MAX_SIZE_PROPERTY, String.valueOf(maxSize));
+            try {
+                groupSetClass = Class.forName(GroupSet.class.getName(), true, this);
+                Class.forName("org.glassfish.epicyro.config.helper.GroupDictionary", true, this);
+            } finally {
+                System.clearProperty(MAX_SIZE_PROPERTY);
+            }
+
+            of = groupSetClass.getMethod("of", String[].class);
+            union = groupSetClass.getMethod("union", groupSetClass);
+            without = groupSetClass.getMethod("without", String.class);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith("org.glassfish.epicyro.config.helper.Group")) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loadedClass = findLoadedClass(name);
+                return loadedClass != null ? loadedClass : findClass(name);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> of(String... groups) throws Exception {
+            return (Set<String>) of.invoke(null, (Object) groups);
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> union(Set<String> groups, Set<String> otherGroups) throws Exception {
+            return (Set<String>) union.invoke(groups, otherGroups);
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> without(Set<String> groups, String group) throws Exception {
+            return (Set<String>) without.invoke(groups, group);
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> roundTrip(Set<String> groups) throws Exception {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(groups);
+            }
+
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+                    return Class.forName(description.getName(), false, BoundedGroups.this);
+                }
+            }) {
+                return (Set<String>) in.readObject();
+            }
+        }
+    }
+
+    private static Set<String> set(String... names) {
+        return new HashSet<>(asList(names));
+    }
+
+    private static GroupSet roundTrip(GroupSet groups) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(groups);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (GroupSet) in.readObject();
+        }
+    }
+}
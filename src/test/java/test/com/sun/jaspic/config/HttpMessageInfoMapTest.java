@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static org.glassfish.epicyro.config.helper.HttpServletConstants.IS_MANDATORY;
+import static org.glassfish.epicyro.config.helper.HttpServletConstants.REGISTER_SESSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.security.auth.message.MessageInfo;
+import jakarta.security.auth.message.config.ServerAuthContext;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
+import org.junit.Test;
+
+/**
+ * Checks the map view of {@link HttpMessageInfo}, in which the well-known keys are backed by typed fields.
+ */
+public class HttpMessageInfoMapTest {
+
+    @Test
+    public void testWellKnownKeysAreAbsentByDefault() {
+        HttpMessageInfo messageInfo = new HttpMessageInfo(null, null);
+        Map<String, Object> map = messageInfo.getMap();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(IS_MANDATORY));
+        assertFalse(map.containsKey(REGISTER_SESSION));
+        assertNull(map.get(IS_MANDATORY));
+        assertNull(map.remove(REGISTER_SESSION));
+        assertFalse(messageInfo.isMandatory());
+        assertFalse(messageInfo.isRegisterSession());
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void testPutGetRemoveMandatory() {
+        HttpMessageInfo messageInfo = new HttpMessageInfo(null, null);
+        Map<String, Object> map = messageInfo.getMap();
+
+        assertNull(map.put(IS_MANDATORY, "true"));
+        assertTrue(messageInfo.isMandatory());
+        assertTrue(map.containsKey(IS_MANDATORY));
+        assertEquals("true", map.get(IS_MANDATORY));
+        assertEquals(1, map.size());
+
+        // Any value is read as a boolean and exposed as its string form
+        assertEquals("true", map.put(IS_MANDATORY, Boolean.FALSE));
+        assertFalse(messageInfo.isMandatory());
+        assertEquals("false", map.get(IS_MANDATORY));
+
+        assertEquals("false", map.remove(IS_MANDATORY));
+        assertFalse(map.containsKey(IS_MANDATORY));
+        assertFalse(messageInfo.isMandatory());
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testPutGetRemoveRegisterSession() {
+        HttpMessageInfo messageInfo = new HttpMessageInfo(null, null);
+        Map<String, Object> map = messageInfo.getMap();
+
+        assertNull(map.put(REGISTER_SESSION, Boolean.TRUE));
+        assertTrue(messageInfo.isRegisterSession());
+        assertEquals("true", map.get(REGISTER_SESSION));
+
+        assertEquals("true", map.put(REGISTER_SESSION, "no"));
+        assertFalse(messageInfo.isRegisterSession());
+        assertTrue(map.containsKey(REGISTER_SESSION));
+
+        assertEquals("false", map.remove(REGISTER_SESSION));
+        assertFalse(map.containsKey(REGISTER_SESSION));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testStaticHelpers() {
+        HttpMessageInfo messageInfo = new HttpMessageInfo(null, null);
+
+        HttpMessageInfo.setMandatory(messageInfo, true);
+        HttpMessageInfo.setRegisterSession(messageInfo, true);
+        assertTrue(HttpMessageInfo.isMandatory(messageInfo));
+        assertTrue(HttpMessageInfo.isRegisterSession(messageInfo));
+        assertEquals(Map.of(IS_MANDATORY, "true", REGISTER_SESSION, "true"), messageInfo.getMap());
+
+        // Other message infos get the string values the profile defines
+        MessageInfo otherMessageInfo = new MapMessageInfo();
+        HttpMessageInfo.setMandatory(otherMessageInfo, true);
+        HttpMessageInfo.setRegisterSession(otherMessageInfo, false);
+        assertEquals(Map.of(IS_MANDATORY, "true", REGISTER_SESSION, "false"), otherMessageInfo.getMap());
+        assertTrue(HttpMessageInfo.isMandatory(otherMessageInfo));
+        assertFalse(HttpMessageInfo.isRegisterSession(otherMessageInfo));
+    }
+
+    @Test
+    public void testIteration() {
+        HttpMessageInfo messageInfo = new HttpMessageInfo(null, null);
+        Map<String, Object> map = messageInfo.getMap();
+        map.put(IS_MANDATORY, "true");
+        map.put(REGISTER_SESSION, "false");
+        map.put("other", 1);
+
+        assertEquals(Set.of(IS_MANDATORY, REGISTER_SESSION, "other"), map.keySet());
+        assertEquals(Map.of(IS_MANDATORY, "true", REGISTER_SESSION, "false", "other", 1), new HashMap<>(map));
+
+        // Entries can be removed while iterating
+        for (Iterator<String> keys = map.keySet().iterator(); keys.hasNext();) {
+            if (!keys.next().equals(REGISTER_SESSION)) {
+                keys.remove();
+            }
+        }
+
+        assertEquals(Map.of(REGISTER_SESSION, "false"), map);
+        assertFalse(messageInfo.isMandatory());
+    }
+
+    @Test
+    public void testEntrySetValue() {
+        HttpMessageInfo messageInfo = new HttpMessageInfo(null, null);
+        Map<String, Object> map = messageInfo.getMap();
+        map.put(REGISTER_SESSION, "false");
+        map.put("other", 1);
+
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (entry.getKey().equals(REGISTER_SESSION)) {
+                assertEquals("false", entry.setValue("true"));
+            } else {
+                assertEquals(1, entry.setValue(2));
+            }
+        }
+
+        assertTrue(messageInfo.isRegisterSession());
+        assertEquals(Map.of(REGISTER_SESSION, "true", "other", 2), map);
+    }
+
+    @Test
+    public void testChangingMandatoryUnbindsServerAuthContext() {
+        HttpMessageInfo messageInfo = new HttpMessageInfo(null, null);
+        ServerAuthContext serverAuthContext = new ServerAuthContextCacheTest.TestServerAuthConfig().getAuthContext(null, null, null);
+        messageInfo.setMandatory(true);
+        messageInfo.bindServerAuthContext(serverAuthContext);
+
+        messageInfo.getMap().put(IS_MANDATORY, "true");
+        assertSame(serverAuthContext, messageInfo.getServerAuthContext());
+
+        messageInfo.getMap().put(IS_MANDATORY, "false");
+        assertNull(messageInfo.getServerAuthContext());
+
+        messageInfo.bindServerAuthContext(serverAuthContext);
+        assertNotNull(messageInfo.getMap().remove(IS_MANDATORY));
+        assertNull(messageInfo.getServerAuthContext());
+    }
+
+    static class MapMessageInfo implements MessageInfo {
+
+        private final Map<String, Object> map = new HashMap<>();
+
+        @Override
+        public Object getRequestMessage() {
+            return null;
+        }
+
+        @Override
+        public Object getResponseMessage() {
+            return null;
+        }
+
+        @Override
+        public void setRequestMessage(Object request) {
+        }
+
+        @Override
+        public void setResponseMessage(Object response) {
+        }
+
+        @Override
+        public Map<String, Object> getMap() {
+            return map;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.enumeration;
+import static java.util.Collections.list;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.glassfish.epicyro.config.servlet.sam.HttpServletRequestDelegator;
+import org.glassfish.epicyro.config.servlet.sam.RequestData;
+import org.junit.Test;
+
+/**
+ * Checks that a restored request has the headers of the original request, looked up ignoring case, and parses their
+ * dates in each of the formats of HTTP/1.1.
+ */
+public class HttpServletRequestDelegatorTest {
+
+    // Sun, 06 Nov 1994 08:49:37 GMT
+    private static final long DATE = 784111777000L;
+
+    @Test
+    public void testRfc1123Date() {
+        assertEquals(DATE, dateHeader("Sun, 06 Nov 1994 08:49:37 GMT"));
+    }
+
+    @Test
+    public void testRfc1123DateWithoutDayOfWeek() {
+        assertEquals(DATE, dateHeader("06 Nov 1994 08:49:37 GMT"));
+    }
+
+    @Test
+    public void testRfc850Date() {
+        assertEquals(DATE, dateHeader("Sunday, 06-Nov-94 08:49:37 GMT"));
+    }
+
+    @Test
+    public void testAsctimeDate() {
+        assertEquals(DATE, dateHeader("Sun Nov  6 08:49:37 1994"));
+        assertEquals(DATE + 4 * 24 * 60 * 60 * 1000L, dateHeader("Thu Nov 10 08:49:37 1994"));
+    }
+
+    @Test
+    public void testMissingDate() {
+        assertEquals(-1, delegator(new LinkedHashMap<>()).getDateHeader("If-Modified-Since"));
+    }
+
+    @Test
+    public void testInvalidDate() {
+        for (String date : new String[] { "yesterday", "", "Sun, 06 Nov 1994", "Sunday, 06-Nov-94", "Sun Nov  6 1994" }) {
+            try {
+                dateHeader(date);
+                fail("Date " + date + " was accepted");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testMixedCaseHeaders() {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("X-Trace", List.of("a", "b"));
+        headers.put("x-trace", List.of("c"));
+        headers.put("Accept", List.of("text/html"));
+
+        HttpServletRequestDelegator delegator = delegator(headers);
+
+        for (String name : new String[] { "X-Trace", "x-trace", "X-TRACE" }) {
+            List<String> values = list(delegator.getHeaders(name));
+            assertEquals(3, values.size());
+            assertEquals(Set.of("a", "b", "c"), new HashSet<>(values));
+            assertEquals(values.get(0), delegator.getHeader(name));
+        }
+
+        assertEquals("text/html", delegator.getHeader("ACCEPT"));
+        assertNull(delegator.getHeader("User-Agent"));
+        assertTrue(list(delegator.getHeaders("User-Agent")).isEmpty());
+        assertEquals(Set.of("X-Trace", "x-trace", "Accept"), new HashSet<>(list(delegator.getHeaderNames())));
+    }
+
+    @Test
+    public void testHeadersCantBeModified() {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("Accept", new ArrayList<>(List.of("text/html")));
+
+        RequestData requestData = RequestData.of(request(headers));
+
+        try {
+            requestData.getHeaders().put("Accept", List.of("text/plain"));
+            fail("Headers could be changed");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+
+        try {
+            requestData.getHeaders().get("Accept").add("text/plain");
+            fail("Header values could be changed");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+
+        assertEquals(List.of("text/html"), requestData.getHeaderValues("accept"));
+    }
+
+    private static long dateHeader(String date) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("If-Modified-Since", singletonList(date));
+
+        return delegator(headers).getDateHeader("if-modified-since");
+    }
+
+    private static HttpServletRequestDelegator delegator(Map<String, List<String>> headers) {
+        HttpServletRequest request = request(headers);
+
+        return new HttpServletRequestDelegator(request, RequestData.of(request));
+    }
+
+    private static HttpServletRequest request(Map<String, List<String>> headers) {
+        return (HttpServletRequest) Proxy.newProxyInstance(
+            HttpServletRequestDelegatorTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class },
+            (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "getMethod":
+                        return "GET";
+                    case "getRequestURL":
+                        return new StringBuffer("http://localhost:8080/app/protected");
+                    case "getHeaderNames":
+                        return enumeration(headers.keySet());
+                    case "getHeaders":
+                        return enumeration(headers.get(args[0]));
+                    case "getParameterMap":
+                        return emptyMap();
+                    case "getLocales":
+                        return enumeration(singletonList(Locale.ENGLISH));
+                    default:
+                        return null;
+                }
+            });
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.services.InMemoryStore;
+import org.junit.Test;
+
+/**
+ * Checks that {@link InMemoryStore} reads the callers of a callers XML document, and that all callers of a
+ * document become visible at once, or none at all if the document can't be read.
+ */
+public class InMemoryStoreTest {
+
+    @Test
+    public void testInitFromString() {
+        String prefix = prefix();
+
+        InMemoryStore.initFromString(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- Sample callers -->\n" +
+            "<callers>\n" +
+            "  <caller callername=\"" + prefix + "alice\" password=\"secret1\" groups=\"users,admins\"/>\n" +
+            "  <group>\n" +
+            "    <caller callername=\"" + prefix + "bob\" password=\"secret2\" groups=\"users\"></caller>\n" +
+            "  </group>\n" +
+            "  <caller callername=\"" + prefix + "carol\" password=\"secret3\"/>\n" +
+            "  <caller callername=\"" + prefix + "dave\" groups=\"users\"/>\n" +
+            "</callers>\n");
+
+        Caller alice = InMemoryStore.validate(prefix + "alice", "secret1");
+        assertNotNull(alice);
+        assertEquals(prefix + "alice", alice.getCallerPrincipal().getName());
+        assertEquals(set("users", "admins"), alice.getGroups());
+        assertNull(InMemoryStore.validate(prefix + "alice", "secret2"));
+
+        assertNotNull(InMemoryStore.validate(prefix + "bob", "secret2"));
+        assertEquals(set("users"), InMemoryStore.getCallerGroups(prefix + "bob"));
+
+        assertNotNull(InMemoryStore.validate(prefix + "carol", "secret3"));
+        assertTrue(InMemoryStore.getCallerGroups(prefix + "carol").isEmpty());
+
+        // A caller without a password is known, but never validates
+        assertEquals(set("users"), InMemoryStore.getCallerGroups(prefix + "dave"));
+        assertNull(InMemoryStore.validate(prefix + "dave", ""));
+        assertNull(InMemoryStore.validate(prefix + "dave", null));
+    }
+
+    @Test
+    public void testInitFromStreamAndFile() throws Exception {
+        String prefix = prefix();
+
+        InMemoryStore.initFrom(new ByteArrayInputStream(
+            ("<callers><caller callername=\"" + prefix + "jürgen\" password=\"pässword\" groups=\"users\"/></callers>").getBytes(UTF_8)));
+        assertNotNull(InMemoryStore.validate(prefix + "jürgen", "pässword"));
+
+        Path file = Files.createTempFile("callers", ".xml");
+        try {
+            Files.write(file, ("<callers><caller callername=\"" + prefix + "erin\" password=\"secret\"/></callers>").getBytes(UTF_8));
+            InMemoryStore.initFrom(file);
+        } finally {
+            Files.delete(file);
+        }
+        assertNotNull(InMemoryStore.validate(prefix + "erin", "secret"));
+    }
+
+    @Test
+    public void testUnreadableDocumentAddsNoCallers() {
+        String prefix = prefix();
+
+        InMemoryStore.initFromString(
+            "<callers><caller callername=\"" + prefix + "alice\" password=\"secret\"/><caller callername=</callers>");
+        assertTrue(InMemoryStore.getCallerGroups(prefix + "alice").isEmpty());
+        assertNull(InMemoryStore.validate(prefix + "alice", "secret"));
+
+        try {
+            InMemoryStore.initFrom(new ByteArrayInputStream(
+                ("<callers><caller callername=\"" + prefix + "bob\" password=\"secret\"/><caller password=\"x\"/></callers>").getBytes(UTF_8)));
+            fail("Caller without a name was accepted");
+        } catch (IOException expected) {
+        }
+        assertNull(InMemoryStore.validate(prefix + "bob", "secret"));
+    }
+
+    @Test
+    public void testCallersBecomeVisibleAtOnce() throws Exception {
+        String prefix = prefix();
+        int callerCount = 500;
+
+        StringBuilder callersAsXml = new StringBuilder("<callers>");
+        for (int i = 0; i < callerCount; i++) {
+            callersAsXml.append("<caller callername=\"").append(prefix).append(i).append("\" groups=\"g").append(i).append("\"/>");
+        }
+        callersAsXml.append("</callers>");
+
+        AtomicBoolean published = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // Once the first caller of the document is visible, so must be the last
+        Thread reader = new Thread(() -> {
+            while (!published.get()) {
+                if (!InMemoryStore.getCallerGroups(prefix + 0).isEmpty()
+                        && InMemoryStore.getCallerGroups(prefix + (callerCount - 1)).isEmpty()) {
+                    failure.set("First caller visible before the last one");
+                    return;
+                }
+            }
+        });
+
+        // Run on every change of the store, and kept here as the store only keeps a weak reference
+        AtomicBoolean notified = new AtomicBoolean();
+        Runnable listener = () -> {
+            if (!InMemoryStore.getCallerGroups(prefix + (callerCount - 1)).isEmpty()) {
+                notified.set(true);
+            }
+        };
+        InMemoryStore.addChangeListener(listener);
+
+        reader.start();
+        InMemoryStore.initFromString(callersAsXml.toString());
+        published.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertTrue(notified.get());
+        for (int i = 0; i < callerCount; i++) {
+            assertEquals(set("g" + i), InMemoryStore.getCallerGroups(prefix + i));
+        }
+    }
+
+    private static String prefix() {
+        // The store is static, so each test uses callers of its own
+        return UUID.randomUUID() + "-";
+    }
+
+    private static Set<String> set(String... names) {
+        return new HashSet<>(asList(names));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import jakarta.security.auth.message.callback.PasswordValidationCallback;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import org.glassfish.epicyro.config.helper.BaseCallbackHandler;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.services.MappedIdentityStore;
+import org.glassfish.epicyro.services.MappedIdentityStoreBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that callers written by {@link MappedIdentityStoreBuilder} are validated by {@link MappedIdentityStore}, and
+ * that files that aren't complete, valid indexes are refused.
+ */
+public class MappedIdentityStoreTest {
+
+    private static final String CALLERS =
+        "<callers>" +
+            "<caller callername=\"alice\" password=\"secret1\" groups=\"admin,user\"/>" +
+            "<caller callername=\"bob\" password=\"secret2\" groups=\"user\"/>" +
+            "<caller callername=\"carol\" password=\"secret3\"/>" +
+            "<caller callername=\"dave\"/>" +
+        "</callers>";
+
+    private Path directory;
+    private Path indexFile;
+
+    @Before
+    public void createIndex() throws Exception {
+        directory = Files.createTempDirectory("identity-store");
+        indexFile = directory.resolve("callers.idx");
+
+        new MappedIdentityStoreBuilder()
+            .addCallers(new ByteArrayInputStream(CALLERS.getBytes(UTF_8)))
+            .addCaller("émile", "päss", List.of("user"))
+            .write(indexFile);
+    }
+
+    @After
+    public void deleteIndex() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        MappedIdentityStore store = MappedIdentityStore.open(indexFile);
+        assertEquals(5, store.size());
+
+        Caller alice = store.validate("alice", "secret1");
+        assertEquals("alice", alice.getCallerPrincipal().getName());
+        assertArrayEquals(new String[] { "admin", "user" }, sorted(alice.getGroupsAsArray()));
+
+        Caller bob = store.validate("bob", "secret2");
+        assertArrayEquals(new String[] { "user" }, bob.getGroupsAsArray());
+
+        assertEquals(0, store.validate("carol", "secret3").getGroupsAsArray().length);
+        assertEquals("émile", store.validate("émile", "päss").getCallerPrincipal().getName());
+
+        // No temporary files are left behind
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testWrongPassword() throws Exception {
+        MappedIdentityStore store = MappedIdentityStore.open(indexFile);
+
+        assertNull(store.validate("alice", "secret2"));
+        assertNull(store.validate("alice", ""));
+        assertNull(store.validate("alice", null));
+
+        // A caller without a password can't be validated at all
+        assertNull(store.validate("dave", ""));
+    }
+
+    @Test
+    public void testUnknownCaller() throws Exception {
+        MappedIdentityStore store = MappedIdentityStore.open(indexFile);
+
+        assertNull(store.validate("erin", "secret1"));
+        assertNull(store.validate("Alice", "secret1"));
+        assertNull(store.validate(null, "secret1"));
+    }
+
+    @Test
+    public void testBadMagic() throws Exception {
+        byte[] index = Files.readAllBytes(indexFile);
+        ByteBuffer.wrap(index).putInt(0, 0xCAFEBABE);
+        Files.write(indexFile, index);
+
+        assertNotOpened();
+    }
+
+    @Test
+    public void testBadVersion() throws Exception {
+        byte[] index = Files.readAllBytes(indexFile);
+        ByteBuffer.wrap(index).putInt(Integer.BYTES, 99);
+        Files.write(indexFile, index);
+
+        assertNotOpened();
+    }
+
+    @Test
+    public void testTruncatedFile() throws Exception {
+        byte[] index = Files.readAllBytes(indexFile);
+
+        // In the last record, in the table, and in the header
+        for (int length : new int[] { index.length - 1, index.length - 60, 100, 10 }) {
+            Files.write(indexFile, Arrays.copyOf(index, length));
+            assertNotOpened();
+        }
+    }
+
+    @Test
+    public void testHandlerOption() throws Exception {
+        BaseCallbackHandler handler = new BaseCallbackHandler(MappedIdentityStore.open(indexFile)) { };
+
+        Subject subject = new Subject();
+        PasswordValidationCallback passwordValidation = new PasswordValidationCallback(subject, "alice", "secret1".toCharArray());
+        handler.handle(new Callback[] { passwordValidation });
+
+        assertTrue(passwordValidation.getResult());
+        assertEquals("alice", Caller.fromSubject(subject).getCallerPrincipal().getName());
+    }
+
+    private void assertNotOpened() {
+        try {
+            MappedIdentityStore.open(indexFile);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static String[] sorted(String[] values) {
+        String[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static jakarta.security.auth.message.AuthStatus.FAILURE;
+import static jakarta.security.auth.message.AuthStatus.SEND_CONTINUE;
+import static jakarta.security.auth.message.AuthStatus.SEND_FAILURE;
+import static jakarta.security.auth.message.AuthStatus.SEND_SUCCESS;
+import static jakarta.security.auth.message.AuthStatus.SUCCESS;
+import static java.util.Collections.emptyMap;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.REQUIRED;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.REQUISITE;
+import static javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag.SUFFICIENT;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.security.auth.message.AuthException;
+import jakarta.security.auth.message.AuthStatus;
+import jakarta.security.auth.message.module.ServerAuthModule;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.security.auth.Subject;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag;
+import org.glassfish.epicyro.config.helper.CallerPrincipal;
+import org.glassfish.epicyro.config.helper.JAASModulesManager;
+import org.glassfish.epicyro.config.helper.ModuleStackDecisionTable;
+import org.glassfish.epicyro.config.helper.ModuleStackDecisionTable.ModuleInvocation;
+import org.glassfish.epicyro.config.jaas.ExtendedConfigFile;
+import org.glassfish.epicyro.config.servlet.HttpMessageInfo;
+import org.junit.Test;
+
+/**
+ * Checks that evaluating a module stack with a {@link ModuleStackDecisionTable} gives exactly the same
+ * result, and calls exactly the same modules, as the shouldStopProcessingModules / getReturnStatus
+ * protocol of {@link JAASModulesManager} for every combination of control flags and module outcomes.
+ */
+public class ModuleStackDecisionTableTest {
+
+    private static final int MAX_STACK_SIZE = 4;
+
+    // null stands for a module whose class can not be loaded
+    private static final LoginModuleControlFlag[] FLAGS = { REQUIRED, REQUISITE, SUFFICIENT, OPTIONAL, null };
+
+    private static final AuthStatus[] OUTCOMES = { SUCCESS, FAILURE, SEND_SUCCESS, SEND_FAILURE, SEND_CONTINUE, null };
+
+    private static final AuthStatus[][] SUCCESS_VALUES = { { SUCCESS, SEND_SUCCESS }, { SEND_SUCCESS }, { SUCCESS } };
+
+    @Test
+    public void testEquivalenceWithModulesManager() throws AuthException {
+        for (int stackSize = 1; stackSize <= MAX_STACK_SIZE; stackSize++) {
+            int[] flagIndexes = new int[stackSize];
+            do {
+                LoginModuleControlFlag[] flags = new LoginModuleControlFlag[stackSize];
+                for (int i = 0; i < stackSize; i++) {
+                    flags[i] = FLAGS[flagIndexes[i]];
+                }
+
+                checkStack(flags);
+            } while (next(flagIndexes, FLAGS.length));
+        }
+    }
+
+    @Test
+    public void testConcurrentEvaluationMatchesSequential() throws AuthException {
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_STACK_SIZE);
+        try {
+            for (int stackSize = 1; stackSize <= 3; stackSize++) {
+                int[] flagIndexes = new int[stackSize];
+                do {
+                    LoginModuleControlFlag[] flags = new LoginModuleControlFlag[stackSize];
+                    for (int i = 0; i < stackSize; i++) {
+                        flags[i] = FLAGS[flagIndexes[i]];
+                    }
+
+                    checkStackConcurrently(flags, executor);
+                } while (next(flagIndexes, FLAGS.length));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void checkStackConcurrently(LoginModuleControlFlag[] flags, ExecutorService executor) throws AuthException {
+        JAASModulesManager modulesManager = new JAASModulesManager(false, configFileFor(flags), emptyMap(), "test");
+        ServerAuthModule[] modules = modulesManager.getModules(new ServerAuthModule[0], null);
+        ModuleStackDecisionTable decisionTable = modulesManager.getDecisionTable(modules, SUCCESS_VALUES[0], SEND_FAILURE);
+
+        int[] outcomeIndexes = new int[flags.length];
+        do {
+            AuthStatus[] outcomes = new AuthStatus[flags.length];
+            for (int i = 0; i < flags.length; i++) {
+                outcomes[i] = OUTCOMES[outcomeIndexes[i]];
+            }
+
+            ModuleInvocation<ServerAuthModule> invocation = (module, messageInfo, subject, serviceSubject) -> outcomes[indexOf(modules, module)];
+
+            assertSame(
+                Arrays.toString(flags) + " " + Arrays.toString(outcomes),
+                decisionTable.evaluate(modules, invocation, null, new Subject(), null),
+                decisionTable.evaluateConcurrently(modules, invocation, messageInfo(new ArrayList<>()), new Subject(), null, executor));
+        } while (next(outcomeIndexes, OUTCOMES.length));
+    }
+
+    @Test
+    public void testDecideMatchesSingleModuleStack() throws AuthException {
+        for (LoginModuleControlFlag flag : FLAGS) {
+            if (flag == null) {
+                continue;
+            }
+
+            ServerAuthModule[] modules = modules(flag);
+
+            for (AuthStatus[] successValues : SUCCESS_VALUES) {
+                ModuleStackDecisionTable decisionTable = new JAASModulesManager(false, configFileFor(new LoginModuleControlFlag[] { flag }), emptyMap(), "test")
+                    .getDecisionTable(modules, successValues, SEND_FAILURE);
+
+                for (AuthStatus outcome : OUTCOMES) {
+                    assertSame(
+                        flag + " " + outcome + " " + Arrays.toString(successValues),
+                        decisionTable.evaluate(modules, (module, messageInfo, subject, serviceSubject) -> outcome, null, new Subject(), null),
+                        decisionTable.decide(0, outcome));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentRunIsMergedInDeclaredOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_STACK_SIZE);
+        try {
+            ServerAuthModule[] modules = modules(OPTIONAL, OPTIONAL, OPTIONAL);
+            ModuleStackDecisionTable decisionTable = decisionTable(modules, OPTIONAL, OPTIONAL, OPTIONAL);
+
+            // Later modules finish first
+            ModuleInvocation<ServerAuthModule> invocation = (module, messageInfo, subject, serviceSubject) -> {
+                int moduleNumber = indexOf(modules, module);
+                sleep(30 * (modules.length - moduleNumber));
+                subject.getPrincipals().add(new CallerPrincipal("module-" + moduleNumber));
+                ((HttpServletResponse) messageInfo.getResponseMessage()).addHeader("X-Module", Integer.toString(moduleNumber));
+                messageInfo.getMap().put("module", Integer.toString(moduleNumber));
+                return SUCCESS;
+            };
+
+            List<String> responseCalls = new ArrayList<>();
+            HttpMessageInfo messageInfo = messageInfo(responseCalls);
+            Subject subject = new Subject();
+
+            assertSame(SUCCESS, decisionTable.evaluateConcurrently(modules, invocation, messageInfo, subject, null, executor));
+
+            List<String> principalNames = new ArrayList<>();
+            subject.getPrincipals().forEach(principal -> principalNames.add(principal.getName()));
+            assertEquals(asList("module-0", "module-1", "module-2"), principalNames);
+            assertEquals(asList("addHeader X-Module 0", "addHeader X-Module 1", "addHeader X-Module 2"), responseCalls);
+            assertEquals("2", messageInfo.getMap().get("module"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelledModuleLeavesNoSideEffects() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_STACK_SIZE);
+        try {
+            ServerAuthModule[] modules = modules(SUFFICIENT, OPTIONAL);
+            ModuleStackDecisionTable decisionTable = decisionTable(modules, SUFFICIENT, OPTIONAL);
+            CountDownLatch secondModuleResponded = new CountDownLatch(1);
+
+            ModuleInvocation<ServerAuthModule> invocation = (module, messageInfo, subject, serviceSubject) -> {
+                if (indexOf(modules, module) == 0) {
+                    // Only succeed, which decides the stack, once the second module has done its damage
+                    await(secondModuleResponded);
+                    subject.getPrincipals().add(new CallerPrincipal("first"));
+                    return SUCCESS;
+                }
+
+                subject.getPrincipals().add(new CallerPrincipal("second"));
+                HttpServletResponse response = (HttpServletResponse) messageInfo.getResponseMessage();
+                response.setHeader("WWW-Authenticate", "Basic");
+                try {
+                    response.sendError(401);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                messageInfo.getMap().put("second", "true");
+                secondModuleResponded.countDown();
+                return SEND_FAILURE;
+            };
+
+            List<String> responseCalls = new ArrayList<>();
+            HttpMessageInfo messageInfo = messageInfo(responseCalls);
+            Subject subject = new Subject();
+
+            assertSame(SUCCESS, decisionTable.evaluateConcurrently(modules, invocation, messageInfo, subject, null, executor));
+            assertEquals(0, secondModuleResponded.getCount());
+
+            assertTrue(responseCalls.isEmpty());
+            assertFalse(messageInfo.getMap().containsKey("second"));
+            assertEquals(1, subject.getPrincipals().size());
+            assertEquals("first", subject.getPrincipals().iterator().next().getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNoConcurrencyAfterRequisite() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_STACK_SIZE);
+        try {
+            ServerAuthModule[] modules = modules(REQUISITE, OPTIONAL, OPTIONAL);
+            ModuleStackDecisionTable decisionTable = decisionTable(modules, REQUISITE, OPTIONAL, OPTIONAL);
+
+            Thread callingThread = Thread.currentThread();
+            List<Integer> calledElsewhere = new ArrayList<>();
+
+            ModuleInvocation<ServerAuthModule> invocation = (module, messageInfo, subject, serviceSubject) -> {
+                if (Thread.currentThread() != callingThread) {
+                    calledElsewhere.add(indexOf(modules, module));
+                }
+                return SUCCESS;
+            };
+
+            assertSame(SUCCESS, decisionTable.evaluateConcurrently(modules, invocation, messageInfo(new ArrayList<>()), new Subject(), null, executor));
+            assertTrue(calledElsewhere.isEmpty());
+
+            // A REQUISITE failure decides the stack before the modules after it would be called
+            List<Integer> called = new ArrayList<>();
+            assertSame(FAILURE, decisionTable.evaluateConcurrently(modules, (module, messageInfo, subject, serviceSubject) -> {
+                called.add(indexOf(modules, module));
+                return FAILURE;
+            }, messageInfo(new ArrayList<>()), new Subject(), null, executor));
+            assertEquals(asList(0), called);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ServerAuthModule[] modules(LoginModuleControlFlag... flags) throws AuthException {
+        return new JAASModulesManager(false, configFileFor(flags), emptyMap(), "test").getModules(new ServerAuthModule[0], null);
+    }
+
+    private static ModuleStackDecisionTable decisionTable(ServerAuthModule[] modules, LoginModuleControlFlag... flags) throws AuthException {
+        return new JAASModulesManager(false, configFileFor(flags), emptyMap(), "test").getDecisionTable(modules, SUCCESS_VALUES[0], SEND_FAILURE);
+    }
+
+    /**
+     * Returns a message of which the response records the headers and errors that reach it.
+     */
+    private static HttpMessageInfo messageInfo(List<String> responseCalls) {
+        HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(
+            ModuleStackDecisionTableTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletResponse.class },
+            (proxy, method, args) -> {
+                if (method.getName().startsWith("set") || method.getName().startsWith("add") || method.getName().startsWith("send")) {
+                    StringBuilder call = new StringBuilder(method.getName());
+                    for (Object arg : args) {
+                        call.append(' ').append(arg);
+                    }
+                    synchronized (responseCalls) {
+                        responseCalls.add(call.toString());
+                    }
+                }
+                return method.getReturnType() == boolean.class ? false : method.getReturnType() == int.class ? 0 : null;
+            });
+
+        return new HttpMessageInfo(null, response);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkStack(LoginModuleControlFlag[] flags) throws AuthException {
+        JAASModulesManager modulesManager = new JAASModulesManager(false, configFileFor(flags), emptyMap(), "test");
+        ServerAuthModule[] modules = modulesManager.getModules(new ServerAuthModule[0], null);
+
+        for (AuthStatus[] successValues : SUCCESS_VALUES) {
+            ModuleStackDecisionTable decisionTable = modulesManager.getDecisionTable(modules, successValues, SEND_FAILURE);
+
+            int[] outcomeIndexes = new int[flags.length];
+            do {
+                AuthStatus[] outcomes = new AuthStatus[flags.length];
+                for (int i = 0; i < flags.length; i++) {
+                    outcomes[i] = OUTCOMES[outcomeIndexes[i]];
+                }
+
+                int[] calledByTable = { -1 };
+                AuthStatus tableStatus = decisionTable.evaluate(modules, (module, messageInfo, subject, serviceSubject) -> {
+                    calledByTable[0] = indexOf(modules, module);
+                    return outcomes[calledByTable[0]];
+                }, null, null, null);
+
+                int[] calledByManager = { -1 };
+                AuthStatus managerStatus = evaluateWithModulesManager(modulesManager, modules, outcomes, successValues, calledByManager);
+
+                String description = Arrays.toString(flags) + " " + Arrays.toString(outcomes) + " " + Arrays.toString(successValues);
+                assertSame(description, managerStatus, tableStatus);
+                assertEquals(description, calledByManager[0], calledByTable[0]);
+            } while (next(outcomeIndexes, OUTCOMES.length));
+        }
+    }
+
+    /**
+     * The module stack evaluation as it was done by the auth contexts before the decision table existed.
+     */
+    private static AuthStatus evaluateWithModulesManager(JAASModulesManager modulesManager, ServerAuthModule[] modules, AuthStatus[] outcomes, AuthStatus[] successValues, int[] lastCalled) {
+        AuthStatus[] status = new AuthStatus[modules.length];
+
+        for (int moduleNumber = 0; moduleNumber < modules.length; moduleNumber++) {
+            if (modules[moduleNumber] == null) {
+                continue;
+            }
+
+            lastCalled[0] = moduleNumber;
+            status[moduleNumber] = outcomes[moduleNumber];
+
+            if (modulesManager.shouldStopProcessingModules(successValues, moduleNumber, status[moduleNumber])) {
+                return modulesManager.getReturnStatus(successValues, SEND_FAILURE, status, moduleNumber);
+            }
+        }
+
+        return modulesManager.getReturnStatus(successValues, SEND_FAILURE, status, status.length - 1);
+    }
+
+    private static ExtendedConfigFile configFileFor(LoginModuleControlFlag[] flags) {
+        AppConfigurationEntry[] entries = new AppConfigurationEntry[flags.length];
+        for (int i = 0; i < flags.length; i++) {
+            entries[i] = flags[i] == null ?
+                new AppConfigurationEntry("test.com.sun.jaspic.config.DoesNotExist", REQUIRED, emptyMap()) :
+                new AppConfigurationEntry(SampleServerAuthModule.class.getName(), flags[i], emptyMap());
+        }
+
+        return new ExtendedConfigFile() {
+            @Override
+            public AppConfigurationEntry[] getAppConfigurationEntry(String applicationName) {
+                return entries;
+            }
+        };
+    }
+
+    private static int indexOf(Object[] array, Object element) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == element) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Advances the given counter to the next combination, returns false after the last one.
+     */
+    private static boolean next(int[] counter, int base) {
+        for (int i = 0; i < counter.length; i++) {
+            if (++counter[i] < base) {
+                return true;
+            }
+            counter[i] = 0;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import jakarta.security.auth.message.callback.PasswordValidationCallback;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import org.glassfish.epicyro.config.helper.BaseCallbackHandler;
+import org.glassfish.epicyro.config.helper.Caller;
+import org.glassfish.epicyro.config.helper.CallerPrincipal;
+import org.glassfish.epicyro.services.InMemoryStore;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks which concurrent password validations of a {@link BaseCallbackHandler} share a single lookup, and for how
+ * long a completed lookup is retained.
+ */
+public class PasswordValidationCoalescingTest {
+
+    private static final String RETAIN_PROPERTY = "org.glassfish.epicyro.password.validation.retain";
+
+    /**
+     * Counts the lookups, of which the first can be made to block until released.
+     */
+    static class LookupCallbackHandler extends BaseCallbackHandler {
+
+        final AtomicInteger lookups = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        volatile boolean blockFirst;
+        volatile boolean changeDuringLookup;
+        volatile BiFunction<String, String, Caller> outcome =
+            (username, password) -> "alice".equals(username) && "secret".equals(password) ? new Caller(new CallerPrincipal(username)) : null;
+
+        @Override
+        protected Caller validatePassword(String username, String password) {
+            if (lookups.incrementAndGet() == 1 && blockFirst) {
+                started.countDown();
+                try {
+                    released.await(10, SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (changeDuringLookup) {
+                changeDuringLookup = false;
+                identityStoreChanged();
+            }
+
+            return outcome.apply(username, password);
+        }
+
+        void change() {
+            identityStoreChanged();
+        }
+    }
+
+    @After
+    public void clearRetention() {
+        System.clearProperty(RETAIN_PROPERTY);
+    }
+
+    @Test
+    public void testConcurrentValidationsShareLookup() throws Exception {
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+        handler.blockFirst = true;
+
+        CompletableFuture<Subject> first = CompletableFuture.supplyAsync(() -> validate(handler, "alice", "secret"));
+        handler.started.await(10, SECONDS);
+
+        CompletableFuture<Subject> second = CompletableFuture.supplyAsync(() -> validate(handler, "alice", "secret"));
+
+        // Give the second validation the time to find the first one in flight
+        Thread.sleep(200);
+        handler.released.countDown();
+
+        assertEquals("alice", Caller.fromSubject(first.get()).getName());
+        assertEquals("alice", Caller.fromSubject(second.get()).getName());
+        assertEquals(1, handler.lookups.get());
+    }
+
+    @Test
+    public void testDifferentCredentialsDontShareLookup() throws Exception {
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+        handler.blockFirst = true;
+
+        CompletableFuture<Subject> first = CompletableFuture.supplyAsync(() -> validate(handler, "alice", "secret"));
+        handler.started.await(10, SECONDS);
+
+        // These complete while the first lookup is still in flight
+        assertTrue(validate(handler, "alice", "other").getPrincipals().isEmpty());
+        assertTrue(validate(handler, "bob", "secret").getPrincipals().isEmpty());
+        assertFalse(first.isDone());
+
+        handler.released.countDown();
+        assertEquals("alice", Caller.fromSubject(first.get()).getName());
+        assertEquals(3, handler.lookups.get());
+    }
+
+    @Test
+    public void testNullPasswordDoesntShareLookupWithEmptyPassword() throws Exception {
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+        handler.blockFirst = true;
+        handler.outcome = (username, password) -> password == null ? null : new Caller(new CallerPrincipal(username));
+
+        CompletableFuture<Subject> first = CompletableFuture.supplyAsync(() -> validate(handler, "alice", null));
+        handler.started.await(10, SECONDS);
+
+        // Doesn't wait for the lookup of the null password
+        assertEquals("alice", Caller.fromSubject(validate(handler, "alice", "")).getName());
+        assertFalse(first.isDone());
+
+        handler.released.countDown();
+        assertTrue(first.get().getPrincipals().isEmpty());
+    }
+
+    @Test
+    public void testFailureIsShared() throws Exception {
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+        handler.blockFirst = true;
+        IllegalStateException failure = new IllegalStateException("Identity store unavailable");
+        handler.outcome = (username, password) -> {
+            throw failure;
+        };
+
+        CompletableFuture<Subject> first = CompletableFuture.supplyAsync(() -> validate(handler, "alice", "secret"));
+        handler.started.await(10, SECONDS);
+
+        CompletableFuture<Subject> second = CompletableFuture.supplyAsync(() -> validate(handler, "alice", "secret"));
+
+        Thread.sleep(200);
+        handler.released.countDown();
+
+        for (CompletableFuture<Subject> validation : List.of(first, second)) {
+            try {
+                validation.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(1, handler.lookups.get());
+
+        // A failed lookup is not retained
+        handler.outcome = (username, password) -> null;
+        validate(handler, "alice", "secret");
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testNotRetainedByDefault() {
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+
+        validate(handler, "alice", "secret");
+        validate(handler, "alice", "secret");
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testRetainedForSameCredentialsOnly() {
+        System.setProperty(RETAIN_PROPERTY, "60000");
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+
+        validate(handler, "alice", "secret");
+        assertEquals("alice", Caller.fromSubject(validate(handler, "alice", "secret")).getName());
+        assertEquals(1, handler.lookups.get());
+
+        validate(handler, "alice", "Secret");
+        validate(handler, "alice", null);
+        assertEquals(3, handler.lookups.get());
+    }
+
+    @Test
+    public void testHandlerStoreChangeDropsRetained() {
+        System.setProperty(RETAIN_PROPERTY, "60000");
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+
+        validate(handler, "alice", "secret");
+        handler.change();
+        validate(handler, "alice", "secret");
+
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testInMemoryStoreChangeDropsRetained() {
+        System.setProperty(RETAIN_PROPERTY, "60000");
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+
+        validate(handler, "alice", "secret");
+        InMemoryStore.addCredential(UUID.randomUUID().toString(), "password", singletonList("users"));
+        validate(handler, "alice", "secret");
+
+        assertEquals(2, handler.lookups.get());
+    }
+
+    @Test
+    public void testLookupDuringChangeIsNotRetained() {
+        System.setProperty(RETAIN_PROPERTY, "60000");
+        LookupCallbackHandler handler = new LookupCallbackHandler();
+        handler.changeDuringLookup = true;
+
+        validate(handler, "alice", "secret");
+        validate(handler, "alice", "secret");
+        validate(handler, "alice", "secret");
+
+        assertEquals(2, handler.lookups.get());
+    }
+
+    private static Subject validate(BaseCallbackHandler handler, String username, String password) {
+        Subject subject = new Subject();
+        try {
+            handler.handle(new Callback[] {
+                new PasswordValidationCallback(subject, username, password == null ? null : password.toCharArray()) });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+
+        return subject;
+    }
+}
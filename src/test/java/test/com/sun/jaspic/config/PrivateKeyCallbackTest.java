@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import jakarta.security.auth.message.callback.PrivateKeyCallback;
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.security.auth.callback.Callback;
+import org.glassfish.epicyro.config.helper.BaseCallbackHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the private keys of a {@link BaseCallbackHandler} are found by alias, by issuer and serial number, by
+ * subject key identifier and by certificate digest; that the default key is the first one that can be recovered,
+ * and that it's only kept when no recovery before it failed; and that the keys are looked up again when the
+ * keystores change.
+ */
+public class PrivateKeyCallbackTest {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    // Self-signed certificates for CN=alpha, CN=beta and CN=gamma, with a subject key identifier
+    static final String ALPHA =
+        "-----BEGIN CERTIFICATE-----\n" +
+        "MIIBNzCB36ADAgECAgh/Fi547HkEZDAKBggqhkjOPQQDAjAQMQ4wDAYDVQQDEwVh\n" +
+        "bHBoYTAgFw0yNjEwMTgyMTAyMTNaGA8yMTI2MDkyNDIxMDIxM1owEDEOMAwGA1UE\n" +
+        "AxMFYWxwaGEwWTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAAQUCII9lslzehrYQZyo\n" +
+        "81Ky+Fp1Hr7FPWlzAsz0t+yP4PhuKOHzhNWU58rNKE7ljsKCgxHnjiVCSXqQxLP5\n" +
+        "k2oGoyEwHzAdBgNVHQ4EFgQU3lfdo0enOecjgymkspvYb888apwwCgYIKoZIzj0E\n" +
+        "AwIDRwAwRAIgCFRUIamc6yOMnFE5KHlRH1ZdMVGxb+inCu39B7nLxWMCIDEi4jKQ\n" +
+        "BH6dHhxyXufgKPwQDA2t9VNdDLSIXuWihMi9\n" +
+        "-----END CERTIFICATE-----\n";
+
+    static final String BETA =
+        "-----BEGIN CERTIFICATE-----\n" +
+        "MIIBNzCB3aADAgECAgheyBX9EYwIIzAKBggqhkjOPQQDAjAPMQ0wCwYDVQQDEwRi\n" +
+        "ZXRhMCAXDTI2MTAxODIxMDIxNVoYDzIxMjYwOTI0MjEwMjE1WjAPMQ0wCwYDVQQD\n" +
+        "EwRiZXRhMFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAEZPccK85aYt34uoaUm1rS\n" +
+        "IMHUhINsK015zUU/sJLWfXb0prl545b8Rg6LweJFeMpUS5Mk3BalNi8xhgF8VQ+p\n" +
+        "RKMhMB8wHQYDVR0OBBYEFHxON6LOkh+4k59UiWlcV7mPpNlDMAoGCCqGSM49BAMC\n" +
+        "A0kAMEYCIQDiMMQkRWEQIlPq8mP+up9E705guVZlRLl1pgMYSbg6gwIhAORtrqAB\n" +
+        "JlDH9NdbgB6WFUNGzP4/4cJe4QIDIB6iBvEX\n" +
+        "-----END CERTIFICATE-----\n";
+
+    static final String GAMMA =
+        "-----BEGIN CERTIFICATE-----\n" +
+        "MIIBODCB36ADAgECAggjxgLc/eZeKjAKBggqhkjOPQQDAjAQMQ4wDAYDVQQDEwVn\n" +
+        "YW1tYTAgFw0yNjEwMTgyMTAyMTdaGA8yMTI2MDkyNDIxMDIxN1owEDEOMAwGA1UE\n" +
+        "AxMFZ2FtbWEwWTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAATk6o/nfC1QdGFM9zBE\n" +
+        "RYSGQVq4BBB+bSnNoKp2YjXPk6zmXOwqs5oiPLe7UkkDPgRH9zNzfI1AlcSNbJXB\n" +
+        "KCeboyEwHzAdBgNVHQ4EFgQUt8epUAlRld1oFksBfuyDYgOQNmwwCgYIKoZIzj0E\n" +
+        "AwIDSAAwRQIgHvfQpmAa5mf3zuwKLL+8DW+WOKTXLT0lh1L0gPwNT8YCIQCiU0hF\n" +
+        "ZWRpqCwbtG3/VbBPFjr+EIFgvyPgO8HKRNIy8Q==\n" +
+        "-----END CERTIFICATE-----\n";
+
+    private X509Certificate alpha;
+    private X509Certificate beta;
+    private X509Certificate gamma;
+
+    /**
+     * The first keystore has alpha and a certificate entry, the second one beta and gamma.
+     */
+    private KeyStore[] keyStores;
+    private volatile long keyStoresVersion;
+
+    private final Map<String, Integer> recoveries = new ConcurrentHashMap<>();
+    private final Set<String> failingAliases = new HashSet<>();
+    private final Set<String> aliasesWithoutKey = new HashSet<>();
+
+    private KeyStoreCallbackHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        alpha = certificate(ALPHA);
+        beta = certificate(BETA);
+        gamma = certificate(GAMMA);
+
+        KeyStore first = keyStore();
+        first.setKeyEntry("alpha", newPrivateKey(), PASSWORD, new Certificate[] { alpha });
+        first.setCertificateEntry("trusted", gamma);
+
+        KeyStore second = keyStore();
+        second.setKeyEntry("beta", newPrivateKey(), PASSWORD, new Certificate[] { beta });
+        second.setKeyEntry("gamma", newPrivateKey(), PASSWORD, new Certificate[] { gamma });
+
+        keyStores = new KeyStore[] { first, second };
+        handler = new KeyStoreCallbackHandler();
+    }
+
+    @Test
+    public void testAliasRequest() throws Exception {
+        assertSame(beta, handle(new PrivateKeyCallback.AliasRequest("beta")));
+        assertSame(alpha, handle(new PrivateKeyCallback.AliasRequest(null)));
+        assertNull(handle(new PrivateKeyCallback.AliasRequest("unknown")));
+    }
+
+    @Test
+    public void testIssuerSerialNumRequest() throws Exception {
+        assertSame(gamma, handle(new PrivateKeyCallback.IssuerSerialNumRequest(gamma.getIssuerX500Principal(), gamma.getSerialNumber())));
+        assertSame(alpha, handle(new PrivateKeyCallback.IssuerSerialNumRequest(alpha.getIssuerX500Principal(), alpha.getSerialNumber())));
+
+        assertNull(handle(new PrivateKeyCallback.IssuerSerialNumRequest(gamma.getIssuerX500Principal(), gamma.getSerialNumber().add(BigInteger.ONE))));
+        assertNull(handle(new PrivateKeyCallback.IssuerSerialNumRequest(beta.getIssuerX500Principal(), gamma.getSerialNumber())));
+    }
+
+    @Test
+    public void testSubjectKeyIDRequest() throws Exception {
+        // The subject key identifier itself, without any encoding around it
+        byte[] subjectKeyIdExtension = gamma.getExtensionValue("2.5.29.14");
+        assertSame(gamma, handle(new PrivateKeyCallback.SubjectKeyIDRequest(Arrays.copyOfRange(subjectKeyIdExtension, 4, subjectKeyIdExtension.length))));
+
+        assertNull(handle(new PrivateKeyCallback.SubjectKeyIDRequest(new byte[] { 0x01, 0x00 })));
+    }
+
+    @Test
+    public void testDigestRequest() throws Exception {
+        for (X509Certificate certificate : new X509Certificate[] { alpha, beta, gamma }) {
+            assertSame(certificate, handle(new PrivateKeyCallback.DigestRequest(MessageDigest.getInstance("SHA-1").digest(certificate.getEncoded()), null)));
+            assertSame(certificate, handle(new PrivateKeyCallback.DigestRequest(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()), "SHA-256")));
+        }
+
+        assertNull(handle(new PrivateKeyCallback.DigestRequest(new byte[32], "SHA-256")));
+    }
+
+    @Test
+    public void testDefaultKeyIsKept() throws Exception {
+        assertSame(alpha, handle(null));
+        assertSame(alpha, handle(null));
+        assertEquals(1, (int) recoveries.get("alpha"));
+    }
+
+    @Test
+    public void testDefaultKeyIsNotKeptAfterFailedRecovery() throws Exception {
+        failingAliases.add("alpha");
+
+        Certificate fallback = handle(null);
+        assertNotNull(fallback);
+        assertNotSame(alpha, fallback);
+
+        // Recovering the key of alpha may well work the next time, upon which it's the default
+        failingAliases.clear();
+        assertSame(alpha, handle(null));
+        assertSame(alpha, handle(null));
+        assertEquals(2, (int) recoveries.get("alpha"));
+    }
+
+    @Test
+    public void testEntryWithoutKeyIsSkipped() throws Exception {
+        aliasesWithoutKey.add("alpha");
+
+        Certificate defaultCertificate = handle(null);
+        assertNotSame(alpha, defaultCertificate);
+        assertSame(defaultCertificate, handle(null));
+        assertEquals(1, (int) recoveries.get("alpha"));
+
+        assertNull(handle(new PrivateKeyCallback.IssuerSerialNumRequest(alpha.getIssuerX500Principal(), alpha.getSerialNumber())));
+    }
+
+    @Test
+    public void testKeysAreLookedUpAgainWhenKeyStoresChange() throws Exception {
+        PrivateKeyCallback.Request gammaRequest = new PrivateKeyCallback.IssuerSerialNumRequest(gamma.getIssuerX500Principal(), gamma.getSerialNumber());
+        assertSame(gamma, handle(gammaRequest));
+
+        // A keystore that changes in size
+        keyStores[1].deleteEntry("gamma");
+        assertNull(handle(gammaRequest));
+
+        // An entry that's replaced in place is only seen once the version changes
+        keyStores[1].setKeyEntry("gamma", newPrivateKey(), PASSWORD, new Certificate[] { gamma });
+        assertSame(gamma, handle(gammaRequest));
+        keyStores[1].setKeyEntry("gamma", newPrivateKey(), PASSWORD, new Certificate[] { alpha });
+        keyStoresVersion++;
+        assertNull(handle(gammaRequest));
+
+        // Other keystores
+        PrivateKeyCallback.Request betaRequest = new PrivateKeyCallback.IssuerSerialNumRequest(beta.getIssuerX500Principal(), beta.getSerialNumber());
+        assertSame(beta, handle(betaRequest));
+        keyStores = new KeyStore[] { keyStores[0] };
+        assertNull(handle(betaRequest));
+    }
+
+    /**
+     * Looks up keys in the keystores of the test, and by alias through the keystores directly.
+     */
+    class KeyStoreCallbackHandler extends BaseCallbackHandler {
+
+        @Override
+        protected KeyStore[] getKeyStores() {
+            return keyStores;
+        }
+
+        @Override
+        protected long getKeyStoresVersion() {
+            return keyStoresVersion;
+        }
+
+        @Override
+        protected PrivateKey getPrivateKeyForAlias(String alias, int keystoreIndex) throws KeyStoreException, NoSuchAlgorithmException, UnrecoverableKeyException {
+            recoveries.merge(alias, 1, Integer::sum);
+            if (failingAliases.contains(alias)) {
+                throw new UnrecoverableKeyException("Cannot recover " + alias);
+            }
+            if (aliasesWithoutKey.contains(alias)) {
+                return null;
+            }
+
+            return (PrivateKey) keyStores[keystoreIndex].getKey(alias, PASSWORD);
+        }
+
+        @Override
+        protected PrivateKeyEntry getPrivateKeyEntryFromTokenAlias(String alias) throws Exception {
+            for (KeyStore keyStore : keyStores) {
+                if (keyStore.isKeyEntry(alias)) {
+                    return (PrivateKeyEntry) keyStore.getEntry(alias, new KeyStore.PasswordProtection(PASSWORD));
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private Certificate handle(PrivateKeyCallback.Request request) throws Exception {
+        PrivateKeyCallback privateKeyCallback = new PrivateKeyCallback(request);
+        handler.handle(new Callback[] { privateKeyCallback });
+
+        if (privateKeyCallback.getKey() == null) {
+            return null;
+        }
+
+        return privateKeyCallback.getChain()[0];
+    }
+
+    static X509Certificate certificate(String pem) throws Exception {
+        return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(pem.getBytes(US_ASCII)));
+    }
+
+    static KeyStore keyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+
+        return keyStore;
+    }
+
+    private static PrivateKey newPrivateKey() throws Exception {
+        // The handler doesn't care whether the key belongs to the certificate
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+
+        return generator.generateKeyPair().getPrivate();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.enumeration;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.glassfish.epicyro.config.servlet.sam.RequestCapturePolicy;
+import org.glassfish.epicyro.config.servlet.sam.RequestData;
+import org.junit.Test;
+
+/**
+ * Checks that {@link RequestData#of(HttpServletRequest, RequestCapturePolicy)} keeps what a pending login dialog
+ * puts into the session within the limits of the policy, also for very large requests.
+ */
+public class RequestDataCaptureTest {
+
+    private static final String URL = "http://localhost:8080/app/protected";
+
+    private static final RequestCapturePolicy LIMITED = new RequestCapturePolicy(null, 8192, 65536, false);
+
+    @Test
+    public void testLargePostIsCapturedRedirectOnly() throws IOException {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("document", new String[] { randomText(4 * 1024 * 1024) });
+
+        HttpServletRequest request = request("POST", headers(), parameters);
+
+        RequestData unlimited = RequestData.of(request);
+        RequestData limited = RequestData.of(request, LIMITED);
+
+        assertFalse(unlimited.isRedirectOnly());
+        assertTrue(limited.isRedirectOnly());
+        assertEquals(URL + "?page=1", limited.getFullRequestURL());
+
+        // Random text still compresses somewhat
+        assertTrue(serializedSize(unlimited) > 2 * 1024 * 1024);
+        assertTrue(serializedSize(limited) < 1024);
+    }
+
+    @Test
+    public void testLargeHeadersAreCapturedRedirectOnly() throws IOException {
+        Map<String, List<String>> headers = headers();
+        for (int i = 0; i < 1000; i++) {
+            headers.put("X-Large-" + i, singletonList("y".repeat(1024)));
+        }
+
+        RequestData limited = RequestData.of(request("GET", headers, emptyMap()), LIMITED);
+
+        assertTrue(limited.isRedirectOnly());
+        assertTrue(serializedSize(limited) < 1024);
+    }
+
+    @Test
+    public void testSmallRequestIsCapturedInFull() {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("name", new String[] { "value" });
+
+        RequestData limited = RequestData.of(request("POST", headers(), parameters), LIMITED);
+
+        assertFalse(limited.isRedirectOnly());
+        assertEquals("POST", limited.getMethod());
+        assertEquals(headers().keySet(), limited.getHeaders().keySet());
+        assertTrue(Arrays.equals(new String[] { "value" }, limited.getParameters().get("name")));
+        assertEquals(1, limited.getCookies().length);
+    }
+
+    @Test
+    public void testOnlySelectedHeadersAreCaptured() {
+        RequestCapturePolicy policy = new RequestCapturePolicy(Set.of("accept", "USER-AGENT"), -1, -1, false);
+
+        RequestData requestData = RequestData.of(request("GET", headers(), emptyMap()), policy);
+
+        assertEquals(Set.of("Accept", "User-Agent"), requestData.getHeaders().keySet());
+    }
+
+    @Test
+    public void testOnlyGetIsCapturedInFull() {
+        RequestCapturePolicy policy = new RequestCapturePolicy(null, -1, -1, true);
+
+        assertFalse(RequestData.of(request("GET", headers(), emptyMap()), policy).isRedirectOnly());
+
+        RequestData post = RequestData.of(request("POST", headers(), emptyMap()), policy);
+        assertTrue(post.isRedirectOnly());
+        assertEquals("POST", post.getMethod());
+        assertNull(post.getHeaders());
+    }
+
+    private static Map<String, List<String>> headers() {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("Accept", singletonList("text/html"));
+        headers.put("User-Agent", singletonList("Mozilla/5.0"));
+        headers.put("Cookie", singletonList("theme=dark"));
+
+        return headers;
+    }
+
+    private static HttpServletRequest request(String method, Map<String, List<String>> headers, Map<String, String[]> parameters) {
+        return (HttpServletRequest) Proxy.newProxyInstance(
+            RequestDataCaptureTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class },
+            (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "getMethod":
+                        return method;
+                    case "getRequestURL":
+                        return new StringBuffer(URL);
+                    case "getQueryString":
+                        return "page=1";
+                    case "getHeaderNames":
+                        return enumeration(headers.keySet());
+                    case "getHeaders":
+                        return enumeration(headers.get(args[0]));
+                    case "getParameterMap":
+                        return parameters;
+                    case "getCookies":
+                        return new Cookie[] { new Cookie("theme", "dark") };
+                    case "getLocales":
+                        return enumeration(singletonList(Locale.ENGLISH));
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private static String randomText(int length) {
+        Random random = new Random(42);
+
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = (char) ('!' + random.nextInt(94));
+        }
+
+        return new String(text);
+    }
+
+    private static int serializedSize(RequestData requestData) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(requestData);
+        }
+
+        return bytes.size();
+    }
+}
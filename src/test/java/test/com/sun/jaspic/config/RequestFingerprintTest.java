@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static java.util.Collections.emptyEnumeration;
+import static java.util.Collections.emptyMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import org.glassfish.epicyro.config.servlet.sam.RequestData;
+import org.junit.Test;
+
+/**
+ * Checks that saved request data only matches requests with the same target, whatever the hashes of the targets
+ * that it's compared by first.
+ */
+public class RequestFingerprintTest {
+
+    private static final String URL = "http://localhost:8080/app/protected";
+
+    @Test
+    public void testSameTarget() {
+        assertTrue(saved(URL, "page=1").matchesRequest(request(URL, "page=1")));
+        assertTrue(saved(URL, null).matchesRequest(request(URL, null)));
+
+        assertFalse(saved(URL, null).matchesRequest(request(URL + "/other", null)));
+    }
+
+    @Test
+    public void testEmptyQueryIsNoQuery() {
+        assertTrue(saved(URL, "").matchesRequest(request(URL, null)));
+        assertTrue(saved(URL, null).matchesRequest(request(URL, "")));
+        assertTrue(saved(URL, "").matchesRequest(request(URL, "")));
+    }
+
+    @Test
+    public void testOtherQueryDoesNotMatch() {
+        assertFalse(saved(URL, "page=1").matchesRequest(request(URL, "page=2")));
+        assertFalse(saved(URL, "page=1").matchesRequest(request(URL, null)));
+        assertFalse(saved(URL, null).matchesRequest(request(URL, "page=1")));
+    }
+
+    @Test
+    public void testSameHashOtherTargetDoesNotMatch() {
+        // "Aa" and "BB" have the same hash
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        assertFalse(saved(URL + "/Aa", null).matchesRequest(request(URL + "/BB", null)));
+        assertFalse(saved(URL, "Aa").matchesRequest(request(URL, "BB")));
+
+        // The hash is that of the full URL, which is the same when the query string is part of the URL
+        assertFalse(saved(URL, "page=1").matchesRequest(request(URL + "?page=1", null)));
+    }
+
+    @Test
+    public void testFingerprintIsRecomputedAfterDeserialization() throws Exception {
+        RequestData requestData = roundTrip(saved(URL, "page=1"));
+
+        assertTrue(requestData.matchesRequest(request(URL, "page=1")));
+        assertFalse(requestData.matchesRequest(request(URL, "page=2")));
+
+        // Of which the hash is 0, which is also what stands for not computed yet
+        assertTrue(roundTrip(saved("", null)).matchesRequest(request("", null)));
+    }
+
+    private static RequestData saved(String requestURL, String queryString) {
+        return RequestData.of(request(requestURL, queryString));
+    }
+
+    private static HttpServletRequest request(String requestURL, String queryString) {
+        return (HttpServletRequest) Proxy.newProxyInstance(
+            RequestFingerprintTest.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class },
+            (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "getMethod":
+                        return "GET";
+                    case "getRequestURL":
+                        return new StringBuffer(requestURL);
+                    case "getQueryString":
+                        return queryString;
+                    case "getHeaderNames":
+                    case "getLocales":
+                        return emptyEnumeration();
+                    case "getParameterMap":
+                        return emptyMap();
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private static RequestData roundTrip(RequestData requestData) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(requestData);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (RequestData) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import jakarta.security.auth.message.AuthStatus;
+import jakarta.security.auth.message.MessageInfo;
+import jakarta.security.auth.message.config.AuthConfig;
+import jakarta.security.auth.message.config.ServerAuthConfig;
+import jakarta.security.auth.message.config.ServerAuthContext;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.security.auth.Subject;
+import org.glassfish.epicyro.config.helper.AuthConfigVersionCapability;
+import org.glassfish.epicyro.config.module.config.GFServerAuthConfig;
+import org.glassfish.epicyro.services.BaseAuthenticationService;
+import org.junit.Test;
+
+/**
+ * Checks that the server auth contexts cached by {@link BaseAuthenticationService} follow the version of the
+ * configuration of the server auth config.
+ */
+public class ServerAuthContextCacheTest {
+
+    static class TestServerAuthConfig implements ServerAuthConfig {
+
+        final AtomicInteger contextsCreated = new AtomicInteger();
+
+        @Override
+        public ServerAuthContext getAuthContext(String authContextID, Subject serviceSubject, @SuppressWarnings("rawtypes") Map properties) {
+            contextsCreated.incrementAndGet();
+
+            return new ServerAuthContext() {
+                @Override
+                public AuthStatus validateRequest(MessageInfo messageInfo, Subject clientSubject, Subject serviceSubject) {
+                    return AuthStatus.SUCCESS;
+                }
+
+                @Override
+                public AuthStatus secureResponse(MessageInfo messageInfo, Subject serviceSubject) {
+                    return AuthStatus.SEND_SUCCESS;
+                }
+
+                @Override
+                public void cleanSubject(MessageInfo messageInfo, Subject subject) {
+                }
+            };
+        }
+
+        @Override
+        public String getAuthContextID(MessageInfo messageInfo) {
+            return "test";
+        }
+
+        @Override
+        public String getMessageLayer() {
+            return "HttpServlet";
+        }
+
+        @Override
+        public String getAppContext() {
+            return "test";
+        }
+
+        @Override
+        public void refresh() {
+        }
+
+        @Override
+        public boolean isProtected() {
+            return false;
+        }
+    }
+
+    static class VersionedServerAuthConfig extends TestServerAuthConfig implements AuthConfigVersionCapability {
+
+        volatile long version;
+
+        @Override
+        public void refresh() {
+            version++;
+        }
+
+        @Override
+        public long getConfigVersion() {
+            return version;
+        }
+    }
+
+    static class TestAuthenticationService extends BaseAuthenticationService {
+
+        final ServerAuthConfig serverAuthConfig;
+
+        TestAuthenticationService(ServerAuthConfig serverAuthConfig) {
+            this.serverAuthConfig = serverAuthConfig;
+        }
+
+        @Override
+        protected AuthConfig getAuthConfig(boolean isServer) {
+            return serverAuthConfig;
+        }
+    }
+
+    @Test
+    public void testContextsAreKeptUntilRefresh() throws Exception {
+        VersionedServerAuthConfig serverAuthConfig = new VersionedServerAuthConfig();
+        BaseAuthenticationService service = new TestAuthenticationService(serverAuthConfig);
+
+        ServerAuthContext first = service.getServerAuthContext(null);
+        assertSame(first, service.getServerAuthContext(null));
+        assertEquals(1, serverAuthConfig.contextsCreated.get());
+
+        // A refresh may have reloaded the modules
+        serverAuthConfig.refresh();
+
+        ServerAuthContext refreshed = service.getServerAuthContext(null);
+        assertNotSame(first, refreshed);
+        assertSame(refreshed, service.getServerAuthContext(null));
+        assertEquals(2, serverAuthConfig.contextsCreated.get());
+    }
+
+    @Test
+    public void testContextsOfUnversionedConfigsAreNotKept() throws Exception {
+        TestServerAuthConfig serverAuthConfig = new TestServerAuthConfig();
+        BaseAuthenticationService service = new TestAuthenticationService(serverAuthConfig);
+
+        assertNotSame(service.getServerAuthContext(null), service.getServerAuthContext(null));
+        assertEquals(2, serverAuthConfig.contextsCreated.get());
+    }
+
+    @Test
+    public void testContextsOfGFConfigsAreNotKept() {
+        // GF modules get a new instance per context and aren't required to be thread-safe
+        assertFalse(AuthConfigVersionCapability.class.isAssignableFrom(GFServerAuthConfig.class));
+    }
+}
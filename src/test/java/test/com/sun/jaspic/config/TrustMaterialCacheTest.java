@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package test.com.sun.jaspic.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static test.com.sun.jaspic.config.PrivateKeyCallbackTest.ALPHA;
+import static test.com.sun.jaspic.config.PrivateKeyCallbackTest.BETA;
+import static test.com.sun.jaspic.config.PrivateKeyCallbackTest.GAMMA;
+import static test.com.sun.jaspic.config.PrivateKeyCallbackTest.certificate;
+import static test.com.sun.jaspic.config.PrivateKeyCallbackTest.keyStore;
+
+import jakarta.security.auth.message.callback.CertStoreCallback;
+import jakarta.security.auth.message.callback.SecretKeyCallback;
+import java.security.KeyStore;
+import java.security.cert.CertStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.callback.Callback;
+import org.glassfish.epicyro.config.helper.BaseCallbackHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks when a {@link BaseCallbackHandler} hands out the trust material it kept, and when it obtains it again.
+ */
+public class TrustMaterialCacheTest {
+
+    private static final String TTL_PROPERTY = "org.glassfish.epicyro.trust.material.ttl";
+
+    private X509Certificate alpha;
+    private X509Certificate beta;
+    private X509Certificate gamma;
+
+    private KeyStore trustStore;
+    private volatile long keyStoresVersion;
+
+    /**
+     * Hands out the truststore of the test, and a secret key for the alias "known" only.
+     */
+    class TrustStoreCallbackHandler extends BaseCallbackHandler {
+
+        final AtomicInteger secretKeyLookups = new AtomicInteger();
+
+        @Override
+        protected KeyStore getTrustStore() {
+            return trustStore;
+        }
+
+        @Override
+        protected long getKeyStoresVersion() {
+            return keyStoresVersion;
+        }
+
+        @Override
+        protected SecretKey getPasswordSecretKeyForAlias(String alias) {
+            secretKeyLookups.incrementAndGet();
+
+            return "known".equals(alias) ? new SecretKeySpec(new byte[16], "AES") : null;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        alpha = certificate(ALPHA);
+        beta = certificate(BETA);
+        gamma = certificate(GAMMA);
+
+        trustStore = keyStore();
+        trustStore.setCertificateEntry("alpha", alpha);
+        trustStore.setCertificateEntry("beta", beta);
+    }
+
+    @After
+    public void clearTimeToLive() {
+        System.clearProperty(TTL_PROPERTY);
+    }
+
+    @Test
+    public void testCertStoreIsReused() throws Exception {
+        BaseCallbackHandler handler = new TrustStoreCallbackHandler();
+
+        CertStore certStore = certStore(handler);
+        assertSame(certStore, certStore(handler));
+        assertEquals(Set.of(alpha, beta), certificates(certStore));
+    }
+
+    @Test
+    public void testCertStoreFollowsTrustStore() throws Exception {
+        BaseCallbackHandler handler = new TrustStoreCallbackHandler();
+        CertStore certStore = certStore(handler);
+
+        // Another truststore
+        trustStore = keyStore();
+        trustStore.setCertificateEntry("gamma", gamma);
+        CertStore otherCertStore = certStore(handler);
+        assertNotSame(certStore, otherCertStore);
+        assertEquals(Set.of(gamma), certificates(otherCertStore));
+
+        // A truststore that changes in size
+        trustStore.setCertificateEntry("alpha", alpha);
+        assertEquals(Set.of(alpha, gamma), certificates(certStore(handler)));
+    }
+
+    @Test
+    public void testReplacedCertificateNeedsNewVersionOrInvalidation() throws Exception {
+        TrustStoreCallbackHandler handler = new TrustStoreCallbackHandler();
+        CertStore certStore = certStore(handler);
+
+        // Replaced under the same alias, which the size doesn't tell
+        trustStore.setCertificateEntry("beta", gamma);
+        assertSame(certStore, certStore(handler));
+
+        keyStoresVersion++;
+        assertEquals(Set.of(alpha, gamma), certificates(certStore(handler)));
+
+        trustStore.setCertificateEntry("beta", beta);
+        handler.invalidateTrustMaterial();
+        assertEquals(Set.of(alpha, beta), certificates(certStore(handler)));
+    }
+
+    @Test
+    public void testSecretKeysAreKeptUntilInvalidated() throws Exception {
+        TrustStoreCallbackHandler handler = new TrustStoreCallbackHandler();
+
+        SecretKey secretKey = secretKey(handler, "known");
+        assertSame(secretKey, secretKey(handler, "known"));
+        assertEquals(1, handler.secretKeyLookups.get());
+
+        handler.invalidateTrustMaterial();
+        assertNotSame(secretKey, secretKey(handler, "known"));
+        assertEquals(2, handler.secretKeyLookups.get());
+    }
+
+    @Test
+    public void testMissingSecretKeysAreNotKept() throws Exception {
+        TrustStoreCallbackHandler handler = new TrustStoreCallbackHandler();
+
+        assertNull(secretKey(handler, "unknown"));
+        assertNull(secretKey(handler, "unknown"));
+        assertEquals(2, handler.secretKeyLookups.get());
+    }
+
+    @Test
+    public void testTrustMaterialExpires() throws Exception {
+        System.setProperty(TTL_PROPERTY, "50");
+        TrustStoreCallbackHandler handler = new TrustStoreCallbackHandler();
+
+        CertStore certStore = certStore(handler);
+        SecretKey secretKey = secretKey(handler, "known");
+        assertSame(certStore, certStore(handler));
+        assertSame(secretKey, secretKey(handler, "known"));
+
+        Thread.sleep(100);
+
+        assertNotSame(certStore, certStore(handler));
+        assertNotSame(secretKey, secretKey(handler, "known"));
+        assertEquals(2, handler.secretKeyLookups.get());
+    }
+
+    private static CertStore certStore(BaseCallbackHandler handler) throws Exception {
+        CertStoreCallback certStoreCallback = new CertStoreCallback();
+        handler.handle(new Callback[] { certStoreCallback });
+
+        return certStoreCallback.getCertStore();
+    }
+
+    private static SecretKey secretKey(BaseCallbackHandler handler, String alias) throws Exception {
+        SecretKeyCallback secretKeyCallback = new SecretKeyCallback(new SecretKeyCallback.AliasRequest(alias));
+        handler.handle(new Callback[] { secretKeyCallback });
+
+        return secretKeyCallback.getKey();
+    }
+
+    private static Set<Certificate> certificates(CertStore certStore) throws Exception {
+        return new HashSet<>(certStore.getCertificates(null));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package test.com.sun.jaspic.config;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.glassfish.epicyro.config.servlet.sam.Utils;
+import org.junit.Test;
+
+/**
+ * Checks that {@link Utils} encodes and decodes query strings exactly as {@link URLEncoder} and {@link URLDecoder}
+ * do with UTF-8, and how it takes query strings apart.
+ */
+public class UtilsQueryStringTest {
+
+    private static final String SPECIAL = " +%&=?/#:;,é€ 😀😀";
+
+    @Test
+    public void testEncodeMatchesURLEncoder() {
+        Random random = new Random(49);
+        for (int i = 0; i < 20_000; i++) {
+            String string = randomString(random);
+            assertEquals(string, URLEncoder.encode(string, UTF_8), Utils.encodeURL(string));
+        }
+    }
+
+    @Test
+    public void testEncodeUnpairedSurrogates() {
+        for (String string : new String[] { "\ud83d", "a\ude00b", "\ude00\ud83d", "x\ud83d" }) {
+            assertEquals(URLEncoder.encode(string, UTF_8), Utils.encodeURL(string));
+        }
+    }
+
+    @Test
+    public void testDecodeMatchesURLDecoder() {
+        Random random = new Random(50);
+        for (int i = 0; i < 20_000; i++) {
+            String encoded = URLEncoder.encode(randomString(random), UTF_8);
+            assertEquals(encoded, URLDecoder.decode(encoded, UTF_8), Utils.decodeURL(encoded));
+        }
+
+        for (String encoded : new String[] { "", "plain", "a+b", "%41%42", "%c3%a9", "100%25" }) {
+            assertEquals(URLDecoder.decode(encoded, UTF_8), Utils.decodeURL(encoded));
+        }
+    }
+
+    @Test
+    public void testToQueryStringMatchesURLEncoder() {
+        Map<String, List<String>> parameterMap = new LinkedHashMap<>();
+        parameterMap.put("redirect_uri", singletonList("https://example.com/cb?x=1&y=é"));
+        parameterMap.put("scope", asList("openid profile", "email"));
+        parameterMap.put("€", singletonList(""));
+
+        String expected =
+            "redirect_uri=" + URLEncoder.encode("https://example.com/cb?x=1&y=é", UTF_8) +
+            "&scope=" + URLEncoder.encode("openid profile", UTF_8) +
+            "&scope=email" +
+            "&" + URLEncoder.encode("€", UTF_8) + "=";
+
+        assertEquals(expected, Utils.toQueryString(parameterMap));
+        assertEquals(parameterMap, Utils.toParameterMap(expected));
+    }
+
+    @Test
+    public void testToParameterMap() {
+        Map<String, List<String>> parameterMap = Utils.toParameterMap("a=b=c&x=1&flag&x=2&e=&%C3%A9=%E2%82%AC+x&&=v");
+
+        Map<String, List<String>> expected = new LinkedHashMap<>();
+        expected.put("a", singletonList("b=c"));
+        expected.put("x", asList("1", "2"));
+        expected.put("e", singletonList(""));
+        expected.put("é", singletonList("€ x"));
+        expected.put("", singletonList("v"));
+
+        assertEquals(expected, parameterMap);
+    }
+
+    @Test
+    public void testGetSingleParameterFromQueryString() {
+        String queryString = "state=s%201&a=b=c&code=first&code=second";
+
+        assertEquals("s 1", Utils.getSingleParameterFromQueryString(queryString, "state"));
+        assertEquals("b=c", Utils.getSingleParameterFromQueryString(queryString, "a"));
+        assertEquals("first", Utils.getSingleParameterFromQueryString(queryString, "code"));
+        assertNull(Utils.getSingleParameterFromQueryString(queryString, "missing"));
+        assertNull(Utils.getSingleParameterFromQueryString("", "state"));
+        assertNull(Utils.getSingleParameterFromQueryString(null, "state"));
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(16);
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    builder.append((char) (' ' + random.nextInt(95)));
+                    break;
+                case 1:
+                    builder.append(SPECIAL.charAt(random.nextInt(SPECIAL.length())));
+                    break;
+                case 2:
+                    builder.append((char) random.nextInt(0x10000));
+                    break;
+                default:
+                    builder.appendCodePoint(0x10000 + random.nextInt(0x100000));
+            }
+        }
+
+        return builder.toString();
+    }
+}